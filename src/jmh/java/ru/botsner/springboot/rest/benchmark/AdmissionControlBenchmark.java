@@ -0,0 +1,145 @@
+package ru.botsner.springboot.rest.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.botsner.springboot.rest.entity.Employee;
+import ru.botsner.springboot.rest.service.EmployeeService;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Overload over real HTTP: a write storm of many clients against a small connection pool, next to a few readers.
+ * Compare the read latency percentiles with and without admission control; with it, writes beyond the clients'
+ * rates or the adaptive concurrency limit are turned away with {@code 429} or {@code 503} instead of queuing in
+ * front of the pool, as the {@code accepted} and {@code rejected} counters show.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AdmissionControlBenchmark {
+
+    private static final String CLIENT_HEADER = "X-Client-Id";
+
+    @Param({"false", "true"})
+    private boolean admission;
+
+    @Param({"10000"})
+    private int tableSize;
+
+    private ConfigurableApplicationContext context;
+
+    private HttpClient httpClient;
+
+    private String baseUrl;
+
+    private int[] ids;
+
+    private byte[] updateBody;
+
+    private final AtomicInteger clients = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        String id;
+
+        @Setup(Level.Trial)
+        public void setUp(AdmissionControlBenchmark benchmark) {
+            id = "client-" + benchmark.clients.incrementAndGet();
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+        public long accepted;
+
+        public long rejected;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            accepted = 0;
+            rejected = 0;
+        }
+
+        int record(int status) {
+            if (status == 429 || status == 503) {
+                rejected++;
+            } else {
+                accepted++;
+            }
+            return status;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkApplication.start("admission-benchmark", WebApplicationType.SERVLET,
+                "spring.cache.type=none",
+                "server.port=0",
+                "spring.datasource.hikari.maximum-pool-size=4",
+                "app.admission.enabled=" + admission,
+                "app.admission.client-header=" + CLIENT_HEADER,
+                "app.admission.write.rate=20",
+                "app.admission.write.burst=20",
+                "app.admission.concurrency.initial-limit=8",
+                "app.admission.concurrency.target-latency-ms=50");
+        baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort()
+                + "/api/employees/";
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        List<Employee> employees = new ArrayList<>(tableSize);
+        for (int i = 0; i < tableSize; i++) {
+            employees.add(new Employee("Name" + i, "Surname" + i, "Dept" + (i % 10), 1000 + i));
+        }
+        ids = context.getBean(EmployeeService.class).saveEmployees(employees).stream()
+                .mapToInt(Employee::getId)
+                .toArray();
+        updateBody = context.getBean(ObjectMapper.class)
+                .writeValueAsBytes(new Employee("Name", "Surname", "Dept", 1000));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private HttpRequest.Builder request(Client client) {
+        int id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+        return HttpRequest.newBuilder(URI.create(baseUrl + id)).header(CLIENT_HEADER, client.id);
+    }
+
+    @Benchmark
+    @Group("overload")
+    @GroupThreads(64)
+    public int write(Client client, Outcomes outcomes) throws IOException, InterruptedException {
+        HttpRequest request = request(client)
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(updateBody))
+                .build();
+        return outcomes.record(httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode());
+    }
+
+    @Benchmark
+    @Group("overload")
+    @GroupThreads(8)
+    public int read(Client client, Outcomes outcomes) throws IOException, InterruptedException {
+        return outcomes.record(httpClient.send(request(client).build(), HttpResponse.BodyHandlers.discarding())
+                .statusCode());
+    }
+}
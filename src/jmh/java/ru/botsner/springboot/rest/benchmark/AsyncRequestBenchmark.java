@@ -0,0 +1,93 @@
+package ru.botsner.springboot.rest.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.botsner.springboot.rest.entity.Employee;
+import ru.botsner.springboot.rest.service.EmployeeService;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cheap reads by id next to many slow unpaged listings over real HTTP, with few and with many Tomcat threads.
+ * Controller methods hand the database work to the pool sized to the connection pool and release their request
+ * thread, so slow listings waiting for a connection don't take the threads cheap reads need: their latency
+ * percentiles should barely depend on {@code requestThreads}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AsyncRequestBenchmark {
+
+    @Param({"8", "200"})
+    private int requestThreads;
+
+    @Param({"20000"})
+    private int tableSize;
+
+    private ConfigurableApplicationContext context;
+
+    private HttpClient httpClient;
+
+    private String baseUrl;
+
+    private int[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("async-request-benchmark", WebApplicationType.SERVLET,
+                "spring.cache.type=none",
+                "server.port=0",
+                "server.tomcat.threads.max=" + requestThreads,
+                "spring.datasource.hikari.maximum-pool-size=4",
+                "app.admission.enabled=false",
+                "app.compression.enabled=false");
+        baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort()
+                + "/api/employees";
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        List<Employee> employees = new ArrayList<>(tableSize);
+        for (int i = 0; i < tableSize; i++) {
+            employees.add(new Employee("Name" + i, "Surname" + i, "Dept" + (i % 10), 1000 + i));
+        }
+        ids = context.getBean(EmployeeService.class).saveEmployees(employees).stream()
+                .mapToInt(Employee::getId)
+                .toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private int send(String url) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(16)
+    public int listAll() throws IOException, InterruptedException {
+        return send(baseUrl);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public int getById() throws IOException, InterruptedException {
+        return send(baseUrl + "/" + ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+}
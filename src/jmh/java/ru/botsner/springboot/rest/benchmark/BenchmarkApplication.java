@@ -0,0 +1,45 @@
+package ru.botsner.springboot.rest.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.botsner.springboot.rest.SpringBootRestApplication;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String databaseName, WebApplicationType webApplicationType,
+                                                String... properties) {
+        String[] defaults = {
+                "spring.datasource.url=jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1",
+                "spring.datasource.username=sa",
+                "spring.datasource.password=",
+                "spring.jpa.hibernate.ddl-auto=create-drop",
+                "logging.level.root=WARN",
+                // Load tests come from a single client
+                "app.admission.enabled=false"
+        };
+        // Repeated properties would be joined into one value, so the ones given replace the defaults
+        Set<String> overridden = Arrays.stream(properties).map(BenchmarkApplication::name).collect(Collectors.toSet());
+        String[] args = Stream.concat(
+                        Arrays.stream(defaults).filter(property -> !overridden.contains(name(property))),
+                        Arrays.stream(properties))
+                .map(property -> "--" + property)
+                .toArray(String[]::new);
+
+        return new SpringApplicationBuilder(SpringBootRestApplication.class)
+                .web(webApplicationType)
+                .run(args);
+    }
+
+    private static String name(String property) {
+        return property.substring(0, property.indexOf('='));
+    }
+}
@@ -0,0 +1,85 @@
+package ru.botsner.springboot.rest.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.botsner.springboot.rest.dto.EmployeeView;
+import ru.botsner.springboot.rest.entity.Employee;
+import ru.botsner.springboot.rest.service.EmployeeService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads by id and by name with and without the Hibernate second-level and query caches, the service cache
+ * disabled. Reads pick from the first {@code hotKeys} ids and names, a working set that fits the regions; the
+ * table has ten employees per name. It is filled over JDBC by a separate application context.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class EmployeeJpaCacheBenchmark {
+
+    @Param({"false", "true"})
+    private boolean jpaCache;
+
+    @Param({"100000"})
+    private int tableSize;
+
+    @Param({"1000"})
+    private int hotKeys;
+
+    private ConfigurableApplicationContext context;
+
+    private EmployeeService employeeService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String databaseName = "jpa-cache-benchmark-" + System.nanoTime();
+        try (ConfigurableApplicationContext schema = BenchmarkApplication.start(databaseName,
+                WebApplicationType.NONE, "spring.jpa.hibernate.ddl-auto=create")) {
+            insertEmployees(schema.getBean(JdbcTemplate.class));
+        }
+
+        context = BenchmarkApplication.start(databaseName, WebApplicationType.NONE,
+                "spring.jpa.hibernate.ddl-auto=none",
+                "spring.cache.type=none",
+                "spring.jpa.properties.hibernate.cache.use_second_level_cache=" + jpaCache,
+                "spring.jpa.properties.hibernate.cache.use_query_cache=" + jpaCache);
+        employeeService = context.getBean(EmployeeService.class);
+    }
+
+    private void insertEmployees(JdbcTemplate jdbcTemplate) {
+        List<Object[]> rows = new ArrayList<>(10_000);
+        for (int i = 1; i <= tableSize; i++) {
+            rows.add(new Object[]{i, "Name" + i % (tableSize / 10), "Surname" + i, "Dept" + (i % 10), 1000 + i % 5000});
+            if (rows.size() == 10_000 || i == tableSize) {
+                jdbcTemplate.batchUpdate("INSERT INTO employees (id, name, surname, department, salary, version) "
+                        + "VALUES (?, ?, ?, ?, ?, 0)", rows);
+                rows.clear();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Employee getEmployee() {
+        return employeeService.getEmployee(1 + ThreadLocalRandom.current().nextInt(hotKeys));
+    }
+
+    @Benchmark
+    public List<EmployeeView> getAllEmployeesByName() {
+        return employeeService.getAllEmployeesByName("Name" + ThreadLocalRandom.current().nextInt(hotKeys));
+    }
+}
@@ -0,0 +1,73 @@
+package ru.botsner.springboot.rest.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.botsner.springboot.rest.dao.EmployeeRepository;
+import ru.botsner.springboot.rest.entity.Employee;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading the whole table as managed entities versus as read-only projections. Run with {@code -prof gc}:
+ * {@code gc.alloc.rate.norm} divided by {@code tableSize} is the allocation per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeListQueryBenchmark {
+
+    @Param({"10000"})
+    private int tableSize;
+
+    private ConfigurableApplicationContext context;
+
+    private EmployeeRepository employeeRepository;
+
+    private TransactionTemplate transaction;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("list-query-benchmark", WebApplicationType.NONE);
+        employeeRepository = context.getBean(EmployeeRepository.class);
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        transaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+
+        List<Employee> employees = new ArrayList<>(tableSize);
+        for (int i = 0; i < tableSize; i++) {
+            employees.add(new Employee("Name" + i, "Surname" + i, "Dept" + (i % 10), 1000 + i));
+        }
+        employeeRepository.saveAll(employees);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object findAllEntities() {
+        return transaction.execute(status -> employeeRepository.findAll());
+    }
+
+    @Benchmark
+    public Object findAllEntitiesReadOnly() {
+        return readOnlyTransaction.execute(status -> employeeRepository.findAll());
+    }
+
+    @Benchmark
+    public Object findAllProjections() {
+        return readOnlyTransaction.execute(status -> employeeRepository.findAllProjectedBy());
+    }
+}
@@ -0,0 +1,110 @@
+package ru.botsner.springboot.rest.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import ru.botsner.springboot.rest.entity.Employee;
+import ru.botsner.springboot.rest.service.EmployeeService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static ru.botsner.springboot.rest.MockMvcDispatch.performDispatched;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeRESTControllerBenchmark {
+
+    @Param({"10000"})
+    private int tableSize;
+
+    private ConfigurableApplicationContext context;
+
+    private MockMvc mockMvc;
+
+    private byte[] updateBody;
+
+    private int[] ids;
+
+    private int[] updatedIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.start("controller-benchmark", WebApplicationType.SERVLET,
+                "spring.cache.type=none", "server.port=0");
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+        updateBody = context.getBean(ObjectMapper.class)
+                .writeValueAsBytes(new Employee("Updated", "Surname", "Updated", 1000));
+
+        // Updates get rows of their own, so that they don't change what the read benchmarks find; inserted
+        // first, so that pages after a read fixture id don't reach them either
+        EmployeeService employeeService = context.getBean(EmployeeService.class);
+        List<Employee> updated = new ArrayList<>(tableSize / 10);
+        for (int i = 0; i < tableSize / 10; i++) {
+            updated.add(new Employee("Updated", "Surname" + i, "Updated", 1000 + i));
+        }
+        updatedIds = employeeService.saveEmployees(updated).stream().mapToInt(Employee::getId).toArray();
+
+        List<Employee> employees = new ArrayList<>(tableSize);
+        for (int i = 0; i < tableSize; i++) {
+            employees.add(new Employee("Name" + (i % 1000), "Surname" + i, "Dept" + (i % 10), 1000 + i));
+        }
+        ids = employeeService.saveEmployees(employees).stream()
+                .mapToInt(Employee::getId)
+                .toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MvcResult getEmployee() throws Exception {
+        return performDispatched(mockMvc, get("/api/employees/{empId}", randomId())).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult listEmployeesPage() throws Exception {
+        return performDispatched(mockMvc, get("/api/employees")
+                        .param("limit", "100")
+                        .param("after", String.valueOf(randomId())))
+                .andReturn();
+    }
+
+    @Benchmark
+    public MvcResult searchEmployees() throws Exception {
+        return performDispatched(mockMvc, get("/api/employees/search")
+                        .param("department", "Dept" + ThreadLocalRandom.current().nextInt(10))
+                        .param("minSalary", "2000")
+                        .param("maxSalary", "3000"))
+                .andReturn();
+    }
+
+    @Benchmark
+    public MvcResult updateEmployee() throws Exception {
+        return performDispatched(mockMvc, put("/api/employees/{empId}",
+                        updatedIds[ThreadLocalRandom.current().nextInt(updatedIds.length)])
+                        .content(updateBody)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+    }
+
+    private int randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+}
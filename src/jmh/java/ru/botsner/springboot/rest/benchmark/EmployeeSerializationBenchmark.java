@@ -0,0 +1,114 @@
+package ru.botsner.springboot.rest.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.botsner.springboot.rest.dto.EmployeeView;
+import ru.botsner.springboot.rest.entity.Employee;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run with {@code -prof gc}: {@code gc.alloc.rate.norm} divided by {@code listSize} is the allocation per row, and
+ * the {@code responseBytes} counter is the size of one response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeSerializationBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int listSize;
+
+    /**
+     * {@code entity} - reflective bean serialization of {@link Employee},
+     * {@code view} - hand-written serializer of {@link EmployeeView}.
+     */
+    @Param({"entity", "view"})
+    private String model;
+
+    private ObjectMapper objectMapper;
+
+    private ObjectWriter listWriter;
+
+    private ObjectWriter employeeWriter;
+
+    private List<Object> employees;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ResponseSize {
+        public long responseBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            responseBytes = 0;
+        }
+
+        void record(long responseSize) {
+            // EVENTS counters are reported as the per-iteration total, and every response has the same size
+            if (responseBytes == 0) {
+                responseBytes = responseSize;
+            }
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Class<?> type = model.equals("view") ? EmployeeView.class : Employee.class;
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, type));
+        employeeWriter = objectMapper.writerFor(type)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        employees = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            Employee employee = new Employee("Name" + i, "Surname" + i, "Dept" + (i % 10), 1000 + i);
+            employee.setId(i + 1);
+            employees.add(type == EmployeeView.class ? EmployeeView.of(employee) : employee);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeJsonArray(ResponseSize responseSize) throws IOException {
+        byte[] json = listWriter.writeValueAsBytes(employees);
+        responseSize.record(json.length);
+        return json;
+    }
+
+    @Benchmark
+    public void serializeNdjsonStream(ResponseSize responseSize) throws IOException {
+        CountingOutputStream outputStream = new CountingOutputStream();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            for (Object employee : employees) {
+                employeeWriter.writeValue(generator, employee);
+                generator.writeRaw('\n');
+            }
+        }
+        responseSize.record(outputStream.count);
+    }
+}
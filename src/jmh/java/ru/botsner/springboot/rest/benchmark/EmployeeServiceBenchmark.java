@@ -0,0 +1,92 @@
+package ru.botsner.springboot.rest.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.botsner.springboot.rest.dto.EmployeeView;
+import ru.botsner.springboot.rest.entity.Employee;
+import ru.botsner.springboot.rest.service.EmployeeService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeServiceBenchmark {
+
+    @Param({"10000"})
+    private int tableSize;
+
+    private ConfigurableApplicationContext context;
+
+    private EmployeeService employeeService;
+
+    private int[] ids;
+
+    private int[] updatedIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("service-benchmark", WebApplicationType.NONE,
+                "spring.cache.type=none");
+        employeeService = context.getBean(EmployeeService.class);
+
+        // Updates get rows of their own, so that they don't change what the read benchmarks find; inserted
+        // first, so that pages after a read fixture id don't reach them either
+        List<Employee> updated = new ArrayList<>(tableSize / 10);
+        for (int i = 0; i < tableSize / 10; i++) {
+            updated.add(new Employee("Updated", "Surname" + i, "Updated", 1000 + i));
+        }
+        updatedIds = employeeService.saveEmployees(updated).stream().mapToInt(Employee::getId).toArray();
+
+        List<Employee> employees = new ArrayList<>(tableSize);
+        for (int i = 0; i < tableSize; i++) {
+            employees.add(new Employee("Name" + (i % 1000), "Surname" + i, "Dept" + (i % 10), 1000 + i));
+        }
+        ids = employeeService.saveEmployees(employees).stream().mapToInt(Employee::getId).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Employee getEmployee() {
+        return employeeService.getEmployee(randomId());
+    }
+
+    @Benchmark
+    public List<EmployeeView> getEmployeesPage() {
+        return employeeService.getEmployeesAfter(randomId(), 100);
+    }
+
+    @Benchmark
+    public List<EmployeeView> getAllEmployeesByName() {
+        return employeeService.getAllEmployeesByName("Name" + ThreadLocalRandom.current().nextInt(1000));
+    }
+
+    @Benchmark
+    public Employee updateEmployee() {
+        int salary = ThreadLocalRandom.current().nextInt(1000, 100000);
+        int id = updatedIds[ThreadLocalRandom.current().nextInt(updatedIds.length)];
+        return employeeService.updateEmployee(new Employee("Updated", "Surname", "Updated", salary), id);
+    }
+
+    @Benchmark
+    public Employee saveAndDeleteEmployee() {
+        Employee employee = new Employee("Transient", "Surname", "Dept", 1000);
+        employeeService.saveEmployee(employee);
+        return employeeService.deleteEmployee(employee.getId());
+    }
+
+    private int randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+}
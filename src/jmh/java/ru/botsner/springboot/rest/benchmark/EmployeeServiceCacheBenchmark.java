@@ -0,0 +1,62 @@
+package ru.botsner.springboot.rest.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.botsner.springboot.rest.entity.Employee;
+import ru.botsner.springboot.rest.service.EmployeeService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class EmployeeServiceCacheBenchmark {
+
+    @Param({"none", "caffeine"})
+    private String cacheType;
+
+    @Param({"10000"})
+    private int tableSize;
+
+    @Param({"100"})
+    private int hotSetSize;
+
+    private ConfigurableApplicationContext context;
+
+    private EmployeeService employeeService;
+
+    private int[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("cache-benchmark", WebApplicationType.NONE,
+                "spring.cache.type=" + cacheType);
+        employeeService = context.getBean(EmployeeService.class);
+
+        List<Employee> employees = new ArrayList<>(tableSize);
+        for (int i = 0; i < tableSize; i++) {
+            employees.add(new Employee("Name" + i, "Surname" + i, "Dept" + (i % 10), 1000 + i));
+        }
+        ids = employeeService.saveEmployees(employees).stream().mapToInt(Employee::getId).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Employee getEmployeeHotSet() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int index = random.nextInt(100) < 95 ? random.nextInt(hotSetSize) : random.nextInt(ids.length);
+        return employeeService.getEmployee(ids[index]);
+    }
+}
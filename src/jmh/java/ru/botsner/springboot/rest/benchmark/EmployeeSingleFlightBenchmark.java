@@ -0,0 +1,99 @@
+package ru.botsner.springboot.rest.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.botsner.springboot.rest.dto.EmployeeView;
+import ru.botsner.springboot.rest.entity.Employee;
+import ru.botsner.springboot.rest.service.EmployeeService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thundering herd: every thread reads the same employee, or the same name, with the cache off, so that all of them
+ * miss at once and queue for the connection pool. Compare the latency percentiles with and without single-flight,
+ * and divide the {@code queries} counter by {@code reads} for the database queries per read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(64)
+public class EmployeeSingleFlightBenchmark {
+
+    @Param({"false", "true"})
+    private boolean singleFlight;
+
+    @Param({"10000"})
+    private int tableSize;
+
+    private ConfigurableApplicationContext context;
+
+    private EmployeeService employeeService;
+
+    private int hotId;
+
+    private String hotName;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class QueryCount {
+        public long reads;
+
+        public long queries;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            reads = 0;
+            queries = 0;
+        }
+
+        void record(long statementsBefore) {
+            reads++;
+            queries += ThreadStatementCounter.count() - statementsBefore;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("single-flight-benchmark", WebApplicationType.NONE,
+                "spring.cache.type=none",
+                "app.employees.single-flight.enabled=" + singleFlight,
+                "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                        + ThreadStatementCounter.class.getName());
+        employeeService = context.getBean(EmployeeService.class);
+
+        List<Employee> employees = new ArrayList<>(tableSize);
+        for (int i = 0; i < tableSize; i++) {
+            employees.add(new Employee("Name" + (i % 100), "Surname" + i, "Dept" + (i % 10), 1000 + i));
+        }
+        Employee hot = employeeService.saveEmployees(employees).get(0);
+        hotId = hot.getId();
+        hotName = hot.getName();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Employee getEmployee(QueryCount queryCount) {
+        long before = ThreadStatementCounter.count();
+        Employee employee = employeeService.getEmployee(hotId);
+        queryCount.record(before);
+        return employee;
+    }
+
+    @Benchmark
+    public List<EmployeeView> getAllEmployeesByName(QueryCount queryCount) {
+        long before = ThreadStatementCounter.count();
+        List<EmployeeView> employees = employeeService.getAllEmployeesByName(hotName);
+        queryCount.record(before);
+        return employees;
+    }
+}
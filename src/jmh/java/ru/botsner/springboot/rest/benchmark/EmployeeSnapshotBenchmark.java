@@ -0,0 +1,86 @@
+package ru.botsner.springboot.rest.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.botsner.springboot.rest.dto.EmployeeView;
+import ru.botsner.springboot.rest.entity.Employee;
+import ru.botsner.springboot.rest.service.EmployeeService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single employee and by-name reads served by the database versus the memory-mapped snapshot, with the cache off.
+ * Run with {@code -prof gc} to compare the allocation per read as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class EmployeeSnapshotBenchmark {
+
+    @Param({"database", "snapshot"})
+    private String source;
+
+    @Param({"100000"})
+    private int tableSize;
+
+    private Path snapshotDirectory;
+
+    private ConfigurableApplicationContext context;
+
+    private EmployeeService employeeService;
+
+    private int[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        snapshotDirectory = Files.createTempDirectory("employee-snapshot-benchmark");
+        context = BenchmarkApplication.start("snapshot-benchmark", WebApplicationType.NONE,
+                "spring.cache.type=none",
+                "app.employees.snapshot.enabled=" + "snapshot".equals(source),
+                "app.employees.snapshot.path=" + snapshotDirectory.resolve("employees.snapshot"));
+        employeeService = context.getBean(EmployeeService.class);
+
+        List<Employee> employees = new ArrayList<>(tableSize);
+        for (int i = 0; i < tableSize; i++) {
+            employees.add(new Employee("Name" + (i % 1000), "Surname" + i, "Dept" + (i % 10), 1000 + i));
+        }
+        ids = employeeService.saveEmployees(employees).stream().mapToInt(Employee::getId).toArray();
+
+        // Wait for the snapshot to catch up with the inserts
+        while (employeeService.getEmployee(ids[ids.length - 1]) == null) {
+            Thread.sleep(10);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        try (var files = Files.list(snapshotDirectory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(snapshotDirectory);
+    }
+
+    @Benchmark
+    public Employee getEmployee() {
+        return employeeService.getEmployee(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    public List<EmployeeView> getAllEmployeesByName() {
+        return employeeService.getAllEmployeesByName("Name" + ThreadLocalRandom.current().nextInt(1000));
+    }
+}
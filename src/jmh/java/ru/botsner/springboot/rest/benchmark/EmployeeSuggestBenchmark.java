@@ -0,0 +1,108 @@
+package ru.botsner.springboot.rest.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.botsner.springboot.rest.dto.EmployeeView;
+import ru.botsner.springboot.rest.service.EmployeeService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Type-ahead suggestions over a large table from the in-memory name index versus the database prefix query it
+ * falls back to. Names and surnames are made of random syllables, about 5,000 distinct names and 100,000 distinct
+ * surnames; queries range from one letter to two words. The table is filled over JDBC and the application started
+ * afterwards, so that the index is built as at startup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Threads(4)
+public class EmployeeSuggestBenchmark {
+
+    private static final String[] SYLLABLES = {"an", "bel", "car", "dor", "el", "fin", "gar", "hel", "ian", "jo",
+            "kar", "lin", "mar", "nor", "ol", "per", "ri", "san", "tor", "val", "wen", "zel", "ko", "vic", "mi", "la"};
+
+    @Param({"database", "index"})
+    private String source;
+
+    @Param({"1000000"})
+    private int tableSize;
+
+    @Param({"M", "Mar", "ovi", "Mar Lin"})
+    private String query;
+
+    private ConfigurableApplicationContext context;
+
+    private EmployeeService employeeService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        String databaseName = "suggest-benchmark-" + System.nanoTime();
+        try (ConfigurableApplicationContext schema = BenchmarkApplication.start(databaseName,
+                WebApplicationType.NONE, "spring.jpa.hibernate.ddl-auto=create",
+                "app.employees.suggest.enabled=false")) {
+            insertEmployees(schema.getBean(JdbcTemplate.class));
+        }
+
+        context = BenchmarkApplication.start(databaseName, WebApplicationType.NONE,
+                "spring.jpa.hibernate.ddl-auto=none",
+                "spring.cache.type=none",
+                "app.employees.suggest.enabled=" + "index".equals(source));
+        employeeService = context.getBean(EmployeeService.class);
+
+        // The database prefix match is case-sensitive in H2, so lower case only matches once the index is built
+        if ("index".equals(source)) {
+            while (employeeService.suggestEmployees("an", 1).isEmpty()) {
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    private void insertEmployees(JdbcTemplate jdbcTemplate) {
+        Random random = new Random(42);
+        String[] names = words(random, 5_000);
+        String[] surnames = words(random, 100_000);
+        List<Object[]> rows = new ArrayList<>(10_000);
+        for (int i = 1; i <= tableSize; i++) {
+            rows.add(new Object[]{i, names[random.nextInt(names.length)], surnames[random.nextInt(surnames.length)],
+                    "Dept" + (i % 10), 1000 + i % 5000});
+            if (rows.size() == 10_000 || i == tableSize) {
+                jdbcTemplate.batchUpdate("INSERT INTO employees (id, name, surname, department, salary, version) "
+                        + "VALUES (?, ?, ?, ?, ?, 0)", rows);
+                rows.clear();
+            }
+        }
+    }
+
+    private static String[] words(Random random, int count) {
+        String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder word = new StringBuilder();
+            int syllables = 2 + random.nextInt(3);
+            for (int j = 0; j < syllables; j++) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            word.setCharAt(0, Character.toUpperCase(word.charAt(0)));
+            words[i] = word.toString();
+        }
+        return words;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<EmployeeView> suggestEmployees() {
+        return employeeService.suggestEmployees(query, 10);
+    }
+}
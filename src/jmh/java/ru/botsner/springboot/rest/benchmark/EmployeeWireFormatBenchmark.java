@@ -0,0 +1,99 @@
+package ru.botsner.springboot.rest.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.botsner.springboot.rest.dto.EmployeeView;
+import ru.botsner.springboot.rest.entity.Employee;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the list representations served by content negotiation. The {@code payloadBytes} counter is the size
+ * of one encoded list; run with {@code -prof gc} for the allocation per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeWireFormatBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int listSize;
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    private ObjectWriter listWriter;
+
+    private ObjectReader listReader;
+
+    private List<EmployeeView> employees;
+
+    private byte[] encoded;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PayloadSize {
+        public long payloadBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            payloadBytes = 0;
+        }
+
+        void record(long payloadSize) {
+            // EVENTS counters are reported as the per-iteration total, and every payload has the same size
+            if (payloadBytes == 0) {
+                payloadBytes = payloadSize;
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().factory(factory()).build();
+        listWriter = objectMapper.writerFor(
+                objectMapper.getTypeFactory().constructCollectionType(List.class, EmployeeView.class));
+        listReader = objectMapper.readerFor(Employee[].class);
+
+        employees = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            employees.add(new EmployeeView(i + 1, "Name" + i, "Surname" + i, "Dept" + (i % 10), 1000 + i));
+        }
+        encoded = listWriter.writeValueAsBytes(employees);
+    }
+
+    private JsonFactory factory() {
+        switch (format) {
+            case "cbor":
+                return new CBORFactory();
+            case "smile":
+                return new SmileFactory();
+            default:
+                return new JsonFactory();
+        }
+    }
+
+    @Benchmark
+    public byte[] encode(PayloadSize payloadSize) throws IOException {
+        byte[] payload = listWriter.writeValueAsBytes(employees);
+        payloadSize.record(payload.length);
+        return payload;
+    }
+
+    @Benchmark
+    public Employee[] decode() throws IOException {
+        return listReader.readValue(encoded);
+    }
+}
@@ -0,0 +1,71 @@
+package ru.botsner.springboot.rest.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import ru.botsner.springboot.rest.entity.Employee;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static ru.botsner.springboot.rest.MockMvcDispatch.performDispatched;
+
+/**
+ * {@code POST /api/employees} through MockMvc without an {@code Idempotency-Key}, with a new key per request (the
+ * overhead of fingerprinting and storing the response on the write path) and with the same key every time (a
+ * retry answered from the store without a database call).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdempotentWriteBenchmark {
+
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    @Param({"none", "unique", "replayed"})
+    private String idempotencyKey;
+
+    private ConfigurableApplicationContext context;
+
+    private MockMvc mockMvc;
+
+    private byte[] body;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.start("idempotency-benchmark", WebApplicationType.SERVLET,
+                "spring.cache.type=none", "server.port=0");
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+        body = context.getBean(ObjectMapper.class)
+                .writeValueAsBytes(new Employee("Name", "Surname", "Dept", 1000));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MvcResult createEmployee() throws Exception {
+        MockHttpServletRequestBuilder request = post("/api/employees")
+                .content(body)
+                .contentType(MediaType.APPLICATION_JSON);
+        if ("unique".equals(idempotencyKey)) {
+            request.header(IDEMPOTENCY_KEY_HEADER, UUID.randomUUID().toString());
+        } else if ("replayed".equals(idempotencyKey)) {
+            request.header(IDEMPOTENCY_KEY_HEADER, "retried");
+        }
+        return performDispatched(mockMvc, request).andReturn();
+    }
+}
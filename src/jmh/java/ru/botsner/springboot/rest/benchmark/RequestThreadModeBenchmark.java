@@ -0,0 +1,78 @@
+package ru.botsner.springboot.rest.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.botsner.springboot.rest.entity.Employee;
+import ru.botsner.springboot.rest.service.EmployeeService;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test over real HTTP: many concurrent clients against Tomcat on platform threads
+ * and on virtual threads (the latter needs JDK 21+). Run it with both modes and compare
+ * throughput and the sampled latency percentiles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(256)
+public class RequestThreadModeBenchmark {
+
+    @Param({"platform", "virtual"})
+    private String threadMode;
+
+    @Param({"10000"})
+    private int tableSize;
+
+    private ConfigurableApplicationContext context;
+
+    private HttpClient httpClient;
+
+    private String baseUrl;
+
+    private int[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("thread-mode-benchmark", WebApplicationType.SERVLET,
+                "spring.cache.type=none",
+                "server.port=0",
+                "spring.profiles.active=" + ("virtual".equals(threadMode) ? "virtual-threads" : "default"));
+        baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort()
+                + "/api/employees";
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        List<Employee> employees = new ArrayList<>(tableSize);
+        for (int i = 0; i < tableSize; i++) {
+            employees.add(new Employee("Name" + i, "Surname" + i, "Dept" + (i % 10), 1000 + i));
+        }
+        ids = context.getBean(EmployeeService.class).saveEmployees(employees).stream()
+                .mapToInt(Employee::getId)
+                .toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int listEmployeesPage() throws IOException, InterruptedException {
+        int after = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "?limit=100&after=" + after)).build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
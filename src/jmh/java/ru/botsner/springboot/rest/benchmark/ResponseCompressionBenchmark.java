@@ -0,0 +1,134 @@
+package ru.botsner.springboot.rest.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.botsner.springboot.rest.config.ResponseCompressionFilter;
+import ru.botsner.springboot.rest.dto.EmployeeView;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU cost against bytes saved: a JSON employee list of {@code listSize} rows written through
+ * {@link ResponseCompressionFilter} uncompressed ({@code identity}) and at several gzip levels. Compare the time
+ * per operation with the {@code responseBytes} counter; {@code -prof gc} shows what the pooled encoders save.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseCompressionBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int listSize;
+
+    @Param({"identity", "1", "6", "9"})
+    private String encoding;
+
+    private ResponseCompressionFilter filter;
+
+    private FilterChain chain;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ResponseSize {
+        public long responseBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            responseBytes = 0;
+        }
+
+        void record(long responseSize) {
+            // EVENTS counters are reported as the per-iteration total, and every response has the same size
+            if (responseBytes == 0) {
+                responseBytes = responseSize;
+            }
+        }
+    }
+
+    /**
+     * Counts the body instead of keeping it, so that both encodings pay the same for the sink.
+     */
+    private static class CountingResponse extends MockHttpServletResponse {
+        private long count;
+
+        private final ServletOutputStream outputStream = new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                count++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                count += len;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        };
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return outputStream;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int level = "identity".equals(encoding) ? 0 : Integer.parseInt(encoding);
+        filter = new ResponseCompressionFilter(Map.of("application/json", level), 2048, 8192, 4);
+
+        List<EmployeeView> employees = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            employees.add(new EmployeeView(i + 1, "Name" + i, "Surname" + i, "Dept" + (i % 10), 1000 + i));
+        }
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        ObjectWriter listWriter = objectMapper.writerFor(
+                objectMapper.getTypeFactory().constructCollectionType(List.class, EmployeeView.class));
+
+        chain = (request, response) -> {
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            listWriter.writeValue(response.getOutputStream(), employees);
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        filter.destroy();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse listAllEmployees(ResponseSize responseSize) throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/employees");
+        if (!"identity".equals(encoding)) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        }
+        CountingResponse response = new CountingResponse();
+
+        filter.doFilter(request, response, chain);
+        responseSize.record(response.count);
+        return response;
+    }
+}
@@ -0,0 +1,225 @@
+package ru.botsner.springboot.rest.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start of the packaged application in a new JVM, eagerly initialized, with the {@code fast-start} profile,
+ * and with the profile and the class data sharing archive: time until the port accepts connections, and time of
+ * the first request after that. Needs the {@code fast-start} build first, with the same JDK:
+ * <pre>
+ * mvn -P fast-start,benchmark package exec:exec -DskipTests -Djmh.args="StartupBenchmark"
+ * </pre>
+ * The application runs against an H2 file database created and filled before the trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StartupBenchmark {
+
+    private static final long START_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(3);
+
+    @Param({"default", "fast-start", "fast-start-cds"})
+    private String mode;
+
+    @Param({"1000"})
+    private int tableSize;
+
+    private Path directory;
+
+    private Path jar;
+
+    private Path database;
+
+    private HttpClient httpClient;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException, SQLException {
+        directory = Path.of(System.getProperty("fast-start.directory", "target/fast-start")).toAbsolutePath();
+        try (var jars = Files.list(directory)) {
+            jar = jars.filter(path -> path.getFileName().toString().endsWith("-fast-start.jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No application jar in " + directory
+                            + ", build it with the fast-start profile first"));
+        }
+        if ("fast-start-cds".equals(mode) && !Files.exists(directory.resolve("application.jsa"))) {
+            throw new IllegalStateException("No class data sharing archive in " + directory);
+        }
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        // The application creates the schema, so that it matches the entities
+        database = Files.createTempDirectory("startup-benchmark").resolve("employees");
+        Process schema = launch("default", freePort(), "create", "--app.fast-start.exit-after-startup=true");
+        if (!schema.waitFor(START_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS) || schema.exitValue() != 0) {
+            schema.destroyForcibly();
+            throw new IllegalStateException("Could not create the schema, see " + log());
+        }
+        try (Connection connection = DriverManager.getConnection(url(), "sa", "");
+             PreparedStatement insert = connection.prepareStatement("INSERT INTO employees "
+                     + "(id, name, surname, department, salary, version) VALUES (?, ?, ?, ?, ?, 0)")) {
+            for (int i = 1; i <= tableSize; i++) {
+                insert.setInt(1, i);
+                insert.setString(2, "Name" + i);
+                insert.setString(3, "Surname" + i);
+                insert.setString(4, "Dept" + (i % 10));
+                insert.setInt(5, 1000 + i);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Launch {
+
+        Process process;
+
+        int port;
+
+        @Setup(Level.Invocation)
+        public void setUp() throws IOException {
+            port = freePort();
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() throws InterruptedException {
+            stop(process);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Listening {
+
+        Process process;
+
+        URI firstRequest;
+
+        @Setup(Level.Invocation)
+        public void setUp(StartupBenchmark benchmark) throws IOException, InterruptedException {
+            int port = freePort();
+            process = benchmark.launch(benchmark.mode, port, "none");
+            benchmark.awaitListening(process, port);
+            firstRequest = URI.create("http://localhost:" + port + "/api/employees?limit=100&after=0");
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() throws InterruptedException {
+            stop(process);
+        }
+    }
+
+    @Benchmark
+    public void startUp(Launch launch) throws IOException, InterruptedException {
+        launch.process = launch(mode, launch.port, "none");
+        awaitListening(launch.process, launch.port);
+    }
+
+    @Benchmark
+    public int firstRequest(Listening listening) throws IOException, InterruptedException {
+        HttpResponse<Void> response = httpClient.send(HttpRequest.newBuilder(listening.firstRequest).build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("First request failed with " + response.statusCode() + ", see " + log());
+        }
+        return response.statusCode();
+    }
+
+    private Process launch(String mode, int port, String ddlAuto, String... properties) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if ("fast-start-cds".equals(mode)) {
+            // Fails rather than silently running without the archive if it doesn't match this JVM or classpath
+            command.add("-XX:SharedArchiveFile=" + directory.resolve("application.jsa"));
+            command.add("-Xshare:on");
+        }
+        command.add("-cp");
+        command.add(jar + File.pathSeparator + h2Jar());
+        command.add("ru.botsner.springboot.rest.SpringBootRestApplication");
+        command.add("--spring.profiles.active=" + ("default".equals(mode) ? "default" : "fast-start"));
+        command.add("--spring.datasource.url=" + url());
+        command.add("--spring.datasource.username=sa");
+        command.add("--spring.datasource.password=");
+        command.add("--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect");
+        command.add("--spring.jpa.hibernate.ddl-auto=" + ddlAuto);
+        command.add("--server.port=" + port);
+        command.add("--logging.level.root=WARN");
+        command.addAll(List.of(properties));
+
+        return new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log().toFile())
+                .start();
+    }
+
+    private void awaitListening(Process process, int port) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + START_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Application exited with " + process.exitValue() + ", see " + log());
+            }
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress("localhost", port), 100);
+                return;
+            } catch (IOException e) {
+                Thread.sleep(5);
+            }
+        }
+        throw new IllegalStateException("Application didn't start listening, see " + log());
+    }
+
+    private static void stop(Process process) throws InterruptedException {
+        if (process == null) {
+            return;
+        }
+        // Graceful, so that the database file is closed cleanly for the next launch
+        process.destroy();
+        if (!process.waitFor(1, TimeUnit.MINUTES)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+
+    private String url() {
+        return "jdbc:h2:file:" + database;
+    }
+
+    private Path log() {
+        return directory.resolve("startup-benchmark.log");
+    }
+
+    private static String h2Jar() {
+        try {
+            return Path.of(org.h2.Driver.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package ru.botsner.springboot.rest.benchmark;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the calling thread, so that concurrent benchmark threads can
+ * tell the queries they ran from the ones they were spared.
+ */
+public class ThreadStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    static long count() {
+        return COUNT.get()[0];
+    }
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+}
@@ -2,7 +2,11 @@ package ru.botsner.springboot.rest;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.core.Ordered;
 
+// Caching advice wraps the transactional one, so evictions only happen after commit
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
 @SpringBootApplication
 public class SpringBootRestApplication {
 
@@ -0,0 +1,96 @@
+package ru.botsner.springboot.rest.config;
+
+/**
+ * Limit on requests in flight that adapts to observed latency (AIMD): a request slower than the target latency, or
+ * failing, cuts the limit by the backoff ratio, at most once per target latency so that one burst of slow requests
+ * counts as one signal; a fast request while at least half the limit is in use raises it by one.
+ * <p>
+ * Reads may use the whole limit, writes only their share of it, so that a burst of writes can't take every slot
+ * from reads.
+ */
+final class AdaptiveConcurrencyLimit {
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long targetLatencyNanos;
+
+    private final double backoffRatio;
+
+    private final double writeShare;
+
+    private double limit;
+
+    private int inFlight;
+
+    private int writesInFlight;
+
+    private long decreasedAt;
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long targetLatencyNanos,
+                             double backoffRatio, double writeShare, long now) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Expected 1 <= min <= initial <= max concurrency limit, got "
+                    + minLimit + ", " + initialLimit + ", " + maxLimit);
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1 || writeShare <= 0 || writeShare > 1) {
+            throw new IllegalArgumentException("Backoff ratio must be in (0, 1) and write share in (0, 1], got "
+                    + backoffRatio + " and " + writeShare);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = targetLatencyNanos;
+        this.backoffRatio = backoffRatio;
+        this.writeShare = writeShare;
+        this.limit = initialLimit;
+        this.decreasedAt = now - targetLatencyNanos;
+    }
+
+    synchronized boolean tryAcquire(boolean write) {
+        int current = (int) limit;
+        if (inFlight >= current || write && writesInFlight >= Math.max(1, (int) (current * writeShare))) {
+            return false;
+        }
+        inFlight++;
+        if (write) {
+            writesInFlight++;
+        }
+        return true;
+    }
+
+    /**
+     * @param latencyNanos time the request took, or a negative value if it shouldn't count as a sample
+     */
+    synchronized void release(boolean write, long latencyNanos, boolean failed, long now) {
+        int inFlightBefore = inFlight;
+        inFlight--;
+        if (write) {
+            writesInFlight--;
+        }
+        if (latencyNanos < 0) {
+            return;
+        }
+
+        if (failed || latencyNanos > targetLatencyNanos) {
+            if (now - decreasedAt >= targetLatencyNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                decreasedAt = now;
+            }
+        } else if (inFlightBefore * 2 >= (int) limit) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    synchronized int getWritesInFlight() {
+        return writesInFlight;
+    }
+}
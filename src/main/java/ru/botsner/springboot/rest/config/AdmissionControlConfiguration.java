@@ -0,0 +1,53 @@
+package ru.botsner.springboot.rest.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-client rate limits and adaptive load shedding in front of the API. Ordered right after the request metrics
+ * filter, so that rejected requests are still timed and counted in {@code http.server.requests}. Off unless
+ * {@code app.admission.enabled=true}: behind a proxy every client shares its address, so set the client header too.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("!reactive")
+@ConditionalOnProperty(name = "app.admission.enabled", havingValue = "true")
+public class AdmissionControlConfiguration {
+
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(
+            @Value("${app.admission.read.rate:200}") double readRate,
+            @Value("${app.admission.read.burst:400}") int readBurst,
+            @Value("${app.admission.write.rate:50}") double writeRate,
+            @Value("${app.admission.write.burst:100}") int writeBurst,
+            @Value("${app.admission.concurrency.initial-limit:20}") int initialLimit,
+            @Value("${app.admission.concurrency.min-limit:4}") int minLimit,
+            @Value("${app.admission.concurrency.max-limit:200}") int maxLimit,
+            @Value("${app.admission.concurrency.target-latency-ms:250}") long targetLatencyMillis,
+            @Value("${app.admission.concurrency.backoff-ratio:0.9}") double backoffRatio,
+            @Value("${app.admission.concurrency.write-share:0.5}") double writeShare,
+            @Value("${app.admission.concurrency.retry-after-seconds:1}") long retryAfterSeconds,
+            @Value("${app.admission.client-header:}") String clientHeader,
+            @Value("${app.admission.max-clients:100000}") int maxClients,
+            @Value("${app.admission.excluded-paths:/api/employees/changes}") List<String> excludedPaths,
+            MeterRegistry meterRegistry) {
+        AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit,
+                TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis), backoffRatio, writeShare, System.nanoTime());
+        FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(
+                new AdmissionControlFilter(
+                        new AdmissionControlFilter.Limits(readRate, readBurst, writeRate, writeBurst),
+                        concurrencyLimit, clientHeader, excludedPaths, retryAfterSeconds, maxClients,
+                        meterRegistry));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return registration;
+    }
+}
@@ -0,0 +1,232 @@
+package ru.botsner.springboot.rest.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admission control: a request is rejected right away rather than queued when its client has used up its token
+ * bucket for the request's class, reads ({@code GET}, {@code HEAD}) or writes ({@code 429}), or when the
+ * {@link AdaptiveConcurrencyLimit} is reached ({@code 503}). Both carry {@code Retry-After}. A request shed for
+ * concurrency gets its token back, so that a client retrying after it isn't rate limited for load it never put on.
+ * <p>
+ * Clients are told apart by the configured header, meant to be set by a gateway, or else by remote address.
+ * Asynchronous requests are sampled when they complete, and count as failed if they time out or fail; streamed
+ * responses hold their slot until complete but are not latency samples.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final Set<String> STREAMED_TYPES =
+            Set.of(MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.APPLICATION_NDJSON_VALUE);
+
+    public static final class Limits {
+        final double readsPerSecond;
+        final int readBurst;
+        final double writesPerSecond;
+        final int writeBurst;
+
+        public Limits(double readsPerSecond, int readBurst, double writesPerSecond, int writeBurst) {
+            this.readsPerSecond = readsPerSecond;
+            this.readBurst = readBurst;
+            this.writesPerSecond = writesPerSecond;
+            this.writeBurst = writeBurst;
+        }
+    }
+
+    private final Limits limits;
+
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+    private final String clientHeader;
+
+    private final List<String> excludedPaths;
+
+    private final long concurrencyRetryAfterSeconds;
+
+    // Keyed by class and client; a bucket idle for a minute is full again anyway
+    private final Cache<String, TokenBucket> buckets;
+
+    private final Counter readsRateLimited;
+
+    private final Counter writesRateLimited;
+
+    private final Counter readsShed;
+
+    private final Counter writesShed;
+
+    AdmissionControlFilter(Limits limits, AdaptiveConcurrencyLimit concurrencyLimit, String clientHeader,
+                           List<String> excludedPaths, long concurrencyRetryAfterSeconds, int maxClients,
+                           MeterRegistry meterRegistry) {
+        this.limits = limits;
+        this.concurrencyLimit = concurrencyLimit;
+        this.clientHeader = clientHeader == null || clientHeader.isBlank() ? null : clientHeader;
+        this.excludedPaths = List.copyOf(excludedPaths);
+        this.concurrencyRetryAfterSeconds = concurrencyRetryAfterSeconds;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(2L * maxClients)
+                .expireAfterAccess(Duration.ofMinutes(1))
+                .build();
+
+        readsRateLimited = rejected(meterRegistry, "rate-limit", "read");
+        writesRateLimited = rejected(meterRegistry, "rate-limit", "write");
+        readsShed = rejected(meterRegistry, "concurrency", "read");
+        writesShed = rejected(meterRegistry, "concurrency", "write");
+        Gauge.builder("admission.concurrency.limit", concurrencyLimit, AdaptiveConcurrencyLimit::getLimit)
+                .description("Current adaptive limit on requests in flight")
+                .register(meterRegistry);
+        Gauge.builder("admission.in.flight", concurrencyLimit, AdaptiveConcurrencyLimit::getInFlight)
+                .description("Admitted requests in flight")
+                .register(meterRegistry);
+        Gauge.builder("admission.writes.in.flight", concurrencyLimit, AdaptiveConcurrencyLimit::getWritesInFlight)
+                .description("Admitted writes in flight")
+                .register(meterRegistry);
+    }
+
+    private static Counter rejected(MeterRegistry meterRegistry, String reason, String requestClass) {
+        return Counter.builder("admission.rejected")
+                .description("Requests rejected by admission control")
+                .tags("reason", reason, "class", requestClass)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return excludedPaths.stream().anyMatch(excluded -> isAtOrBelow(path, excluded));
+    }
+
+    private static boolean isAtOrBelow(String path, String excluded) {
+        if (!path.startsWith(excluded)) {
+            return false;
+        }
+        return path.length() == excluded.length() || excluded.endsWith("/") || path.charAt(excluded.length()) == '/';
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean write = !"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod());
+        long start = System.nanoTime();
+
+        TokenBucket bucket = buckets.get((write ? "write:" : "read:") + clientKey(request), key -> write
+                ? new TokenBucket(limits.writesPerSecond, limits.writeBurst, start)
+                : new TokenBucket(limits.readsPerSecond, limits.readBurst, start));
+        long waitNanos = bucket.tryAcquire(start);
+        if (waitNanos > 0) {
+            (write ? writesRateLimited : readsRateLimited).increment();
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, TimeUnit.NANOSECONDS.toSeconds(waitNanos - 1) + 1,
+                    "Rate limit exceeded");
+            return;
+        }
+        if (!concurrencyLimit.tryAcquire(write)) {
+            bucket.refund();
+            (write ? writesShed : readsShed).increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, concurrencyRetryAfterSeconds, "Server overloaded");
+            return;
+        }
+
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = response.getStatus() >= 500;
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingListener(write, start, response));
+            } else {
+                long now = System.nanoTime();
+                concurrencyLimit.release(write, now - start, failed, now);
+            }
+        }
+    }
+
+    private String clientKey(HttpServletRequest request) {
+        if (clientHeader != null) {
+            String client = request.getHeader(clientHeader);
+            if (client != null && !client.isEmpty()) {
+                return client;
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private static boolean isStreamed(HttpServletResponse response) {
+        String contentType = response.getContentType();
+        if (contentType == null) {
+            return false;
+        }
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            return STREAMED_TYPES.contains(mediaType.getType() + "/" + mediaType.getSubtype());
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds,
+                               String message) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.sendError(status.value(), message);
+    }
+
+    private final class ReleasingListener implements AsyncListener {
+
+        private final boolean write;
+
+        private final long start;
+
+        private final HttpServletResponse response;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ReleasingListener(boolean write, long start, HttpServletResponse response) {
+            this.write = write;
+            this.start = start;
+            this.response = response;
+        }
+
+        private void release(boolean sample, boolean failed) {
+            if (released.compareAndSet(false, true)) {
+                long now = System.nanoTime();
+                concurrencyLimit.release(write, sample ? now - start : -1, failed, now);
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release(!isStreamed(response), response.getStatus() >= 500);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release(true, true);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release(true, true);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
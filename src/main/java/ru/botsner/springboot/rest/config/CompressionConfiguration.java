@@ -0,0 +1,52 @@
+package ru.botsner.springboot.rest.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import javax.servlet.DispatcherType;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gzip compression of MVC responses, used instead of {@code server.compression} for the per-type levels and the
+ * pooled encoders. {@code app.compression.levels} lists {@code type/subtype:level} pairs.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("!reactive")
+@ConditionalOnProperty(name = "app.compression.enabled", havingValue = "true")
+public class CompressionConfiguration {
+
+    @Bean
+    public FilterRegistrationBean<ResponseCompressionFilter> responseCompressionFilter(
+            @Value("${app.compression.levels:application/json:6,application/x-ndjson:1}") List<String> levels,
+            @Value("${app.compression.min-response-size:2048}") int minResponseSize,
+            @Value("${app.compression.buffer-size:8192}") int bufferSize,
+            @Value("${app.compression.pool-size:64}") int poolSize) {
+        FilterRegistrationBean<ResponseCompressionFilter> registration = new FilterRegistrationBean<>(
+                new ResponseCompressionFilter(parseLevels(levels), minResponseSize, bufferSize, poolSize));
+        registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
+        return registration;
+    }
+
+    static Map<String, Integer> parseLevels(List<String> levels) {
+        Map<String, Integer> parsed = new HashMap<>();
+        for (String level : levels) {
+            int separator = level.lastIndexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected type/subtype:level in app.compression.levels, got "
+                        + level);
+            }
+            int value = Integer.parseInt(level.substring(separator + 1).trim());
+            if (value < 0 || value > 9) {
+                throw new IllegalArgumentException("Gzip level must be between 0 and 9, got " + level);
+            }
+            parsed.put(level.substring(0, separator).trim().toLowerCase(), value);
+        }
+        return parsed;
+    }
+}
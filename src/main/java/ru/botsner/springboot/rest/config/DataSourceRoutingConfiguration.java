@@ -0,0 +1,106 @@
+package ru.botsner.springboot.rest.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import ru.botsner.springboot.rest.config.ReplicaRoutingDataSource.ReplicaSelection;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the auto-configured pool with a primary pool ({@code spring.datasource.*}) and one pool per
+ * {@code app.datasource.replicas[n]} entry. Replica pools take the {@code spring.datasource.hikari.*} settings,
+ * which {@code app.datasource.replicas[n].hikari.*} can override.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("!reactive")
+@ConditionalOnProperty(name = "app.datasource.routing.enabled", havingValue = "true")
+public class DataSourceRoutingConfiguration {
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            DataSourceProperties properties, Environment environment,
+            @Value("${app.datasource.routing.replica-selection:round-robin}") ReplicaSelection selection) {
+        Binder binder = Binder.get(environment);
+        List<DataSourceProperties> replicaProperties = binder
+                .bind("app.datasource.replicas", Bindable.listOf(DataSourceProperties.class))
+                .orElse(List.of());
+        if (replicaProperties.isEmpty()) {
+            throw new IllegalStateException(
+                    "app.datasource.routing.enabled=true requires at least one app.datasource.replicas[n].url");
+        }
+
+        HikariDataSource primary = pool(properties, "primary", binder);
+        List<HikariDataSource> replicas = new ArrayList<>(replicaProperties.size());
+        for (int i = 0; i < replicaProperties.size(); i++) {
+            HikariDataSource replica = pool(replicaProperties.get(i), "replica-" + (i + 1), binder);
+            binder.bind("app.datasource.replicas[" + i + "].hikari", Bindable.ofInstance(replica));
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, selection);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    /**
+     * The pools are not beans, so the auto-configured Hikari metrics don't see them.
+     */
+    @Bean
+    public MeterBinder replicaRoutingPoolMetrics(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return registry -> replicaRoutingDataSource.pools().forEach(pool ->
+                pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+    }
+
+    @Bean
+    public FilterRegistrationBean<PrimaryStickinessFilter> primaryStickinessFilter(
+            @Value("${app.datasource.routing.read-your-writes-ms:5000}") long stickinessMillis) {
+        return new FilterRegistrationBean<>(new PrimaryStickinessFilter(stickinessMillis));
+    }
+
+    /**
+     * Carries a request's stickiness to the primary over to work it hands to executors, e.g. asynchronous service
+     * calls and streamed responses.
+     */
+    @Bean
+    public TaskDecorator primaryStickinessTaskDecorator() {
+        return task -> {
+            if (!ReplicaRoutingDataSource.isPrimaryOnly()) {
+                return task;
+            }
+            return () -> {
+                ReplicaRoutingDataSource.setPrimaryOnly();
+                try {
+                    task.run();
+                } finally {
+                    ReplicaRoutingDataSource.clearPrimaryOnly();
+                }
+            };
+        };
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, String poolName, Binder binder) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        dataSource.setPoolName(poolName);
+        return dataSource;
+    }
+}
@@ -0,0 +1,45 @@
+package ru.botsner.springboot.rest.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryBuilderCustomizer;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+/**
+ * Support for the {@code fast-start} profile, which initializes beans lazily: Hibernate bootstrapping on a
+ * background thread, a background warm-up of what the first requests would otherwise initialize, and the exit right
+ * after startup used by the class data sharing training run of the {@code fast-start} build profile.
+ */
+@Configuration(proxyBeanMethods = false)
+public class FastStartConfiguration {
+
+    /**
+     * The entity manager factory is created during refresh even with lazy initialization, as it is
+     * {@code LoadTimeWeaverAware}; with a bootstrap executor it is only a proxy until Hibernate is ready.
+     * Repositories are declared explicitly, so Spring Data's {@code bootstrap-mode} property doesn't apply here.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.fast-start.background-jpa-bootstrap", havingValue = "true")
+    public EntityManagerFactoryBuilderCustomizer backgroundJpaBootstrap(
+            @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) AsyncTaskExecutor executor) {
+        return builder -> builder.setBootstrapExecutor(executor);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.fast-start.warm-up", havingValue = "true")
+    public LazySingletonWarmUp lazySingletonWarmUp() {
+        return new LazySingletonWarmUp();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.fast-start.exit-after-startup", havingValue = "true")
+    public ApplicationListener<ApplicationReadyEvent> exitAfterStartup() {
+        return event -> System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
@@ -0,0 +1,83 @@
+package ru.botsner.springboot.rest.config;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Incremental gzip encoder meant to be pooled: unlike {@link java.util.zip.GZIPOutputStream}, its {@link Deflater}
+ * (and the native zlib state behind it) and its output buffer are reset and reused rather than allocated per
+ * response.
+ */
+final class GzipEncoder {
+
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+    private final CRC32 crc = new CRC32();
+
+    private final byte[] buffer;
+
+    private OutputStream out;
+
+    GzipEncoder(int bufferSize) {
+        this.buffer = new byte[bufferSize];
+    }
+
+    void start(OutputStream out, int level) throws IOException {
+        this.out = out;
+        deflater.setLevel(level);
+        out.write(HEADER);
+    }
+
+    void write(byte[] b, int off, int len) throws IOException {
+        crc.update(b, off, len);
+        deflater.setInput(b, off, len);
+        while (!deflater.needsInput()) {
+            int length = deflater.deflate(buffer, 0, buffer.length, Deflater.NO_FLUSH);
+            if (length > 0) {
+                out.write(buffer, 0, length);
+            }
+        }
+    }
+
+    /**
+     * Writes out everything compressed so far, so that the client can decode it without waiting for the end.
+     */
+    void flush() throws IOException {
+        int length;
+        do {
+            length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+            out.write(buffer, 0, length);
+        } while (length == buffer.length);
+        out.flush();
+    }
+
+    void finish() throws IOException {
+        deflater.finish();
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        writeIntLE((int) crc.getValue());
+        writeIntLE((int) deflater.getBytesRead());
+    }
+
+    private void writeIntLE(int value) throws IOException {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+
+    void reset() {
+        deflater.reset();
+        crc.reset();
+        out = null;
+    }
+
+    void end() {
+        deflater.end();
+    }
+}
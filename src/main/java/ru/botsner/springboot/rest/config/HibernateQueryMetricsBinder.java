@@ -0,0 +1,116 @@
+package ru.botsner.springboot.rest.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.HibernateMetrics;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Per-query execution time and row counts from Hibernate statistics, under the same names as Hibernate's
+ * {@code HibernateQueryMetrics}. That binder rescans all queries on every entity load, which dominates the cost of
+ * large entity lists, and never sees projection or bulk queries; here new queries are picked up periodically instead.
+ * <p>
+ * With {@code bindSessionMetrics}, Hibernate's session-level {@link HibernateMetrics} are bound here as well, in
+ * place of Spring Boot's auto-configuration, which the {@code fast-start} profile excludes. Both look the session
+ * factory up only on the first refresh, so that binding to a registry, which happens early, does not start JPA when
+ * beans are initialized lazily.
+ */
+public class HibernateQueryMetricsBinder implements MeterBinder {
+
+    private final Supplier<SessionFactory> sessionFactory;
+
+    private volatile HibernateMetrics sessionMetrics;
+
+    private volatile Statistics statistics;
+
+    private final String sessionFactoryName;
+
+    private final boolean bindSessionMetrics;
+
+    private final List<MeterRegistry> registries = new CopyOnWriteArrayList<>();
+
+    private final Set<String> registeredQueries = ConcurrentHashMap.newKeySet();
+
+    public HibernateQueryMetricsBinder(Supplier<SessionFactory> sessionFactory, String sessionFactoryName,
+                                       boolean bindSessionMetrics) {
+        this.sessionFactory = sessionFactory;
+        this.sessionFactoryName = sessionFactoryName;
+        this.bindSessionMetrics = bindSessionMetrics;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        registries.add(registry);
+        if (sessionMetrics != null) {
+            sessionMetrics.bindTo(registry);
+        }
+        for (String query : registeredQueries) {
+            register(registry, query);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.metrics.hibernate-queries.refresh-interval-ms:15000}")
+    public void registerNewQueries() {
+        if (statistics == null) {
+            start();
+        }
+        for (String query : statistics.getQueries()) {
+            if (registeredQueries.add(query)) {
+                for (MeterRegistry registry : registries) {
+                    register(registry, query);
+                }
+            }
+        }
+    }
+
+    private synchronized void start() {
+        if (statistics != null) {
+            return;
+        }
+        SessionFactory factory = sessionFactory.get();
+        if (bindSessionMetrics) {
+            sessionMetrics = new HibernateMetrics(factory, sessionFactoryName, Tags.empty());
+            registries.forEach(sessionMetrics::bindTo);
+        }
+        statistics = factory.getStatistics();
+    }
+
+    private void register(MeterRegistry registry, String query) {
+        QueryStatistics queryStatistics = statistics.getQueryStatistics(query);
+
+        FunctionTimer.builder("hibernate.query.execution.total", queryStatistics,
+                        QueryStatistics::getExecutionCount, QueryStatistics::getExecutionTotalTime, TimeUnit.MILLISECONDS)
+                .tags("entityManagerFactory", sessionFactoryName, "query", query)
+                .description("Query executions")
+                .register(registry);
+        TimeGauge.builder("hibernate.query.execution.max", queryStatistics, TimeUnit.MILLISECONDS,
+                        QueryStatistics::getExecutionMaxTime)
+                .tags("entityManagerFactory", sessionFactoryName, "query", query)
+                .description("Query maximum execution time")
+                .register(registry);
+        TimeGauge.builder("hibernate.query.execution.min", queryStatistics, TimeUnit.MILLISECONDS,
+                        QueryStatistics::getExecutionMinTime)
+                .tags("entityManagerFactory", sessionFactoryName, "query", query)
+                .description("Query minimum execution time")
+                .register(registry);
+        FunctionCounter.builder("hibernate.query.execution.rows", queryStatistics,
+                        QueryStatistics::getExecutionRowCount)
+                .tags("entityManagerFactory", sessionFactoryName, "query", query)
+                .description("Number of rows processed for a query")
+                .register(registry);
+    }
+}
@@ -0,0 +1,44 @@
+package ru.botsner.springboot.rest.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import ru.botsner.springboot.rest.service.CacheInvalidationChannel;
+import ru.botsner.springboot.rest.service.EmployeeCacheInvalidator;
+import ru.botsner.springboot.rest.service.InJvmCacheInvalidationChannel;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Invalidation of the Hibernate second-level cache across nodes. Nodes of one cluster need a channel that reaches
+ * all of them: set {@code app.jpa.cache.invalidation.channel} to anything but {@code in-jvm} and define a
+ * {@link CacheInvalidationChannel} bean.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("!reactive")
+@ConditionalOnProperty(name = "spring.jpa.properties.hibernate.cache.use_second_level_cache", havingValue = "true")
+public class JpaCacheConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.jpa.cache.invalidation.channel", havingValue = "in-jvm", matchIfMissing = true)
+    public CacheInvalidationChannel inJvmCacheInvalidationChannel(
+            @Value("${app.jpa.cache.invalidation.topic:${spring.application.name:employees}}") String topic) {
+        return new InJvmCacheInvalidationChannel(topic);
+    }
+
+    @Bean
+    public EmployeeCacheInvalidator employeeCacheInvalidator(ObjectProvider<EntityManagerFactory> entityManagerFactory,
+                                                             CacheManager cacheManager,
+                                                             CacheInvalidationChannel channel,
+                                                             MeterRegistry meterRegistry) {
+        return new EmployeeCacheInvalidator(
+                () -> entityManagerFactory.getObject().unwrap(SessionFactoryImplementor.class),
+                cacheManager, channel, meterRegistry);
+    }
+}
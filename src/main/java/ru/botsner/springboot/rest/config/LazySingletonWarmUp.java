@@ -0,0 +1,92 @@
+package ru.botsner.springboot.rest.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanCreationNotAllowedException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Once the application is ready, creates the singletons lazy initialization left out on a background thread, so
+ * that starting JPA and the services overlaps with waiting for traffic instead of delaying the first requests.
+ * A request needing a bean being created meanwhile waits for it rather than creating it again. Readiness is held at
+ * {@link ReadinessState#REFUSING_TRAFFIC} until the warm-up is done, so that load balancers keep the first requests
+ * away in the meantime.
+ */
+public class LazySingletonWarmUp implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(LazySingletonWarmUp.class);
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        ConfigurableApplicationContext context = event.getApplicationContext();
+        ApplicationAvailability availability = context.getBean(ApplicationAvailability.class);
+        Thread thread = new Thread(() -> {
+            if (!holdReadiness(context, availability)) {
+                return;
+            }
+            warmUp(context.getBeanFactory());
+            if (context.isActive()) {
+                AvailabilityChangeEvent.publish(context, ReadinessState.ACCEPTING_TRAFFIC);
+            }
+        }, "lazy-singleton-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return whether the context is still active
+     */
+    private static boolean holdReadiness(ConfigurableApplicationContext context, ApplicationAvailability availability) {
+        // Spring Boot accepts traffic right after the ready event, which would override refusing it any earlier
+        while (availability.getReadinessState() != ReadinessState.ACCEPTING_TRAFFIC) {
+            if (!context.isActive()) {
+                return false;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        AvailabilityChangeEvent.publish(context, ReadinessState.REFUSING_TRAFFIC);
+        return true;
+    }
+
+    /**
+     * @return number of singletons created
+     */
+    static int warmUp(ConfigurableListableBeanFactory beanFactory) {
+        long start = System.nanoTime();
+        int created = 0;
+        for (String name : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(name);
+            if (!definition.isSingleton() || definition.isAbstract() || beanFactory.containsSingleton(name)) {
+                continue;
+            }
+            try {
+                beanFactory.getBean(name);
+                created++;
+            } catch (BeanCreationNotAllowedException e) {
+                // The context is being closed
+                return created;
+            } catch (BeansException e) {
+                // Left to fail again, and be reported, where it is used
+                log.warn("Could not create lazy singleton '{}' in warm-up", name, e);
+            }
+        }
+        log.info("Created {} lazy singletons in {} ms", created,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return created;
+    }
+}
@@ -0,0 +1,38 @@
+package ru.botsner.springboot.rest.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.autoconfigure.metrics.orm.jpa.HibernateMetricsAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import javax.persistence.EntityManagerFactory;
+
+@Configuration(proxyBeanMethods = false)
+@EnableScheduling
+public class MetricsConfiguration {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    /**
+     * Requires Hibernate statistics to be enabled. Binds the session metrics too where Spring Boot's
+     * auto-configuration for them is excluded.
+     */
+    @Bean
+    @Profile("!reactive")
+    public HibernateQueryMetricsBinder hibernateQueryMetrics(
+            ObjectProvider<EntityManagerFactory> entityManagerFactory, ListableBeanFactory beanFactory) {
+        boolean bindSessionMetrics =
+                beanFactory.getBeanNamesForType(HibernateMetricsAutoConfiguration.class, false, false).length == 0;
+        return new HibernateQueryMetricsBinder(() -> entityManagerFactory.getObject().unwrap(SessionFactory.class),
+                "entityManagerFactory", bindSessionMetrics);
+    }
+}
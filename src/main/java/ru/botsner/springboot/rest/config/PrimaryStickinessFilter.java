@@ -0,0 +1,66 @@
+package ru.botsner.springboot.rest.config;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Read-your-writes for replica routing: a write request is handled entirely on the primary and leaves a cookie
+ * that keeps the same client's reads on the primary for a window meant to cover replication lag.
+ */
+public class PrimaryStickinessFilter extends OncePerRequestFilter {
+
+    static final String COOKIE_NAME = "primary-until";
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+
+    private final long stickinessMillis;
+
+    public PrimaryStickinessFilter(long stickinessMillis) {
+        this.stickinessMillis = stickinessMillis;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        boolean write = !SAFE_METHODS.contains(request.getMethod());
+        if (write) {
+            Cookie cookie = new Cookie(COOKIE_NAME, String.valueOf(now + stickinessMillis));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, (stickinessMillis + 999) / 1000));
+            response.addCookie(cookie);
+        }
+
+        if (!write && !stickyUntilAfter(request, now)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        ReplicaRoutingDataSource.setPrimaryOnly();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.clearPrimaryOnly();
+        }
+    }
+
+    private static boolean stickyUntilAfter(HttpServletRequest request, long now) {
+        Cookie cookie = WebUtils.getCookie(request, COOKIE_NAME);
+        if (cookie == null) {
+            return false;
+        }
+        try {
+            return Long.parseLong(cookie.getValue()) > now;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package ru.botsner.springboot.rest.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends connections of read-only transactions to a replica pool and everything else to the primary one.
+ * The transaction flags are only visible once the connection is used, so it has to sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    public enum ReplicaSelection {
+        ROUND_ROBIN, LEAST_LOADED
+    }
+
+    static final String PRIMARY_KEY = "primary";
+
+    private static final ThreadLocal<Boolean> PRIMARY_ONLY = new ThreadLocal<>();
+
+    private final HikariDataSource primary;
+
+    private final List<HikariDataSource> replicas;
+
+    private final ReplicaSelection selection;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas,
+                                    ReplicaSelection selection) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.selection = selection;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY_KEY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    /**
+     * Routes read-only transactions started by the current thread to the primary as well, until
+     * {@link #clearPrimaryOnly()}.
+     */
+    public static void setPrimaryOnly() {
+        PRIMARY_ONLY.set(Boolean.TRUE);
+    }
+
+    public static void clearPrimaryOnly() {
+        PRIMARY_ONLY.remove();
+    }
+
+    public static boolean isPrimaryOnly() {
+        return PRIMARY_ONLY.get() != null;
+    }
+
+    /**
+     * Whether read-only transactions started by the current thread go to a replica.
+     */
+    public boolean routesReadsToReplica() {
+        return !replicas.isEmpty() && PRIMARY_ONLY.get() == null;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicas.isEmpty()
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || PRIMARY_ONLY.get() != null) {
+            return PRIMARY_KEY;
+        }
+        return selectReplica();
+    }
+
+    private int selectReplica() {
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        if (selection == ReplicaSelection.ROUND_ROBIN) {
+            return start;
+        }
+
+        // Starting from the round-robin position spreads ties between equally loaded replicas
+        int selected = start;
+        int minActive = Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = (start + i) % replicas.size();
+            int active = activeConnections(replicas.get(index));
+            if (active < minActive) {
+                minActive = active;
+                selected = index;
+            }
+        }
+        return selected;
+    }
+
+    private static int activeConnections(HikariDataSource dataSource) {
+        // Null until the pool is started by its first connection
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        return pool == null ? 0 : pool.getActiveConnections();
+    }
+
+    List<HikariDataSource> pools() {
+        List<HikariDataSource> pools = new ArrayList<>(replicas);
+        pools.add(0, primary);
+        return pools;
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+        primary.close();
+    }
+}
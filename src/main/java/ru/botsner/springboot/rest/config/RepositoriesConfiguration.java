@@ -0,0 +1,20 @@
+package ru.botsner.springboot.rest.config;
+
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import ru.botsner.springboot.rest.dao.EmployeeRepository;
+
+/**
+ * Only one data stack is active per profile, so each one must skip the other's repository interfaces. The R2DBC
+ * counterpart is built with the {@code reactive} Maven profile.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("!reactive")
+@EnableJpaRepositories(basePackageClasses = EmployeeRepository.class, excludeFilters =
+@ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = ReactiveCrudRepository.class))
+public class RepositoriesConfiguration {
+}
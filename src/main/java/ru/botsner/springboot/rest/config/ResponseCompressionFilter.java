@@ -0,0 +1,481 @@
+package ru.botsner.springboot.rest.config;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.MimeType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Gzip response compression with a compression level per content type. Bodies are compressed as they are written,
+ * so streamed and large list responses go out in chunks instead of being buffered whole; only the first
+ * {@code minResponseSize} bytes are held back to leave smaller responses uncompressed. Encoders are pooled.
+ * <p>
+ * Responses carrying an {@code ETag} are left alone, as a strong validator must not be shared by two encodings.
+ * Every response varies by {@code Accept-Encoding}, even if it goes out as is, so that a shared cache never hands
+ * a compressed copy to a client that cannot take it, or the other way round.
+ */
+public class ResponseCompressionFilter extends OncePerRequestFilter {
+
+    private static final String RESPONSE_ATTRIBUTE = ResponseCompressionFilter.class.getName() + ".RESPONSE";
+
+    private final Map<String, Integer> levels;
+
+    private final int minResponseSize;
+
+    private final int bufferSize;
+
+    private final BlockingQueue<GzipEncoder> encoders;
+
+    /**
+     * @param levels gzip level by {@code type/subtype}; other content types are not compressed
+     * @param poolSize encoders kept for reuse
+     */
+    public ResponseCompressionFilter(Map<String, Integer> levels, int minResponseSize, int bufferSize, int poolSize) {
+        this.levels = Map.copyOf(levels);
+        this.minResponseSize = minResponseSize;
+        this.bufferSize = bufferSize;
+        this.encoders = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        // Streamed bodies are written asynchronously; the compressed stream is finished on the dispatch that follows
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        CompressingResponse compressing = (CompressingResponse) request.getAttribute(RESPONSE_ATTRIBUTE);
+        if (compressing == null) {
+            if (!isAsyncDispatch(request)) {
+                varyByAcceptEncoding(response);
+            }
+            if (isAsyncDispatch(request) || "HEAD".equals(request.getMethod()) || !acceptsGzip(request)) {
+                chain.doFilter(request, response);
+                return;
+            }
+            compressing = new CompressingResponse(response);
+            request.setAttribute(RESPONSE_ATTRIBUTE, compressing);
+        }
+
+        boolean completed = false;
+        try {
+            chain.doFilter(request, compressing);
+            completed = true;
+        } finally {
+            if (!request.isAsyncStarted()) {
+                request.removeAttribute(RESPONSE_ATTRIBUTE);
+                compressing.finish(completed);
+            }
+        }
+    }
+
+    private static void varyByAcceptEncoding(HttpServletResponse response) {
+        boolean present = response.getHeaders(HttpHeaders.VARY).stream()
+                .flatMap(vary -> Arrays.stream(vary.split(",")))
+                .anyMatch(name -> name.trim().equalsIgnoreCase(HttpHeaders.ACCEPT_ENCODING));
+        if (!present) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+    }
+
+    static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) {
+                continue;
+            }
+            boolean refused = Arrays.stream(parts).skip(1)
+                    .map(String::trim)
+                    .anyMatch(parameter -> parameter.matches("[qQ]\\s*=\\s*0(\\.0{0,3})?"));
+            if (!refused) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private GzipEncoder acquireEncoder() {
+        GzipEncoder encoder = encoders.poll();
+        return encoder != null ? encoder : new GzipEncoder(bufferSize);
+    }
+
+    private void releaseEncoder(GzipEncoder encoder) {
+        encoder.reset();
+        if (!encoders.offer(encoder)) {
+            encoder.end();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        GzipEncoder encoder;
+        while ((encoder = encoders.poll()) != null) {
+            encoder.end();
+        }
+    }
+
+    private final class CompressingResponse extends HttpServletResponseWrapper {
+
+        private CompressingOutputStream outputStream;
+
+        private PrintWriter writer;
+
+        private long contentLength = -1;
+
+        private boolean bypassed;
+
+        CompressingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() has already been called");
+            }
+            return stream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                if (outputStream != null) {
+                    throw new IllegalStateException("getOutputStream() has already been called");
+                }
+                writer = new PrintWriter(new OutputStreamWriter(stream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        private CompressingOutputStream stream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new CompressingOutputStream(this, getResponse().getOutputStream());
+            }
+            return outputStream;
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            setContentLengthLong(len);
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            // Only right once it is clear the body goes out uncompressed
+            if (bypassed) {
+                super.setContentLengthLong(len);
+            } else {
+                contentLength = len;
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (!isContentLength(name)) {
+                super.setHeader(name, value);
+            } else if (value != null) {
+                setContentLengthLong(Long.parseLong(value));
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (!isContentLength(name)) {
+                super.addHeader(name, value);
+            } else if (value != null) {
+                setContentLengthLong(Long.parseLong(value));
+            }
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            if (isContentLength(name)) {
+                setContentLengthLong(value);
+            } else {
+                super.setIntHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+            if (isContentLength(name)) {
+                setContentLengthLong(value);
+            } else {
+                super.addIntHeader(name, value);
+            }
+        }
+
+        private boolean isContentLength(String name) {
+            return HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            bypass();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            bypass();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            varyByAcceptEncoding(this);
+            contentLength = -1;
+            if (outputStream != null) {
+                outputStream.restart();
+            }
+        }
+
+        @Override
+        public void resetBuffer() {
+            super.resetBuffer();
+            if (outputStream != null) {
+                outputStream.restart();
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (outputStream != null) {
+                outputStream.flush();
+                if (!outputStream.isDecided()) {
+                    // Flushing now would commit the response before the threshold is reached
+                    return;
+                }
+            }
+            super.flushBuffer();
+        }
+
+        /**
+         * Stops compressing if nothing has been compressed yet, e.g. for an error response.
+         */
+        private void bypass() {
+            if (outputStream != null) {
+                outputStream.discardPending();
+                if (outputStream.isCompressing()) {
+                    return;
+                }
+                outputStream.bypass();
+            }
+            bypassed = true;
+            if (contentLength >= 0) {
+                super.setContentLengthLong(contentLength);
+            }
+        }
+
+        /**
+         * Compression level for the response as it stands, or {@code null} to send it as is.
+         */
+        Integer level(long knownLength) {
+            int status = getStatus();
+            if (bypassed || status < 200 || status >= 300 || status == SC_NO_CONTENT
+                    || containsHeader(HttpHeaders.CONTENT_ENCODING) || containsHeader(HttpHeaders.ETAG)
+                    || getContentType() == null || knownLength >= 0 && knownLength < minResponseSize) {
+                return null;
+            }
+            MimeType mimeType;
+            try {
+                mimeType = MimeType.valueOf(getContentType());
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            return levels.get(mimeType.getType() + "/" + mimeType.getSubtype());
+        }
+
+        void startCompressing() {
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        void startUncompressed(long length) {
+            bypassed = true;
+            if (length >= 0) {
+                super.setContentLengthLong(length);
+            }
+        }
+
+        void finish(boolean completed) throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (outputStream != null) {
+                outputStream.finish(completed);
+            } else if (contentLength >= 0 && !bypassed) {
+                super.setContentLengthLong(contentLength);
+            }
+        }
+    }
+
+    private final class CompressingOutputStream extends ServletOutputStream {
+
+        private final CompressingResponse response;
+
+        private final ServletOutputStream out;
+
+        private byte[] pending;
+
+        private int pendingLength;
+
+        private boolean decided;
+
+        private GzipEncoder encoder;
+
+        private final byte[] single = new byte[1];
+
+        CompressingOutputStream(CompressingResponse response, ServletOutputStream out) {
+            this.response = response;
+            this.out = out;
+        }
+
+        boolean isDecided() {
+            return decided;
+        }
+
+        boolean isCompressing() {
+            return encoder != null;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            single[0] = (byte) b;
+            write(single, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (!decided) {
+                if (response.level(response.contentLength) == null) {
+                    response.startUncompressed(response.contentLength);
+                    decided = true;
+                } else if (pendingLength + len < minResponseSize) {
+                    if (pending == null) {
+                        pending = new byte[minResponseSize];
+                    }
+                    System.arraycopy(b, off, pending, pendingLength, len);
+                    pendingLength += len;
+                    return;
+                } else {
+                    startCompressing(response.level(response.contentLength));
+                }
+            }
+
+            if (encoder != null) {
+                encoder.write(b, off, len);
+            } else {
+                out.write(b, off, len);
+            }
+        }
+
+        private void startCompressing(int level) throws IOException {
+            decided = true;
+            response.startCompressing();
+            encoder = acquireEncoder();
+            encoder.start(out, level);
+            if (pendingLength > 0) {
+                encoder.write(pending, 0, pendingLength);
+            }
+            pending = null;
+            pendingLength = 0;
+        }
+
+        private void writePendingUncompressed(long length) throws IOException {
+            decided = true;
+            response.startUncompressed(length);
+            if (pendingLength > 0) {
+                out.write(pending, 0, pendingLength);
+            }
+            pending = null;
+            pendingLength = 0;
+        }
+
+        void bypass() {
+            decided = true;
+        }
+
+        void discardPending() {
+            pending = null;
+            pendingLength = 0;
+        }
+
+        /**
+         * Starts over after the container discarded what has been written, gzip header included.
+         */
+        void restart() {
+            if (encoder != null) {
+                releaseEncoder(encoder);
+                encoder = null;
+            }
+            decided = false;
+            discardPending();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (!decided) {
+                return;
+            }
+            if (encoder != null) {
+                encoder.flush();
+            } else {
+                out.flush();
+            }
+        }
+
+        void finish(boolean completed) throws IOException {
+            if (encoder != null) {
+                GzipEncoder finishing = encoder;
+                encoder = null;
+                try {
+                    // A body cut short by an exception must not look complete to the client
+                    if (completed) {
+                        finishing.finish();
+                    }
+                } finally {
+                    releaseEncoder(finishing);
+                }
+            } else if (!decided && completed) {
+                // The whole body is below the threshold
+                writePendingUncompressed(pendingLength);
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return out.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            out.setWriteListener(writeListener);
+        }
+    }
+}
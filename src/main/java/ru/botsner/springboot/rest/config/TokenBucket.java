@@ -0,0 +1,51 @@
+package ru.botsner.springboot.rest.config;
+
+/**
+ * Token bucket refilled continuously at a fixed rate up to its burst size. Times are {@link System#nanoTime()}
+ * values passed in by the caller.
+ */
+final class TokenBucket {
+
+    private final double tokensPerNano;
+
+    private final double capacity;
+
+    private double tokens;
+
+    private long refilledAt;
+
+    TokenBucket(double tokensPerSecond, int burst, long now) {
+        if (tokensPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Token bucket needs a positive rate and a burst of at least 1, got "
+                    + tokensPerSecond + "/s and " + burst);
+        }
+        this.tokensPerNano = tokensPerSecond / 1_000_000_000d;
+        this.capacity = burst;
+        this.tokens = burst;
+        this.refilledAt = now;
+    }
+
+    /**
+     * Takes a token if there is one.
+     *
+     * @return 0 if a token was taken, otherwise nanoseconds until the next one is available
+     */
+    synchronized long tryAcquire(long now) {
+        if (now > refilledAt) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+        }
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano));
+    }
+
+    /**
+     * Gives back a token taken for a request that was turned away for another reason.
+     */
+    synchronized void refund() {
+        tokens = Math.min(capacity, tokens + 1);
+    }
+}
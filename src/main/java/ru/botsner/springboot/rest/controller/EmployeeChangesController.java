@@ -0,0 +1,203 @@
+package ru.botsner.springboot.rest.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.botsner.springboot.rest.entity.EmployeeChange;
+import ru.botsner.springboot.rest.exception.BadRequestException;
+import ru.botsner.springboot.rest.service.EmployeeChangeFeed;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Employee change log for consumers that would otherwise poll the whole list: a long-poll that answers as soon as
+ * there are changes after {@code since}, and a Server-Sent Events stream that resumes from {@code Last-Event-ID}.
+ */
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/employees/changes")
+public class EmployeeChangesController {
+
+    private static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
+    private final EmployeeChangeFeed changeFeed;
+
+    private final long longPollTimeoutMillis;
+
+    private final long streamTimeoutMillis;
+
+    private final int maxLimit;
+
+    private final int streamBufferSize;
+
+    // Sends block on slow clients, so they must not happen on the change feed's dispatcher thread. Each stream has
+    // at most one send queued, so the queue holds no more than the open streams.
+    private final ThreadPoolExecutor streamSenders;
+
+    @Autowired
+    public EmployeeChangesController(EmployeeChangeFeed changeFeed,
+                                     @Value("${app.employees.changes.long-poll-timeout-ms:30000}") long longPollTimeoutMillis,
+                                     @Value("${app.employees.changes.stream-timeout-ms:1800000}") long streamTimeoutMillis,
+                                     @Value("${app.employees.changes.stream-buffer-size:1000}") int streamBufferSize,
+                                     @Value("${app.employees.changes.stream-senders:8}") int streamSenders,
+                                     @Value("${app.employees.page.max-limit:1000}") int maxLimit) {
+        this.changeFeed = changeFeed;
+        this.longPollTimeoutMillis = longPollTimeoutMillis;
+        this.streamTimeoutMillis = streamTimeoutMillis;
+        this.streamBufferSize = streamBufferSize;
+        this.maxLimit = maxLimit;
+        this.streamSenders = new ThreadPoolExecutor(streamSenders, streamSenders, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "employee-change-stream");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.streamSenders.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Answers with an empty list if nothing changes before the timeout.
+     */
+    @GetMapping
+    public DeferredResult<List<EmployeeChange>> pollChanges(@RequestParam(defaultValue = "0") long since,
+                                                            @RequestParam(defaultValue = "100") int limit) {
+        checkSince(since);
+        int pageLimit = Math.max(1, Math.min(limit, maxLimit));
+
+        DeferredResult<List<EmployeeChange>> result = new DeferredResult<>(longPollTimeoutMillis, List.of());
+        EmployeeChangeFeed.Subscription subscription = changeFeed.subscribe(since, changes -> {
+            result.setResult(new ArrayList<>(changes.subList(0, Math.min(pageLimit, changes.size()))));
+            return false;
+        });
+        result.onCompletion(subscription::cancel);
+        return result;
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(defaultValue = "0") long since,
+                                    @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) Long lastEventId) {
+        long from = lastEventId != null ? lastEventId : since;
+        checkSince(from);
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        EmployeeChangeFeed.Subscription subscription =
+                changeFeed.subscribe(from, new StreamSubscriber(emitter, streamBufferSize));
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
+        return emitter;
+    }
+
+    private static void checkSince(long since) {
+        if (since < 0) {
+            throw new BadRequestException("since must not be negative");
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        streamSenders.shutdownNow();
+    }
+
+    int senderThreadCount() {
+        return streamSenders.getPoolSize();
+    }
+
+    /**
+     * Buffers the changes of one stream and sends them on one of the sender threads. A client that falls more than
+     * the buffer behind is unsubscribed and has its stream completed, so it reconnects and resumes from its
+     * {@code Last-Event-ID}.
+     */
+    private final class StreamSubscriber implements EmployeeChangeFeed.Listener {
+        private final SseEmitter emitter;
+
+        private final BlockingQueue<EmployeeChange> buffer;
+
+        private final AtomicBoolean sending = new AtomicBoolean();
+
+        private volatile boolean overflowed;
+
+        private volatile boolean closed;
+
+        private volatile boolean completed;
+
+        StreamSubscriber(SseEmitter emitter, int bufferSize) {
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        @Override
+        public boolean onChanges(List<EmployeeChange> changes) {
+            if (closed) {
+                return false;
+            }
+            for (EmployeeChange change : changes) {
+                if (!buffer.offer(change)) {
+                    // Completing here would wait for the send in progress, so the sender does it
+                    overflowed = true;
+                    closed = true;
+                    buffer.clear();
+                    break;
+                }
+            }
+            scheduleSend();
+            return !closed;
+        }
+
+        private void scheduleSend() {
+            if (sending.compareAndSet(false, true)) {
+                try {
+                    streamSenders.execute(this::send);
+                } catch (RejectedExecutionException e) {
+                    // Shutting down
+                    closed = true;
+                    completed = true;
+                    buffer.clear();
+                }
+            }
+        }
+
+        private void send() {
+            try {
+                EmployeeChange change;
+                while (!overflowed && (change = buffer.poll()) != null) {
+                    emitter.send(SseEmitter.event()
+                            .id(String.valueOf(change.getSeq()))
+                            .name("change")
+                            .data(change, MediaType.APPLICATION_JSON));
+                }
+                if (overflowed) {
+                    completed = true;
+                    buffer.clear();
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away or the emitter has already completed
+                closed = true;
+                completed = true;
+                buffer.clear();
+                emitter.completeWithError(e);
+            } finally {
+                sending.set(false);
+            }
+            // Offered, or overflowed, after the last poll but before the flag was cleared
+            if (!completed && (overflowed || !buffer.isEmpty())) {
+                scheduleSend();
+            }
+        }
+    }
+}
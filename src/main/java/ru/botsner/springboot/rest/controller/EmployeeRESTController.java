@@ -1,71 +1,698 @@
 package ru.botsner.springboot.rest.controller;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
+import ru.botsner.springboot.rest.dto.BatchItemResult;
+import ru.botsner.springboot.rest.dto.DepartmentStats;
+import ru.botsner.springboot.rest.dto.EmployeeSearchCriteria;
+import ru.botsner.springboot.rest.dto.EmployeeView;
 import ru.botsner.springboot.rest.entity.Employee;
+import ru.botsner.springboot.rest.exception.BadRequestException;
 import ru.botsner.springboot.rest.exception.EntityNotFoundException;
+import ru.botsner.springboot.rest.exception.PreconditionFailedException;
+import ru.botsner.springboot.rest.exception.ServiceUnavailableException;
+import ru.botsner.springboot.rest.service.AsyncEmployeeService;
 import ru.botsner.springboot.rest.service.EmployeeService;
+import ru.botsner.springboot.rest.service.IdempotentWrites;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/employees")
 public class EmployeeRESTController {
 
+    private static final Logger log = LoggerFactory.getLogger(EmployeeRESTController.class);
+
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
+    static final String NOT_FOUND_METRIC = "employees.not.found";
+
+    static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    private static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+
+    private static final String SCHEMA_LINK = "</schema/employee.schema.json>; rel=\"describedby\"";
+
+    private static final CBORFactory CBOR_FACTORY = new CBORFactory();
+
+    private static final SmileFactory SMILE_FACTORY = new SmileFactory();
+
+    private static final Function<Employee, Integer> BATCH_EMPLOYEE_ID =
+            employee -> employee.getId() == 0 ? null : employee.getId();
+
+    private static final Set<String> SORTABLE_PROPERTIES = Set.of("id", "name", "surname", "department", "salary");
+
     private final EmployeeService employeeService;
 
+    private final AsyncEmployeeService asyncEmployeeService;
+
+    private final ObjectMapper objectMapper;
+
+    private final MeterRegistry meterRegistry;
+
+    private final int defaultPageLimit;
+
+    private final int maxPageLimit;
+
+    private final int batchChunkSize;
+
+    private final int defaultSuggestLimit;
+
+    private final int maxSuggestLimit;
+
+    private final long requestTimeoutMillis;
+
+    private final long listTimeoutMillis;
+
+    private final IdempotentWrites idempotentWrites;
+
+    private final IdempotencyStore idempotencyStore;
+
     @Autowired
-    public EmployeeRESTController(EmployeeService employeeService) {
+    public EmployeeRESTController(EmployeeService employeeService,
+                                  AsyncEmployeeService asyncEmployeeService,
+                                  ObjectProvider<IdempotentWrites> idempotentWrites,
+                                  ObjectProvider<IdempotencyStore> idempotencyStore,
+                                  ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.employees.page.default-limit:100}") int defaultPageLimit,
+                                  @Value("${app.employees.page.max-limit:1000}") int maxPageLimit,
+                                  @Value("${app.employees.batch.chunk-size:500}") int batchChunkSize,
+                                  @Value("${app.employees.suggest.default-limit:10}") int defaultSuggestLimit,
+                                  @Value("${app.employees.suggest.max-limit:50}") int maxSuggestLimit,
+                                  @Value("${app.employees.async.request-timeout-ms:10000}") long requestTimeoutMillis,
+                                  @Value("${app.employees.async.list-timeout-ms:60000}") long listTimeoutMillis) {
         this.employeeService = employeeService;
+        this.asyncEmployeeService = asyncEmployeeService;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.defaultPageLimit = defaultPageLimit;
+        this.maxPageLimit = maxPageLimit;
+        this.batchChunkSize = batchChunkSize;
+        this.defaultSuggestLimit = defaultSuggestLimit;
+        this.maxSuggestLimit = maxSuggestLimit;
+        this.requestTimeoutMillis = requestTimeoutMillis;
+        this.listTimeoutMillis = listTimeoutMillis;
+        this.idempotentWrites = idempotentWrites.getIfAvailable();
+        this.idempotencyStore = idempotencyStore.getIfAvailable();
+    }
+
+    /**
+     * Releases the request thread until the future completes. A call still queued when the timeout is reached
+     * is dropped, and the client gets a {@code 503}.
+     */
+    private static <T> DeferredResult<T> deferred(long timeoutMillis, CompletableFuture<T> future) {
+        DeferredResult<T> result = new DeferredResult<>(timeoutMillis);
+        result.onTimeout(() -> {
+            result.setErrorResult(new ServiceUnavailableException("Timed out waiting for the database", null));
+            future.cancel(false);
+        });
+        future.whenComplete((value, failure) -> {
+            if (failure == null) {
+                result.setResult(value);
+            } else {
+                result.setErrorResult(unwrap(failure));
+            }
+        });
+        return result;
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    /**
+     * Runs the service calls of a write on the database pool.
+     */
+    @FunctionalInterface
+    private interface EmployeeWriter {
+        CompletableFuture<Employee> write(Supplier<Employee> call);
+    }
+
+    /**
+     * Runs a write once per {@code Idempotency-Key}; without a key, or with idempotency disabled, on every call.
+     * {@code write} hands its service calls to the writer it is given, which records the key in their transaction.
+     */
+    private <T> CompletableFuture<ResponseEntity<T>> idempotent(
+            String idempotencyKey, int empId, Supplier<String> fingerprint,
+            Function<EmployeeWriter, CompletableFuture<ResponseEntity<T>>> write) {
+        if (idempotencyKey == null || idempotencyStore == null || idempotentWrites == null) {
+            return write.apply(asyncEmployeeService::write);
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new BadRequestException(IDEMPOTENCY_KEY_HEADER + " must be 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH
+                    + " characters long");
+        }
+        String requestFingerprint = fingerprint.get();
+        return idempotencyStore.execute(idempotencyKey, requestFingerprint, () -> {
+            AtomicBoolean replayed = new AtomicBoolean();
+            return write.apply(call -> asyncEmployeeService.write(() -> {
+                IdempotentWrites.Result result = idempotentWrites.write(idempotencyKey, requestFingerprint, empId, call);
+                replayed.set(result.isReplayed());
+                return result.getEmployee();
+            })).thenApply(response -> replayed.get() ? IdempotencyStore.replayed(response) : response);
+        });
+    }
+
+    // Taken before the write, which sets the generated id on the body
+    private String fingerprint(String operation, Object target, String ifMatch, Object body) {
+        StringBuilder fingerprint = new StringBuilder(operation).append(' ').append(target)
+                .append(' ').append(ifMatch);
+        if (body != null) {
+            try {
+                fingerprint.append(' ').append(DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(body)));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return fingerprint.toString();
     }
 
     @GetMapping
-    public ResponseEntity<List<Employee>> listAllEmployees() {
-        List<Employee> employees = employeeService.getAllEmployees();
-        return ResponseEntity.ok().body(employees);
+    public DeferredResult<ResponseEntity<List<EmployeeView>>> listAllEmployees(
+            @RequestParam(required = false) Integer limit, @RequestParam(required = false) Integer after) {
+        if (limit == null && after == null) {
+            return deferred(listTimeoutMillis, asyncEmployeeService.getAllEmployees()
+                    .thenApply(employees -> ResponseEntity.ok().body(employees)));
+        }
+
+        int pageLimit = pageLimit(limit);
+        // The current request is only bound to the request thread
+        UriComponentsBuilder uriBuilder = ServletUriComponentsBuilder.fromCurrentRequest();
+        return deferred(requestTimeoutMillis, asyncEmployeeService
+                .getEmployeesAfter(after == null ? 0 : after, pageLimit)
+                .thenApply(employees -> employeePage(employees, pageLimit, uriBuilder)));
     }
 
-    @GetMapping("/{empId}")
-    public ResponseEntity<Employee> getEmployee(@PathVariable int empId) {
-        Employee employee = employeeService.getEmployee(empId);
+    private int pageLimit(Integer limit) {
+        return Math.max(1, Math.min(limit == null ? defaultPageLimit : limit, maxPageLimit));
+    }
+
+    private static ResponseEntity<List<EmployeeView>> employeePage(List<EmployeeView> employees, int pageLimit,
+                                                                   UriComponentsBuilder uriBuilder) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (employees.size() == pageLimit) {
+            int nextCursor = employees.get(employees.size() - 1).getId();
+            response.header(HttpHeaders.LINK, nextLink(uriBuilder
+                    .replaceQueryParam("limit", pageLimit)
+                    .replaceQueryParam("after", nextCursor)));
+        }
+        return response.body(employees);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllEmployees() {
+        ObjectWriter writer = objectMapper.writerFor(EmployeeView.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                employeeService.streamAllEmployees(employee -> {
+                    try {
+                        writer.writeValue(generator, employee);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_CBOR_VALUE)
+    public DeferredResult<ResponseEntity<StreamingResponseBody>> listAllEmployeesCbor(
+            @RequestParam(required = false) Integer limit, @RequestParam(required = false) Integer after) {
+        return binaryEmployeeArray(CBOR_FACTORY, MediaType.APPLICATION_CBOR, limit, after);
+    }
+
+    @GetMapping(produces = APPLICATION_SMILE_VALUE)
+    public DeferredResult<ResponseEntity<StreamingResponseBody>> listAllEmployeesSmile(
+            @RequestParam(required = false) Integer limit, @RequestParam(required = false) Integer after) {
+        return binaryEmployeeArray(SMILE_FACTORY, APPLICATION_SMILE, limit, after);
+    }
+
+    // Same document as the JSON list response; the unpaged list is written row by row from the cursor, a page is
+    // read on the database pool like the JSON one
+    private DeferredResult<ResponseEntity<StreamingResponseBody>> binaryEmployeeArray(
+            JsonFactory factory, MediaType mediaType, Integer limit, Integer after) {
+        if (limit == null && after == null) {
+            DeferredResult<ResponseEntity<StreamingResponseBody>> result = new DeferredResult<>();
+            result.setResult(binaryEmployeeArray(factory, mediaType, new HttpHeaders(),
+                    employeeService::streamAllEmployees));
+            return result;
+        }
+
+        int pageLimit = pageLimit(limit);
+        UriComponentsBuilder uriBuilder = ServletUriComponentsBuilder.fromCurrentRequest();
+        return deferred(requestTimeoutMillis, asyncEmployeeService
+                .getEmployeesAfter(after == null ? 0 : after, pageLimit)
+                .thenApply(employees -> {
+                    ResponseEntity<List<EmployeeView>> page = employeePage(employees, pageLimit, uriBuilder);
+                    HttpHeaders headers = new HttpHeaders();
+                    headers.addAll(page.getHeaders());
+                    return binaryEmployeeArray(factory, mediaType, headers, page.getBody()::forEach);
+                }));
+    }
+
+    private ResponseEntity<StreamingResponseBody> binaryEmployeeArray(JsonFactory factory, MediaType mediaType,
+                                                                      HttpHeaders headers,
+                                                                      Consumer<Consumer<EmployeeView>> source) {
+        headers.add(HttpHeaders.LINK, SCHEMA_LINK);
 
-        if (employee == null) {
-            throw new EntityNotFoundException(empId);
+        ObjectWriter writer = objectMapper.writerFor(EmployeeView.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = factory.createGenerator(outputStream)) {
+                generator.writeStartArray();
+                source.accept(employee -> {
+                    try {
+                        writer.writeValue(generator, employee);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(mediaType).headers(headers).body(body);
+    }
+
+    @GetMapping("/{empId}")
+    public DeferredResult<ResponseEntity<Employee>> getEmployee(
+            @PathVariable int empId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return deferred(requestTimeoutMillis, fetchEmployee(empId));
         }
-        return ResponseEntity.ok().body(employee);
+
+        // A version lookup is enough to answer a revalidation, the row itself is only read on a miss
+        return deferred(requestTimeoutMillis, asyncEmployeeService.getEmployeeVersion(empId).thenCompose(version -> {
+            if (version == null) {
+                throw notFound(empId, "get");
+            }
+            if (eTagMatches(ifNoneMatch, version, true)) {
+                return CompletableFuture.completedFuture(
+                        ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag(version)).<Employee>build());
+            }
+            return fetchEmployee(empId);
+        }));
+    }
+
+    private CompletableFuture<ResponseEntity<Employee>> fetchEmployee(int empId) {
+        return asyncEmployeeService.getEmployee(empId).thenApply(employee -> {
+            if (employee == null) {
+                throw notFound(empId, "get");
+            }
+            return ResponseEntity.ok().eTag(eTag(employee.getVersion())).body(employee);
+        });
     }
 
     @PostMapping
-    public ResponseEntity<Employee> createEmployee(@RequestBody Employee employee) {
-        employeeService.saveEmployee(employee);
-        return ResponseEntity.status(HttpStatus.CREATED).body(employee);
+    public DeferredResult<ResponseEntity<Employee>> createEmployee(
+            @RequestBody Employee employee,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return deferred(requestTimeoutMillis, idempotent(idempotencyKey, employee.getId(),
+                () -> fingerprint("create", null, null, employee),
+                writer -> writer.write(() -> {
+                    employeeService.saveEmployee(employee);
+                    return employee;
+                }).thenApply(savedEmployee -> ResponseEntity.status(HttpStatus.CREATED).body(savedEmployee))));
     }
 
     @PutMapping("/{empId}")
-    public ResponseEntity<Employee> updateEmployee(@RequestBody Employee employee, @PathVariable int empId) {
-        Employee updatedEmployee = employeeService.updateEmployee(employee, empId);
+    public DeferredResult<ResponseEntity<Employee>> updateEmployee(
+            @RequestBody Employee employee, @PathVariable int empId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return deferred(requestTimeoutMillis, idempotent(idempotencyKey, empId,
+                () -> fingerprint("update", empId, ifMatch, employee),
+                writer -> update(employee, empId, ifMatch, writer)));
+    }
 
-        if (updatedEmployee == null) {
-            throw new EntityNotFoundException(empId);
+    private CompletableFuture<ResponseEntity<Employee>> update(Employee employee, int empId, String ifMatch,
+                                                               EmployeeWriter writer) {
+        List<Integer> versions = ifMatchVersions(ifMatch, empId);
+        if (versions == null) {
+            return writer.write(() -> employeeService.updateEmployee(employee, empId))
+                    .thenApply(updatedEmployee -> {
+                        if (updatedEmployee == null) {
+                            throw notFound(empId, "update");
+                        }
+                        return ResponseEntity.ok().eTag(eTag(updatedEmployee.getVersion())).body(updatedEmployee);
+                    });
         }
-        return ResponseEntity.ok().body(updatedEmployee);
+
+        return writer.write(() -> employeeService.updateEmployee(
+                        employee, empId, expectedVersion(versions, empId, "update")))
+                .handle((updatedEmployee, failure) -> {
+                    if (failure != null) {
+                        throw preconditionFailedOnConflict(failure, empId);
+                    }
+                    if (updatedEmployee == null) {
+                        throw notFound(empId, "update");
+                    }
+                    return ResponseEntity.ok().eTag(eTag(updatedEmployee.getVersion())).body(updatedEmployee);
+                });
     }
 
     @DeleteMapping("/{empId}")
-    public ResponseEntity<Employee> deleteEmployee(@PathVariable int empId) {
-        Employee deletedEmp = employeeService.deleteEmployee(empId);
+    public DeferredResult<ResponseEntity<Employee>> deleteEmployee(
+            @PathVariable int empId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return deferred(requestTimeoutMillis, idempotent(idempotencyKey, empId,
+                () -> fingerprint("delete", empId, ifMatch, null),
+                writer -> delete(empId, ifMatch, writer)));
+    }
+
+    private CompletableFuture<ResponseEntity<Employee>> delete(int empId, String ifMatch, EmployeeWriter writer) {
+        List<Integer> versions = ifMatchVersions(ifMatch, empId);
+        return writer.write(versions == null
+                        ? () -> employeeService.deleteEmployee(empId)
+                        : () -> employeeService.deleteEmployee(empId, expectedVersion(versions, empId, "delete")))
+                .handle((deletedEmp, failure) -> {
+                    if (failure != null) {
+                        throw preconditionFailedOnConflict(failure, empId);
+                    }
+                    if (deletedEmp == null) {
+                        throw notFound(empId, "delete");
+                    }
+                    return ResponseEntity.ok().body(deletedEmp);
+                });
+    }
+
+    private static RuntimeException preconditionFailedOnConflict(Throwable failure, int empId) {
+        Throwable cause = unwrap(failure);
+        if (cause instanceof OptimisticLockingFailureException) {
+            return new PreconditionFailedException(empId);
+        }
+        return cause instanceof RuntimeException ? (RuntimeException) cause : new CompletionException(cause);
+    }
+
+    /**
+     * The versions an If-Match header accepts, or {@code null} when the write is unconditional. Weak tags never
+     * satisfy If-Match.
+     */
+    private static List<Integer> ifMatchVersions(String ifMatch, int empId) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+
+        List<Integer> versions = new ArrayList<>();
+        for (String tag : ifMatch.split(",")) {
+            Integer version = parseETag(tag.trim(), false);
+            if (version != null) {
+                versions.add(version);
+            }
+        }
+        if (versions.isEmpty()) {
+            throw new PreconditionFailedException(empId);
+        }
+        return versions;
+    }
+
+    /**
+     * The accepted version the write must be conditioned on. Of several, the current one if accepted, read by the
+     * write itself: with an idempotency key, after the key is looked up, so that a retry is replayed even though
+     * the write it repeats has moved the version on.
+     */
+    private Integer expectedVersion(List<Integer> versions, int empId, String operation) {
+        if (versions.size() == 1) {
+            return versions.get(0);
+        }
+
+        Integer currentVersion = employeeService.getEmployeeVersion(empId);
+        if (currentVersion == null) {
+            throw notFound(empId, operation);
+        }
+        if (!versions.contains(currentVersion)) {
+            throw new PreconditionFailedException(empId);
+        }
+        return currentVersion;
+    }
+
+    private static String eTag(int version) {
+        return "\"" + version + "\"";
+    }
 
-        if (deletedEmp == null) {
-            throw new EntityNotFoundException(empId);
+    private static boolean eTagMatches(String header, int version, boolean weakComparison) {
+        for (String tag : header.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            Integer tagVersion = parseETag(tag, weakComparison);
+            if (tagVersion != null && tagVersion == version) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Integer parseETag(String tag, boolean allowWeak) {
+        if (tag.startsWith("W/")) {
+            if (!allowWeak) {
+                return null;
+            }
+            tag = tag.substring(2);
+        }
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            return null;
+        }
+        try {
+            return Integer.valueOf(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            return null;
         }
-        return ResponseEntity.ok().body(deletedEmp);
     }
 
     @GetMapping("/name/{name}")
-    public ResponseEntity<List<Employee>> listAllEmployeesByName(@PathVariable("name") String name) {
-        List<Employee> employees = employeeService.getAllEmployeesByName(name);
-        return ResponseEntity.ok().body(employees);
+    public DeferredResult<ResponseEntity<List<EmployeeView>>> listAllEmployeesByName(
+            @PathVariable("name") String name) {
+        return deferred(requestTimeoutMillis, asyncEmployeeService.getAllEmployeesByName(name)
+                .thenApply(employees -> ResponseEntity.ok().body(employees)));
+    }
+
+    @GetMapping("/suggest")
+    public DeferredResult<ResponseEntity<List<EmployeeView>>> suggestEmployees(
+            @RequestParam String q, @RequestParam(required = false) Integer limit) {
+        if (q.isBlank()) {
+            throw new BadRequestException("q must not be blank");
+        }
+        int suggestLimit = Math.max(1, Math.min(limit == null ? defaultSuggestLimit : limit, maxSuggestLimit));
+        return deferred(requestTimeoutMillis, asyncEmployeeService.suggestEmployees(q, suggestLimit)
+                .thenApply(employees -> ResponseEntity.ok().body(employees)));
+    }
+
+    @GetMapping("/stats")
+    public DeferredResult<ResponseEntity<List<DepartmentStats>>> getDepartmentStats(
+            @RequestParam(required = false) Integer bandWidth) {
+        if (bandWidth != null && bandWidth <= 0) {
+            throw new BadRequestException("bandWidth must be positive");
+        }
+        return deferred(requestTimeoutMillis, asyncEmployeeService.getDepartmentStats(bandWidth)
+                .thenApply(stats -> ResponseEntity.ok().body(stats)));
+    }
+
+    @GetMapping("/search")
+    public DeferredResult<ResponseEntity<List<EmployeeView>>> searchEmployees(
+            EmployeeSearchCriteria criteria, @PageableDefault(size = 20, sort = "id") Pageable pageable) {
+        for (Sort.Order order : pageable.getSort()) {
+            if (!SORTABLE_PROPERTIES.contains(order.getProperty())) {
+                throw new BadRequestException("Sorting by '" + order.getProperty() + "' is not supported");
+            }
+        }
+        if (criteria.getMinSalary() != null && criteria.getMaxSalary() != null
+                && criteria.getMinSalary() > criteria.getMaxSalary()) {
+            throw new BadRequestException("minSalary must not be greater than maxSalary");
+        }
+
+        UriComponentsBuilder uriBuilder = ServletUriComponentsBuilder.fromCurrentRequest();
+        return deferred(requestTimeoutMillis, asyncEmployeeService.searchEmployees(criteria, pageable)
+                .thenApply(page -> searchPage(page, uriBuilder)));
+    }
+
+    private static ResponseEntity<List<EmployeeView>> searchPage(Page<EmployeeView> page,
+                                                                 UriComponentsBuilder uriBuilder) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(page.getTotalElements()));
+        if (page.hasNext()) {
+            response.header(HttpHeaders.LINK, nextLink(uriBuilder
+                    .replaceQueryParam("page", page.getNumber() + 1)
+                    .replaceQueryParam("size", page.getSize())));
+        }
+        return response.body(page.getContent());
+    }
+
+    private static String nextLink(UriComponentsBuilder uriBuilder) {
+        return "<" + uriBuilder.toUriString() + ">; rel=\"next\"";
+    }
+
+    @PostMapping("/batch")
+    public void createEmployees(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        processBatch(request, response, Employee.class, BATCH_EMPLOYEE_ID, (employees, offset) -> {
+            List<Employee> saved = employeeService.saveEmployees(employees);
+            List<BatchItemResult> results = new ArrayList<>(saved.size());
+            for (int i = 0; i < saved.size(); i++) {
+                results.add(BatchItemResult.success(offset + i, HttpStatus.CREATED.value(), saved.get(i)));
+            }
+            return results;
+        });
+    }
+
+    @PutMapping("/batch")
+    public void updateEmployees(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        processBatch(request, response, Employee.class, BATCH_EMPLOYEE_ID, (employees, offset) -> {
+            List<Employee> updated = employeeService.updateEmployees(employees);
+            List<BatchItemResult> results = new ArrayList<>(updated.size());
+            for (int i = 0; i < updated.size(); i++) {
+                results.add(updated.get(i) == null
+                        ? notFound(offset + i, employees.get(i).getId(), "batch-update")
+                        : BatchItemResult.success(offset + i, HttpStatus.OK.value(), updated.get(i)));
+            }
+            return results;
+        });
+    }
+
+    @DeleteMapping("/batch")
+    public void deleteEmployees(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        processBatch(request, response, Integer.class, Function.identity(), (ids, offset) -> {
+            List<Employee> deleted = employeeService.deleteEmployees(ids);
+            List<BatchItemResult> results = new ArrayList<>(deleted.size());
+            for (int i = 0; i < deleted.size(); i++) {
+                results.add(deleted.get(i) == null
+                        ? notFound(offset + i, ids.get(i), "batch-delete")
+                        : BatchItemResult.success(offset + i, HttpStatus.OK.value(), deleted.get(i)));
+            }
+            return results;
+        });
+    }
+
+    private BatchItemResult notFound(int index, int id, String operation) {
+        return BatchItemResult.failure(index, HttpStatus.NOT_FOUND.value(), id, notFound(id, operation).getMessage());
+    }
+
+    private EntityNotFoundException notFound(int empId, String operation) {
+        meterRegistry.counter(NOT_FOUND_METRIC, "operation", operation).increment();
+        return new EntityNotFoundException(empId);
+    }
+
+    private <T> void processBatch(HttpServletRequest request, HttpServletResponse response, Class<T> itemType,
+                                  Function<T, Integer> idOf,
+                                  BiFunction<List<T>, Integer, List<BatchItemResult>> chunkProcessor)
+            throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+
+        ObjectWriter writer = objectMapper.writerFor(BatchItemResult.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (MappingIterator<T> items = objectMapper.readerFor(itemType).readValues(request.getInputStream());
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            int offset = 0;
+            List<T> chunk = new ArrayList<>(batchChunkSize);
+            String parseError = null;
+            while (parseError == null) {
+                try {
+                    if (!items.hasNextValue()) {
+                        break;
+                    }
+                    chunk.add(items.nextValue());
+                } catch (JsonProcessingException e) {
+                    parseError = e.getOriginalMessage();
+                }
+
+                if (chunk.size() == batchChunkSize) {
+                    writeBatchResults(writer, generator, processChunk(chunkProcessor, idOf, chunk, offset));
+                    offset += chunk.size();
+                    chunk.clear();
+                }
+            }
+
+            if (!chunk.isEmpty()) {
+                writeBatchResults(writer, generator, processChunk(chunkProcessor, idOf, chunk, offset));
+                offset += chunk.size();
+            }
+            if (parseError != null) {
+                writeBatchResults(writer, generator, List.of(
+                        BatchItemResult.failure(offset, HttpStatus.BAD_REQUEST.value(), null, parseError)));
+            }
+        }
+    }
+
+    // The 200 is already committed, so a failed chunk is reported per item and the following chunks still run
+    private static <T> List<BatchItemResult> processChunk(
+            BiFunction<List<T>, Integer, List<BatchItemResult>> chunkProcessor, Function<T, Integer> idOf,
+            List<T> chunk, int offset) {
+        try {
+            return chunkProcessor.apply(chunk, offset);
+        } catch (RuntimeException e) {
+            log.error("Failed to process batch items {}..{}", offset, offset + chunk.size() - 1, e);
+            int status = e instanceof OptimisticLockingFailureException
+                    ? HttpStatus.CONFLICT.value()
+                    : HttpStatus.INTERNAL_SERVER_ERROR.value();
+            List<BatchItemResult> results = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                results.add(BatchItemResult.failure(offset + i, status, idOf.apply(chunk.get(i)),
+                        "Chunk rolled back: " + e.getClass().getSimpleName()));
+            }
+            return results;
+        }
+    }
+
+    private static void writeBatchResults(ObjectWriter writer, JsonGenerator generator,
+                                          List<BatchItemResult> results) throws IOException {
+        for (BatchItemResult result : results) {
+            writer.writeValue(generator, result);
+            generator.writeRaw('\n');
+        }
+        generator.flush();
     }
 }
@@ -0,0 +1,139 @@
+package ru.botsner.springboot.rest.controller;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import ru.botsner.springboot.rest.exception.UnprocessableEntityException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Writes in flight by idempotency key, so that a retry arriving while the first attempt is in flight waits for its
+ * outcome rather than racing it to the database, where {@link ru.botsner.springboot.rest.service.IdempotentWrites}
+ * keeps the keys. Successful responses stay for a fixed time after the first attempt, up to a maximum number of
+ * keys, to answer retries without a database round trip; an attempt in flight is never evicted for size. Once an
+ * attempt fails, the key is free for the next one.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "app.employees.idempotency.enabled", havingValue = "true", matchIfMissing = true)
+class IdempotencyStore {
+
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final class Entry {
+        final String fingerprint;
+        final CompletableFuture<ResponseEntity<?>> response = new CompletableFuture<>();
+
+        Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        int weight() {
+            return response.isDone() ? 1 : 0;
+        }
+    }
+
+    private final Cache<String, Entry> entries;
+
+    private final Counter executed;
+
+    private final Counter replayed;
+
+    private final Counter mismatched;
+
+    @Autowired
+    IdempotencyStore(@Value("${app.employees.idempotency.max-keys:100000}") long maxKeys,
+                     @Value("${app.employees.idempotency.ttl-seconds:86400}") long ttlSeconds,
+                     MeterRegistry meterRegistry) {
+        this(maxKeys, Duration.ofSeconds(ttlSeconds), meterRegistry);
+    }
+
+    IdempotencyStore(long maxKeys, Duration ttl, MeterRegistry meterRegistry) {
+        // Weighed when put, so an entry counts against the maximum once it is put again on completion
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(maxKeys)
+                .<String, Entry>weigher((key, entry) -> entry.weight())
+                .expireAfterWrite(ttl)
+                .build();
+
+        executed = requests(meterRegistry, "executed");
+        replayed = requests(meterRegistry, "replayed");
+        mismatched = requests(meterRegistry, "mismatched");
+        Gauge.builder("idempotency.keys", entries, Cache::estimatedSize)
+                .description("Idempotency keys in flight or kept")
+                .register(meterRegistry);
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("idempotency.requests")
+                .description("Writes with an idempotency key")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the write unless the key has been seen, otherwise answers with the response of the write it was first
+     * used for, marked with {@value #REPLAYED_HEADER}.
+     *
+     * @param fingerprint identifies the request, so that a key reused for a different one is refused
+     */
+    @SuppressWarnings("unchecked")
+    <T> CompletableFuture<ResponseEntity<T>> execute(String key, String fingerprint,
+                                                     Supplier<CompletableFuture<ResponseEntity<T>>> write) {
+        Entry entry = new Entry(fingerprint);
+        Entry existing = entries.asMap().putIfAbsent(key, entry);
+        if (existing != null) {
+            if (!existing.fingerprint.equals(fingerprint)) {
+                mismatched.increment();
+                return CompletableFuture.failedFuture(new UnprocessableEntityException(
+                        "Idempotency key " + key + " has been used for a different request"));
+            }
+            replayed.increment();
+            return existing.response.thenApply(response -> replayed((ResponseEntity<T>) response));
+        }
+
+        executed.increment();
+        CompletableFuture<ResponseEntity<T>> result;
+        try {
+            result = write.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((response, failure) -> {
+            if (failure != null) {
+                entries.asMap().remove(key, entry);
+                entry.response.completeExceptionally(failure);
+            } else {
+                entry.response.complete(response);
+                entries.asMap().replace(key, entry, entry);
+            }
+        });
+        // A dependent stage, so that a caller giving up doesn't cancel the write for the retries waiting on it
+        return entry.response.thenApply(response -> (ResponseEntity<T>) response);
+    }
+
+    /**
+     * Forgets the kept responses, as another instance never had them; retries are then answered from the database.
+     */
+    void clear() {
+        entries.invalidateAll();
+    }
+
+    static <T> ResponseEntity<T> replayed(ResponseEntity<T> response) {
+        return ResponseEntity.status(response.getStatusCodeValue())
+                .headers(response.getHeaders())
+                .header(REPLAYED_HEADER, "true")
+                .body(response.getBody());
+    }
+}
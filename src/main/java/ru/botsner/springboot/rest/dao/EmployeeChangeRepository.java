@@ -0,0 +1,26 @@
+package ru.botsner.springboot.rest.dao;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import ru.botsner.springboot.rest.entity.EmployeeChange;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface EmployeeChangeRepository extends JpaRepository<EmployeeChange, Long> {
+
+    @Query("select c from EmployeeChange c where c.seq > :since and c.seq <= :upTo order by c.seq")
+    List<EmployeeChange> findChanges(@Param("since") long since, @Param("upTo") long upTo, Pageable pageable);
+
+    @Query("select coalesce(max(c.seq), 0) from EmployeeChange c")
+    long findLastSeq();
+
+    @Transactional
+    @Modifying
+    @Query("delete from EmployeeChange c where c.changedAt < :cutoff and c.seq < :below")
+    int deleteChangedBefore(@Param("cutoff") Instant cutoff, @Param("below") long below);
+}
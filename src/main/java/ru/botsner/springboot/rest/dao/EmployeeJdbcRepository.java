@@ -0,0 +1,123 @@
+package ru.botsner.springboot.rest.dao;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import ru.botsner.springboot.rest.dto.EmployeeView;
+import ru.botsner.springboot.rest.entity.Employee;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Repository
+@Profile("!reactive")
+@Timed(value = "employees.jdbc", histogram = true)
+public class EmployeeJdbcRepository {
+
+    private static final String SELECT_ALL_ORDERED_BY_ID =
+            "SELECT id, name, surname, department, salary FROM employees ORDER BY id";
+
+    private static final String SELECT_ALL_WITH_VERSION_ORDERED_BY_ID =
+            "SELECT id, name, surname, department, salary, version FROM employees ORDER BY id";
+
+    private static final String UPDATE_BY_ID =
+            "UPDATE employees SET name = ?, surname = ?, department = ?, salary = ?, version = version + 1 WHERE id = ?";
+
+    private static final String UPDATE_BY_ID_AND_VERSION = UPDATE_BY_ID + " AND version = ?";
+
+    private static final String DELETE_BY_ID = "DELETE FROM employees WHERE id = ?";
+
+    private static final String DELETE_BY_ID_AND_VERSION = DELETE_BY_ID + " AND version = ?";
+
+    static final RowMapper<EmployeeView> EMPLOYEE_ROW_MAPPER = (rs, rowNum) -> new EmployeeView(
+            rs.getInt("id"),
+            rs.getString("name"),
+            rs.getString("surname"),
+            rs.getString("department"),
+            rs.getInt("salary"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public EmployeeJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void streamAll(int fetchSize, Consumer<EmployeeView> action) {
+        jdbcTemplate.query(
+                con -> {
+                    PreparedStatement ps = con.prepareStatement(SELECT_ALL_ORDERED_BY_ID,
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(fetchSize);
+                    return ps;
+                },
+                (RowCallbackHandler) rs -> action.accept(EMPLOYEE_ROW_MAPPER.mapRow(rs, 0)));
+    }
+
+    /**
+     * Like {@link #streamAll}, but with the version, for copies of the table that have to serve ETags.
+     */
+    public void streamAllWithVersion(int fetchSize, Consumer<Employee> action) {
+        jdbcTemplate.query(
+                con -> {
+                    PreparedStatement ps = con.prepareStatement(SELECT_ALL_WITH_VERSION_ORDERED_BY_ID,
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(fetchSize);
+                    return ps;
+                },
+                (RowCallbackHandler) rs -> {
+                    Employee employee = new Employee(rs.getString("name"), rs.getString("surname"),
+                            rs.getString("department"), rs.getInt("salary"));
+                    employee.setId(rs.getInt("id"));
+                    employee.setVersion(rs.getInt("version"));
+                    action.accept(employee);
+                });
+    }
+
+    // Single-row writes go around Hibernate, as its bulk statements clear the whole second-level cache region and
+    // every query region, where only the written id needs evicting
+    public int updateById(int id, Employee employee) {
+        return jdbcTemplate.update(UPDATE_BY_ID, employee.getName(), employee.getSurname(), employee.getDepartment(),
+                employee.getSalary(), id);
+    }
+
+    public int updateByIdAndVersion(int id, int version, Employee employee) {
+        return jdbcTemplate.update(UPDATE_BY_ID_AND_VERSION, employee.getName(), employee.getSurname(),
+                employee.getDepartment(), employee.getSalary(), id, version);
+    }
+
+    public int removeById(int id) {
+        return jdbcTemplate.update(DELETE_BY_ID, id);
+    }
+
+    public int removeByIdAndVersion(int id, int version) {
+        return jdbcTemplate.update(DELETE_BY_ID_AND_VERSION, id, version);
+    }
+
+    public int[] updateAll(List<Employee> employees) {
+        return jdbcTemplate.batchUpdate(UPDATE_BY_ID, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Employee employee = employees.get(i);
+                ps.setString(1, employee.getName());
+                ps.setString(2, employee.getSurname());
+                ps.setString(3, employee.getDepartment());
+                ps.setInt(4, employee.getSalary());
+                ps.setInt(5, employee.getId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return employees.size();
+            }
+        });
+    }
+}
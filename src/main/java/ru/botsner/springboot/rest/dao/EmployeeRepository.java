@@ -1,10 +1,55 @@
 package ru.botsner.springboot.rest.dao;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import ru.botsner.springboot.rest.dto.DepartmentStats;
+import ru.botsner.springboot.rest.dto.EmployeeView;
 import ru.botsner.springboot.rest.entity.Employee;
 
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.Optional;
 
-public interface EmployeeRepository extends JpaRepository<Employee, Integer> {
-    List<Employee> findAllByName(String name);
+public interface EmployeeRepository extends JpaRepository<Employee, Integer>, JpaSpecificationExecutor<Employee> {
+    String BY_NAME_CACHE_REGION = "employees-by-name";
+
+    List<EmployeeView> findAllProjectedBy();
+
+    // Only takes effect with the query cache enabled
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHE_REGION, value = BY_NAME_CACHE_REGION)
+    })
+    List<EmployeeView> findProjectedByName(String name);
+
+    List<EmployeeView> findProjectedByIdGreaterThanOrderByIdAsc(int id, Pageable pageable);
+
+    // A List rather than a Page, so there is no count query
+    List<EmployeeView> findProjectedByNameStartingWithOrSurnameStartingWith(String name, String surname,
+                                                                            Pageable pageable);
+
+    @Query("select new ru.botsner.springboot.rest.dto.DepartmentStats(e.department, count(e), sum(e.salary), " +
+            "avg(e.salary), min(e.salary), max(e.salary)) from Employee e group by e.department order by e.department")
+    List<DepartmentStats> findDepartmentStats();
+
+    // Grouped by the select alias so the bandWidth parameter does not have to repeat in GROUP BY
+    @Query(value = "SELECT department AS department, FLOOR(salary / :bandWidth) * :bandWidth AS lowerBound, " +
+            "COUNT(*) AS headcount FROM employees GROUP BY department, lowerBound ORDER BY department, lowerBound",
+            nativeQuery = true)
+    List<DepartmentSalaryBand> findDepartmentSalaryBands(@Param("bandWidth") int bandWidth);
+
+    @Query("select e.version from Employee e where e.id = :id")
+    Optional<Integer> findVersionById(@Param("id") int id);
+
+    interface DepartmentSalaryBand {
+        String getDepartment();
+
+        int getLowerBound();
+
+        long getHeadcount();
+    }
 }
@@ -0,0 +1,261 @@
+package ru.botsner.springboot.rest.dao;
+
+import ru.botsner.springboot.rest.dto.EmployeeView;
+import ru.botsner.springboot.rest.entity.Employee;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Read-only copy of the employees table in a memory-mapped file written by {@link EmployeeSnapshotWriter}. Rows
+ * are decoded from the mapping on every read, so the heap only holds the department dictionary, and opening a
+ * snapshot costs no more than mapping the file. Safe for concurrent readers.
+ * <p>
+ * Layout, big-endian:
+ * <ul>
+ *     <li>header: magic, format version, last applied change sequence number (long), row count, department
+ *     count, heap size</li>
+ *     <li>int columns with one value per row, rows in id order: id, version, salary, department code,
+ *     name reference, surname reference</li>
+ *     <li>name index: row numbers ordered by name, then id</li>
+ *     <li>department dictionary: heap references</li>
+ *     <li>heap: distinct strings, each an unsigned short byte length and the UTF-8 bytes</li>
+ * </ul>
+ * Null strings are stored as reference (or department code) {@code -1}.
+ */
+public final class EmployeeSnapshot {
+
+    static final int MAGIC = 0x454d5053;
+
+    static final int FORMAT_VERSION = 1;
+
+    static final int HEADER_SIZE = 32;
+
+    static final int NULL_REF = -1;
+
+    private final ByteBuffer buffer;
+
+    private final long lastSeq;
+
+    private final int size;
+
+    private final int idsAt;
+
+    private final int versionsAt;
+
+    private final int salariesAt;
+
+    private final int departmentsAt;
+
+    private final int namesAt;
+
+    private final int surnamesAt;
+
+    private final int nameIndexAt;
+
+    private final int heapAt;
+
+    private final String[] departments;
+
+    private EmployeeSnapshot(ByteBuffer buffer, Path path) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException(path + " is not an employee snapshot");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException(path + " has unsupported snapshot format " + buffer.getInt(4));
+        }
+        this.buffer = buffer;
+        this.lastSeq = buffer.getLong(8);
+        this.size = buffer.getInt(16);
+        int departmentCount = buffer.getInt(20);
+        int heapSize = buffer.getInt(24);
+
+        long columnBytes = 4L * size;
+        long expectedSize = HEADER_SIZE + 7 * columnBytes + 4L * departmentCount + heapSize;
+        if (size < 0 || departmentCount < 0 || heapSize < 0 || expectedSize != buffer.capacity()) {
+            throw new IOException(path + " is truncated or corrupt");
+        }
+        this.idsAt = HEADER_SIZE;
+        this.versionsAt = (int) (idsAt + columnBytes);
+        this.salariesAt = (int) (versionsAt + columnBytes);
+        this.departmentsAt = (int) (salariesAt + columnBytes);
+        this.namesAt = (int) (departmentsAt + columnBytes);
+        this.surnamesAt = (int) (namesAt + columnBytes);
+        this.nameIndexAt = (int) (surnamesAt + columnBytes);
+        int dictionaryAt = (int) (nameIndexAt + columnBytes);
+        this.heapAt = dictionaryAt + 4 * departmentCount;
+
+        // Few and shared by many rows, so they are decoded once
+        this.departments = new String[departmentCount];
+        for (int i = 0; i < departmentCount; i++) {
+            departments[i] = string(buffer.getInt(dictionaryAt + 4 * i));
+        }
+    }
+
+    public static EmployeeSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large to be an employee snapshot");
+            }
+            // The mapping stays valid after the channel is closed
+            return new EmployeeSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), path);
+        }
+    }
+
+    /**
+     * Sequence number of the last employee change reflected in the snapshot.
+     */
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Employee getEmployee(int id) {
+        int row = rowOf(id);
+        return row < 0 ? null : employee(row);
+    }
+
+    public Integer getEmployeeVersion(int id) {
+        int row = rowOf(id);
+        return row < 0 ? null : column(versionsAt, row);
+    }
+
+    public List<EmployeeView> getAllEmployees() {
+        List<EmployeeView> employees = new ArrayList<>(size);
+        streamAll(employees::add);
+        return employees;
+    }
+
+    public List<EmployeeView> getEmployeesAfter(int afterId, int limit) {
+        int from = rowOf(afterId);
+        from = from < 0 ? -from - 1 : from + 1;
+        int to = (int) Math.min(size, (long) from + limit);
+
+        List<EmployeeView> employees = new ArrayList<>(Math.max(0, to - from));
+        for (int row = from; row < to; row++) {
+            employees.add(view(row));
+        }
+        return employees;
+    }
+
+    public void streamAll(Consumer<EmployeeView> action) {
+        for (int row = 0; row < size; row++) {
+            action.accept(view(row));
+        }
+    }
+
+    /**
+     * All rows with their versions, in id order.
+     */
+    public void forEachEmployee(Consumer<Employee> action) {
+        for (int row = 0; row < size; row++) {
+            action.accept(employee(row));
+        }
+    }
+
+    /**
+     * Exact, case-sensitive matches in id order.
+     */
+    public List<EmployeeView> getAllEmployeesByName(String name) {
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareName(column(nameIndexAt, mid), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        List<EmployeeView> employees = new ArrayList<>();
+        for (int i = low; i < size; i++) {
+            int row = column(nameIndexAt, i);
+            if (compareName(row, key) != 0) {
+                break;
+            }
+            employees.add(view(row));
+        }
+        return employees;
+    }
+
+    private int rowOf(int id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = column(idsAt, mid);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private int compareName(int row, byte[] key) {
+        int ref = column(namesAt, row);
+        if (ref == NULL_REF) {
+            return -1;
+        }
+        int length = buffer.getShort(heapAt + ref) & 0xffff;
+        int at = heapAt + ref + 2;
+        for (int i = 0; i < Math.min(length, key.length); i++) {
+            int diff = Byte.toUnsignedInt(buffer.get(at + i)) - Byte.toUnsignedInt(key[i]);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - key.length;
+    }
+
+    private Employee employee(int row) {
+        Employee employee = new Employee(string(column(namesAt, row)), string(column(surnamesAt, row)),
+                department(row), column(salariesAt, row));
+        employee.setId(column(idsAt, row));
+        employee.setVersion(column(versionsAt, row));
+        return employee;
+    }
+
+    private EmployeeView view(int row) {
+        return new EmployeeView(column(idsAt, row), string(column(namesAt, row)), string(column(surnamesAt, row)),
+                department(row), column(salariesAt, row));
+    }
+
+    private String department(int row) {
+        int code = column(departmentsAt, row);
+        return code == NULL_REF ? null : departments[code];
+    }
+
+    private int column(int columnAt, int row) {
+        return buffer.getInt(columnAt + 4 * row);
+    }
+
+    private String string(int ref) {
+        if (ref == NULL_REF) {
+            return null;
+        }
+        int length = buffer.getShort(heapAt + ref) & 0xffff;
+        int at = heapAt + ref + 2;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(at + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
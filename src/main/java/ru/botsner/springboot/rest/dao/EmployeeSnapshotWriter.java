@@ -0,0 +1,158 @@
+package ru.botsner.springboot.rest.dao;
+
+import ru.botsner.springboot.rest.entity.Employee;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Collects rows in ascending id order and writes them in the {@link EmployeeSnapshot} format.
+ */
+public final class EmployeeSnapshotWriter {
+
+    private static final int MAX_STRING_BYTES = 0xffff;
+
+    private int size;
+
+    private int[] ids = new int[1024];
+
+    private int[] versions = new int[1024];
+
+    private int[] salaries = new int[1024];
+
+    private int[] departments = new int[1024];
+
+    private int[] names = new int[1024];
+
+    private int[] surnames = new int[1024];
+
+    private final Map<String, Integer> departmentCodes = new LinkedHashMap<>();
+
+    private final Map<String, Integer> heapRefs = new HashMap<>();
+
+    private final ByteArrayOutputStream heap = new ByteArrayOutputStream();
+
+    public void add(Employee employee) {
+        if (size > 0 && employee.getId() <= ids[size - 1]) {
+            throw new IllegalArgumentException("Employees must be added in ascending id order, got "
+                    + employee.getId() + " after " + ids[size - 1]);
+        }
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+            salaries = Arrays.copyOf(salaries, capacity);
+            departments = Arrays.copyOf(departments, capacity);
+            names = Arrays.copyOf(names, capacity);
+            surnames = Arrays.copyOf(surnames, capacity);
+        }
+
+        ids[size] = employee.getId();
+        versions[size] = employee.getVersion();
+        salaries[size] = employee.getSalary();
+        departments[size] = employee.getDepartment() == null
+                ? EmployeeSnapshot.NULL_REF
+                : departmentCodes.computeIfAbsent(employee.getDepartment(), department -> departmentCodes.size());
+        names[size] = heapRef(employee.getName());
+        surnames[size] = heapRef(employee.getSurname());
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param lastSeq sequence number of the last employee change reflected in the added rows
+     */
+    public void write(Path path, long lastSeq) throws IOException {
+        int[] dictionary = departmentCodes.keySet().stream().mapToInt(this::heapRef).toArray();
+        byte[] heapBytes = heap.toByteArray();
+
+        long fileSize = EmployeeSnapshot.HEADER_SIZE + 28L * size + 4L * dictionary.length + heapBytes.length;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IOException("Employee snapshot of " + fileSize + " bytes can't be mapped");
+        }
+
+        int[] nameIndex = IntStream.range(0, size).boxed()
+                .sorted((left, right) -> {
+                    int byName = compare(heapBytes, names[left], names[right]);
+                    return byName != 0 ? byName : Integer.compare(ids[left], ids[right]);
+                })
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(EmployeeSnapshot.MAGIC);
+            out.writeInt(EmployeeSnapshot.FORMAT_VERSION);
+            out.writeLong(lastSeq);
+            out.writeInt(size);
+            out.writeInt(dictionary.length);
+            out.writeInt(heapBytes.length);
+            out.writeInt(0);
+
+            writeColumn(out, ids, size);
+            writeColumn(out, versions, size);
+            writeColumn(out, salaries, size);
+            writeColumn(out, departments, size);
+            writeColumn(out, names, size);
+            writeColumn(out, surnames, size);
+            writeColumn(out, nameIndex, size);
+            writeColumn(out, dictionary, dictionary.length);
+            out.write(heapBytes);
+        }
+    }
+
+    private int heapRef(String value) {
+        if (value == null) {
+            return EmployeeSnapshot.NULL_REF;
+        }
+        Integer ref = heapRefs.get(value);
+        if (ref != null) {
+            return ref;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("String of " + bytes.length + " bytes is too long for a snapshot");
+        }
+        ref = heap.size();
+        heap.write(bytes.length >>> 8);
+        heap.write(bytes.length);
+        heap.write(bytes, 0, bytes.length);
+        heapRefs.put(value, ref);
+        return ref;
+    }
+
+    // Unsigned byte order of UTF-8 is code point order, the same order EmployeeSnapshot searches in
+    private static int compare(byte[] heap, int leftRef, int rightRef) {
+        if (leftRef == rightRef) {
+            return 0;
+        }
+        if (leftRef == EmployeeSnapshot.NULL_REF || rightRef == EmployeeSnapshot.NULL_REF) {
+            return leftRef == EmployeeSnapshot.NULL_REF ? -1 : 1;
+        }
+        return Arrays.compareUnsigned(heap, leftRef + 2, leftRef + 2 + length(heap, leftRef),
+                heap, rightRef + 2, rightRef + 2 + length(heap, rightRef));
+    }
+
+    private static int length(byte[] heap, int ref) {
+        return (Byte.toUnsignedInt(heap[ref]) << 8) | Byte.toUnsignedInt(heap[ref + 1]);
+    }
+
+    private static void writeColumn(DataOutputStream out, int[] values, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeInt(values[i]);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package ru.botsner.springboot.rest.dao;
+
+import org.springframework.data.jpa.domain.Specification;
+import ru.botsner.springboot.rest.dto.EmployeeSearchCriteria;
+import ru.botsner.springboot.rest.entity.Employee;
+
+public final class EmployeeSpecifications {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private EmployeeSpecifications() {
+    }
+
+    public static Specification<Employee> matching(EmployeeSearchCriteria criteria) {
+        return Specification.where(nameStartsWith(criteria.getName()))
+                .and(attributeEquals("surname", criteria.getSurname()))
+                .and(attributeEquals("department", criteria.getDepartment()))
+                .and(salaryBetween(criteria.getMinSalary(), criteria.getMaxSalary()));
+    }
+
+    static Specification<Employee> nameStartsWith(String prefix) {
+        if (prefix == null || prefix.isEmpty()) {
+            return null;
+        }
+        return (root, query, cb) -> cb.like(root.get("name"), escapeLike(prefix) + "%", LIKE_ESCAPE);
+    }
+
+    static Specification<Employee> attributeEquals(String attribute, String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get(attribute), value);
+    }
+
+    static Specification<Employee> salaryBetween(Integer min, Integer max) {
+        if (min == null && max == null) {
+            return null;
+        }
+        if (max == null) {
+            return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("salary"), min);
+        }
+        if (min == null) {
+            return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("salary"), max);
+        }
+        return (root, query, cb) -> cb.between(root.get("salary"), min, max);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
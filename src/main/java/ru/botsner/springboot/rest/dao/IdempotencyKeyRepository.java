@@ -0,0 +1,18 @@
+package ru.botsner.springboot.rest.dao;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import ru.botsner.springboot.rest.entity.IdempotencyKey;
+
+import java.time.Instant;
+
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyKey k where k.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,53 @@
+package ru.botsner.springboot.rest.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import ru.botsner.springboot.rest.entity.Employee;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+    private final int index;
+
+    private final int status;
+
+    private final Integer id;
+
+    private final Employee employee;
+
+    private final String error;
+
+    private BatchItemResult(int index, int status, Integer id, Employee employee, String error) {
+        this.index = index;
+        this.status = status;
+        this.id = id;
+        this.employee = employee;
+        this.error = error;
+    }
+
+    public static BatchItemResult success(int index, int status, Employee employee) {
+        return new BatchItemResult(index, status, employee.getId(), employee, null);
+    }
+
+    public static BatchItemResult failure(int index, int status, Integer id, String error) {
+        return new BatchItemResult(index, status, id, null, error);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public Employee getEmployee() {
+        return employee;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
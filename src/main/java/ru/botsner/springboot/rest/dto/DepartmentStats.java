@@ -0,0 +1,64 @@
+package ru.botsner.springboot.rest.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DepartmentStats {
+    private final String department;
+
+    private final long headcount;
+
+    private final long totalSalary;
+
+    private final double averageSalary;
+
+    private final int minSalary;
+
+    private final int maxSalary;
+
+    private List<SalaryBand> salaryBands;
+
+    public DepartmentStats(String department, long headcount, long totalSalary, double averageSalary,
+                           int minSalary, int maxSalary) {
+        this.department = department;
+        this.headcount = headcount;
+        this.totalSalary = totalSalary;
+        this.averageSalary = averageSalary;
+        this.minSalary = minSalary;
+        this.maxSalary = maxSalary;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public long getHeadcount() {
+        return headcount;
+    }
+
+    public long getTotalSalary() {
+        return totalSalary;
+    }
+
+    public double getAverageSalary() {
+        return averageSalary;
+    }
+
+    public int getMinSalary() {
+        return minSalary;
+    }
+
+    public int getMaxSalary() {
+        return maxSalary;
+    }
+
+    public List<SalaryBand> getSalaryBands() {
+        return salaryBands;
+    }
+
+    public void setSalaryBands(List<SalaryBand> salaryBands) {
+        this.salaryBands = salaryBands;
+    }
+}
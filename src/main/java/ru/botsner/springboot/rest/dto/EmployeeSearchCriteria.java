@@ -0,0 +1,64 @@
+package ru.botsner.springboot.rest.dto;
+
+public class EmployeeSearchCriteria {
+    private String name;
+
+    private String surname;
+
+    private String department;
+
+    private Integer minSalary;
+
+    private Integer maxSalary;
+
+    public EmployeeSearchCriteria() {
+    }
+
+    public EmployeeSearchCriteria(String name, String surname, String department, Integer minSalary, Integer maxSalary) {
+        this.name = name;
+        this.surname = surname;
+        this.department = department;
+        this.minSalary = minSalary;
+        this.maxSalary = maxSalary;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getSurname() {
+        return surname;
+    }
+
+    public void setSurname(String surname) {
+        this.surname = surname;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public void setDepartment(String department) {
+        this.department = department;
+    }
+
+    public Integer getMinSalary() {
+        return minSalary;
+    }
+
+    public void setMinSalary(Integer minSalary) {
+        this.minSalary = minSalary;
+    }
+
+    public Integer getMaxSalary() {
+        return maxSalary;
+    }
+
+    public void setMaxSalary(Integer maxSalary) {
+        this.maxSalary = maxSalary;
+    }
+}
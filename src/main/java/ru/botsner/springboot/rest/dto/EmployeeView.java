@@ -0,0 +1,54 @@
+package ru.botsner.springboot.rest.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import ru.botsner.springboot.rest.entity.Employee;
+
+/**
+ * Read-only employee row for list paths, queried as a constructor projection so Hibernate neither manages it nor
+ * keeps a dirty-checking snapshot for it.
+ */
+@JsonSerialize(using = EmployeeViewSerializer.class)
+public class EmployeeView {
+    private final int id;
+
+    private final String name;
+
+    private final String surname;
+
+    private final String department;
+
+    private final int salary;
+
+    public EmployeeView(int id, String name, String surname, String department, int salary) {
+        this.id = id;
+        this.name = name;
+        this.surname = surname;
+        this.department = department;
+        this.salary = salary;
+    }
+
+    public static EmployeeView of(Employee employee) {
+        return new EmployeeView(employee.getId(), employee.getName(), employee.getSurname(),
+                employee.getDepartment(), employee.getSalary());
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSurname() {
+        return surname;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public int getSalary() {
+        return salary;
+    }
+}
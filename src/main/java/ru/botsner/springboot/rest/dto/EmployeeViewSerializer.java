@@ -0,0 +1,47 @@
+package ru.botsner.springboot.rest.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes {@link EmployeeView} field by field with pre-encoded names, skipping bean introspection and per-property
+ * reflective access. Produces the same JSON as the {@code Employee} entity.
+ */
+public class EmployeeViewSerializer extends StdSerializer<EmployeeView> {
+
+    private static final SerializableString ID = new SerializedString("id");
+
+    private static final SerializableString NAME = new SerializedString("name");
+
+    private static final SerializableString SURNAME = new SerializedString("surname");
+
+    private static final SerializableString DEPARTMENT = new SerializedString("department");
+
+    private static final SerializableString SALARY = new SerializedString("salary");
+
+    public EmployeeViewSerializer() {
+        super(EmployeeView.class);
+    }
+
+    @Override
+    public void serialize(EmployeeView employee, JsonGenerator generator, SerializerProvider provider)
+            throws IOException {
+        generator.writeStartObject(employee);
+        generator.writeFieldName(ID);
+        generator.writeNumber(employee.getId());
+        generator.writeFieldName(NAME);
+        generator.writeString(employee.getName());
+        generator.writeFieldName(SURNAME);
+        generator.writeString(employee.getSurname());
+        generator.writeFieldName(DEPARTMENT);
+        generator.writeString(employee.getDepartment());
+        generator.writeFieldName(SALARY);
+        generator.writeNumber(employee.getSalary());
+        generator.writeEndObject();
+    }
+}
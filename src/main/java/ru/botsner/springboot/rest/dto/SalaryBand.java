@@ -0,0 +1,20 @@
+package ru.botsner.springboot.rest.dto;
+
+public class SalaryBand {
+    private final int lowerBound;
+
+    private final long headcount;
+
+    public SalaryBand(int lowerBound, long headcount) {
+        this.lowerBound = lowerBound;
+        this.headcount = headcount;
+    }
+
+    public int getLowerBound() {
+        return lowerBound;
+    }
+
+    public long getHeadcount() {
+        return headcount;
+    }
+}
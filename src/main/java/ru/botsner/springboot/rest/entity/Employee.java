@@ -1,12 +1,26 @@
 package ru.botsner.springboot.rest.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 
 @Entity
-@Table(name = "employees")
+@Table(name = "employees", indexes = {
+        @Index(name = "idx_employees_name_surname", columnList = "name, surname"),
+        @Index(name = "idx_employees_surname", columnList = "surname"),
+        @Index(name = "idx_employees_department_salary", columnList = "department, salary"),
+        @Index(name = "idx_employees_salary", columnList = "salary")
+})
+@Cacheable
+@org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Employee.CACHE_REGION)
 public class Employee {
+    public static final String CACHE_REGION = "employees";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @org.springframework.data.annotation.Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "employees_seq")
+    @SequenceGenerator(name = "employees_seq", sequenceName = "employees_seq", allocationSize = 50)
     @Column(name = "id")
     private int id;
 
@@ -22,6 +36,12 @@ public class Employee {
     @Column(name = "salary")
     private int salary;
 
+    // Exposed to clients as the ETag rather than as part of the body
+    @Version
+    @Column(name = "version")
+    @JsonIgnore
+    private int version;
+
     public Employee() {
     }
 
@@ -71,4 +91,12 @@ public class Employee {
     public void setSalary(int salary) {
         this.salary = salary;
     }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,138 @@
+package ru.botsner.springboot.rest.entity;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+/**
+ * Entry of the append-only employee change log. Deletions carry only the id and the last version.
+ */
+@Entity
+@Table(name = "employee_changes",
+        indexes = @Index(name = "idx_employee_changes_changed_at", columnList = "changed_at"))
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EmployeeChange {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "seq")
+    private long seq;
+
+    @Column(name = "employee_id", nullable = false)
+    private int employeeId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, length = 10)
+    private Type type;
+
+    @Column(name = "version", nullable = false)
+    private int version;
+
+    @Column(name = "name")
+    private String name;
+
+    @Column(name = "surname")
+    private String surname;
+
+    @Column(name = "department")
+    private String department;
+
+    @Column(name = "salary")
+    private Integer salary;
+
+    @Column(name = "changed_at", nullable = false)
+    private Instant changedAt;
+
+    public EmployeeChange() {
+    }
+
+    public EmployeeChange(Type type, Employee employee) {
+        this.employeeId = employee.getId();
+        this.type = type;
+        this.version = employee.getVersion();
+        if (type != Type.DELETED) {
+            this.name = employee.getName();
+            this.surname = employee.getSurname();
+            this.department = employee.getDepartment();
+            this.salary = employee.getSalary();
+        }
+        this.changedAt = Instant.now();
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public int getEmployeeId() {
+        return employeeId;
+    }
+
+    public void setEmployeeId(int employeeId) {
+        this.employeeId = employeeId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getSurname() {
+        return surname;
+    }
+
+    public void setSurname(String surname) {
+        this.surname = surname;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public void setDepartment(String department) {
+        this.department = department;
+    }
+
+    public Integer getSalary() {
+        return salary;
+    }
+
+    public void setSalary(Integer salary) {
+        this.salary = salary;
+    }
+
+    public Instant getChangedAt() {
+        return changedAt;
+    }
+
+    public void setChangedAt(Instant changedAt) {
+        this.changedAt = changedAt;
+    }
+}
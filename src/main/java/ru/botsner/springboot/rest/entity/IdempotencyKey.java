@@ -0,0 +1,101 @@
+package ru.botsner.springboot.rest.entity;
+
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+/**
+ * Idempotency key of a committed employee write, with the employee the write answered with.
+ */
+@Entity
+@Table(name = "idempotency_keys",
+        indexes = @Index(name = "idx_idempotency_keys_created_at", columnList = "created_at"))
+public class IdempotencyKey implements Persistable<String> {
+
+    @Id
+    @Column(name = "idempotency_key", length = 255)
+    private String key;
+
+    // Digest of the request the key was first used for
+    @Column(name = "fingerprint", nullable = false, length = 32)
+    private String fingerprint;
+
+    @Column(name = "employee_id", nullable = false)
+    private int employeeId;
+
+    @Column(name = "version", nullable = false)
+    private int version;
+
+    @Column(name = "name")
+    private String name;
+
+    @Column(name = "surname")
+    private String surname;
+
+    @Column(name = "department")
+    private String department;
+
+    @Column(name = "salary", nullable = false)
+    private int salary;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    // The key is assigned, so whether to insert it can't be told from the id
+    @Transient
+    private boolean isNew = true;
+
+    public IdempotencyKey() {
+    }
+
+    public IdempotencyKey(String key, String fingerprint, Employee employee) {
+        this.key = key;
+        record(fingerprint, employee);
+    }
+
+    /**
+     * Replaces what the key was recorded with, for a key reused after it expired.
+     */
+    public void record(String fingerprint, Employee employee) {
+        this.fingerprint = fingerprint;
+        this.employeeId = employee.getId();
+        this.version = employee.getVersion();
+        this.name = employee.getName();
+        this.surname = employee.getSurname();
+        this.department = employee.getDepartment();
+        this.salary = employee.getSalary();
+        this.createdAt = Instant.now();
+    }
+
+    public Employee toEmployee() {
+        Employee employee = new Employee(name, surname, department, salary);
+        employee.setId(employeeId);
+        employee.setVersion(version);
+        return employee;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        isNew = false;
+    }
+
+    @Override
+    public String getId() {
+        return key;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
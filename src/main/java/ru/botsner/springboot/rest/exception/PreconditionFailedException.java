@@ -0,0 +1,12 @@
+package ru.botsner.springboot.rest.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(int id) {
+        super("Entity with ID = " + id + " does not match the given If-Match tag");
+    }
+}
@@ -0,0 +1,12 @@
+package ru.botsner.springboot.rest.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+public class UnprocessableEntityException extends RuntimeException {
+
+    public UnprocessableEntityException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,201 @@
+package ru.botsner.springboot.rest.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import ru.botsner.springboot.rest.dto.DepartmentStats;
+import ru.botsner.springboot.rest.dto.EmployeeSearchCriteria;
+import ru.botsner.springboot.rest.dto.EmployeeView;
+import ru.botsner.springboot.rest.entity.Employee;
+import ru.botsner.springboot.rest.exception.ServiceUnavailableException;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * {@link EmployeeService} calls that return at once and complete on a pool of as many threads as the connection
+ * pool has connections, so that callers don't hold their threads while the database works. Calls beyond that wait
+ * in a bounded queue; once it is full they fail with a {@link ServiceUnavailableException}. Cancelling a
+ * returned future, or a stage depending on it, before its call has started drops the call.
+ */
+@Service
+@Profile("!reactive")
+public class AsyncEmployeeService {
+
+    private final EmployeeService employeeService;
+
+    private final ThreadPoolExecutor pool;
+
+    private final ExecutorService executor;
+
+    private final TaskDecorator taskDecorator;
+
+    @Autowired
+    public AsyncEmployeeService(EmployeeService employeeService,
+                                ObjectProvider<TaskDecorator> taskDecorator,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.employees.async.pool-size:"
+                                        + "${spring.datasource.hikari.maximum-pool-size:10}}") int poolSize,
+                                @Value("${app.employees.async.queue-capacity:1000}") int queueCapacity) {
+        this.employeeService = employeeService;
+        this.taskDecorator = taskDecorator.getIfUnique();
+        this.pool = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("employees-db-"));
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "employees.db", Tags.empty());
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        // Lets accepted writes finish
+        pool.shutdown();
+        pool.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    private <T> CompletableFuture<T> supply(Supplier<T> call) {
+        DatabaseCall<T> future = new DatabaseCall<>(null);
+        Runnable task = () -> {
+            // Cancelled while queued
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(call.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(new CompletionException(e));
+            }
+        };
+        try {
+            executor.execute(taskDecorator != null ? taskDecorator.decorate(task) : task);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(
+                    new ServiceUnavailableException("Too many database calls waiting", e));
+        }
+        return future;
+    }
+
+    public CompletableFuture<List<EmployeeView>> getAllEmployees() {
+        return supply(employeeService::getAllEmployees);
+    }
+
+    public CompletableFuture<List<EmployeeView>> getEmployeesAfter(int afterId, int limit) {
+        return supply(() -> employeeService.getEmployeesAfter(afterId, limit));
+    }
+
+    public CompletableFuture<Employee> getEmployee(int id) {
+        return supply(() -> employeeService.getEmployee(id));
+    }
+
+    public CompletableFuture<Integer> getEmployeeVersion(int id) {
+        return supply(() -> employeeService.getEmployeeVersion(id));
+    }
+
+    /**
+     * Runs a write of one or more {@link EmployeeService} calls, possibly together with writes of its own as in
+     * {@link IdempotentWrites}, as a single call.
+     */
+    public <T> CompletableFuture<T> write(Supplier<T> write) {
+        return supply(write);
+    }
+
+    public CompletableFuture<List<EmployeeView>> getAllEmployeesByName(String name) {
+        return supply(() -> employeeService.getAllEmployeesByName(name));
+    }
+
+    public CompletableFuture<List<EmployeeView>> suggestEmployees(String query, int limit) {
+        return supply(() -> employeeService.suggestEmployees(query, limit));
+    }
+
+    public CompletableFuture<List<DepartmentStats>> getDepartmentStats(Integer bandWidth) {
+        return supply(() -> employeeService.getDepartmentStats(bandWidth));
+    }
+
+    public CompletableFuture<Page<EmployeeView>> searchEmployees(EmployeeSearchCriteria criteria, Pageable pageable) {
+        return supply(() -> employeeService.searchEmployees(criteria, pageable));
+    }
+
+    /**
+     * The future of a call, or a stage depending on it. Cancelling a stage cancels what it waits for: the stage
+     * it depends on, and the call composed into it, if any. Callers build responses from dependent stages, so
+     * a request given up on still drops its queued call.
+     */
+    private static final class DatabaseCall<T> extends CompletableFuture<T> {
+
+        private final CompletableFuture<?> dependsOn;
+
+        private volatile CompletableFuture<?> composed;
+
+        DatabaseCall(CompletableFuture<?> dependsOn) {
+            this.dependsOn = dependsOn;
+        }
+
+        @Override
+        public <U> CompletableFuture<U> newIncompleteFuture() {
+            return new DatabaseCall<>(this);
+        }
+
+        @Override
+        public <U> CompletableFuture<U> thenCompose(Function<? super T, ? extends CompletionStage<U>> fn) {
+            DatabaseCall<U> stage = new DatabaseCall<>(this);
+            whenComplete((value, failure) -> {
+                if (failure != null) {
+                    stage.completeExceptionally(failure);
+                    return;
+                }
+                if (stage.isDone()) {
+                    return;
+                }
+                CompletableFuture<U> next;
+                try {
+                    next = fn.apply(value).toCompletableFuture();
+                } catch (Throwable e) {
+                    stage.completeExceptionally(new CompletionException(e));
+                    return;
+                }
+                stage.composed = next;
+                if (stage.isCancelled()) {
+                    next.cancel(false);
+                }
+                next.whenComplete((nextValue, nextFailure) -> {
+                    if (nextFailure != null) {
+                        stage.completeExceptionally(nextFailure);
+                    } else {
+                        stage.complete(nextValue);
+                    }
+                });
+            });
+            return stage;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (dependsOn != null) {
+                dependsOn.cancel(mayInterruptIfRunning);
+            }
+            CompletableFuture<?> next = composed;
+            if (next != null) {
+                next.cancel(mayInterruptIfRunning);
+            }
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package ru.botsner.springboot.rest.service;
+
+import java.util.List;
+
+/**
+ * Employees changed by a committed transaction on the {@code origin} node, whose cached state other nodes drop.
+ */
+public class CacheInvalidation {
+
+    private final String origin;
+
+    private final List<Integer> ids;
+
+    public CacheInvalidation(String origin, List<Integer> ids) {
+        this.origin = origin;
+        this.ids = List.copyOf(ids);
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public List<Integer> getIds() {
+        return ids;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheInvalidation{origin='" + origin + "', ids=" + ids + '}';
+    }
+}
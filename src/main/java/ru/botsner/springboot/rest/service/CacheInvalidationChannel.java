@@ -0,0 +1,20 @@
+package ru.botsner.springboot.rest.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts cache invalidations between application nodes. Every subscriber on the channel, the publishing node's
+ * own included, receives every invalidation published to it.
+ */
+public interface CacheInvalidationChannel {
+
+    void publish(CacheInvalidation invalidation);
+
+    Subscription subscribe(Consumer<CacheInvalidation> listener);
+
+    interface Subscription extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,173 @@
+package ru.botsner.springboot.rest.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.Cache;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.CacheManager;
+import ru.botsner.springboot.rest.dao.EmployeeRepository;
+import ru.botsner.springboot.rest.entity.Employee;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the Hibernate second-level and query caches of several nodes coherent. After a commit the writing node
+ * evicts the changed employees and the by-name query results itself, as writes through JDBC or after the entities
+ * were loaded bypass Hibernate's own bookkeeping, and publishes the ids. The other nodes evict the same, and the
+ * service cache entries too.
+ * <p>
+ * Employees written through JDBC are locked in the entity region for the writing transaction, as Hibernate locks
+ * the ones it writes itself, so that a read of this node that loaded the old state before the commit can't put it
+ * back after it. On the other nodes such a read may still put it back after the eviction; the region expiry bounds
+ * how long that lasts, as it does for invalidations a broker loses.
+ */
+public class EmployeeCacheInvalidator implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(EmployeeCacheInvalidator.class);
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Supplier<SessionFactoryImplementor> sessionFactory;
+
+    private final CacheManager cacheManager;
+
+    private final CacheInvalidationChannel channel;
+
+    private final CacheInvalidationChannel.Subscription subscription;
+
+    private final Counter sent;
+
+    private final Counter received;
+
+    private final Counter failed;
+
+    /**
+     * @param sessionFactory looked up on first use, so that JPA may still be starting when this is created
+     */
+    public EmployeeCacheInvalidator(Supplier<SessionFactoryImplementor> sessionFactory, CacheManager cacheManager,
+                                    CacheInvalidationChannel channel, MeterRegistry meterRegistry) {
+        this.sessionFactory = sessionFactory;
+        this.cacheManager = cacheManager;
+        this.channel = channel;
+        this.sent = invalidations(meterRegistry, "sent");
+        this.received = invalidations(meterRegistry, "received");
+        this.failed = invalidations(meterRegistry, "failed");
+        this.subscription = channel.subscribe(this::onInvalidation);
+    }
+
+    private static Counter invalidations(MeterRegistry meterRegistry, String direction) {
+        return Counter.builder("jpa.cache.invalidations")
+                .tag("direction", direction)
+                .description("Employee cache invalidations broadcast to and from other nodes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * To be called once the transaction that changed the employees has committed.
+     */
+    public void invalidate(Collection<Integer> ids) {
+        evictJpaCache(ids);
+        publish(ids);
+    }
+
+    /**
+     * Locks the entity region entries of employees the session's transaction writes through JDBC. Until the lock
+     * is released nothing is read from or put into them, and afterwards reads that began before can't put them.
+     */
+    public Lock lock(SharedSessionContractImplementor session, Collection<Integer> ids) {
+        SessionFactoryImplementor factory = sessionFactory.get();
+        EntityPersister persister = factory.getMetamodel().entityPersister(Employee.class);
+        EntityDataAccess access = persister.getCacheAccessStrategy();
+        List<Object> keys = new ArrayList<>(ids.size());
+        List<SoftLock> locks = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Object key = access.generateCacheKey(id, persister, factory, null);
+            keys.add(key);
+            locks.add(access.lockItem(session, key, null));
+        }
+        return new Lock(session, access, keys, locks, List.copyOf(ids));
+    }
+
+    private void publish(Collection<Integer> ids) {
+        CacheInvalidation invalidation = new CacheInvalidation(nodeId, List.copyOf(ids));
+        // The change is committed either way, the caller must not see it fail
+        try {
+            channel.publish(invalidation);
+            sent.increment();
+        } catch (RuntimeException e) {
+            failed.increment();
+            log.warn("Failed to publish {}, other nodes may serve stale employees until they expire", invalidation, e);
+        }
+    }
+
+    private void onInvalidation(CacheInvalidation invalidation) {
+        if (nodeId.equals(invalidation.getOrigin())) {
+            return;
+        }
+        received.increment();
+        evictJpaCache(invalidation.getIds());
+        org.springframework.cache.Cache employees = cacheManager.getCache(EmployeeServiceImpl.EMPLOYEES_CACHE);
+        if (employees != null) {
+            invalidation.getIds().forEach(employees::evict);
+        }
+    }
+
+    private void evictJpaCache(Collection<Integer> ids) {
+        Cache cache = sessionFactory.get().getCache();
+        for (Integer id : ids) {
+            cache.evictEntityData(Employee.class, id);
+        }
+        // Any change may add or remove a match, whatever name was queried
+        cache.evictQueryRegion(EmployeeRepository.BY_NAME_CACHE_REGION);
+    }
+
+    @Override
+    public void close() {
+        subscription.close();
+    }
+
+    public final class Lock {
+        private final SharedSessionContractImplementor session;
+
+        private final EntityDataAccess access;
+
+        private final List<Object> keys;
+
+        private final List<SoftLock> locks;
+
+        private final List<Integer> ids;
+
+        private Lock(SharedSessionContractImplementor session, EntityDataAccess access, List<Object> keys,
+                     List<SoftLock> locks, List<Integer> ids) {
+            this.session = session;
+            this.access = access;
+            this.keys = keys;
+            this.locks = locks;
+            this.ids = ids;
+        }
+
+        /**
+         * To be called once the transaction has completed. After a commit, invalidates like {@link #invalidate},
+         * except for the locked entries: evicting them would let a stale read put them back.
+         */
+        public void release(boolean committed) {
+            for (int i = 0; i < keys.size(); i++) {
+                access.unlockItem(session, keys.get(i), locks.get(i));
+            }
+            if (committed) {
+                sessionFactory.get().getCache().evictQueryRegion(EmployeeRepository.BY_NAME_CACHE_REGION);
+                publish(ids);
+            }
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package ru.botsner.springboot.rest.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.botsner.springboot.rest.dao.EmployeeChangeRepository;
+import ru.botsner.springboot.rest.entity.Employee;
+import ru.botsner.springboot.rest.entity.EmployeeChange;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Append-only employee change log and its subscribers. Changes are appended in the writing transaction; after
+ * each commit a single dispatcher thread reads the new entries once and hands them to every subscriber, so parked
+ * subscribers hold no thread.
+ * <p>
+ * Sequence numbers are assigned on insert, but transactions may commit out of order. Reads therefore stop below
+ * the oldest sequence number an uncommitted append may have taken, so a consumer resuming after the last one it
+ * saw never skips an entry. This only covers writers in this instance.
+ * <p>
+ * Entries older than the retention are purged, so a consumer resuming from before them misses those.
+ */
+@Service
+@Profile("!reactive")
+public class EmployeeChangeFeed {
+
+    private static final Logger log = LoggerFactory.getLogger(EmployeeChangeFeed.class);
+
+    /**
+     * Called on the dispatcher thread with the entries after the subscription's cursor, in sequence order.
+     */
+    public interface Listener {
+        /**
+         * @return whether to stay subscribed
+         */
+        boolean onChanges(List<EmployeeChange> changes);
+    }
+
+    public final class Subscription {
+        private final Listener listener;
+
+        private volatile long cursor;
+
+        private Subscription(long since, Listener listener) {
+            this.cursor = since;
+            this.listener = listener;
+        }
+
+        public void cancel() {
+            subscriptions.remove(this);
+        }
+    }
+
+    private final EmployeeChangeRepository changeRepository;
+
+    private final int batchSize;
+
+    private final Duration retention;
+
+    // Lowest sequence number each uncommitted append may have taken, with the number of appends sharing it
+    private final ConcurrentSkipListMap<Long, Integer> uncommitted = new ConcurrentSkipListMap<>();
+
+    private final AtomicLong lastAppended = new AtomicLong(-1);
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean dispatchScheduled = new AtomicBoolean();
+
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "employee-change-feed");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public EmployeeChangeFeed(EmployeeChangeRepository changeRepository,
+                              @Value("${app.employees.changes.batch-size:500}") int batchSize,
+                              @Value("${app.employees.changes.retention-seconds:604800}") long retentionSeconds) {
+        this.changeRepository = changeRepository;
+        this.batchSize = batchSize;
+        this.retention = Duration.ofSeconds(retentionSeconds);
+    }
+
+    /**
+     * Appends a change in the current transaction; subscribers are notified once it commits.
+     */
+    public void append(EmployeeChange.Type type, Employee employee) {
+        appendAll(type, List.of(employee));
+    }
+
+    public void appendAll(EmployeeChange.Type type, List<Employee> employees) {
+        if (employees.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Employee changes must be appended in the writing transaction");
+        }
+
+        // The database hands out the sequence numbers, all of them above every one handed out before
+        long floor = initLastAppended() + 1;
+        uncommitted.merge(floor, 1, Integer::sum);
+        List<EmployeeChange> appended;
+        try {
+            appended = changeRepository.saveAll(employees.stream()
+                    .map(employee -> new EmployeeChange(type, employee))
+                    .collect(Collectors.toList()));
+        } catch (RuntimeException e) {
+            release(floor);
+            throw e;
+        }
+        lastAppended.accumulateAndGet(appended.get(appended.size() - 1).getSeq(), Math::max);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                // A rollback moves the readable limit as well
+                release(floor);
+                signal();
+            }
+        });
+    }
+
+    private void release(long floor) {
+        uncommitted.computeIfPresent(floor, (seq, appends) -> appends > 1 ? appends - 1 : null);
+    }
+
+    /**
+     * Committed changes after {@code since}, oldest first.
+     */
+    public List<EmployeeChange> getChangesSince(long since, int limit) {
+        long readableUpTo = getLastSeq();
+        if (readableUpTo <= since) {
+            return List.of();
+        }
+        return changeRepository.findChanges(since, readableUpTo, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Sequence number up to which every change of this instance is committed, so a copy of the table read after
+     * this call reflects at least all of them up to it. Other instances' changes below it may still commit;
+     * {@link EmployeeSnapshotStore} reads a lag window again for them.
+     */
+    public long getLastSeq() {
+        // Read before the uncommitted appends, so that any append it covers is seen among them until it completes
+        long lastSeq = initLastAppended();
+        Map.Entry<Long, Integer> oldest = uncommitted.firstEntry();
+        return oldest == null ? lastSeq : Math.min(lastSeq, oldest.getKey() - 1);
+    }
+
+    private long initLastAppended() {
+        // Sequence numbers only grow, so an append also settles it without the lookup
+        long lastSeq = lastAppended.get();
+        if (lastSeq < 0) {
+            lastSeq = lastAppended.accumulateAndGet(changeRepository.findLastSeq(), Math::max);
+        }
+        return lastSeq;
+    }
+
+    /**
+     * Delivers the changes after {@code since} that are already committed, then every later one, until the
+     * listener returns {@code false} or the subscription is cancelled.
+     */
+    public Subscription subscribe(long since, Listener listener) {
+        Subscription subscription = new Subscription(since, listener);
+        subscriptions.add(subscription);
+        signal();
+        return subscription;
+    }
+
+    private void signal() {
+        // A subscriber added after this check signals by itself
+        if (!subscriptions.isEmpty() && dispatchScheduled.compareAndSet(false, true)) {
+            dispatcher.execute(this::dispatch);
+        }
+    }
+
+    private void dispatch() {
+        dispatchScheduled.set(false);
+        try {
+            // Taken again after every batch, so reading stops once the last subscriber is gone
+            long since;
+            while ((since = minCursor()) != Long.MAX_VALUE) {
+                List<EmployeeChange> batch = getChangesSince(since, batchSize);
+                if (batch.isEmpty()) {
+                    return;
+                }
+                subscriptions.forEach(subscription -> deliver(subscription, batch));
+                if (batch.size() < batchSize) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to dispatch employee changes", e);
+        }
+    }
+
+    private long minCursor() {
+        long since = Long.MAX_VALUE;
+        for (Subscription subscription : subscriptions) {
+            since = Math.min(since, subscription.cursor);
+        }
+        return since;
+    }
+
+    private void deliver(Subscription subscription, List<EmployeeChange> batch) {
+        long cursor = subscription.cursor;
+        int from = 0;
+        while (from < batch.size() && batch.get(from).getSeq() <= cursor) {
+            from++;
+        }
+        if (from == batch.size()) {
+            return;
+        }
+
+        List<EmployeeChange> changes = batch.subList(from, batch.size());
+        subscription.cursor = changes.get(changes.size() - 1).getSeq();
+        boolean keep;
+        try {
+            keep = subscription.listener.onChanges(changes);
+        } catch (RuntimeException e) {
+            log.warn("Employee change listener failed, unsubscribing it", e);
+            keep = false;
+        }
+        if (!keep) {
+            subscription.cancel();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.employees.changes.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        // The newest entry stays, so that sequence numbers carry on after it even if the table is otherwise emptied
+        int purged = changeRepository.deleteChangedBefore(Instant.now().minus(retention), getLastSeq());
+        if (purged > 0) {
+            log.debug("Purged {} expired employee changes", purged);
+        }
+    }
+
+    int subscriberCount() {
+        return subscriptions.size();
+    }
+
+    @PreDestroy
+    public void close() {
+        dispatcher.shutdownNow();
+    }
+}
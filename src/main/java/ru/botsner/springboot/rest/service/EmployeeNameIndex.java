@@ -0,0 +1,491 @@
+package ru.botsner.springboot.rest.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.botsner.springboot.rest.dto.EmployeeView;
+import ru.botsner.springboot.rest.entity.Employee;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory inverted index over employee names and surnames for type-ahead. Terms are the words of both, in lower
+ * case and without accents. A query word matches a term equal to it, starting with it, or, from three characters
+ * on, containing it, found through the trigrams of the terms; every word of a query has to match. Results are
+ * ranked by how well a term matched the most selective word (exact, prefix, infix, then shorter terms first), then
+ * by id.
+ * <p>
+ * The index is filled from a full read of the table and then kept up to date by the service's own writes once they
+ * commit; writes made by other instances are not seen. Entries carry the row version and deleted ids are remembered
+ * (ids are never reused), so neither a write applied out of order nor a full read racing writes brings back an older
+ * state. Once the index is ready, a deleted id is only remembered for a while, long enough for the commit callbacks
+ * of writes racing the delete to have run.
+ */
+class EmployeeNameIndex {
+
+    private static final int TRIGRAM = 3;
+
+    private static final long DELETED_RETENTION_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static final Comparator<TermMatch> RANKING = Comparator.<TermMatch>comparingInt(match -> match.kind)
+            .thenComparingInt(match -> match.postings.term.length())
+            .thenComparing(match -> match.postings.term);
+
+    private static final int EXACT = 0;
+
+    private static final int PREFIX = 1;
+
+    private static final int INFIX = 2;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+    private final Map<String, Set<String>> trigrams = new HashMap<>();
+
+    private final Map<Integer, Entry> entries = new HashMap<>();
+
+    // Deleted id to when it was deleted, oldest first
+    private final LinkedHashMap<Integer, Long> deleted = new LinkedHashMap<>();
+
+    private final long deletedRetentionNanos;
+
+    private long readyNanos;
+
+    private volatile boolean ready;
+
+    EmployeeNameIndex() {
+        this(DELETED_RETENTION_NANOS);
+    }
+
+    EmployeeNameIndex(long deletedRetentionNanos) {
+        this.deletedRetentionNanos = deletedRetentionNanos;
+    }
+
+    /**
+     * Adds every employee of {@code source}, which must come with versions, and marks the index ready.
+     */
+    void build(Consumer<Consumer<Employee>> source) {
+        source.accept(employee -> apply(EmployeeView.of(employee), employee.getVersion()));
+        lock.writeLock().lock();
+        try {
+            // Deletes seen during the full read are retained from here on
+            readyNanos = System.nanoTime();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    boolean isReady() {
+        return ready;
+    }
+
+    void put(Employee employee) {
+        EmployeeView view = EmployeeView.of(employee);
+        int version = employee.getVersion();
+        afterCommit(() -> apply(view, version));
+    }
+
+    void putAll(List<Employee> employees) {
+        employees.forEach(this::put);
+    }
+
+    void remove(int id) {
+        afterCommit(() -> delete(id));
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    List<EmployeeView> suggest(String query, int limit) {
+        String[] words = words(query);
+        if (words.length == 0 || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            // Candidates come from the most selective word; the others only filter
+            String driving = words.length == 1 ? words[0] : mostSelective(words);
+            Set<Integer> seen = new HashSet<>();
+            List<EmployeeView> suggestions = new ArrayList<>(limit);
+            collect(driving, false, words, seen, suggestions, limit);
+            // Infix matches rank after the others, so they are only looked up if those fall short
+            if (suggestions.size() < limit && driving.length() >= TRIGRAM) {
+                collect(driving, true, words, seen, suggestions, limit);
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private String mostSelective(String[] words) {
+        String mostSelective = null;
+        long leastIds = Long.MAX_VALUE;
+        for (String word : words) {
+            long ids = 0;
+            for (Postings postings : terms.subMap(word, true, word + Character.MAX_VALUE, false).values()) {
+                ids += postings.size;
+            }
+            if (ids < leastIds) {
+                mostSelective = word;
+                leastIds = ids;
+            }
+        }
+        return mostSelective;
+    }
+
+    private void collect(String word, boolean infix, String[] words, Set<Integer> seen,
+                         List<EmployeeView> suggestions, int limit) {
+        // Each term has at least one id, so the best limit terms are enough unless ids repeat or are filtered out;
+        // then more terms are ranked, skipping the ids already seen
+        int maxTerms = limit;
+        while (true) {
+            BestMatches best = matches(word, infix, maxTerms);
+            collect(best.ranked(), words, seen, suggestions, limit);
+            if (suggestions.size() == limit || !best.truncated) {
+                return;
+            }
+            maxTerms = maxTerms > Integer.MAX_VALUE / 4 ? Integer.MAX_VALUE : maxTerms * 4;
+        }
+    }
+
+    private void collect(List<TermMatch> matches, String[] words, Set<Integer> seen, List<EmployeeView> suggestions,
+                         int limit) {
+        for (TermMatch match : matches) {
+            Postings postings = match.postings;
+            for (int i = 0; i < postings.size; i++) {
+                int id = postings.ids[i];
+                if (!seen.add(id)) {
+                    continue;
+                }
+                Entry entry = entries.get(id);
+                if (words.length > 1 && !matchesAll(entry, words)) {
+                    continue;
+                }
+                suggestions.add(entry.view);
+                if (suggestions.size() == limit) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private BestMatches matches(String word, boolean infix, int maxTerms) {
+        BestMatches matches = new BestMatches(maxTerms);
+        if (infix) {
+            for (String term : termsContaining(word)) {
+                if (!term.startsWith(word)) {
+                    matches.offer(terms.get(term), INFIX);
+                }
+            }
+            return matches;
+        }
+        Postings exact = terms.get(word);
+        if (exact != null) {
+            matches.offer(exact, EXACT);
+        }
+        for (Postings postings : terms.subMap(word, false, word + Character.MAX_VALUE, false).values()) {
+            matches.offer(postings, PREFIX);
+        }
+        return matches;
+    }
+
+    private List<String> termsContaining(String word) {
+        // Only the terms under the rarest trigram of the word need checking
+        Set<String> rarest = null;
+        for (int i = 0; i + TRIGRAM <= word.length(); i++) {
+            Set<String> candidates = trigrams.get(word.substring(i, i + TRIGRAM));
+            if (candidates == null) {
+                return List.of();
+            }
+            if (rarest == null || candidates.size() < rarest.size()) {
+                rarest = candidates;
+            }
+        }
+        List<String> containing = new ArrayList<>();
+        for (String term : rarest) {
+            if (term.contains(word)) {
+                containing.add(term);
+            }
+        }
+        return containing;
+    }
+
+    private static boolean matchesAll(Entry entry, String[] words) {
+        for (String word : words) {
+            boolean matched = false;
+            for (String term : entry.terms) {
+                if (word.length() >= TRIGRAM ? term.contains(word) : term.startsWith(word)) {
+                    matched = true;
+                    break;
+                }
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void apply(EmployeeView view, int version) {
+        String[] words = words(Objects.toString(view.getName(), "") + " " + Objects.toString(view.getSurname(), ""));
+        lock.writeLock().lock();
+        try {
+            int id = view.getId();
+            if (deleted.containsKey(id)) {
+                return;
+            }
+            Entry existing = entries.get(id);
+            if (existing != null) {
+                if (existing.version >= version) {
+                    return;
+                }
+                unindex(id, existing.terms);
+            }
+
+            String[] entryTerms = new String[words.length];
+            for (int i = 0; i < words.length; i++) {
+                Postings postings = terms.get(words[i]);
+                if (postings == null) {
+                    postings = new Postings(words[i]);
+                    terms.put(postings.term, postings);
+                    for (int j = 0; j + TRIGRAM <= postings.term.length(); j++) {
+                        trigrams.computeIfAbsent(postings.term.substring(j, j + TRIGRAM), t -> new HashSet<>())
+                                .add(postings.term);
+                    }
+                }
+                postings.add(id);
+                // The term instance is shared by every entry that has it
+                entryTerms[i] = postings.term;
+            }
+            entries.put(id, new Entry(view, version, entryTerms));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void delete(int id) {
+        lock.writeLock().lock();
+        try {
+            long now = System.nanoTime();
+            if (ready) {
+                forgetDeleted(now);
+            }
+            deleted.put(id, now);
+            Entry existing = entries.remove(id);
+            if (existing != null) {
+                unindex(id, existing.terms);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void forgetDeleted(long now) {
+        Iterator<Long> deletedAt = deleted.values().iterator();
+        while (deletedAt.hasNext() && now - Math.max(deletedAt.next(), readyNanos) >= deletedRetentionNanos) {
+            deletedAt.remove();
+        }
+    }
+
+    private void unindex(int id, String[] entryTerms) {
+        for (String term : entryTerms) {
+            Postings postings = terms.get(term);
+            postings.remove(id);
+            if (postings.size > 0) {
+                continue;
+            }
+            terms.remove(term);
+            for (int j = 0; j + TRIGRAM <= term.length(); j++) {
+                String trigram = term.substring(j, j + TRIGRAM);
+                Set<String> containing = trigrams.get(trigram);
+                containing.remove(term);
+                if (containing.isEmpty()) {
+                    trigrams.remove(trigram);
+                }
+            }
+        }
+    }
+
+    /**
+     * Distinct words of the value, in lower case and with accents and other combining marks removed.
+     */
+    static String[] words(String value) {
+        if (value == null) {
+            return new String[0];
+        }
+        String folded = fold(value);
+        Set<String> words = new LinkedHashSet<>();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return words.toArray(new String[0]);
+    }
+
+    private static String fold(String value) {
+        String lowerCase = value.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < lowerCase.length(); i++) {
+            if (lowerCase.charAt(i) >= 0x80) {
+                String decomposed = Normalizer.normalize(lowerCase, Normalizer.Form.NFD);
+                StringBuilder folded = new StringBuilder(decomposed.length());
+                for (int j = 0; j < decomposed.length(); j++) {
+                    char c = decomposed.charAt(j);
+                    if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                        folded.append(c);
+                    }
+                }
+                return folded.toString();
+            }
+        }
+        return lowerCase;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static final class Entry {
+        final EmployeeView view;
+
+        final int version;
+
+        final String[] terms;
+
+        Entry(EmployeeView view, int version, String[] terms) {
+            this.view = view;
+            this.version = version;
+            this.terms = terms;
+        }
+    }
+
+    /**
+     * Ids having a term, in ascending order.
+     */
+    private static final class Postings {
+        final String term;
+
+        int[] ids = new int[1];
+
+        int size;
+
+        Postings(String term) {
+            this.term = term;
+        }
+
+        void add(int id) {
+            // Ids mostly arrive in ascending order, as from the full read
+            if (size > 0 && ids[size - 1] < id) {
+                insert(size, id);
+                return;
+            }
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                insert(-index - 1, id);
+            }
+        }
+
+        private void insert(int index, int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+
+        void remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+                size--;
+            }
+        }
+    }
+
+    /**
+     * The best term matches seen, up to a maximum, kept in a heap with the worst on top.
+     */
+    private static final class BestMatches {
+        final int maxTerms;
+
+        final PriorityQueue<TermMatch> heap = new PriorityQueue<>(RANKING.reversed());
+
+        boolean truncated;
+
+        BestMatches(int maxTerms) {
+            this.maxTerms = maxTerms;
+        }
+
+        void offer(Postings postings, int kind) {
+            TermMatch match = new TermMatch(postings, kind);
+            if (heap.size() == maxTerms) {
+                truncated = true;
+                if (RANKING.compare(match, heap.peek()) >= 0) {
+                    return;
+                }
+                heap.poll();
+            }
+            heap.add(match);
+        }
+
+        List<TermMatch> ranked() {
+            List<TermMatch> ranked = new ArrayList<>(heap);
+            ranked.sort(RANKING);
+            return ranked;
+        }
+    }
+
+    private static final class TermMatch {
+        final Postings postings;
+
+        final int kind;
+
+        TermMatch(Postings postings, int kind) {
+            this.postings = postings;
+            this.kind = kind;
+        }
+    }
+}
@@ -1,20 +1,48 @@
 package ru.botsner.springboot.rest.service;
 
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import ru.botsner.springboot.rest.dto.DepartmentStats;
+import ru.botsner.springboot.rest.dto.EmployeeSearchCriteria;
+import ru.botsner.springboot.rest.dto.EmployeeView;
 import ru.botsner.springboot.rest.entity.Employee;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface EmployeeService {
-    List<Employee> getAllEmployees();
+    List<EmployeeView> getAllEmployees();
+
+    List<EmployeeView> getEmployeesAfter(int afterId, int limit);
+
+    void streamAllEmployees(Consumer<EmployeeView> consumer);
 
     Employee getEmployee(int id);
 
     void saveEmployee(Employee employee);
 
+    Integer getEmployeeVersion(int id);
+
     Employee updateEmployee(Employee employee, int id);
 
+    Employee updateEmployee(Employee employee, int id, int expectedVersion);
+
     Employee deleteEmployee(int id);
 
-    List<Employee> getAllEmployeesByName(String name);
+    Employee deleteEmployee(int id, int expectedVersion);
+
+    List<Employee> saveEmployees(List<Employee> employees);
+
+    List<Employee> updateEmployees(List<Employee> employees);
+
+    List<Employee> deleteEmployees(List<Integer> ids);
+
+    List<EmployeeView> getAllEmployeesByName(String name);
+
+    List<EmployeeView> suggestEmployees(String query, int limit);
+
+    List<DepartmentStats> getDepartmentStats(Integer bandWidth);
+
+    Page<EmployeeView> searchEmployees(EmployeeSearchCriteria criteria, Pageable pageable);
 }
@@ -0,0 +1,79 @@
+package ru.botsner.springboot.rest.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import ru.botsner.springboot.rest.dao.EmployeeJdbcRepository;
+import ru.botsner.springboot.rest.dto.EmployeeView;
+import ru.botsner.springboot.rest.entity.Employee;
+import ru.botsner.springboot.rest.entity.EmployeeChange;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Optional parts of {@link EmployeeServiceImpl}, each defined only when its property turns it on. The service
+ * works without any of them.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("!reactive")
+public class EmployeeServiceConfiguration {
+
+    /**
+     * Closed by the service rather than the context, as it is the service that writes the queued updates, also
+     * on shutdown.
+     */
+    @Bean(destroyMethod = "")
+    @ConditionalOnProperty(name = "app.employees.write-behind.enabled", havingValue = "true")
+    EmployeeWriteBehindQueue employeeWriteBehindQueue(
+            @Value("${app.employees.write-behind.flush-interval-ms:200}") long flushIntervalMillis,
+            @Value("${app.employees.write-behind.max-lag-ms:5000}") long maxLagMillis,
+            @Value("${app.employees.write-behind.max-pending:10000}") int maxPending,
+            @Value("${app.employees.write-behind.batch-size:500}") int batchSize,
+            @Value("${app.employees.write-behind.flush-on-shutdown:true}") boolean flushOnShutdown) {
+        return new EmployeeWriteBehindQueue(flushIntervalMillis, maxLagMillis, maxPending, batchSize, flushOnShutdown);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "app.employees.snapshot.enabled", havingValue = "true")
+    EmployeeSnapshotStore employeeSnapshotStore(
+            EmployeeJdbcRepository employeeJdbcRepository,
+            EmployeeChangeFeed changeFeed,
+            @Value("${app.employees.snapshot.path:employees.snapshot}") Path path,
+            @Value("${app.employees.snapshot.refresh-interval-ms:1000}") long refreshIntervalMillis,
+            @Value("${app.employees.snapshot.lag-window:1000}") long lagWindow,
+            @Value("${app.employees.changes.batch-size:500}") int changesBatchSize,
+            @Value("${app.employees.stream.fetch-size:500}") int streamFetchSize) {
+        return new EmployeeSnapshotStore(path, new EmployeeSnapshotStore.Source() {
+            @Override
+            public long getLastSeq() {
+                return changeFeed.getLastSeq();
+            }
+
+            @Override
+            public void forEachEmployee(Consumer<Employee> action) {
+                employeeJdbcRepository.streamAllWithVersion(streamFetchSize, action);
+            }
+
+            @Override
+            public List<EmployeeChange> getChangesSince(long since, int limit) {
+                return changeFeed.getChangesSince(since, limit);
+            }
+        }, refreshIntervalMillis, changesBatchSize, lagWindow);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.employees.single-flight.enabled", havingValue = "true", matchIfMissing = true)
+    SingleFlight<Integer, Employee> employeeReads() {
+        return new SingleFlight<>();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.employees.single-flight.enabled", havingValue = "true", matchIfMissing = true)
+    SingleFlight<String, List<EmployeeView>> employeeNameReads() {
+        return new SingleFlight<>();
+    }
+}
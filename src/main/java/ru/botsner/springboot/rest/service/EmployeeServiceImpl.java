@@ -1,61 +1,665 @@
 package ru.botsner.springboot.rest.service;
 
+import io.micrometer.core.annotation.Timed;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.cache.annotation.CacheConfig;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.botsner.springboot.rest.config.ReplicaRoutingDataSource;
+import ru.botsner.springboot.rest.dao.EmployeeJdbcRepository;
 import ru.botsner.springboot.rest.dao.EmployeeRepository;
+import ru.botsner.springboot.rest.dao.EmployeeRepository.DepartmentSalaryBand;
+import ru.botsner.springboot.rest.dao.EmployeeSpecifications;
+import ru.botsner.springboot.rest.dto.DepartmentStats;
+import ru.botsner.springboot.rest.dto.EmployeeSearchCriteria;
+import ru.botsner.springboot.rest.dto.EmployeeView;
+import ru.botsner.springboot.rest.dto.SalaryBand;
 import ru.botsner.springboot.rest.entity.Employee;
+import ru.botsner.springboot.rest.entity.EmployeeChange;
 
+import javax.annotation.PreDestroy;
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
+@Profile("!reactive")
+@Timed(value = "employees.service", histogram = true)
+@CacheConfig(cacheNames = EmployeeServiceImpl.EMPLOYEES_CACHE)
 public class EmployeeServiceImpl implements EmployeeService {
 
+    public static final String EMPLOYEES_CACHE = "employees";
+
+    private static final String CACHE_STORE_MODE = "javax.persistence.cache.storeMode";
+
+    private static final Logger log = LoggerFactory.getLogger(EmployeeServiceImpl.class);
+
     private final EmployeeRepository employeeRepository;
 
+    private final EmployeeJdbcRepository employeeJdbcRepository;
+
+    private final int streamFetchSize;
+
+    private final EmployeeStatsSummary statsSummary;
+
+    private final EmployeeWriteBehindQueue writeBehind;
+
+    private final LongAdder droppedQueuedUpdates = new LongAdder();
+
+    private final EmployeeChangeFeed changeFeed;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final SingleFlight<Integer, Employee> employeeReads;
+
+    private final SingleFlight<String, List<EmployeeView>> nameReads;
+
+    private final EmployeeSnapshotStore snapshot;
+
+    private final EmployeeNameIndex nameIndex;
+
+    private final EmployeeCacheInvalidator cacheInvalidator;
+
+    private final EntityManager entityManager;
+
+    private final ReplicaRoutingDataSource replicaRouting;
+
     @Autowired
-    public EmployeeServiceImpl(EmployeeRepository employeeRepository) {
+    public EmployeeServiceImpl(EmployeeRepository employeeRepository,
+                               EmployeeJdbcRepository employeeJdbcRepository,
+                               EmployeeChangeFeed changeFeed,
+                               TransactionTemplate transactionTemplate,
+                               ObjectProvider<EmployeeCacheInvalidator> cacheInvalidator,
+                               EntityManager entityManager,
+                               ObjectProvider<ReplicaRoutingDataSource> replicaRouting,
+                               ObjectProvider<EmployeeWriteBehindQueue> writeBehind,
+                               ObjectProvider<EmployeeSnapshotStore> snapshot,
+                               ObjectProvider<SingleFlight<Integer, Employee>> employeeReads,
+                               ObjectProvider<SingleFlight<String, List<EmployeeView>>> nameReads,
+                               @Value("${app.employees.stream.fetch-size:500}") int streamFetchSize,
+                               @Value("${app.employees.stats.summary.enabled:false}") boolean statsSummaryEnabled,
+                               @Value("${app.employees.suggest.enabled:true}") boolean suggestIndexEnabled) {
         this.employeeRepository = employeeRepository;
+        this.employeeJdbcRepository = employeeJdbcRepository;
+        this.changeFeed = changeFeed;
+        this.streamFetchSize = streamFetchSize;
+        this.transactionTemplate = transactionTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.employeeReads = employeeReads.getIfAvailable();
+        this.nameReads = nameReads.getIfAvailable();
+        this.statsSummary = statsSummaryEnabled
+                ? new EmployeeStatsSummary(() -> employeeRepository.findDepartmentSalaryBands(1))
+                : null;
+        this.nameIndex = suggestIndexEnabled ? new EmployeeNameIndex() : null;
+        this.cacheInvalidator = cacheInvalidator.getIfAvailable();
+        this.entityManager = entityManager;
+        this.replicaRouting = replicaRouting.getIfAvailable();
+        this.writeBehind = writeBehind.getIfAvailable();
+        if (this.writeBehind != null) {
+            // Queued updates are acknowledged already, so they must commit even if a caller's transaction rolls back
+            TransactionTemplate writeBehindTransaction =
+                    new TransactionTemplate(transactionTemplate.getTransactionManager());
+            writeBehindTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            this.writeBehind.start(batch -> writeBehindTransaction.executeWithoutResult(status -> {
+                List<Employee> written = written(batch, employeeJdbcRepository.updateAll(batch));
+                changeFeed.appendAll(EmployeeChange.Type.UPDATED, written);
+                indexNames(written);
+                forgetAllInFlightReads();
+                lockCachedEmployees(ids(batch));
+                invalidateStatsSummary();
+            }));
+        }
+        this.snapshot = snapshot.getIfAvailable();
+    }
+
+    /**
+     * Starts building the name index once the application is up. The condition keeps the service lazy under fast
+     * start when there is no index to build.
+     */
+    @EventListener(value = ApplicationReadyEvent.class,
+            condition = "@environment.getProperty('app.employees.suggest.enabled', 'true') == 'true'")
+    public void startNameIndexBuild() {
+        if (nameIndex == null) {
+            return;
+        }
+        // Suggestions come from the database until the index is complete
+        Thread build = new Thread(() -> {
+            try {
+                nameIndex.build(action -> employeeJdbcRepository.streamAllWithVersion(streamFetchSize, action));
+                log.info("Indexed names of {} employees", nameIndex.size());
+            } catch (RuntimeException e) {
+                log.warn("Failed to build the employee name index, suggesting from the database", e);
+            }
+        }, "employee-name-index-build");
+        build.setDaemon(true);
+        build.start();
+    }
+
+    @PreDestroy
+    public void close() {
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+    }
+
+    @Override
+    public List<EmployeeView> getAllEmployees() {
+        // Not transactional, a read-only transaction would take a connection even for snapshot reads
+        if (snapshot != null) {
+            return snapshot.current().getAllEmployees();
+        }
+        return readOnly(employeeRepository::findAllProjectedBy);
+    }
+
+    @Override
+    public List<EmployeeView> getEmployeesAfter(int afterId, int limit) {
+        if (snapshot != null) {
+            return snapshot.current().getEmployeesAfter(afterId, limit);
+        }
+        return readOnly(() ->
+                employeeRepository.findProjectedByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, limit)));
     }
 
     @Override
-    public List<Employee> getAllEmployees() {
-        return employeeRepository.findAll();
+    public void streamAllEmployees(Consumer<EmployeeView> consumer) {
+        if (snapshot != null) {
+            snapshot.current().streamAll(consumer);
+            return;
+        }
+        employeeJdbcRepository.streamAll(streamFetchSize, consumer);
     }
 
     @Override
+    @Cacheable(key = "#id", unless = "#result == null || #root.target.readsFromReplica()")
     public Employee getEmployee(int id) {
-        Optional<Employee> employee = employeeRepository.findById(id);
-        return employee.orElse(null);
+        if (writeBehind != null) {
+            Employee queued = writeBehind.get(id);
+            if (queued != null) {
+                return queued;
+            }
+        }
+        if (snapshot != null) {
+            return snapshot.current().getEmployee(id);
+        }
+        return readCoalesced(employeeReads, id, () -> employeeRepository.findById(id).orElse(null));
+    }
+
+    @Override
+    public Integer getEmployeeVersion(int id) {
+        if (writeBehind != null) {
+            Employee queued = writeBehind.get(id);
+            if (queued != null) {
+                return queued.getVersion();
+            }
+        }
+        if (snapshot != null) {
+            return snapshot.current().getEmployeeVersion(id);
+        }
+        return employeeRepository.findVersionById(id).orElse(null);
     }
 
     @Override
+    @CacheEvict(key = "#employee.id")
     public void saveEmployee(Employee employee) {
-        employeeRepository.save(employee);
+        boolean isNew = employee.getId() == 0;
+        if (!isNew) {
+            flushWriteBehind(employee.getId());
+        }
+        transactionTemplate.executeWithoutResult(status -> save(employee, isNew));
+    }
+
+    private void save(Employee employee, boolean isNew) {
+        forgetInFlightReads(employee.getId());
+        Employee saved = employeeRepository.save(employee);
+        invalidateCachedEmployee(saved.getId());
+        if (!isNew) {
+            // Flushed so that the new version is known
+            employeeRepository.flush();
+        }
+        changeFeed.append(isNew ? EmployeeChange.Type.CREATED : EmployeeChange.Type.UPDATED, saved);
+        indexName(saved);
+        if (statsSummary != null) {
+            if (isNew) {
+                statsSummary.inserted(employee);
+            } else {
+                statsSummary.invalidate();
+            }
+        }
     }
 
     @Override
+    @CacheEvict(key = "#id")
     public Employee updateEmployee(Employee employee, int id) {
-        Optional<Employee> emp = employeeRepository.findById(id);
-        if (emp.isEmpty()) {
+        if (writeBehind != null && writeBehind.isAccepting(id)) {
+            return transactionTemplate.execute(status -> {
+                forgetInFlightReads(id);
+                employee.setId(id);
+                return writeBehind.offer(employee, employeeRepository::findVersionById);
+            });
+        }
+        flushWriteBehind(id);
+        return transactionTemplate.execute(status -> update(employee, id));
+    }
+
+    private Employee update(Employee employee, int id) {
+        forgetInFlightReads(id);
+        lockCachedEmployee(id);
+        if (employeeJdbcRepository.updateById(id, employee) == 0) {
             return null;
         }
+        invalidateStatsSummary();
+        employee.setId(id);
+        employee.setVersion(employeeRepository.findVersionById(id).orElseThrow());
+        changeFeed.append(EmployeeChange.Type.UPDATED, employee);
+        indexName(employee);
+        return employee;
+    }
+
+    @Override
+    @CacheEvict(key = "#id")
+    public Employee updateEmployee(Employee employee, int id, int expectedVersion) {
+        flushWriteBehind(id);
+        return transactionTemplate.execute(status -> update(employee, id, expectedVersion));
+    }
+
+    private Employee update(Employee employee, int id, int expectedVersion) {
+        forgetInFlightReads(id);
+        lockCachedEmployee(id);
+        if (employeeJdbcRepository.updateByIdAndVersion(id, expectedVersion, employee) == 0) {
+            if (employeeRepository.findVersionById(id).isEmpty()) {
+                return null;
+            }
+            throw versionConflict(id);
+        }
+        invalidateStatsSummary();
         employee.setId(id);
-        return employeeRepository.save(employee);
+        employee.setVersion(expectedVersion + 1);
+        changeFeed.append(EmployeeChange.Type.UPDATED, employee);
+        indexName(employee);
+        return employee;
     }
 
     @Override
+    @CacheEvict(key = "#id")
     public Employee deleteEmployee(int id) {
+        flushWriteBehind(id);
+        return transactionTemplate.execute(status -> delete(id));
+    }
+
+    private Employee delete(int id) {
+        forgetInFlightReads(id);
+        lockCachedEmployee(id);
+        Optional<Employee> deletedEmp = employeeRepository.findById(id);
+        if (deletedEmp.isEmpty() || employeeJdbcRepository.removeById(id) == 0) {
+            return null;
+        }
+        changeFeed.append(EmployeeChange.Type.DELETED, deletedEmp.get());
+        unindexName(id);
+        if (statsSummary != null) {
+            statsSummary.deleted(deletedEmp.get());
+        }
+        return deletedEmp.get();
+    }
+
+    @Override
+    @CacheEvict(key = "#id")
+    public Employee deleteEmployee(int id, int expectedVersion) {
+        flushWriteBehind(id);
+        return transactionTemplate.execute(status -> delete(id, expectedVersion));
+    }
+
+    private Employee delete(int id, int expectedVersion) {
+        forgetInFlightReads(id);
+        lockCachedEmployee(id);
         Optional<Employee> deletedEmp = employeeRepository.findById(id);
         if (deletedEmp.isEmpty()) {
             return null;
         }
-        employeeRepository.deleteById(id);
+        if (deletedEmp.get().getVersion() != expectedVersion
+                || employeeJdbcRepository.removeByIdAndVersion(id, expectedVersion) == 0) {
+            throw versionConflict(id);
+        }
+        changeFeed.append(EmployeeChange.Type.DELETED, deletedEmp.get());
+        unindexName(id);
+        if (statsSummary != null) {
+            statsSummary.deleted(deletedEmp.get());
+        }
         return deletedEmp.get();
     }
 
+    private void indexName(Employee employee) {
+        if (nameIndex != null) {
+            nameIndex.put(employee);
+        }
+    }
+
+    private void indexNames(List<Employee> employees) {
+        if (nameIndex != null) {
+            nameIndex.putAll(employees);
+        }
+    }
+
+    private void unindexName(int id) {
+        if (nameIndex != null) {
+            nameIndex.remove(id);
+        }
+    }
+
+    // Synchronous writes must not be overwritten by an older queued update. Called before the caller's transaction
+    // begins, so that the queued update commits in a transaction of its own without holding a second connection;
+    // IdempotentWrites, which opens a transaction around the call, flushes before it for the same reason.
+    private void flushWriteBehind(int id) {
+        if (writeBehind != null) {
+            writeBehind.flush(id);
+        }
+    }
+
+    private void flushWriteBehind() {
+        if (writeBehind != null) {
+            writeBehind.flush();
+        }
+    }
+
+    private <K, V> V readCoalesced(SingleFlight<K, V> flights, K key, Supplier<V> query) {
+        // Coalesced outside the transaction, so that waiting callers don't hold a connection
+        Supplier<V> read = () -> readOnly(query);
+        // A caller that has to see its own writes must not join a read served by a replica
+        boolean coalesce = flights != null && (replicaRouting == null || readsFromReplica());
+        return coalesce ? flights.load(key, read) : read.get();
+    }
+
+    private <T> T readOnly(Supplier<T> query) {
+        boolean fromReplica = readsFromReplica();
+        return readOnlyTransaction.execute(status -> {
+            if (fromReplica) {
+                // Replicas lag behind, so what they return must not outlive the primary's newer state in L2
+                entityManager.setProperty(CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+            }
+            return query.get();
+        });
+    }
+
+    /**
+     * Whether read-only queries of the current thread go to a replica, whose results must not be cached.
+     */
+    public boolean readsFromReplica() {
+        return replicaRouting != null && replicaRouting.routesReadsToReplica();
+    }
+
+    // Callers arriving after the commit must not join a read that started before it
+    private void forgetInFlightReads(int id) {
+        if (employeeReads != null) {
+            afterCompletion(() -> {
+                employeeReads.forget(id);
+                nameReads.forgetAll();
+            });
+        }
+    }
+
+    private void forgetAllInFlightReads() {
+        if (employeeReads != null) {
+            afterCompletion(() -> {
+                employeeReads.forgetAll();
+                nameReads.forgetAll();
+            });
+        }
+    }
+
+    private static void afterCompletion(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.run();
+            }
+        });
+    }
+
+    private void invalidateCachedEmployee(int id) {
+        invalidateCachedEmployees(List.of(id));
+    }
+
+    private void invalidateCachedEmployees(Collection<Integer> ids) {
+        if (cacheInvalidator != null) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cacheInvalidator.invalidate(ids);
+                }
+            });
+        }
+    }
+
+    /**
+     * The queued updates that matched a row. The others were of employees deleted by another instance, or directly
+     * in the database, after being queued: they are dropped, and their employees unindexed.
+     */
+    private List<Employee> written(List<Employee> batch, int[] updateCounts) {
+        List<Employee> written = new ArrayList<>(batch.size());
+        List<Integer> dropped = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            // Drivers that rewrite batches may report Statement.SUCCESS_NO_INFO rather than a count
+            if (updateCounts[i] != 0) {
+                written.add(batch.get(i));
+            } else {
+                dropped.add(batch.get(i).getId());
+            }
+        }
+        if (!dropped.isEmpty()) {
+            droppedQueuedUpdates.add(dropped.size());
+            dropped.forEach(this::unindexName);
+            log.warn("Dropped {} queued updates of deleted employees {} ({} since start)",
+                    dropped.size(), dropped, droppedQueuedUpdates.sum());
+        }
+        return written;
+    }
+
+    private void lockCachedEmployee(int id) {
+        lockCachedEmployees(List.of(id));
+    }
+
+    // For writes through JDBC, which Hibernate doesn't lock in the second-level cache itself
+    private void lockCachedEmployees(Collection<Integer> ids) {
+        if (cacheInvalidator != null) {
+            EmployeeCacheInvalidator.Lock lock =
+                    cacheInvalidator.lock(entityManager.unwrap(SharedSessionContractImplementor.class), ids);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    lock.release(status == STATUS_COMMITTED);
+                }
+            });
+        }
+    }
+
+    private static List<Integer> ids(List<Employee> employees) {
+        return employees.stream().map(Employee::getId).collect(Collectors.toList());
+    }
+
+    private void invalidateStatsSummary() {
+        // The previous department and salary are unknown after a single-statement update
+        if (statsSummary != null) {
+            statsSummary.invalidate();
+        }
+    }
+
+    private static OptimisticLockingFailureException versionConflict(int id) {
+        return new OptimisticLockingFailureException("Employee with ID = " + id + " has been modified concurrently");
+    }
+
+    @Override
+    @CacheEvict(allEntries = true)
+    public List<Employee> saveEmployees(List<Employee> employees) {
+        flushWriteBehind();
+        return transactionTemplate.execute(status -> saveAll(employees));
+    }
+
+    private List<Employee> saveAll(List<Employee> employees) {
+        forgetAllInFlightReads();
+        List<Boolean> isNew = employees.stream().map(employee -> employee.getId() == 0).collect(Collectors.toList());
+        List<Employee> saved = employeeRepository.saveAll(employees);
+        invalidateCachedEmployees(ids(saved));
+        List<Employee> created = new ArrayList<>();
+        List<Employee> updated = new ArrayList<>();
+        for (int i = 0; i < saved.size(); i++) {
+            (isNew.get(i) ? created : updated).add(saved.get(i));
+        }
+        if (!updated.isEmpty()) {
+            employeeRepository.flush();
+        }
+        changeFeed.appendAll(EmployeeChange.Type.CREATED, created);
+        changeFeed.appendAll(EmployeeChange.Type.UPDATED, updated);
+        indexNames(saved);
+        if (statsSummary == null) {
+            return saved;
+        }
+
+        if (updated.isEmpty()) {
+            saved.forEach(statsSummary::inserted);
+        } else {
+            statsSummary.invalidate();
+        }
+        return saved;
+    }
+
+    @Override
+    @CacheEvict(allEntries = true)
+    public List<Employee> updateEmployees(List<Employee> employees) {
+        flushWriteBehind();
+        return transactionTemplate.execute(status -> updateAll(employees));
+    }
+
+    private List<Employee> updateAll(List<Employee> employees) {
+        forgetAllInFlightReads();
+        Map<Integer, Employee> existing = findAllByIdAsMap(ids(employees));
+        invalidateCachedEmployees(existing.keySet());
+
+        // Batch items carry no If-Match, so they overwrite whatever version is current
+        List<Employee> updated = new ArrayList<>(employees.size());
+        for (Employee employee : employees) {
+            Employee current = existing.get(employee.getId());
+            if (current == null) {
+                updated.add(null);
+                continue;
+            }
+            if (statsSummary != null) {
+                statsSummary.updated(current.getDepartment(), current.getSalary(), employee);
+            }
+            employee.setVersion(current.getVersion());
+            updated.add(employeeRepository.save(employee));
+        }
+        employeeRepository.flush();
+        List<Employee> written = updated.stream().filter(Objects::nonNull).collect(Collectors.toList());
+        changeFeed.appendAll(EmployeeChange.Type.UPDATED, written);
+        indexNames(written);
+        return updated;
+    }
+
+    @Override
+    @CacheEvict(allEntries = true)
+    public List<Employee> deleteEmployees(List<Integer> ids) {
+        flushWriteBehind();
+        return transactionTemplate.execute(status -> deleteAll(ids));
+    }
+
+    private List<Employee> deleteAll(List<Integer> ids) {
+        forgetAllInFlightReads();
+        Map<Integer, Employee> existing = findAllByIdAsMap(ids);
+        invalidateCachedEmployees(existing.keySet());
+        // Removed as loaded entities rather than in bulk, so only their ids leave the second-level cache
+        employeeRepository.deleteAll(existing.values());
+
+        List<Employee> deleted = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            deleted.add(existing.get(id));
+        }
+        changeFeed.appendAll(EmployeeChange.Type.DELETED,
+                deleted.stream().filter(Objects::nonNull).collect(Collectors.toList()));
+        if (statsSummary != null) {
+            existing.values().forEach(statsSummary::deleted);
+        }
+        existing.keySet().forEach(this::unindexName);
+        return deleted;
+    }
+
+    private Map<Integer, Employee> findAllByIdAsMap(List<Integer> ids) {
+        return employeeRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Employee::getId, Function.identity()));
+    }
+
+    @Override
+    public List<EmployeeView> getAllEmployeesByName(String name) {
+        if (snapshot != null) {
+            return snapshot.current().getAllEmployeesByName(name);
+        }
+        return readCoalesced(nameReads, name, () -> employeeRepository.findProjectedByName(name));
+    }
+
+    @Override
+    public List<EmployeeView> suggestEmployees(String query, int limit) {
+        if (nameIndex != null && nameIndex.isReady()) {
+            return nameIndex.suggest(query, limit);
+        }
+        // Whole query as a name or surname prefix; as case- and accent-insensitive as the column collation
+        String prefix = query.trim();
+        return readOnly(() -> employeeRepository.findProjectedByNameStartingWithOrSurnameStartingWith(
+                prefix, prefix, PageRequest.of(0, limit, Sort.by("name", "surname", "id"))));
+    }
+
+    @Override
+    public List<DepartmentStats> getDepartmentStats(Integer bandWidth) {
+        if (statsSummary != null) {
+            return statsSummary.getDepartmentStats(bandWidth);
+        }
+
+        List<DepartmentStats> stats = employeeRepository.findDepartmentStats();
+        if (bandWidth != null) {
+            Map<String, List<SalaryBand>> bands = new HashMap<>();
+            for (DepartmentSalaryBand band : employeeRepository.findDepartmentSalaryBands(bandWidth)) {
+                bands.computeIfAbsent(band.getDepartment(), d -> new ArrayList<>())
+                        .add(new SalaryBand(band.getLowerBound(), band.getHeadcount()));
+            }
+            stats.forEach(departmentStats -> departmentStats.setSalaryBands(
+                    bands.getOrDefault(departmentStats.getDepartment(), List.of())));
+        }
+        return stats;
+    }
+
     @Override
-    public List<Employee> getAllEmployeesByName(String name) {
-        return employeeRepository.findAllByName(name);
+    public Page<EmployeeView> searchEmployees(EmployeeSearchCriteria criteria, Pageable pageable) {
+        // Specifications can't select a projection; the read-only session at least skips the snapshots
+        return readOnly(() -> employeeRepository.findAll(EmployeeSpecifications.matching(criteria), pageable)
+                .map(EmployeeView::of));
     }
 }
@@ -0,0 +1,243 @@
+package ru.botsner.springboot.rest.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.botsner.springboot.rest.dao.EmployeeSnapshot;
+import ru.botsner.springboot.rest.dao.EmployeeSnapshotWriter;
+import ru.botsner.springboot.rest.entity.Employee;
+import ru.botsner.springboot.rest.entity.EmployeeChange;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The current {@link EmployeeSnapshot} of the employees table. An existing snapshot file is mapped as is and
+ * caught up in the background; without one the table is read in full first. A background thread then applies the
+ * change log every refresh interval: only the changes since the snapshot are read from the database, merged with
+ * the current snapshot into a new file, which atomically replaces the old one. Readers keep the mapping they
+ * started with, so a swap never blocks or breaks them.
+ * <p>
+ * Changes are applied only if newer than the row's version, which makes it safe to apply changes already
+ * reflected in a full read. That also lets every refresh read a lag window below the last applied change again:
+ * other instances' transactions may commit after later sequence numbers were applied, and are picked up as long as
+ * they commit within the window. The window is read again only when this instance's last sequence number moved
+ * or the last read had gaps a late commit could fill; gaps that stay open are read ever less often while idle.
+ */
+class EmployeeSnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(EmployeeSnapshotStore.class);
+
+    private static final int MAX_GAP_BACKOFF = 32;
+
+    interface Source {
+        /**
+         * @see EmployeeChangeFeed#getLastSeq()
+         */
+        long getLastSeq();
+
+        /**
+         * All employees with their versions, in id order.
+         */
+        void forEachEmployee(Consumer<Employee> action);
+
+        List<EmployeeChange> getChangesSince(long since, int limit);
+    }
+
+    private final Path path;
+
+    private final Path tempPath;
+
+    private final Source source;
+
+    private final int batchSize;
+
+    private final long lagWindow;
+
+    private final ScheduledExecutorService refresher;
+
+    private volatile EmployeeSnapshot current;
+
+    // Last sequence number of the source when the changes were last read, and whether that read had gaps
+    private long readUpTo = -1;
+
+    private boolean gapSeen;
+
+    private int gapBackoff = 1;
+
+    private int skippedRefreshes;
+
+    EmployeeSnapshotStore(Path path, Source source, long refreshIntervalMillis, int batchSize, long lagWindow) {
+        this.path = path.toAbsolutePath();
+        this.tempPath = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+        this.source = source;
+        this.batchSize = batchSize;
+        this.lagWindow = lagWindow;
+        this.current = openOrRebuild();
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "employee-snapshot-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::scheduledRefresh, 0, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    EmployeeSnapshot current() {
+        return current;
+    }
+
+    private EmployeeSnapshot openOrRebuild() {
+        try {
+            EmployeeSnapshot snapshot = EmployeeSnapshot.open(path);
+            log.info("Mapped employee snapshot {} with {} employees up to change {}",
+                    path, snapshot.size(), snapshot.getLastSeq());
+            return snapshot;
+        } catch (NoSuchFileException e) {
+            log.info("No employee snapshot at {}, reading the employees table", path);
+        } catch (IOException e) {
+            log.warn("Discarding unreadable employee snapshot {}, reading the employees table", path, e);
+        }
+        return build();
+    }
+
+    /**
+     * Replaces the snapshot with a full read of the table.
+     */
+    synchronized void rebuild() {
+        current = build();
+        readUpTo = -1;
+    }
+
+    private EmployeeSnapshot build() {
+        // Read before the table, so changes committed during the read are applied again rather than missed
+        long lastSeq = source.getLastSeq();
+        EmployeeSnapshotWriter writer = new EmployeeSnapshotWriter();
+        source.forEachEmployee(writer::add);
+        return swap(writer, lastSeq);
+    }
+
+    /**
+     * Applies the changes logged since the current snapshot, and those in the lag window below it committed late,
+     * if any.
+     */
+    synchronized void refresh() {
+        EmployeeSnapshot snapshot = current;
+        long sourceLastSeq = source.getLastSeq();
+        if (sourceLastSeq == readUpTo) {
+            if (!gapSeen || ++skippedRefreshes < gapBackoff) {
+                return;
+            }
+            gapBackoff = Math.min(gapBackoff * 2, MAX_GAP_BACKOFF);
+        } else {
+            gapBackoff = 1;
+        }
+        skippedRefreshes = 0;
+
+        // The last change per employee is all that is needed to bring it up to date
+        TreeMap<Integer, EmployeeChange> changes = new TreeMap<>();
+        long lastSeq = Math.max(0, snapshot.getLastSeq() - lagWindow);
+        boolean gap = false;
+        List<EmployeeChange> batch;
+        do {
+            batch = source.getChangesSince(lastSeq, batchSize);
+            for (EmployeeChange change : batch) {
+                gap |= change.getSeq() != lastSeq + 1;
+                changes.put(change.getEmployeeId(), change);
+                lastSeq = change.getSeq();
+            }
+        } while (batch.size() == batchSize);
+        gap |= lastSeq < sourceLastSeq;
+        lastSeq = Math.max(lastSeq, snapshot.getLastSeq());
+        // Changes to one employee commit in order, as the row lock is held until then
+        changes.values().removeIf(change -> isApplied(snapshot, change));
+        if (changes.isEmpty() && lastSeq == snapshot.getLastSeq()) {
+            markRead(sourceLastSeq, gap);
+            return;
+        }
+
+        EmployeeSnapshotWriter writer = new EmployeeSnapshotWriter();
+        Deque<EmployeeChange> pending = new ArrayDeque<>(changes.values());
+        snapshot.forEachEmployee(employee -> {
+            while (!pending.isEmpty() && pending.peekFirst().getEmployeeId() < employee.getId()) {
+                apply(writer, pending.pollFirst(), null);
+            }
+            if (!pending.isEmpty() && pending.peekFirst().getEmployeeId() == employee.getId()) {
+                apply(writer, pending.pollFirst(), employee);
+            } else {
+                writer.add(employee);
+            }
+        });
+        pending.forEach(change -> apply(writer, change, null));
+        current = swap(writer, lastSeq);
+        markRead(sourceLastSeq, gap);
+    }
+
+    private void markRead(long upTo, boolean gap) {
+        readUpTo = upTo;
+        gapSeen = gap;
+    }
+
+    private static boolean isApplied(EmployeeSnapshot snapshot, EmployeeChange change) {
+        Integer version = snapshot.getEmployeeVersion(change.getEmployeeId());
+        if (change.getType() == EmployeeChange.Type.DELETED) {
+            return version == null;
+        }
+        return version != null && version >= change.getVersion();
+    }
+
+    private static void apply(EmployeeSnapshotWriter writer, EmployeeChange change, Employee existing) {
+        if (change.getType() == EmployeeChange.Type.DELETED) {
+            return;
+        }
+        if (existing != null && existing.getVersion() >= change.getVersion()) {
+            writer.add(existing);
+            return;
+        }
+
+        Employee employee = new Employee(change.getName(), change.getSurname(), change.getDepartment(),
+                change.getSalary());
+        employee.setId(change.getEmployeeId());
+        employee.setVersion(change.getVersion());
+        writer.add(employee);
+    }
+
+    private EmployeeSnapshot swap(EmployeeSnapshotWriter writer, long lastSeq) {
+        try {
+            writer.write(tempPath, lastSeq);
+            // Existing mappings of the replaced file stay valid until their snapshots are collected
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return EmployeeSnapshot.open(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write employee snapshot " + path, e);
+        }
+    }
+
+    private void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh employee snapshot {}, serving changes up to {}",
+                    path, current.getLastSeq(), e);
+        }
+    }
+
+    void close() {
+        refresher.shutdown();
+        try {
+            refresher.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package ru.botsner.springboot.rest.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.botsner.springboot.rest.dao.EmployeeRepository.DepartmentSalaryBand;
+import ru.botsner.springboot.rest.dto.DepartmentStats;
+import ru.botsner.springboot.rest.dto.SalaryBand;
+import ru.botsner.springboot.rest.entity.Employee;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Per-department salary distribution (salary -> headcount) kept in memory and updated by the service's own writes
+ * once they commit, so stats reads don't hit the database. Writes whose previous values are unknown invalidate it,
+ * and the next read rebuilds it with a single aggregate query. Writes made by other instances are not seen.
+ */
+class EmployeeStatsSummary {
+
+    private final Supplier<List<DepartmentSalaryBand>> salaryCountsLoader;
+
+    private TreeMap<String, TreeMap<Integer, Long>> departments;
+
+    private long modCount;
+
+    EmployeeStatsSummary(Supplier<List<DepartmentSalaryBand>> salaryCountsLoader) {
+        this.salaryCountsLoader = salaryCountsLoader;
+    }
+
+    void inserted(Employee employee) {
+        String department = employee.getDepartment();
+        int salary = employee.getSalary();
+        afterCommit(() -> apply(department, salary, 1));
+    }
+
+    void updated(String oldDepartment, int oldSalary, Employee employee) {
+        String department = employee.getDepartment();
+        int salary = employee.getSalary();
+        afterCommit(() -> {
+            apply(oldDepartment, oldSalary, -1);
+            apply(department, salary, 1);
+        });
+    }
+
+    void deleted(Employee employee) {
+        String department = employee.getDepartment();
+        int salary = employee.getSalary();
+        afterCommit(() -> apply(department, salary, -1));
+    }
+
+    void invalidate() {
+        afterCommit(() -> {
+            synchronized (this) {
+                departments = null;
+                modCount++;
+            }
+        });
+    }
+
+    List<DepartmentStats> getDepartmentStats(Integer bandWidth) {
+        long expectedModCount;
+        synchronized (this) {
+            if (departments != null) {
+                return toStats(departments, bandWidth);
+            }
+            expectedModCount = modCount;
+        }
+
+        TreeMap<String, TreeMap<Integer, Long>> loaded = newDepartmentsMap();
+        for (DepartmentSalaryBand row : salaryCountsLoader.get()) {
+            loaded.computeIfAbsent(row.getDepartment(), d -> new TreeMap<>())
+                    .put(row.getLowerBound(), row.getHeadcount());
+        }
+
+        synchronized (this) {
+            // Anything committed while loading may be missing from the result, so keep it only if nothing was
+            if (modCount == expectedModCount) {
+                departments = loaded;
+            }
+            return toStats(loaded, bandWidth);
+        }
+    }
+
+    private synchronized void apply(String department, int salary, long delta) {
+        modCount++;
+        if (departments == null) {
+            return;
+        }
+
+        TreeMap<Integer, Long> salaries = departments.computeIfAbsent(department, d -> new TreeMap<>());
+        long headcount = salaries.getOrDefault(salary, 0L) + delta;
+        if (headcount < 0) {
+            departments = null;
+        } else if (headcount == 0) {
+            salaries.remove(salary);
+            if (salaries.isEmpty()) {
+                departments.remove(department);
+            }
+        } else {
+            salaries.put(salary, headcount);
+        }
+    }
+
+    private static List<DepartmentStats> toStats(Map<String, TreeMap<Integer, Long>> departments, Integer bandWidth) {
+        List<DepartmentStats> stats = new ArrayList<>(departments.size());
+        for (Map.Entry<String, TreeMap<Integer, Long>> department : departments.entrySet()) {
+            TreeMap<Integer, Long> salaries = department.getValue();
+            long headcount = 0;
+            long totalSalary = 0;
+            for (Map.Entry<Integer, Long> salary : salaries.entrySet()) {
+                headcount += salary.getValue();
+                totalSalary += (long) salary.getKey() * salary.getValue();
+            }
+
+            DepartmentStats departmentStats = new DepartmentStats(department.getKey(), headcount, totalSalary,
+                    (double) totalSalary / headcount, salaries.firstKey(), salaries.lastKey());
+            if (bandWidth != null) {
+                departmentStats.setSalaryBands(toBands(salaries, bandWidth));
+            }
+            stats.add(departmentStats);
+        }
+        return stats;
+    }
+
+    private static List<SalaryBand> toBands(TreeMap<Integer, Long> salaries, int bandWidth) {
+        List<SalaryBand> bands = new ArrayList<>();
+        Integer lowerBound = null;
+        long headcount = 0;
+        for (Map.Entry<Integer, Long> salary : salaries.entrySet()) {
+            int salaryLowerBound = Math.floorDiv(salary.getKey(), bandWidth) * bandWidth;
+            if (lowerBound != null && lowerBound != salaryLowerBound) {
+                bands.add(new SalaryBand(lowerBound, headcount));
+                headcount = 0;
+            }
+            lowerBound = salaryLowerBound;
+            headcount += salary.getValue();
+        }
+        if (lowerBound != null) {
+            bands.add(new SalaryBand(lowerBound, headcount));
+        }
+        return bands;
+    }
+
+    private static TreeMap<String, TreeMap<Integer, Long>> newDepartmentsMap() {
+        return new TreeMap<>(Comparator.nullsFirst(Comparator.naturalOrder()));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,238 @@
+package ru.botsner.springboot.rest.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.botsner.springboot.rest.entity.Employee;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Unconditional employee updates waiting to be written, at most one per id: a newer update replaces the queued one,
+ * so only the last state reaches the database. A background thread writes everything queued every flush interval,
+ * {@code batchSize} rows per transaction. An update stays queued until the transaction writing it has committed,
+ * so a failed batch is simply written again later, and while nothing has been written for longer than
+ * {@code maxLag} no new updates are accepted. Flushing starts once the writer is given with {@link #start}.
+ */
+class EmployeeWriteBehindQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(EmployeeWriteBehindQueue.class);
+
+    private final Map<Integer, Entry> pending = new ConcurrentHashMap<>();
+
+    private volatile Consumer<List<Employee>> batchWriter;
+
+    private final long flushIntervalMillis;
+
+    private final int maxPending;
+
+    private final int batchSize;
+
+    private final long maxLagNanos;
+
+    private final boolean flushOnShutdown;
+
+    private final ScheduledExecutorService flusher;
+
+    // Serializes writers so that an update being written is never overtaken by a newer one for the same id
+    private final Object flushLock = new Object();
+
+    private volatile long lastFlushNanos = System.nanoTime();
+
+    EmployeeWriteBehindQueue(long flushIntervalMillis, long maxLagMillis, int maxPending, int batchSize,
+                             boolean flushOnShutdown) {
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxPending = maxPending;
+        this.batchSize = batchSize;
+        this.maxLagNanos = TimeUnit.MILLISECONDS.toNanos(maxLagMillis);
+        this.flushOnShutdown = flushOnShutdown;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "employee-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts writing queued updates with {@code batchWriter}, which must commit each batch it is given.
+     */
+    void start(Consumer<List<Employee>> batchWriter) {
+        this.batchWriter = batchWriter;
+        flusher.scheduleWithFixedDelay(this::scheduledFlush, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Whether an update of the given employee would be queued now rather than having to be written by the caller.
+     * The bound is checked without locking, so concurrent callers may overshoot it slightly.
+     */
+    boolean isAccepting(int id) {
+        if (!pending.isEmpty() && System.nanoTime() - lastFlushNanos > maxLagNanos) {
+            return false;
+        }
+        return pending.size() < maxPending || pending.containsKey(id);
+    }
+
+    /**
+     * Queues the update and returns the state the employee will have once written, with the version it will get.
+     * Returns {@code null} if there is nothing queued for the employee and {@code currentVersion} finds no row.
+     */
+    Employee offer(Employee employee, IntFunction<Optional<Integer>> currentVersion) {
+        int id = employee.getId();
+        Integer storedVersion = null;
+        while (true) {
+            // Coalesced updates are written by one statement, which bumps the version once; an update being
+            // written already has its version, so the one replacing it gets the next
+            Entry next = pending.computeIfPresent(id, (key, queued) -> new Entry(
+                    copyOf(employee, queued.writing ? queued.version() + 1 : queued.version()), false));
+            if (next != null) {
+                return next.snapshot();
+            }
+
+            if (storedVersion == null) {
+                Optional<Integer> version = currentVersion.apply(id);
+                if (version.isEmpty()) {
+                    return null;
+                }
+                storedVersion = version.get();
+            }
+            Entry queued = new Entry(copyOf(employee, storedVersion + 1), false);
+            if (pending.putIfAbsent(id, queued) == null) {
+                if (pending.size() == 1) {
+                    // Nothing was waiting, so the lag counts from now
+                    lastFlushNanos = System.nanoTime();
+                }
+                return queued.snapshot();
+            }
+        }
+    }
+
+    Employee get(int id) {
+        Entry queued = pending.get(id);
+        return queued == null ? null : queued.snapshot();
+    }
+
+    /**
+     * Writes the queued update of one employee, if any, so that a synchronous write can follow it.
+     */
+    void flush(int id) {
+        // Keyed writes flush again in their transaction; most find nothing queued and must not wait for the lock
+        if (!pending.containsKey(id)) {
+            return;
+        }
+        synchronized (flushLock) {
+            Entry queued = pending.computeIfPresent(id, (key, entry) -> entry.startWriting());
+            if (queued != null) {
+                write(List.of(queued));
+            }
+        }
+    }
+
+    void flush() {
+        synchronized (flushLock) {
+            long started = System.nanoTime();
+            List<Entry> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+            for (Integer id : pending.keySet()) {
+                Entry queued = pending.computeIfPresent(id, (key, entry) -> entry.startWriting());
+                if (queued == null) {
+                    continue;
+                }
+                batch.add(queued);
+                if (batch.size() == batchSize) {
+                    write(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+            lastFlushNanos = started;
+        }
+    }
+
+    private void write(List<Entry> batch) {
+        try {
+            batchWriter.accept(batch.stream().map(entry -> entry.employee).collect(Collectors.toList()));
+        } catch (RuntimeException e) {
+            // Queued again, or superseded by a newer update that now has the version this one would have had
+            for (Entry written : batch) {
+                pending.computeIfPresent(written.employee.getId(), (key, entry) -> entry == written
+                        ? new Entry(entry.employee, false)
+                        : new Entry(copyOf(entry.employee, written.version()), false));
+            }
+            throw e;
+        }
+        for (Entry written : batch) {
+            pending.remove(written.employee.getId(), written);
+        }
+    }
+
+    private void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Failed to write {} queued employee updates, retrying", pending.size(), e);
+        }
+    }
+
+    void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (flushOnShutdown) {
+            flush();
+        } else if (!pending.isEmpty()) {
+            log.warn("Discarding {} queued employee updates on shutdown", pending.size());
+        }
+    }
+
+    int size() {
+        return pending.size();
+    }
+
+    private static final class Entry {
+
+        final Employee employee;
+
+        // Set while the transaction writing this update is open
+        final boolean writing;
+
+        Entry(Employee employee, boolean writing) {
+            this.employee = employee;
+            this.writing = writing;
+        }
+
+        int version() {
+            return employee.getVersion();
+        }
+
+        Entry startWriting() {
+            return new Entry(employee, true);
+        }
+
+        Employee snapshot() {
+            return copyOf(employee, employee.getVersion());
+        }
+    }
+
+    private static Employee copyOf(Employee employee, int version) {
+        Employee copy = new Employee(employee.getName(), employee.getSurname(), employee.getDepartment(),
+                employee.getSalary());
+        copy.setId(employee.getId());
+        copy.setVersion(version);
+        return copy;
+    }
+}
@@ -0,0 +1,155 @@
+package ru.botsner.springboot.rest.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+import ru.botsner.springboot.rest.dao.IdempotencyKeyRepository;
+import ru.botsner.springboot.rest.entity.Employee;
+import ru.botsner.springboot.rest.entity.IdempotencyKey;
+import ru.botsner.springboot.rest.exception.UnprocessableEntityException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Employee writes deduplicated by idempotency key in the database. The key is inserted in the transaction of the
+ * write, so a write that rolls back leaves its key free, and of two instances racing on a key only one writes: the
+ * other fails to insert the key and rolls its write back. Keys expire after a fixed time.
+ */
+@Service
+@Profile("!reactive")
+@ConditionalOnProperty(name = "app.employees.idempotency.enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotentWrites {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotentWrites.class);
+
+    private final IdempotencyKeyRepository keys;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final CacheManager cacheManager;
+
+    private final EmployeeWriteBehindQueue writeBehind;
+
+    private final Duration ttl;
+
+    @Autowired
+    public IdempotentWrites(IdempotencyKeyRepository keys,
+                            TransactionTemplate transactionTemplate,
+                            CacheManager cacheManager,
+                            ObjectProvider<EmployeeWriteBehindQueue> writeBehind,
+                            @Value("${app.employees.idempotency.ttl-seconds:86400}") long ttlSeconds) {
+        this.keys = keys;
+        this.transactionTemplate = transactionTemplate;
+        this.cacheManager = cacheManager;
+        this.writeBehind = writeBehind.getIfAvailable();
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+    }
+
+    /**
+     * Runs {@code write} and records the employee it answers with under {@code key}, unless an employee is
+     * recorded under the key already: then that one is returned, marked as replayed, and nothing is written. A
+     * write answering {@code null} is not recorded.
+     *
+     * @param fingerprint identifies the request, so that a key reused for a different one is refused
+     */
+    public Result write(String key, String fingerprint, Supplier<Employee> write) {
+        return write(key, fingerprint, 0, write);
+    }
+
+    /**
+     * Like {@link #write(String, String, Supplier)} for a write of the employee with the given id. Its queued
+     * update, if any, is written first: the service would write it in a transaction of its own, which needs a
+     * second connection while this one holds the first, and a pool full of keyed writes would starve.
+     */
+    public Result write(String key, String fingerprint, int employeeId, Supplier<Employee> write) {
+        if (writeBehind != null) {
+            writeBehind.flush(employeeId);
+        }
+        String digest = DigestUtils.md5DigestAsHex(fingerprint.getBytes(StandardCharsets.UTF_8));
+        Result result;
+        try {
+            result = transactionTemplate.execute(status -> {
+                Optional<IdempotencyKey> recorded = keys.findById(key);
+                if (recorded.isPresent() && !isExpired(recorded.get())) {
+                    return replay(recorded.get(), key, digest);
+                }
+                Employee employee = write.get();
+                if (employee != null) {
+                    if (recorded.isPresent()) {
+                        recorded.get().record(digest, employee);
+                    } else {
+                        keys.save(new IdempotencyKey(key, digest, employee));
+                    }
+                    keys.flush();
+                }
+                return new Result(employee, false);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Recorded by a write that committed first; this one has rolled back
+            return transactionTemplate.execute(status -> keys.findById(key)
+                    .map(recorded -> replay(recorded, key, digest))
+                    .orElseThrow(() -> e));
+        }
+        // The service evicted its cache entry before this transaction, which it joined, committed
+        if (result != null && result.getEmployee() != null) {
+            Cache employees = cacheManager.getCache(EmployeeServiceImpl.EMPLOYEES_CACHE);
+            if (employees != null) {
+                employees.evict(result.getEmployee().getId());
+            }
+        }
+        return result;
+    }
+
+    private boolean isExpired(IdempotencyKey recorded) {
+        return recorded.getCreatedAt().isBefore(Instant.now().minus(ttl));
+    }
+
+    private static Result replay(IdempotencyKey recorded, String key, String digest) {
+        if (!recorded.getFingerprint().equals(digest)) {
+            throw new UnprocessableEntityException("Idempotency key " + key + " has been used for a different request");
+        }
+        return new Result(recorded.toEmployee(), true);
+    }
+
+    @Scheduled(fixedDelayString = "${app.employees.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        int purged = keys.deleteCreatedBefore(Instant.now().minus(ttl));
+        if (purged > 0) {
+            log.debug("Purged {} expired idempotency keys", purged);
+        }
+    }
+
+    public static final class Result {
+        private final Employee employee;
+
+        private final boolean replayed;
+
+        Result(Employee employee, boolean replayed) {
+            this.employee = employee;
+            this.replayed = replayed;
+        }
+
+        public Employee getEmployee() {
+            return employee;
+        }
+
+        public boolean isReplayed() {
+            return replayed;
+        }
+    }
+}
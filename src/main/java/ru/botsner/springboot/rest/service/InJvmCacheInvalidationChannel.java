@@ -0,0 +1,48 @@
+package ru.botsner.springboot.rest.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+/**
+ * Delivers invalidations to the subscribers of the same topic in this JVM, synchronously in the publishing thread.
+ * Enough for a single node, or for several application contexts started side by side; a cluster of separate JVMs
+ * needs a channel over a message broker instead.
+ */
+public class InJvmCacheInvalidationChannel implements CacheInvalidationChannel {
+
+    private static final Logger log = LoggerFactory.getLogger(InJvmCacheInvalidationChannel.class);
+
+    private static final Map<String, Set<Consumer<CacheInvalidation>>> TOPICS = new ConcurrentHashMap<>();
+
+    private final Set<Consumer<CacheInvalidation>> subscribers;
+
+    public InJvmCacheInvalidationChannel(String topic) {
+        this.subscribers = TOPICS.computeIfAbsent(topic, name -> new CopyOnWriteArraySet<>());
+    }
+
+    @Override
+    public void publish(CacheInvalidation invalidation) {
+        for (Consumer<CacheInvalidation> subscriber : subscribers) {
+            // One failing node must not keep the others stale
+            try {
+                subscriber.accept(invalidation);
+            } catch (RuntimeException e) {
+                log.warn("Failed to deliver {}", invalidation, e);
+            }
+        }
+    }
+
+    @Override
+    public Subscription subscribe(Consumer<CacheInvalidation> listener) {
+        // Wrapped, so that the same listener can subscribe twice and unsubscribe once
+        Consumer<CacheInvalidation> subscriber = listener::accept;
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+}
@@ -0,0 +1,7 @@
+-- Indexes behind GET /api/employees/search, as declared on the Employee entity.
+-- The name prefix is served by the (name, surname) index, an equal department and a salary range by
+-- (department, salary), and a salary range alone by the salary index.
+CREATE INDEX idx_employees_name_surname ON employees (name, surname);
+CREATE INDEX idx_employees_surname ON employees (surname);
+CREATE INDEX idx_employees_department_salary ON employees (department, salary);
+CREATE INDEX idx_employees_salary ON employees (salary);
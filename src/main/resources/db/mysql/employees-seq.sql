@@ -0,0 +1,9 @@
+-- Hibernate emulates the employees_seq sequence with a table on MySQL. Ids are allocated in blocks of 50
+-- (allocationSize of Employee), and the pooled optimizer hands out the 50 ids up to the stored value,
+-- so the table is seeded 50 above the largest existing id.
+CREATE TABLE employees_seq (
+    next_val BIGINT NOT NULL
+) ENGINE = InnoDB;
+
+INSERT INTO employees_seq (next_val)
+SELECT CASE WHEN MAX(id) IS NULL THEN 1 ELSE MAX(id) + 50 END FROM employees;
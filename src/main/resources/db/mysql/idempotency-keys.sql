@@ -0,0 +1,16 @@
+-- Idempotency keys of committed writes, inserted in the transaction of the write. The primary key makes the
+-- second of two instances racing on a key fail, which rolls its write back. Rows older than
+-- app.employees.idempotency.ttl-seconds are deleted periodically.
+CREATE TABLE idempotency_keys (
+    idempotency_key VARCHAR(255) NOT NULL,
+    fingerprint CHAR(32) NOT NULL,
+    employee_id INT NOT NULL,
+    version INT NOT NULL,
+    name VARCHAR(255),
+    surname VARCHAR(255),
+    department VARCHAR(255),
+    salary INT NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (idempotency_key),
+    INDEX idx_idempotency_keys_created_at (created_at)
+) ENGINE = InnoDB;
@@ -0,0 +1,40 @@
+package ru.botsner.springboot.rest.controller;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+@TestPropertySource(value = "/application-test.properties", properties = {
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactivetestdb;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.username=test",
+        "spring.r2dbc.password=test",
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=classpath:employee-schema.sql"
+})
+class ReactiveEmployeeApiContractTest extends AbstractEmployeeApiContractTest {
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    @BeforeEach
+    void setUp() {
+        executeScript("/employee-test-before.sql");
+    }
+
+    @AfterEach
+    void tearDown() {
+        executeScript("/employee-test-after.sql");
+    }
+
+    private void executeScript(String path) {
+        new ResourceDatabasePopulator(new ClassPathResource(path)).populate(connectionFactory).block();
+    }
+}
@@ -0,0 +1,33 @@
+package ru.botsner.springboot.rest.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
+import org.springframework.data.relational.core.mapping.NamingStrategy;
+import ru.botsner.springboot.rest.dao.EmployeeRepository;
+import ru.botsner.springboot.rest.entity.Employee;
+
+/**
+ * R2DBC repositories of the reactive stack, skipping the JPA ones that share their package.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("reactive")
+@EnableR2dbcRepositories(basePackageClasses = EmployeeRepository.class, excludeFilters =
+@ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = JpaRepository.class))
+public class R2dbcRepositoriesConfiguration {
+
+    // Maps the JPA entity without Spring Data Relational annotations, which the servlet build doesn't have
+    @Bean
+    public NamingStrategy employeesNamingStrategy() {
+        return new NamingStrategy() {
+            @Override
+            public String getTableName(Class<?> type) {
+                return type == Employee.class ? "employees" : NamingStrategy.super.getTableName(type);
+            }
+        };
+    }
+}
@@ -0,0 +1,19 @@
+package ru.botsner.springboot.rest.config;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Tomcat is on the classpath for the servlet stack and would otherwise win; the reactive stack runs on Reactor Netty.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("reactive")
+public class ReactiveWebServerConfiguration {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
@@ -0,0 +1,94 @@
+package ru.botsner.springboot.rest.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.botsner.springboot.rest.entity.Employee;
+import ru.botsner.springboot.rest.exception.EntityNotFoundException;
+import ru.botsner.springboot.rest.service.ReactiveEmployeeService;
+
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/employees")
+public class ReactiveEmployeeRESTController {
+
+    private final ReactiveEmployeeService employeeService;
+
+    private final int defaultPageLimit;
+
+    private final int maxPageLimit;
+
+    @Autowired
+    public ReactiveEmployeeRESTController(ReactiveEmployeeService employeeService,
+                                          @Value("${app.employees.page.default-limit:100}") int defaultPageLimit,
+                                          @Value("${app.employees.page.max-limit:1000}") int maxPageLimit) {
+        this.employeeService = employeeService;
+        this.defaultPageLimit = defaultPageLimit;
+        this.maxPageLimit = maxPageLimit;
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<Flux<Employee>>> listAllEmployees(@RequestParam(required = false) Integer limit,
+                                                                 @RequestParam(required = false) Integer after,
+                                                                 ServerHttpRequest request) {
+        if (limit == null && after == null) {
+            return Mono.just(ResponseEntity.ok().body(employeeService.getAllEmployees()));
+        }
+
+        int pageLimit = Math.max(1, Math.min(limit == null ? defaultPageLimit : limit, maxPageLimit));
+        return employeeService.getEmployeesAfter(after == null ? 0 : after, pageLimit)
+                .collectList()
+                .map(employees -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    if (employees.size() == pageLimit) {
+                        String nextLink = UriComponentsBuilder.fromHttpRequest(request)
+                                .replaceQueryParam("limit", pageLimit)
+                                .replaceQueryParam("after", employees.get(employees.size() - 1).getId())
+                                .toUriString();
+                        response.header(HttpHeaders.LINK, "<" + nextLink + ">; rel=\"next\"");
+                    }
+                    return response.body(Flux.fromIterable(employees));
+                });
+    }
+
+    @GetMapping("/{empId}")
+    public Mono<ResponseEntity<Employee>> getEmployee(@PathVariable int empId) {
+        return employeeService.getEmployee(empId)
+                .switchIfEmpty(Mono.error(() -> new EntityNotFoundException(empId)))
+                .map(employee -> ResponseEntity.ok().body(employee));
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<Employee>> createEmployee(@RequestBody Employee employee) {
+        return employeeService.saveEmployee(employee)
+                .map(saved -> ResponseEntity.status(HttpStatus.CREATED).body(saved));
+    }
+
+    @PutMapping("/{empId}")
+    public Mono<ResponseEntity<Employee>> updateEmployee(@RequestBody Employee employee, @PathVariable int empId) {
+        return employeeService.updateEmployee(employee, empId)
+                .switchIfEmpty(Mono.error(() -> new EntityNotFoundException(empId)))
+                .map(updatedEmployee -> ResponseEntity.ok().body(updatedEmployee));
+    }
+
+    @DeleteMapping("/{empId}")
+    public Mono<ResponseEntity<Employee>> deleteEmployee(@PathVariable int empId) {
+        return employeeService.deleteEmployee(empId)
+                .switchIfEmpty(Mono.error(() -> new EntityNotFoundException(empId)))
+                .map(deletedEmp -> ResponseEntity.ok().body(deletedEmp));
+    }
+
+    @GetMapping("/name/{name}")
+    public Flux<Employee> listAllEmployeesByName(@PathVariable("name") String name) {
+        return employeeService.getAllEmployeesByName(name);
+    }
+}
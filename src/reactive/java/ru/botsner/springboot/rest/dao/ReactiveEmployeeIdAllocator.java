@@ -0,0 +1,84 @@
+package ru.botsner.springboot.rest.dao;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands out employee ids from the same employees_seq that Hibernate's pooled optimizer uses for the
+ * blocking stack: every sequence value is the upper bound of a block of {@link #ALLOCATION_SIZE} ids,
+ * so both stacks can write to one database without colliding.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveEmployeeIdAllocator {
+
+    static final int ALLOCATION_SIZE = 50;
+
+    private final DatabaseClient databaseClient;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final boolean nativeSequence;
+
+    private final AtomicReference<IdBlock> currentBlock = new AtomicReference<>(IdBlock.EXHAUSTED);
+
+    @Autowired
+    public ReactiveEmployeeIdAllocator(DatabaseClient databaseClient,
+                                       TransactionalOperator transactionalOperator,
+                                       ConnectionFactory connectionFactory) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = transactionalOperator;
+        this.nativeSequence = "H2".equalsIgnoreCase(connectionFactory.getMetadata().getName());
+    }
+
+    public Mono<Integer> nextId() {
+        return Mono.defer(() -> {
+            IdBlock block = currentBlock.get();
+            int id = block.next.getAndIncrement();
+            if (id <= block.hi) {
+                return Mono.just(id);
+            }
+            return fetchHighValue()
+                    .doOnNext(hi -> currentBlock.compareAndSet(block, new IdBlock(hi - ALLOCATION_SIZE + 1, hi)))
+                    .then(nextId());
+        });
+    }
+
+    private Mono<Integer> fetchHighValue() {
+        if (nativeSequence) {
+            return databaseClient.sql("SELECT NEXT VALUE FOR employees_seq")
+                    .map(row -> row.get(0, Long.class).intValue())
+                    .one();
+        }
+        // MySQL/MariaDB: Hibernate emulates the sequence with a single-row employees_seq table
+        return databaseClient.sql("SELECT next_val FROM employees_seq FOR UPDATE")
+                .map(row -> row.get(0, Long.class).intValue())
+                .one()
+                .flatMap(value -> databaseClient.sql("UPDATE employees_seq SET next_val = :next")
+                        .bind("next", value + ALLOCATION_SIZE)
+                        .then()
+                        .thenReturn(value))
+                .as(transactionalOperator::transactional);
+    }
+
+    private static final class IdBlock {
+        private static final IdBlock EXHAUSTED = new IdBlock(1, 0);
+
+        private final AtomicInteger next;
+
+        private final int hi;
+
+        private IdBlock(int lo, int hi) {
+            this.next = new AtomicInteger(lo);
+            this.hi = hi;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ru.botsner.springboot.rest.dao;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.botsner.springboot.rest.entity.Employee;
+
+public interface ReactiveEmployeeRepository extends R2dbcRepository<Employee, Integer> {
+    Flux<Employee> findAllByName(String name);
+
+    @Query("SELECT * FROM employees WHERE id > :after ORDER BY id LIMIT :limit")
+    Flux<Employee> findPageAfter(@Param("after") int after, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE employees SET name = :name, surname = :surname, department = :department, salary = :salary, " +
+            "version = version + 1 WHERE id = :id")
+    Mono<Integer> updateById(@Param("id") int id, @Param("name") String name, @Param("surname") String surname,
+                             @Param("department") String department, @Param("salary") int salary);
+
+    @Modifying
+    @Query("DELETE FROM employees WHERE id = :id")
+    Mono<Integer> removeById(@Param("id") int id);
+}
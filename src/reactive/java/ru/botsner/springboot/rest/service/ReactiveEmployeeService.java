@@ -0,0 +1,21 @@
+package ru.botsner.springboot.rest.service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.botsner.springboot.rest.entity.Employee;
+
+public interface ReactiveEmployeeService {
+    Flux<Employee> getAllEmployees();
+
+    Flux<Employee> getEmployeesAfter(int afterId, int limit);
+
+    Mono<Employee> getEmployee(int id);
+
+    Mono<Employee> saveEmployee(Employee employee);
+
+    Mono<Employee> updateEmployee(Employee employee, int id);
+
+    Mono<Employee> deleteEmployee(int id);
+
+    Flux<Employee> getAllEmployeesByName(String name);
+}
@@ -0,0 +1,89 @@
+package ru.botsner.springboot.rest.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.botsner.springboot.rest.dao.ReactiveEmployeeIdAllocator;
+import ru.botsner.springboot.rest.dao.ReactiveEmployeeRepository;
+import ru.botsner.springboot.rest.entity.Employee;
+
+@Service
+@Profile("reactive")
+public class ReactiveEmployeeServiceImpl implements ReactiveEmployeeService {
+
+    private final ReactiveEmployeeRepository employeeRepository;
+
+    private final ReactiveEmployeeIdAllocator idAllocator;
+
+    private final R2dbcEntityTemplate entityTemplate;
+
+    @Autowired
+    public ReactiveEmployeeServiceImpl(ReactiveEmployeeRepository employeeRepository,
+                                       ReactiveEmployeeIdAllocator idAllocator,
+                                       R2dbcEntityTemplate entityTemplate) {
+        this.employeeRepository = employeeRepository;
+        this.idAllocator = idAllocator;
+        this.entityTemplate = entityTemplate;
+    }
+
+    @Override
+    public Flux<Employee> getAllEmployees() {
+        return employeeRepository.findAll();
+    }
+
+    @Override
+    public Flux<Employee> getEmployeesAfter(int afterId, int limit) {
+        return employeeRepository.findPageAfter(afterId, limit);
+    }
+
+    @Override
+    public Mono<Employee> getEmployee(int id) {
+        return employeeRepository.findById(id);
+    }
+
+    @Override
+    public Mono<Employee> saveEmployee(Employee employee) {
+        if (employee.getId() == 0) {
+            return insert(employee);
+        }
+        return employeeRepository.existsById(employee.getId())
+                .flatMap(exists -> exists ? employeeRepository.save(employee) : insert(employee));
+    }
+
+    private Mono<Employee> insert(Employee employee) {
+        return idAllocator.nextId()
+                .flatMap(id -> {
+                    employee.setId(id);
+                    return entityTemplate.insert(employee);
+                });
+    }
+
+    @Override
+    public Mono<Employee> updateEmployee(Employee employee, int id) {
+        return employeeRepository.updateById(id, employee.getName(), employee.getSurname(),
+                        employee.getDepartment(), employee.getSalary())
+                .filter(updated -> updated > 0)
+                .map(updated -> {
+                    employee.setId(id);
+                    return employee;
+                });
+    }
+
+    @Override
+    @Transactional
+    public Mono<Employee> deleteEmployee(int id) {
+        return employeeRepository.findById(id)
+                .flatMap(employee -> employeeRepository.removeById(id)
+                        .filter(deleted -> deleted > 0)
+                        .map(deleted -> employee));
+    }
+
+    @Override
+    public Flux<Employee> getAllEmployeesByName(String name) {
+        return employeeRepository.findAllByName(name);
+    }
+}
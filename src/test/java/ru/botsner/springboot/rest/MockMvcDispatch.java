@@ -0,0 +1,31 @@
+package ru.botsner.springboot.rest;
+
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+
+/**
+ * Performs a request and, if its handler went asynchronous, the dispatch that writes the response, so that
+ * expectations apply to the response the client gets.
+ */
+public final class MockMvcDispatch {
+
+    private MockMvcDispatch() {
+    }
+
+    public static ResultActions performDispatched(MockMvc mockMvc, RequestBuilder request) throws Exception {
+        ResultActions actions = mockMvc.perform(request);
+        MvcResult result = actions.andReturn();
+        // A streamed body handed over by a deferred result goes asynchronous once more
+        while (result.getRequest().isAsyncStarted()) {
+            // Waits for the handler's result
+            result.getAsyncResult();
+            actions = mockMvc.perform(asyncDispatch(result));
+            result = actions.andReturn();
+        }
+        return actions;
+    }
+}
@@ -0,0 +1,84 @@
+package ru.botsner.springboot.rest;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+/**
+ * Records the SQL prepared on connections of the application's data source, whether by Hibernate or by
+ * {@code JdbcTemplate}. A batched statement is prepared once per JDBC batch, not once per row. Wraps the data source
+ * of tests importing {@link Config}.
+ */
+public class RecordingDataSource extends DelegatingDataSource {
+
+    private static final Queue<String> STATEMENTS = new ConcurrentLinkedQueue<>();
+
+    RecordingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return recording(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return recording(super.getConnection(username, password));
+    }
+
+    private static Connection recording(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(RecordingDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if (method.getName().startsWith("prepare") && args != null && args[0] instanceof String) {
+                        STATEMENTS.add((String) args[0]);
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    public static void clear() {
+        STATEMENTS.clear();
+    }
+
+    public static List<String> statements() {
+        return List.copyOf(STATEMENTS);
+    }
+
+    public static List<String> statementsStartingWith(String prefix) {
+        return STATEMENTS.stream()
+                .filter(sql -> sql.regionMatches(true, 0, prefix, 0, prefix.length()))
+                .collect(Collectors.toList());
+    }
+
+    @TestConfiguration(proxyBeanMethods = false)
+    public static class Config {
+
+        @Bean
+        static BeanPostProcessor recordingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource && beanName.equals("dataSource")
+                            ? new RecordingDataSource((DataSource) bean)
+                            : bean;
+                }
+            };
+        }
+    }
+}
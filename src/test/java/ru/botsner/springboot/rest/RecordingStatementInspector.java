@@ -0,0 +1,35 @@
+package ru.botsner.springboot.rest;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+/**
+ * Records the SQL Hibernate prepares. A batched statement is prepared once per JDBC batch, not once per row.
+ */
+public class RecordingStatementInspector implements StatementInspector {
+
+    public static final String PROPERTY = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+            + "ru.botsner.springboot.rest.RecordingStatementInspector";
+
+    private static final Queue<String> STATEMENTS = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.add(sql);
+        return sql;
+    }
+
+    public static void clear() {
+        STATEMENTS.clear();
+    }
+
+    public static List<String> statementsStartingWith(String prefix) {
+        return STATEMENTS.stream()
+                .filter(sql -> sql.startsWith(prefix))
+                .collect(Collectors.toList());
+    }
+}
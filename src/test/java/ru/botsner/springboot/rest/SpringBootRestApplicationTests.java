@@ -2,8 +2,10 @@ package ru.botsner.springboot.rest;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
 
 @SpringBootTest
+@TestPropertySource("/application-test.properties")
 class SpringBootRestApplicationTests {
 
     @Test
@@ -0,0 +1,101 @@
+package ru.botsner.springboot.rest.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long TARGET = 100;
+
+    private static AdaptiveConcurrencyLimit limit(int initial) {
+        return new AdaptiveConcurrencyLimit(initial, 2, 10, TARGET, 0.5, 0.5, 0);
+    }
+
+    @Test
+    void tryAcquire_limitReached_rejected() {
+        AdaptiveConcurrencyLimit limit = limit(4);
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limit.tryAcquire(false));
+        }
+        assertFalse(limit.tryAcquire(false));
+        assertEquals(4, limit.getInFlight());
+    }
+
+    @Test
+    void tryAcquire_writeShareReached_writeRejectedReadAdmitted() {
+        AdaptiveConcurrencyLimit limit = limit(4);
+
+        assertTrue(limit.tryAcquire(true));
+        assertTrue(limit.tryAcquire(true));
+        assertFalse(limit.tryAcquire(true));
+        assertTrue(limit.tryAcquire(false));
+        assertEquals(2, limit.getWritesInFlight());
+    }
+
+    @Test
+    void release_fastUnderLoad_limitRaised() {
+        AdaptiveConcurrencyLimit limit = limit(4);
+        limit.tryAcquire(false);
+        limit.tryAcquire(false);
+
+        limit.release(false, TARGET / 2, false, 1);
+
+        assertEquals(5, limit.getLimit());
+        assertEquals(1, limit.getInFlight());
+    }
+
+    @Test
+    void release_fastWithoutLoad_limitKept() {
+        AdaptiveConcurrencyLimit limit = limit(4);
+        limit.tryAcquire(false);
+
+        limit.release(false, TARGET / 2, false, 1);
+
+        assertEquals(4, limit.getLimit());
+    }
+
+    @Test
+    void release_slowBurst_limitCutOncePerTargetLatency() {
+        AdaptiveConcurrencyLimit limit = limit(8);
+        for (int i = 0; i < 3; i++) {
+            limit.tryAcquire(false);
+        }
+
+        limit.release(false, TARGET * 2, false, 1);
+        limit.release(false, TARGET * 2, false, 2);
+        assertEquals(4, limit.getLimit());
+
+        limit.release(false, TARGET * 2, false, 1 + TARGET);
+        assertEquals(2, limit.getLimit());
+    }
+
+    @Test
+    void release_failed_limitCutDownToMin() {
+        AdaptiveConcurrencyLimit limit = limit(2);
+        limit.tryAcquire(false);
+
+        limit.release(false, 0, true, 0);
+
+        assertEquals(2, limit.getLimit());
+    }
+
+    @Test
+    void release_noSample_limitKept() {
+        AdaptiveConcurrencyLimit limit = limit(4);
+        limit.tryAcquire(true);
+
+        limit.release(true, -1, false, 0);
+
+        assertEquals(4, limit.getLimit());
+        assertEquals(0, limit.getInFlight());
+        assertEquals(0, limit.getWritesInFlight());
+    }
+
+    @Test
+    void constructor_initialBelowMin_throwsException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new AdaptiveConcurrencyLimit(1, 2, 10, TARGET, 0.5, 0.5, 0));
+    }
+}
@@ -0,0 +1,213 @@
+package ru.botsner.springboot.rest.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(4, 1, 10,
+            TimeUnit.SECONDS.toNanos(10), 0.5, 0.5, System.nanoTime());
+
+    private final AdmissionControlFilter filter = new AdmissionControlFilter(
+            new AdmissionControlFilter.Limits(0.001, 3, 0.001, 2), concurrencyLimit, "X-Client-Id",
+            List.of("/api/employees/changes"), 1, 100, meterRegistry);
+
+    private static MockHttpServletRequest request(String method, String client) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/employees/1");
+        if (client != null) {
+            request.addHeader("X-Client-Id", client);
+        }
+        return request;
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request, FilterChain chain)
+            throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request) throws ServletException, IOException {
+        return perform(request, new MockFilterChain());
+    }
+
+    private double rejected(String reason, String requestClass) {
+        return meterRegistry.get("admission.rejected").tags("reason", reason, "class", requestClass).counter()
+                .count();
+    }
+
+    @Test
+    void doFilter_writeBurstUsedUp_tooManyRequestsWithRetryAfter() throws Exception {
+        assertEquals(200, perform(request("PUT", "a")).getStatus());
+        assertEquals(200, perform(request("PUT", "a")).getStatus());
+
+        MockHttpServletResponse response = perform(request("PUT", "a"));
+
+        assertEquals(429, response.getStatus());
+        assertTrue(Long.parseLong(response.getHeader(HttpHeaders.RETRY_AFTER)) > 0);
+        assertEquals(1, rejected("rate-limit", "write"));
+        assertEquals(0, concurrencyLimit.getInFlight());
+    }
+
+    @Test
+    void doFilter_writesUsedUp_readsAndOtherClientsAdmitted() throws Exception {
+        perform(request("POST", "a"));
+        perform(request("POST", "a"));
+
+        assertEquals(200, perform(request("GET", "a")).getStatus());
+        assertEquals(200, perform(request("POST", "b")).getStatus());
+    }
+
+    @Test
+    void doFilter_noClientHeader_limitedByRemoteAddress() throws Exception {
+        perform(request("DELETE", null));
+        perform(request("DELETE", null));
+
+        assertEquals(429, perform(request("DELETE", null)).getStatus());
+        assertEquals(200, perform(request("DELETE", "a")).getStatus());
+    }
+
+    @Test
+    void doFilter_concurrencyLimitReached_serviceUnavailable() throws Exception {
+        MockHttpServletResponse[] nested = new MockHttpServletResponse[2];
+        FilterChain chain = (req, res) -> {
+            // Two writes are in flight at a limit of 4 with half of it for writes
+            nested[0] = perform(request("PUT", "b"), (innerReq, innerRes) ->
+                    nested[1] = perform(request("PUT", "c")));
+        };
+
+        assertEquals(200, perform(request("PUT", "a"), chain).getStatus());
+
+        assertEquals(200, nested[0].getStatus());
+        assertEquals(503, nested[1].getStatus());
+        assertEquals("1", nested[1].getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(1, rejected("concurrency", "write"));
+        assertEquals(0, concurrencyLimit.getInFlight());
+    }
+
+    @Test
+    void doFilter_shedForConcurrency_rateTokenRefunded() throws Exception {
+        FilterChain chain = (req, res) -> perform(request("PUT", "b"), (innerReq, innerRes) -> {
+            for (int i = 0; i < 3; i++) {
+                assertEquals(503, perform(request("PUT", "c")).getStatus());
+            }
+        });
+        perform(request("PUT", "a"), chain);
+
+        // The write burst of 2 is still there for the client shed three times
+        assertEquals(200, perform(request("PUT", "c")).getStatus());
+        assertEquals(200, perform(request("PUT", "c")).getStatus());
+        assertEquals(0, rejected("rate-limit", "write"));
+    }
+
+    @Test
+    void doFilter_serverError_limitCut() throws Exception {
+        perform(request("GET", "a"), (req, res) -> ((MockHttpServletResponse) res).setStatus(500));
+
+        assertEquals(2, concurrencyLimit.getLimit());
+        assertEquals(2.0, meterRegistry.get("admission.concurrency.limit").gauge().value());
+    }
+
+    @Test
+    void doFilter_asyncStarted_slotHeldUntilComplete() throws Exception {
+        MockHttpServletRequest request = request("GET", "a");
+        request.setAsyncSupported(true);
+
+        perform(request, (req, res) -> req.startAsync());
+        assertEquals(1, concurrencyLimit.getInFlight());
+
+        request.getAsyncContext().complete();
+        assertEquals(0, concurrencyLimit.getInFlight());
+        assertEquals(4, concurrencyLimit.getLimit());
+    }
+
+    @Test
+    void doFilter_asyncCompletedWithServerError_limitCut() throws Exception {
+        MockHttpServletRequest request = request("GET", "a");
+        request.setAsyncSupported(true);
+
+        MockHttpServletResponse response = perform(request, (req, res) -> req.startAsync());
+        response.setStatus(500);
+        request.getAsyncContext().complete();
+
+        assertEquals(0, concurrencyLimit.getInFlight());
+        assertEquals(2, concurrencyLimit.getLimit());
+    }
+
+    @Test
+    void doFilter_asyncStreamCompleted_noSample() throws Exception {
+        MockHttpServletRequest request = request("GET", "a");
+        request.setAsyncSupported(true);
+
+        MockHttpServletResponse response = perform(request, (req, res) -> req.startAsync());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setStatus(500);
+        request.getAsyncContext().complete();
+
+        assertEquals(0, concurrencyLimit.getInFlight());
+        assertEquals(4, concurrencyLimit.getLimit());
+    }
+
+    @Test
+    void doFilter_asyncTimedOut_countedAsDrop() throws Exception {
+        MockHttpServletRequest request = request("GET", "a");
+        request.setAsyncSupported(true);
+
+        perform(request, (req, res) -> req.startAsync());
+        MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+        asyncContext.complete();
+
+        assertEquals(0, concurrencyLimit.getInFlight());
+        assertEquals(2, concurrencyLimit.getLimit());
+    }
+
+    @Test
+    void doFilter_excludedPath_notLimited() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/employees/changes");
+            assertEquals(200, perform(request).getStatus());
+        }
+    }
+
+    @Test
+    void doFilter_belowExcludedPath_notLimited() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/employees/changes/stream");
+            assertEquals(200, perform(request).getStatus());
+        }
+    }
+
+    @Test
+    void doFilter_excludedPathPrefixOnly_limited() throws Exception {
+        MockHttpServletRequest[] requests = new MockHttpServletRequest[4];
+        for (int i = 0; i < requests.length; i++) {
+            requests[i] = new MockHttpServletRequest("GET", "/api/employees/changes-anything");
+        }
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, perform(requests[i]).getStatus());
+        }
+        assertEquals(429, perform(requests[3]).getStatus());
+    }
+}
@@ -0,0 +1,118 @@
+package ru.botsner.springboot.rest.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.botsner.springboot.rest.entity.Employee;
+import ru.botsner.springboot.rest.service.EmployeeService;
+import ru.botsner.springboot.rest.service.EmployeeServiceImpl;
+
+import javax.persistence.EntityManagerFactory;
+import javax.servlet.http.Cookie;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.botsner.springboot.rest.MockMvcDispatch.performDispatched;
+
+/**
+ * Like {@link DataSourceRoutingConfigurationTest}, but with both caches on. The replica never catches up, so
+ * whatever it served must not be cached for readers of the primary.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(value = "/application-test.properties", properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-cache-primary",
+        "app.datasource.routing.enabled=true",
+        "app.datasource.replicas[0].url=" + DataSourceRoutingCacheTest.REPLICA_URL,
+        "app.datasource.replicas[0].username=test",
+        "app.datasource.replicas[0].password=test",
+        "spring.cache.type=caffeine",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=true"})
+@Sql(value = {"/employee-test-before.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/employee-test-after.sql"}, executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+class DataSourceRoutingCacheTest {
+
+    static final String REPLICA_URL =
+            "jdbc:h2:mem:routing-cache-replica;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:employee-schema.sql'";
+
+    @Autowired
+    private EmployeeService empService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "test", "test"));
+        replica.update("DELETE FROM employees");
+        replica.update("INSERT INTO employees (id, name, surname, department, salary, version) "
+                + "VALUES (1, 'Replica', 'Smith', 'IT', 1000, 0)");
+        // The SQL scripts write behind both caches
+        cacheManager.getCache(EmployeeServiceImpl.EMPLOYEES_CACHE).clear();
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void readFromReplica_notCached() {
+        assertEquals("Replica", empService.getEmployee(1).getName());
+        assertEquals(1, empService.getAllEmployees().size());
+
+        assertNull(cacheManager.getCache(EmployeeServiceImpl.EMPLOYEES_CACHE).get(1));
+        assertFalse(entityManagerFactory.getCache().contains(Employee.class, 1));
+    }
+
+    @Test
+    void readFromPrimary_cached() {
+        ReplicaRoutingDataSource.setPrimaryOnly();
+        try {
+            assertEquals("John", empService.getEmployee(1).getName());
+        } finally {
+            ReplicaRoutingDataSource.clearPrimaryOnly();
+        }
+
+        assertNotNull(cacheManager.getCache(EmployeeServiceImpl.EMPLOYEES_CACHE).get(1));
+        assertTrue(entityManagerFactory.getCache().contains(Employee.class, 1));
+    }
+
+    @Test
+    void readAfterOwnWrite_afterLaggingReplicaRead_servedByPrimary() throws Exception {
+        Cookie cookie = performDispatched(mockMvc, put("/api/employees/1")
+                        .content("{\"name\":\"Nick\",\"surname\":\"Taylor\",\"department\":\"IT\",\"salary\":100}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getCookie(PrimaryStickinessFilter.COOKIE_NAME);
+        assertNotNull(cookie);
+
+        // Another client reads the row the replica has not caught up with yet
+        performDispatched(mockMvc, get("/api/employees/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Replica"));
+
+        performDispatched(mockMvc, get("/api/employees/1").cookie(cookie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Nick"));
+    }
+}
@@ -0,0 +1,93 @@
+package ru.botsner.springboot.rest.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.botsner.springboot.rest.entity.Employee;
+import ru.botsner.springboot.rest.service.EmployeeService;
+
+import javax.servlet.http.Cookie;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.botsner.springboot.rest.MockMvcDispatch.performDispatched;
+
+/**
+ * Two unrelated in-memory H2 databases stand in for the primary and its replica, so every read shows which
+ * one served it.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(value = "/application-test.properties", properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary",
+        "app.datasource.routing.enabled=true",
+        "app.datasource.replicas[0].url=" + DataSourceRoutingConfigurationTest.REPLICA_URL,
+        "app.datasource.replicas[0].username=test",
+        "app.datasource.replicas[0].password=test"})
+@Sql(value = {"/employee-test-before.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/employee-test-after.sql"}, executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+class DataSourceRoutingConfigurationTest {
+
+    static final String REPLICA_URL =
+            "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:employee-schema.sql'";
+
+    @Autowired
+    private EmployeeService empService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUpReplica() {
+        JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "test", "test"));
+        replica.update("DELETE FROM employees");
+        replica.update("INSERT INTO employees (id, name, surname, department, salary, version) "
+                + "VALUES (1, 'Replica', 'Smith', 'IT', 1000, 0)");
+    }
+
+    @Test
+    void readOnlyTransactions_servedByReplica() {
+        assertEquals("Replica", empService.getEmployee(1).getName());
+        assertEquals(1, empService.getAllEmployees().size());
+    }
+
+    @Test
+    void writes_goToPrimary() {
+        // Employee 2 exists on the primary only, and nothing replicates it
+        assertNotNull(empService.updateEmployee(new Employee("Maria", "Brown", "IT", 1600), 2));
+        assertNull(empService.getEmployee(2));
+    }
+
+    @Test
+    void readAfterOwnWrite_withStickinessCookie_servedByPrimary() throws Exception {
+        performDispatched(mockMvc, get("/api/employees/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Replica"));
+
+        Cookie cookie = performDispatched(mockMvc, put("/api/employees/1")
+                        .content("{\"name\":\"Nick\",\"surname\":\"Taylor\",\"department\":\"IT\",\"salary\":100}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getCookie(PrimaryStickinessFilter.COOKIE_NAME);
+        assertNotNull(cookie);
+
+        performDispatched(mockMvc, get("/api/employees/1").cookie(cookie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Nick"));
+        performDispatched(mockMvc, get("/api/employees/1"))
+                .andExpect(jsonPath("$.name").value("Replica"));
+    }
+}
@@ -0,0 +1,53 @@
+package ru.botsner.springboot.rest.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.botsner.springboot.rest.MockMvcDispatch.performDispatched;
+
+@SpringBootTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.fast-start.warm-up=false"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("fast-start")
+@TestPropertySource("/application-test.properties")
+class FastStartConfigurationTest {
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void fastStart_servicesCreatedOnFirstRequest_jpaBootstrappedInBackground() throws Exception {
+        assertThat(context.getBeanFactory().containsSingleton("employeeServiceImpl")).isFalse();
+        AbstractEntityManagerFactoryBean entityManagerFactory =
+                context.getBean("&entityManagerFactory", AbstractEntityManagerFactoryBean.class);
+        assertThat(entityManagerFactory.getBootstrapExecutor()).isNotNull();
+
+        performDispatched(mockMvc, get("/api/employees")).andExpect(status().isOk());
+
+        assertThat(context.getBeanFactory().containsSingleton("employeeServiceImpl")).isTrue();
+    }
+
+    @Test
+    void warmUp_createsRemainingSingletons() {
+        LazySingletonWarmUp.warmUp(context.getBeanFactory());
+
+        assertThat(context.getBeanFactory().containsSingleton("employeeServiceImpl")).isTrue();
+        assertThat(context.getBeanFactory().containsSingleton("employeeChangeFeed")).isTrue();
+    }
+}
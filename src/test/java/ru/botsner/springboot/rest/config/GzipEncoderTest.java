@@ -0,0 +1,91 @@
+package ru.botsner.springboot.rest.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GzipEncoderTest {
+
+    private final GzipEncoder encoder = new GzipEncoder(64);
+
+    @AfterEach
+    void tearDown() {
+        encoder.end();
+    }
+
+    private static String gunzip(byte[] gzip) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String body(int rows) {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < rows; i++) {
+            body.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"name\":\"Name").append(i)
+                    .append("\",\"department\":\"Dept").append(i % 10).append("\"}");
+        }
+        return body.append(']').toString();
+    }
+
+    private byte[] encode(String body, int level) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        encoder.start(out, level);
+        // Written in uneven pieces, as a serializer would
+        for (int off = 0; off < bytes.length; off += 100) {
+            encoder.write(bytes, off, Math.min(100, bytes.length - off));
+        }
+        encoder.finish();
+        encoder.reset();
+        return out.toByteArray();
+    }
+
+    @Test
+    void finish_validGzipOfEverythingWritten() throws IOException {
+        String body = body(1000);
+
+        byte[] gzip = encode(body, 6);
+
+        assertEquals(body, gunzip(gzip));
+        assertTrue(gzip.length < body.length() / 4);
+    }
+
+    @Test
+    void reset_encoderReusedForNextResponseAtAnotherLevel() throws IOException {
+        String first = body(1000);
+        String second = body(10);
+
+        assertEquals(first, gunzip(encode(first, 1)));
+        assertEquals(second, gunzip(encode(second, 9)));
+        assertEquals("", gunzip(encode("", 6)));
+    }
+
+    @Test
+    void flush_everythingWrittenSoFarDecodable() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] line = "{\"id\":1,\"name\":\"John\"}\n".getBytes(StandardCharsets.UTF_8);
+        encoder.start(out, 1);
+        encoder.write(line, 0, line.length);
+
+        encoder.flush();
+
+        byte[] sent = out.toByteArray();
+        // Raw deflate data after the 10-byte header
+        Inflater inflater = new Inflater(true);
+        inflater.setInput(sent, 10, sent.length - 10);
+        byte[] decoded = new byte[line.length];
+        assertEquals(line.length, inflater.inflate(decoded));
+        assertArrayEquals(line, decoded);
+        inflater.end();
+    }
+}
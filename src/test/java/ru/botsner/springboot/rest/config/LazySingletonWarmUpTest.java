@@ -0,0 +1,143 @@
+package ru.botsner.springboot.rest.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.BeanCreationNotAllowedException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ApplicationAvailabilityBean;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LazySingletonWarmUpTest {
+
+    private final DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+
+    @Test
+    void warmUp_lazySingletons_created() {
+        beanFactory.registerBeanDefinition("lazy", lazy(new RootBeanDefinition(ArrayList.class)));
+        beanFactory.registerBeanDefinition("alsoLazy", lazy(new RootBeanDefinition(AtomicInteger.class)));
+
+        int created = LazySingletonWarmUp.warmUp(beanFactory);
+
+        assertThat(created).isEqualTo(2);
+        assertThat(beanFactory.containsSingleton("lazy")).isTrue();
+        assertThat(beanFactory.containsSingleton("alsoLazy")).isTrue();
+    }
+
+    @Test
+    void warmUp_existingAndPrototypeBeans_skipped() {
+        beanFactory.registerBeanDefinition("existing", new RootBeanDefinition(ArrayList.class));
+        Object existing = beanFactory.getBean("existing");
+        RootBeanDefinition prototype = new RootBeanDefinition(ArrayList.class);
+        prototype.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+        beanFactory.registerBeanDefinition("prototype", prototype);
+
+        int created = LazySingletonWarmUp.warmUp(beanFactory);
+
+        assertThat(created).isZero();
+        assertThat(beanFactory.getBean("existing")).isSameAs(existing);
+        assertThat(beanFactory.containsSingleton("prototype")).isFalse();
+    }
+
+    @Test
+    void warmUp_failingBean_othersStillCreated() {
+        beanFactory.registerBeanDefinition("failing", lazy(new RootBeanDefinition(Failing.class)));
+        beanFactory.registerBeanDefinition("lazy", lazy(new RootBeanDefinition(ArrayList.class)));
+
+        int created = LazySingletonWarmUp.warmUp(beanFactory);
+
+        assertThat(created).isEqualTo(1);
+        assertThat(beanFactory.containsSingleton("failing")).isFalse();
+        assertThat(beanFactory.containsSingleton("lazy")).isTrue();
+    }
+
+    @Test
+    void warmUp_contextClosing_stops() {
+        AtomicInteger attempts = new AtomicInteger();
+        DefaultListableBeanFactory closing = new DefaultListableBeanFactory() {
+            @Override
+            public Object getBean(String name) {
+                attempts.incrementAndGet();
+                throw new BeanCreationNotAllowedException(name, "Singletons of this factory are in destruction");
+            }
+        };
+        closing.registerBeanDefinition("lazy", lazy(new RootBeanDefinition(ArrayList.class)));
+        closing.registerBeanDefinition("alsoLazy", lazy(new RootBeanDefinition(ArrayList.class)));
+
+        int created = LazySingletonWarmUp.warmUp(closing);
+
+        assertThat(created).isZero();
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void onApplicationReady_readinessRefusedUntilWarmedUp() throws Exception {
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.registerBean(ApplicationAvailabilityBean.class);
+        Slow.release = new CountDownLatch(1);
+        context.registerBean("slow", Slow.class, definition -> definition.setLazyInit(true));
+        context.refresh();
+        ApplicationAvailability availability = context.getBean(ApplicationAvailability.class);
+        try {
+            // As Spring Boot does: the ready event, then accepting traffic
+            new LazySingletonWarmUp().onApplicationEvent(
+                    new ApplicationReadyEvent(new SpringApplication(), new String[0], context, Duration.ZERO));
+            AvailabilityChangeEvent.publish(context, ReadinessState.ACCEPTING_TRAFFIC);
+
+            awaitReadiness(availability, ReadinessState.REFUSING_TRAFFIC);
+            assertThat(context.getBeanFactory().containsSingleton("slow")).isFalse();
+
+            Slow.release.countDown();
+            awaitReadiness(availability, ReadinessState.ACCEPTING_TRAFFIC);
+            assertThat(context.getBeanFactory().containsSingleton("slow")).isTrue();
+        } finally {
+            Slow.release.countDown();
+            context.close();
+        }
+    }
+
+    private static void awaitReadiness(ApplicationAvailability availability, ReadinessState state)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (availability.getReadinessState() != state && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(availability.getReadinessState()).isEqualTo(state);
+    }
+
+    private static RootBeanDefinition lazy(RootBeanDefinition definition) {
+        definition.setLazyInit(true);
+        return definition;
+    }
+
+    static class Slow {
+        static volatile CountDownLatch release;
+
+        Slow() {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    static class Failing {
+        Failing() {
+            throw new IllegalStateException("Broken");
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package ru.botsner.springboot.rest.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.botsner.springboot.rest.config.ReplicaRoutingDataSource.ReplicaSelection;
+
+import java.sql.Connection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final HikariDataSource primary = pool("primary");
+
+    private final List<HikariDataSource> replicas = List.of(pool("replica-1"), pool("replica-2"));
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        ReplicaRoutingDataSource.clearPrimaryOnly();
+        replicas.forEach(HikariDataSource::close);
+        primary.close();
+    }
+
+    @Test
+    void determineCurrentLookupKey_notReadOnly_primary() {
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, replicas, ReplicaSelection.ROUND_ROBIN);
+
+        assertEquals(ReplicaRoutingDataSource.PRIMARY_KEY, dataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void determineCurrentLookupKey_readOnlyRoundRobin_replicasInTurn() {
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, replicas, ReplicaSelection.ROUND_ROBIN);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertEquals(0, dataSource.determineCurrentLookupKey());
+        assertEquals(1, dataSource.determineCurrentLookupKey());
+        assertEquals(0, dataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void determineCurrentLookupKey_readOnlyPrimaryOnly_primary() {
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, replicas, ReplicaSelection.ROUND_ROBIN);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        ReplicaRoutingDataSource.setPrimaryOnly();
+
+        assertEquals(ReplicaRoutingDataSource.PRIMARY_KEY, dataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void determineCurrentLookupKey_readOnlyLeastLoaded_replicaWithFewestActiveConnections() throws Exception {
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, replicas, ReplicaSelection.LEAST_LOADED);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        try (Connection ignored = replicas.get(0).getConnection()) {
+            assertEquals(1, dataSource.determineCurrentLookupKey());
+            assertEquals(1, dataSource.determineCurrentLookupKey());
+        }
+    }
+
+    private static HikariDataSource pool(String name) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + name);
+        dataSource.setPoolName(name);
+        dataSource.setMinimumIdle(1);
+        return dataSource;
+    }
+}
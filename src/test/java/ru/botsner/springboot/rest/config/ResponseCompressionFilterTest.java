@@ -0,0 +1,152 @@
+package ru.botsner.springboot.rest.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.botsner.springboot.rest.entity.Employee;
+import ru.botsner.springboot.rest.service.EmployeeService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.botsner.springboot.rest.MockMvcDispatch.performDispatched;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(value = "/application-test.properties", properties = "app.compression.enabled=true")
+@Sql(value = {"/employee-test-before.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/employee-test-after.sql"}, executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+class ResponseCompressionFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EmployeeService empService;
+
+    @BeforeEach
+    void setUp() {
+        List<Employee> employees = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            employees.add(new Employee("Name" + i, "Surname" + i, "Dept" + (i % 10), 1000 + i));
+        }
+        empService.saveEmployees(employees);
+    }
+
+    private static String gunzip(byte[] gzip) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void listAllEmployees_acceptsGzip_compressedWithoutLength() throws Exception {
+        String plain = performDispatched(mockMvc, get("/api/employees"))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andReturn().getResponse().getContentAsString();
+
+        MvcResult result = performDispatched(mockMvc,
+                        get("/api/employees").header(HttpHeaders.ACCEPT_ENCODING, "gzip, br"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_LENGTH))
+                .andReturn();
+
+        byte[] body = result.getResponse().getContentAsByteArray();
+        assertEquals(plain, gunzip(body));
+        assertTrue(body.length < plain.length() / 4);
+    }
+
+    @Test
+    void streamAllEmployees_ndjson_compressedOnAsyncCompletion() throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/employees")
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        started.getAsyncResult();
+
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn();
+
+        String[] lines = gunzip(result.getResponse().getContentAsByteArray()).split("\n");
+        assertEquals(203, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":1,"));
+    }
+
+    @Test
+    void listAllEmployeesByName_belowThreshold_sentAsIsWithLength() throws Exception {
+        MvcResult result = performDispatched(mockMvc,
+                        get("/api/employees/name/John").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andReturn();
+
+        String body = result.getResponse().getContentAsString();
+        assertTrue(body.contains("\"surname\":\"Miller\""));
+        assertEquals(body.length(), result.getResponse().getContentLength());
+    }
+
+    @Test
+    void listAllEmployees_gzipRefused_sentAsIs() throws Exception {
+        performDispatched(mockMvc, get("/api/employees").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING));
+    }
+
+    @Test
+    void getEmployee_withETag_sentAsIs() throws Exception {
+        performDispatched(mockMvc, get("/api/employees/1").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void listAllEmployees_contentTypeWithoutLevel_sentAsIs() throws Exception {
+        performDispatched(mockMvc, get("/api/employees")
+                        .accept(MediaType.valueOf("application/cbor"))
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING));
+    }
+
+    @Test
+    void getEmployee_notFound_errorNotCompressed() throws Exception {
+        performDispatched(mockMvc, get("/api/employees/999").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void parseLevels_typeAndLevelPairs() {
+        assertEquals(6, CompressionConfiguration.parseLevels(List.of("Application/JSON:6")).get("application/json"));
+        assertThrows(IllegalArgumentException.class, () -> CompressionConfiguration.parseLevels(List.of("text/csv")));
+        assertThrows(IllegalArgumentException.class,
+                () -> CompressionConfiguration.parseLevels(List.of("text/csv:10")));
+    }
+}
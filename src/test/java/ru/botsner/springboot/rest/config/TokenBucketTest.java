@@ -0,0 +1,65 @@
+package ru.botsner.springboot.rest.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void tryAcquire_burstUsedUp_waitUntilNextToken() {
+        TokenBucket bucket = new TokenBucket(10, 3, 0);
+
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(SECOND / 10, bucket.tryAcquire(0));
+        assertEquals(SECOND / 20, bucket.tryAcquire(SECOND / 20));
+    }
+
+    @Test
+    void tryAcquire_afterWait_refilledAtRate() {
+        TokenBucket bucket = new TokenBucket(10, 1, 0);
+        bucket.tryAcquire(0);
+
+        assertEquals(0, bucket.tryAcquire(SECOND / 10));
+        assertTrue(bucket.tryAcquire(SECOND / 10) > 0);
+    }
+
+    @Test
+    void tryAcquire_longIdle_refilledUpToBurstOnly() {
+        TokenBucket bucket = new TokenBucket(100, 2, 0);
+
+        assertEquals(0, bucket.tryAcquire(60 * SECOND));
+        assertEquals(0, bucket.tryAcquire(60 * SECOND));
+        assertTrue(bucket.tryAcquire(60 * SECOND) > 0);
+    }
+
+    @Test
+    void refund_afterBurstUsedUp_tokenAvailableAgain() {
+        TokenBucket bucket = new TokenBucket(10, 1, 0);
+        bucket.tryAcquire(0);
+
+        bucket.refund();
+
+        assertEquals(0, bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0) > 0);
+    }
+
+    @Test
+    void refund_fullBucket_notAboveBurst() {
+        TokenBucket bucket = new TokenBucket(10, 1, 0);
+
+        bucket.refund();
+
+        assertEquals(0, bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0) > 0);
+    }
+
+    @Test
+    void constructor_zeroRate_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1, 0));
+    }
+}
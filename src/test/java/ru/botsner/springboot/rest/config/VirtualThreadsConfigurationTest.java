@@ -0,0 +1,44 @@
+package ru.botsner.springboot.rest.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class VirtualThreadsConfigurationTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(VirtualThreadsConfiguration.class);
+
+    @Test
+    void disabledByDefault() {
+        contextRunner.run(context -> assertThat(context).doesNotHaveBean(TomcatProtocolHandlerCustomizer.class));
+    }
+
+    @Test
+    void enabled_jdkWithVirtualThreads_tomcatAndTaskExecutorUseVirtualThreads() {
+        assumeTrue(Runtime.version().feature() >= 21);
+
+        contextRunner.withPropertyValues("app.virtual-threads.enabled=true")
+                .run(context -> {
+                    assertThat(context).hasSingleBean(TomcatProtocolHandlerCustomizer.class);
+                    Thread worker = context.getBean(AsyncTaskExecutor.class)
+                            .submit(Thread::currentThread)
+                            .get();
+                    assertThat(Thread.class.getMethod("isVirtual").invoke(worker)).isEqualTo(true);
+                });
+    }
+
+    @Test
+    void enabled_jdkWithoutVirtualThreads_failsFast() {
+        assumeTrue(Runtime.version().feature() < 21);
+
+        contextRunner.withPropertyValues("app.virtual-threads.enabled=true")
+                .run(context -> assertThat(context).getFailure()
+                        .hasRootCauseInstanceOf(NoSuchMethodException.class)
+                        .hasMessageContaining("requires a JDK with virtual threads"));
+    }
+}
@@ -0,0 +1,155 @@
+package ru.botsner.springboot.rest.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import ru.botsner.springboot.rest.entity.Employee;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The /api/employees CRUD contract, shared by the tests of every web stack that serves it. Subclasses load
+ * {@code employee-test-before.sql} before and {@code employee-test-after.sql} after each test, and may override
+ * a scenario to check stack specifics on top.
+ */
+abstract class AbstractEmployeeApiContractTest {
+
+    @Autowired
+    protected WebTestClient webTestClient;
+
+    @Test
+    void listAllEmployees_getEmployees_status200() {
+        webTestClient.get().uri("/api/employees")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.length()").isEqualTo(3);
+    }
+
+    @Test
+    void listAllEmployees_getFirstPage_status200andNextLinkReturned() {
+        webTestClient.get().uri("/api/employees?limit=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value(HttpHeaders.LINK, containsString("after=2"))
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].id").isEqualTo(1)
+                .jsonPath("$[1].id").isEqualTo(2);
+    }
+
+    @Test
+    void listAllEmployees_acceptNdjson_oneEmployeePerLine() {
+        List<Employee> employees = webTestClient.get().uri("/api/employees")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Employee.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertEquals(3, employees.size());
+        assertEquals(1, employees.get(0).getId());
+        assertEquals(3, employees.get(2).getId());
+    }
+
+    @Test
+    void getEmployee_getExistingEmployee_status200andEmployeeReturned() {
+        webTestClient.get().uri("/api/employees/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(1)
+                .jsonPath("$.name").isEqualTo("John")
+                .jsonPath("$.surname").isEqualTo("Smith")
+                .jsonPath("$.department").isEqualTo("IT");
+    }
+
+    @Test
+    void getEmployee_getNotExistingEmployee_status404() throws Exception {
+        webTestClient.get().uri("/api/employees/99")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void createEmployee_addNewEmployee_status201andEmployeeReturned() {
+        webTestClient.post().uri("/api/employees")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new Employee("Nick", "Taylor", "HR", 555))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.id").isNumber()
+                .jsonPath("$.name").isEqualTo("Nick")
+                .jsonPath("$.surname").isEqualTo("Taylor")
+                .jsonPath("$.salary").isEqualTo(555);
+
+        webTestClient.get().uri("/api/employees")
+                .exchange()
+                .expectBody().jsonPath("$.length()").isEqualTo(4);
+    }
+
+    @Test
+    void updateEmployee_updateExistingEmployee_status200andUpdatedReturns() {
+        webTestClient.put().uri("/api/employees/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new Employee("Nick", "Taylor", "IT", 100))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(1)
+                .jsonPath("$.name").isEqualTo("Nick");
+
+        webTestClient.get().uri("/api/employees/1")
+                .exchange()
+                .expectBody().jsonPath("$.salary").isEqualTo(100);
+    }
+
+    @Test
+    void updateEmployee_updateNotExistingEmployee_status404() throws Exception {
+        webTestClient.put().uri("/api/employees/99")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new Employee())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void deleteEmployee_deleteExistingEmployee_status200andDeletedReturns() {
+        webTestClient.delete().uri("/api/employees/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(1)
+                .jsonPath("$.name").isEqualTo("John");
+
+        webTestClient.get().uri("/api/employees/1")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void deleteEmployee_deleteNotExistingEmployee_status404() throws Exception {
+        webTestClient.delete().uri("/api/employees/99")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void listAllEmployeesByName_getEmployeesByName_status200() {
+        webTestClient.get().uri("/api/employees/name/John")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].name").isEqualTo("John")
+                .jsonPath("$[1].name").isEqualTo("John");
+    }
+}
@@ -0,0 +1,174 @@
+package ru.botsner.springboot.rest.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.botsner.springboot.rest.dao.EmployeeChangeRepository;
+import ru.botsner.springboot.rest.entity.Employee;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static ru.botsner.springboot.rest.MockMvcDispatch.performDispatched;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(value = "/application-test.properties",
+        properties = {"app.employees.changes.stream-buffer-size=2", "app.employees.changes.stream-senders=1"})
+@Sql(value = {"/employee-test-before.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/employee-test-after.sql"}, executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+class EmployeeChangesControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EmployeeChangeRepository changeRepository;
+
+    @Autowired
+    private EmployeeChangesController changesController;
+
+    // The change log outlives the per-test data, so every test only looks past what is already there
+    private long since;
+
+    @BeforeEach
+    void setUp() {
+        since = changeRepository.findLastSeq();
+    }
+
+    @Test
+    void pollChanges_changesAfterSince_returnedWithoutWaiting() throws Exception {
+        performDispatched(mockMvc,
+                put("/api/employees/1")
+                        .content(objectMapper.writeValueAsString(new Employee("Nick", "Taylor", "IT", 100)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        MvcResult mvcResult = mockMvc.perform(
+                get("/api/employees/changes").param("since", String.valueOf(since)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].seq").value(since + 1))
+                .andExpect(jsonPath("$[0].employeeId").value(1))
+                .andExpect(jsonPath("$[0].type").value("UPDATED"))
+                .andExpect(jsonPath("$[0].version").value(1))
+                .andExpect(jsonPath("$[0].name").value("Nick"));
+    }
+
+    @Test
+    void pollChanges_nothingYet_answeredByNextCommit() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(
+                get("/api/employees/changes").param("since", String.valueOf(since)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        performDispatched(mockMvc, delete("/api/employees/2"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].employeeId").value(2))
+                .andExpect(jsonPath("$[0].type").value("DELETED"))
+                .andExpect(jsonPath("$[0].name").doesNotExist());
+    }
+
+    @Test
+    void pollChanges_negativeSince_status400() throws Exception {
+        mockMvc.perform(
+                get("/api/employees/changes").param("since", "-1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void streamChanges_acceptEventStream_changeEventsWithSeqAsId() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(
+                get("/api/employees/changes").accept(MediaType.TEXT_EVENT_STREAM)
+                        .header("Last-Event-ID", String.valueOf(since)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        performDispatched(mockMvc,
+                post("/api/employees")
+                        .content(objectMapper.writeValueAsString(new Employee("Nick", "Taylor", "HR", 555)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated());
+        performDispatched(mockMvc, delete("/api/employees/3"))
+                .andExpect(status().isOk());
+
+        String body = awaitContent(mvcResult.getResponse(), "\"type\":\"DELETED\"");
+        assertTrue(body.contains("id:" + (since + 1) + "\nevent:change\ndata:{\"seq\":" + (since + 1)), body);
+        assertTrue(body.contains("\"type\":\"CREATED\""), body);
+    }
+
+    @Test
+    void streamChanges_clientFallsBehindBuffer_streamCompleted() throws Exception {
+        for (int id = 1; id <= 3; id++) {
+            performDispatched(mockMvc, delete("/api/employees/" + id))
+                    .andExpect(status().isOk());
+        }
+
+        MvcResult mvcResult = mockMvc.perform(
+                get("/api/employees/changes").accept(MediaType.TEXT_EVENT_STREAM)
+                        .header("Last-Event-ID", String.valueOf(since)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // All three arrive in one batch, one more than the buffer holds
+        mvcResult.getAsyncResult(5000);
+        assertFalse(mvcResult.getResponse().getContentAsString().contains("event:change"));
+    }
+
+    @Test
+    void streamChanges_severalStreams_allSentByBoundedSenders() throws Exception {
+        List<MvcResult> streams = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            streams.add(mockMvc.perform(
+                    get("/api/employees/changes").accept(MediaType.TEXT_EVENT_STREAM)
+                            .header("Last-Event-ID", String.valueOf(since)))
+                    .andExpect(request().asyncStarted())
+                    .andReturn());
+        }
+
+        performDispatched(mockMvc, delete("/api/employees/2"))
+                .andExpect(status().isOk());
+
+        for (MvcResult stream : streams) {
+            String body = awaitContent(stream.getResponse(), "\"type\":\"DELETED\"");
+            assertTrue(body.contains("\"employeeId\":2"), body);
+        }
+        assertEquals(1, changesController.senderThreadCount());
+    }
+
+    private static String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        String body = response.getContentAsString();
+        while (!body.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            body = response.getContentAsString();
+        }
+        return body;
+    }
+}
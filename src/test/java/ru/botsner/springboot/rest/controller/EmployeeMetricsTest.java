@@ -0,0 +1,55 @@
+package ru.botsner.springboot.rest.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.botsner.springboot.rest.config.HibernateQueryMetricsBinder;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.botsner.springboot.rest.MockMvcDispatch.performDispatched;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+@TestPropertySource("/application-test.properties")
+@Sql(value = {"/employee-test-before.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/employee-test-after.sql"}, executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+class EmployeeMetricsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private HibernateQueryMetricsBinder hibernateQueryMetrics;
+
+    @Test
+    void prometheus_afterRequests_layerTimersAndNotFoundCounterExported() throws Exception {
+        performDispatched(mockMvc, get("/api/employees")).andExpect(status().isOk());
+        performDispatched(mockMvc, get("/api/employees/1")).andExpect(status().isOk());
+        performDispatched(mockMvc, get("/api/employees/99")).andExpect(status().isNotFound());
+
+        hibernateQueryMetrics.registerNewQueries();
+        String scrape = performDispatched(mockMvc, get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(scrape.contains("employees_not_found_total{application=\"spring-boot-rest-app\",operation=\"get\",} 1.0"),
+                scrape);
+        assertTrue(scrape.contains("employees_service_seconds_bucket{application=\"spring-boot-rest-app\","
+                + "class=\"ru.botsner.springboot.rest.service.EmployeeServiceImpl\",exception=\"none\",method=\"getEmployee\""));
+        assertTrue(scrape.contains("http_server_requests_seconds_bucket{application=\"spring-boot-rest-app\""));
+        assertTrue(scrape.contains("spring_data_repository_invocations_seconds_bucket{application=\"spring-boot-rest-app\""));
+        assertTrue(scrape.contains("hikaricp_connections_acquire_seconds_bucket{application=\"spring-boot-rest-app\""));
+        assertTrue(scrape.contains("hibernate_query_execution_rows_total{"), scrape);
+        assertTrue(scrape.contains("hibernate_sessions_open_total{application=\"spring-boot-rest-app\","
+                + "entityManagerFactory=\"entityManagerFactory\",}"), scrape);
+        assertTrue(scrape.contains("query=\"select new ru.botsner.springboot.rest.dto.EmployeeView("), scrape);
+    }
+}
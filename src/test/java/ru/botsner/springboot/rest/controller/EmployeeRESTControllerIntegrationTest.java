@@ -1,30 +1,42 @@
 package ru.botsner.springboot.rest.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import ru.botsner.springboot.rest.entity.Employee;
+import ru.botsner.springboot.rest.exception.BadRequestException;
 import ru.botsner.springboot.rest.exception.EntityNotFoundException;
+import ru.botsner.springboot.rest.exception.PreconditionFailedException;
 
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static ru.botsner.springboot.rest.MockMvcDispatch.performDispatched;
 
 @SpringBootTest
 @AutoConfigureMockMvc
 @TestPropertySource("/application-test.properties")
 @Sql(value = {"/employee-test-before.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
 @Sql(value = {"/employee-test-after.sql"}, executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
-class EmployeeRESTControllerIntegrationTest {
+class EmployeeRESTControllerIntegrationTest extends AbstractEmployeeApiContractTest {
 
     @Autowired
     private MockMvc mockMvc;
@@ -32,33 +44,98 @@ class EmployeeRESTControllerIntegrationTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
     @Test
     void mockMvcLoads() {
         assertNotNull(mockMvc);
     }
 
     @Test
-    void listAllEmployees_getEmployees_status200() throws Exception {
-        mockMvc.perform(
-                get("/api/employees"))
+    void listAllEmployees_getLastPage_status200andNoNextLink() throws Exception {
+        performDispatched(mockMvc,
+                get("/api/employees").param("limit", "2").param("after", "2"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(3)));
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(3))
+                .andExpect(header().doesNotExist(HttpHeaders.LINK));
     }
 
     @Test
-    void getEmployee_getExistingEmployee_status200andEmployeeReturned() throws Exception {
-        mockMvc.perform(
-                get("/api/employees/1"))
+    void streamAllEmployees_acceptCbor_status200andCborArrayReturned() throws Exception {
+        byte[] body = performDispatched(mockMvc, get("/api/employees").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string(HttpHeaders.LINK, containsString("/schema/employee.schema.json")))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        Employee[] employees = new CBORMapper().readValue(body, Employee[].class);
+        assertEquals(3, employees.length);
+        assertEquals("John", employees[0].getName());
+        assertEquals(3, employees[2].getId());
+    }
+
+    @Test
+    void streamAllEmployees_acceptSmile_status200andSmileArrayReturned() throws Exception {
+        byte[] body = performDispatched(mockMvc, get("/api/employees").accept(EmployeeRESTController.APPLICATION_SMILE_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(EmployeeRESTController.APPLICATION_SMILE_VALUE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        Employee[] employees = new SmileMapper().readValue(body, Employee[].class);
+        assertEquals(3, employees.length);
+        assertEquals(1, employees[0].getId());
+    }
+
+    @Test
+    void listAllEmployees_acceptCborWithLimit_status200andPageReturned() throws Exception {
+        byte[] body = performDispatched(mockMvc, get("/api/employees").param("limit", "2").accept(MediaType.APPLICATION_CBOR))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.id").value(1))
-                .andExpect(jsonPath("$.name").value("John"))
-                .andExpect(jsonPath("$.surname").value("Smith"))
-                .andExpect(jsonPath("$.department").value("IT"));
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string(HttpHeaders.LINK, containsString("after=2")))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        Employee[] employees = new CBORMapper().readValue(body, Employee[].class);
+        assertEquals(2, employees.length);
+        assertEquals(2, employees[1].getId());
+    }
+
+    @Test
+    void getEmployee_acceptCbor_status200andCborEmployeeReturned() throws Exception {
+        byte[] body = performDispatched(mockMvc,
+                get("/api/employees/1").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode employee = new CBORMapper().readTree(body);
+        assertEquals("Smith", employee.get("surname").asText());
+        assertTrue(employee.path("version").isMissingNode());
+    }
+
+    @Test
+    void createEmployee_smileBody_status201andSmileEmployeeReturned() throws Exception {
+        SmileMapper smileMapper = new SmileMapper();
+
+        byte[] body = performDispatched(mockMvc,
+                post("/api/employees")
+                        .content(smileMapper.writeValueAsBytes(new Employee("Nick", "Taylor", "HR", 555)))
+                        .contentType(EmployeeRESTController.APPLICATION_SMILE_VALUE)
+                        .accept(EmployeeRESTController.APPLICATION_SMILE_VALUE))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        Employee employee = smileMapper.readValue(body, Employee.class);
+        assertEquals("Nick", employee.getName());
+        assertTrue(employee.getId() > 0);
     }
 
     @Test
-    void getEmployee_getNotExistingEmployee_status404andExceptionThrown() throws Exception {
-        mockMvc.perform(
+    @Override
+    void getEmployee_getNotExistingEmployee_status404() throws Exception {
+        performDispatched(mockMvc,
                 get("/api/employees/99"))
                 .andExpect(status().isNotFound())
                 .andExpect(mvcResult ->
@@ -66,37 +143,84 @@ class EmployeeRESTControllerIntegrationTest {
     }
 
     @Test
-    void createEmployee_addNewEmployee_status201andEmployeeReturned() throws Exception {
-        Employee employee = new Employee("Nick", "Taylor", "HR", 555);
+    void createEmployee_retriedWithIdempotencyKey_createdOnceAndResponseReplayed() throws Exception {
+        MockHttpServletRequestBuilder create = post("/api/employees")
+                .header(EmployeeRESTController.IDEMPOTENCY_KEY_HEADER, "create-nick")
+                .content(objectMapper.writeValueAsString(new Employee("Nick", "Taylor", "HR", 555)))
+                .contentType(MediaType.APPLICATION_JSON);
+
+        String first = performDispatched(mockMvc, create)
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyStore.REPLAYED_HEADER))
+                .andReturn().getResponse().getContentAsString();
+        performDispatched(mockMvc, create)
+                .andExpect(status().isCreated())
+                .andExpect(header().string(IdempotencyStore.REPLAYED_HEADER, "true"))
+                .andExpect(content().json(first, true));
+
+        performDispatched(mockMvc,
+                get("/api/employees"))
+                .andExpect(jsonPath("$", hasSize(4)));
+    }
+
+    @Test
+    void createEmployee_idempotencyKeyReusedForOtherEmployee_status422andNotCreated() throws Exception {
+        performDispatched(mockMvc,
+                post("/api/employees")
+                        .header(EmployeeRESTController.IDEMPOTENCY_KEY_HEADER, "create-reused")
+                        .content(objectMapper.writeValueAsString(new Employee("Nick", "Taylor", "HR", 555)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated());
 
-        mockMvc.perform(
+        performDispatched(mockMvc,
                 post("/api/employees")
-                        .content(objectMapper.writeValueAsString(employee))
+                        .header(EmployeeRESTController.IDEMPOTENCY_KEY_HEADER, "create-reused")
+                        .content(objectMapper.writeValueAsString(new Employee("Anna", "Taylor", "HR", 555)))
                         .contentType(MediaType.APPLICATION_JSON))
-                .andExpect(status().isCreated())
-                .andExpect(jsonPath("$.id").isNumber())
-                .andExpect(jsonPath("$.name").value("Nick"))
-                .andExpect(jsonPath("$.surname").value("Taylor"))
-                .andExpect(jsonPath("$.salary").value(555));
+                .andExpect(status().isUnprocessableEntity());
+
+        performDispatched(mockMvc,
+                get("/api/employees"))
+                .andExpect(jsonPath("$", hasSize(4)));
     }
 
+    @Test
+    void deleteEmployee_retriedWithIdempotencyKey_status200Replayed() throws Exception {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            performDispatched(mockMvc,
+                    delete("/api/employees/1").header(EmployeeRESTController.IDEMPOTENCY_KEY_HEADER, "delete-1"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.id").value(1));
+        }
+        performDispatched(mockMvc,
+                delete("/api/employees/1"))
+                .andExpect(status().isNotFound());
+    }
 
     @Test
-    void updateEmployee_updateExistingEmployee_status200andUpdatedReturns() throws Exception {
-        Employee employee = new Employee("Nick", "Taylor", "IT", 100);
+    void updateEmployee_retriedWithIdempotencyKeyAndSeveralTags_status200Replayed() throws Exception {
+        MockHttpServletRequestBuilder update = put("/api/employees/1")
+                .header(EmployeeRESTController.IDEMPOTENCY_KEY_HEADER, "update-1")
+                .header(HttpHeaders.IF_MATCH, "\"0\", \"5\"")
+                .content(objectMapper.writeValueAsString(new Employee("Nick", "Taylor", "IT", 100)))
+                .contentType(MediaType.APPLICATION_JSON);
 
-        mockMvc.perform(
-                put("/api/employees/1")
-                        .content(objectMapper.writeValueAsString(employee))
-                        .contentType(MediaType.APPLICATION_JSON))
+        performDispatched(mockMvc, update)
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.id").value(1))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+        // Retried against another instance, after the write has moved the version past both tags
+        idempotencyStore.clear();
+        performDispatched(mockMvc, update)
+                .andExpect(status().isOk())
+                .andExpect(header().string(IdempotencyStore.REPLAYED_HEADER, "true"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
                 .andExpect(jsonPath("$.name").value("Nick"));
     }
 
     @Test
-    void updateEmployee_updateNotExistingEmployee_status404andExceptionThrown() throws Exception {
-        mockMvc.perform(
+    @Override
+    void updateEmployee_updateNotExistingEmployee_status404() throws Exception {
+        performDispatched(mockMvc,
                 put("/api/employees/99")
                         .content(objectMapper.writeValueAsString(new Employee()))
                         .contentType(MediaType.APPLICATION_JSON))
@@ -106,30 +230,326 @@ class EmployeeRESTControllerIntegrationTest {
     }
 
     @Test
-    void deleteEmployee_deleteExistingEmployee_status200andDeletedReturns() throws Exception {
-        mockMvc.perform(
-                delete("/api/employees/1"))
+    @Override
+    void deleteEmployee_deleteNotExistingEmployee_status404() throws Exception {
+        performDispatched(mockMvc,
+                delete("/api/employees/99"))
+                .andExpect(status().isNotFound())
+                .andExpect(mvcResult ->
+                        assertTrue(mvcResult.getResolvedException() instanceof EntityNotFoundException));
+    }
+
+    @Test
+    void getEmployee_getExistingEmployee_strongETagReturned() throws Exception {
+        performDispatched(mockMvc,
+                get("/api/employees/1"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.id").value(1))
-                .andExpect(jsonPath("$.name").value("John"));
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andExpect(jsonPath("$.version").doesNotExist());
     }
 
     @Test
-    void deleteEmployee_deleteNotExistingEmployee_status404andExceptionThrown() throws Exception {
-        mockMvc.perform(
-                delete("/api/employees/99"))
-                .andExpect(status().isNotFound())
+    void getEmployee_ifNoneMatchCurrent_status304andNoBody() throws Exception {
+        performDispatched(mockMvc,
+                get("/api/employees/1").header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void getEmployee_ifNoneMatchStale_status200andNewETag() throws Exception {
+        performDispatched(mockMvc,
+                put("/api/employees/1")
+                        .content(objectMapper.writeValueAsString(new Employee("Nick", "Taylor", "IT", 100)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        performDispatched(mockMvc,
+                get("/api/employees/1").header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.name").value("Nick"));
+    }
+
+    @Test
+    void updateEmployee_noIfMatch_status200andNextETagUsableInIfMatch() throws Exception {
+        String eTag = performDispatched(mockMvc,
+                put("/api/employees/1")
+                        .content(objectMapper.writeValueAsString(new Employee("Nick", "Taylor", "IT", 100)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        performDispatched(mockMvc,
+                put("/api/employees/1")
+                        .header(HttpHeaders.IF_MATCH, eTag)
+                        .content(objectMapper.writeValueAsString(new Employee("Nick", "Taylor", "IT", 200)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""));
+    }
+
+    @Test
+    void updateEmployee_ifMatchCurrent_status200andNextETag() throws Exception {
+        performDispatched(mockMvc,
+                put("/api/employees/1")
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .content(objectMapper.writeValueAsString(new Employee("Nick", "Taylor", "IT", 100)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.name").value("Nick"));
+    }
+
+    @Test
+    void updateEmployee_ifMatchStale_status412andNotUpdated() throws Exception {
+        performDispatched(mockMvc,
+                put("/api/employees/1")
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .content(objectMapper.writeValueAsString(new Employee("Nick", "Taylor", "IT", 100)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        performDispatched(mockMvc,
+                put("/api/employees/1")
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .content(objectMapper.writeValueAsString(new Employee("Lost", "Update", "HR", 1)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isPreconditionFailed())
                 .andExpect(mvcResult ->
-                        assertTrue(mvcResult.getResolvedException() instanceof EntityNotFoundException));
+                        assertTrue(mvcResult.getResolvedException() instanceof PreconditionFailedException));
+
+        performDispatched(mockMvc,
+                get("/api/employees/1"))
+                .andExpect(jsonPath("$.name").value("Nick"));
+    }
+
+    @Test
+    void updateEmployee_ifMatchWeakTag_status412() throws Exception {
+        performDispatched(mockMvc,
+                put("/api/employees/1")
+                        .header(HttpHeaders.IF_MATCH, "W/\"0\"")
+                        .content(objectMapper.writeValueAsString(new Employee("Nick", "Taylor", "IT", 100)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void updateEmployee_ifMatchNotExistingEmployee_status404() throws Exception {
+        performDispatched(mockMvc,
+                put("/api/employees/99")
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .content(objectMapper.writeValueAsString(new Employee()))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void deleteEmployee_ifMatchStale_status412andNotDeleted() throws Exception {
+        performDispatched(mockMvc,
+                delete("/api/employees/1").header(HttpHeaders.IF_MATCH, "\"7\""))
+                .andExpect(status().isPreconditionFailed());
+
+        performDispatched(mockMvc,
+                get("/api/employees/1"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void deleteEmployee_ifMatchCurrent_status200() throws Exception {
+        performDispatched(mockMvc,
+                delete("/api/employees/1").header(HttpHeaders.IF_MATCH, "\"0\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1));
+    }
+
+    @Test
+    void suggestEmployees_namePrefix_status200() throws Exception {
+        performDispatched(mockMvc,
+                get("/api/employees/suggest").param("q", "Jo").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].surname").value("Miller"));
+    }
+
+    @Test
+    void suggestEmployees_blankQuery_status400() throws Exception {
+        performDispatched(mockMvc,
+                get("/api/employees/suggest").param("q", " "))
+                .andExpect(status().isBadRequest())
+                .andExpect(mvcResult ->
+                        assertTrue(mvcResult.getResolvedException() instanceof BadRequestException));
+    }
+
+    @Test
+    void getDepartmentStats_status200andAggregatesPerDepartment() throws Exception {
+        performDispatched(mockMvc,
+                get("/api/employees/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].department").value("HR"))
+                .andExpect(jsonPath("$[0].headcount").value(1))
+                .andExpect(jsonPath("$[1].department").value("IT"))
+                .andExpect(jsonPath("$[1].headcount").value(2))
+                .andExpect(jsonPath("$[1].totalSalary").value(3000))
+                .andExpect(jsonPath("$[1].averageSalary").value(1500.0))
+                .andExpect(jsonPath("$[1].minSalary").value(1000))
+                .andExpect(jsonPath("$[1].maxSalary").value(2000))
+                .andExpect(jsonPath("$[1].salaryBands").doesNotExist());
+    }
+
+    @Test
+    void getDepartmentStats_withBandWidth_status200andSalaryBandsReturned() throws Exception {
+        performDispatched(mockMvc,
+                get("/api/employees/stats").param("bandWidth", "1500"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].salaryBands", hasSize(1)))
+                .andExpect(jsonPath("$[0].salaryBands[0].lowerBound").value(1500))
+                .andExpect(jsonPath("$[1].salaryBands", hasSize(2)))
+                .andExpect(jsonPath("$[1].salaryBands[0].lowerBound").value(0))
+                .andExpect(jsonPath("$[1].salaryBands[0].headcount").value(1))
+                .andExpect(jsonPath("$[1].salaryBands[1].lowerBound").value(1500))
+                .andExpect(jsonPath("$[1].salaryBands[1].headcount").value(1));
+    }
+
+    @Test
+    void getDepartmentStats_nonPositiveBandWidth_status400() throws Exception {
+        performDispatched(mockMvc,
+                get("/api/employees/stats").param("bandWidth", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(mvcResult ->
+                        assertTrue(mvcResult.getResolvedException() instanceof BadRequestException));
     }
 
     @Test
-    void listAllEmployeesByName_getEmployeesByName_status200() throws Exception {
-        mockMvc.perform(
-                get("/api/employees/name/John"))
+    void searchEmployees_byNamePrefixAndDepartment_status200() throws Exception {
+        performDispatched(mockMvc,
+                get("/api/employees/search")
+                        .param("name", "Jo")
+                        .param("department", "IT")
+                        .param("sort", "salary,desc"))
                 .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "2"))
                 .andExpect(jsonPath("$", hasSize(2)))
-                .andExpect(jsonPath("$[0].name").value("John"))
-                .andExpect(jsonPath("$[1].name").value("John"));
+                .andExpect(jsonPath("$[0].surname").value("Miller"))
+                .andExpect(jsonPath("$[1].surname").value("Smith"));
+    }
+
+    @Test
+    void searchEmployees_bySalaryRangeWithPaging_status200andNextLinkReturned() throws Exception {
+        performDispatched(mockMvc,
+                get("/api/employees/search")
+                        .param("minSalary", "1000")
+                        .param("maxSalary", "1500")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "2"))
+                .andExpect(header().string(HttpHeaders.LINK, containsString("page=1")))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(1));
+    }
+
+    @Test
+    void searchEmployees_likeWildcardInPrefix_treatedLiterally() throws Exception {
+        performDispatched(mockMvc,
+                get("/api/employees/search")
+                        .param("name", "%"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    void searchEmployees_unsupportedSort_status400() throws Exception {
+        performDispatched(mockMvc,
+                get("/api/employees/search")
+                        .param("sort", "password"))
+                .andExpect(status().isBadRequest())
+                .andExpect(mvcResult ->
+                        assertTrue(mvcResult.getResolvedException() instanceof BadRequestException));
+    }
+
+    @Test
+    void createEmployees_addArrayInChunks_status200andCreatedItemsStreamed() throws Exception {
+        List<Employee> employees = Arrays.asList(
+                new Employee("Nick", "Taylor", "HR", 555),
+                new Employee("Anna", "White", "IT", 700),
+                new Employee("Paul", "Green", "HR", 800));
+
+        String[] lines = performBatch(post("/api/employees/batch")
+                .content(objectMapper.writeValueAsString(employees))
+                .contentType(MediaType.APPLICATION_JSON));
+
+        assertEquals(3, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            JsonNode result = objectMapper.readTree(lines[i]);
+            assertEquals(i, result.get("index").asInt());
+            assertEquals(201, result.get("status").asInt());
+            assertTrue(result.get("id").asInt() > 3);
+        }
+
+        performDispatched(mockMvc,
+                get("/api/employees"))
+                .andExpect(jsonPath("$", hasSize(6)));
+    }
+
+    @Test
+    void updateEmployees_updateNdjsonWithMissingId_status200andPerItemStatuses() throws Exception {
+        Employee existing = new Employee("Nick", "Taylor", "IT", 100);
+        existing.setId(2);
+        Employee missing = new Employee("Anna", "White", "IT", 700);
+        missing.setId(99);
+
+        String[] lines = performBatch(put("/api/employees/batch")
+                .content(objectMapper.writeValueAsString(existing) + "\n" + objectMapper.writeValueAsString(missing))
+                .contentType(MediaType.APPLICATION_NDJSON));
+
+        assertEquals(2, lines.length);
+        assertEquals(200, objectMapper.readTree(lines[0]).get("status").asInt());
+        assertEquals(404, objectMapper.readTree(lines[1]).get("status").asInt());
+        assertEquals(99, objectMapper.readTree(lines[1]).get("id").asInt());
+
+        performDispatched(mockMvc,
+                get("/api/employees/2"))
+                .andExpect(jsonPath("$.name").value("Nick"))
+                .andExpect(jsonPath("$.salary").value(100));
+    }
+
+    @Test
+    void deleteEmployees_deleteIds_status200andPerItemStatuses() throws Exception {
+        String[] lines = performBatch(delete("/api/employees/batch")
+                .content("[1, 99, 3]")
+                .contentType(MediaType.APPLICATION_JSON));
+
+        assertEquals(3, lines.length);
+        assertEquals("John", objectMapper.readTree(lines[0]).get("employee").get("name").asText());
+        assertEquals(404, objectMapper.readTree(lines[1]).get("status").asInt());
+        assertEquals(200, objectMapper.readTree(lines[2]).get("status").asInt());
+
+        performDispatched(mockMvc,
+                get("/api/employees"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(2));
+    }
+
+    @Test
+    void createEmployees_malformedItem_status200andPrecedingItemsCreated() throws Exception {
+        String[] lines = performBatch(post("/api/employees/batch")
+                .content("{\"name\":\"Nick\"}\n{\"name\":")
+                .contentType(MediaType.APPLICATION_NDJSON));
+
+        assertEquals(2, lines.length);
+        assertEquals(201, objectMapper.readTree(lines[0]).get("status").asInt());
+        assertEquals(400, objectMapper.readTree(lines[1]).get("status").asInt());
+        assertEquals(1, objectMapper.readTree(lines[1]).get("index").asInt());
+    }
+
+    private String[] performBatch(MockHttpServletRequestBuilder request) throws Exception {
+        return performDispatched(mockMvc, request)
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString()
+                .split("\n");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,146 @@
+package ru.botsner.springboot.rest.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.botsner.springboot.rest.RecordingDataSource;
+import ru.botsner.springboot.rest.entity.Employee;
+import ru.botsner.springboot.rest.service.EmployeeChangeFeed;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.botsner.springboot.rest.MockMvcDispatch.performDispatched;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import(RecordingDataSource.Config.class)
+@TestPropertySource(value = "/application-test.properties",
+        properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Sql(value = {"/employee-test-before.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/employee-test-after.sql"}, executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+class EmployeeRESTControllerStatementCountTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private EmployeeChangeFeed changeFeed;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        // Looks up the last change once, on the first write after startup
+        changeFeed.getLastSeq();
+        RecordingDataSource.clear();
+    }
+
+    @Test
+    void createEmployees_twoChunks_oneBatchedInsertPerChunk() throws Exception {
+        List<Employee> employees = List.of(
+                new Employee("Nick", "Taylor", "HR", 555),
+                new Employee("Anna", "White", "IT", 700),
+                new Employee("Paul", "Green", "HR", 800),
+                new Employee("Kate", "Brown", "IT", 900));
+
+        performDispatched(mockMvc,
+                post("/api/employees/batch")
+                        .content(objectMapper.writeValueAsString(employees))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        assertEquals(4, statistics.getEntityStatistics(Employee.class.getName()).getInsertCount());
+        // The chunk size is 2 in tests
+        assertEquals(2, RecordingDataSource.statementsStartingWith("insert into employees ").size());
+    }
+
+    @Test
+    void updateEmployee_updateExistingEmployee_updateVersionLookupAndChangeLogInsert() throws Exception {
+        performDispatched(mockMvc,
+                put("/api/employees/1")
+                        .content(objectMapper.writeValueAsString(new Employee("Nick", "Taylor", "IT", 100)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        assertEquals(1, RecordingDataSource.statementsStartingWith("update employees ").size());
+        assertEquals(3, RecordingDataSource.statements().size());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void updateEmployee_updateNotExistingEmployee_singleStatement() throws Exception {
+        performDispatched(mockMvc,
+                put("/api/employees/99")
+                        .content(objectMapper.writeValueAsString(new Employee()))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+
+        // Only the UPDATE, which matches no row
+        assertEquals(1, RecordingDataSource.statements().size());
+    }
+
+    @Test
+    void listAllEmployees_projectionQuery_noEntitiesLoaded() throws Exception {
+        performDispatched(mockMvc,
+                get("/api/employees"))
+                .andExpect(status().isOk());
+
+        assertEquals(1, RecordingDataSource.statements().size());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void getEmployee_ifNoneMatchCurrent_versionLookupOnly() throws Exception {
+        performDispatched(mockMvc,
+                get("/api/employees/1").header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().isNotModified());
+
+        assertEquals(1, RecordingDataSource.statements().size());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void deleteEmployee_deleteExistingEmployee_selectDeleteAndChangeLogInsert() throws Exception {
+        performDispatched(mockMvc,
+                delete("/api/employees/1"))
+                .andExpect(status().isOk());
+
+        assertEquals(1, RecordingDataSource.statementsStartingWith("delete from employees ").size());
+        assertEquals(3, RecordingDataSource.statements().size());
+    }
+
+    @Test
+    void deleteEmployee_deleteNotExistingEmployee_singleStatement() throws Exception {
+        performDispatched(mockMvc,
+                delete("/api/employees/99"))
+                .andExpect(status().isNotFound());
+
+        assertEquals(1, RecordingDataSource.statements().size());
+    }
+}
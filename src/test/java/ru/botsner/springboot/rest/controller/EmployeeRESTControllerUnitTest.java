@@ -1,26 +1,51 @@
 package ru.botsner.springboot.rest.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.botsner.springboot.rest.dto.EmployeeSearchCriteria;
+import ru.botsner.springboot.rest.dto.EmployeeView;
 import ru.botsner.springboot.rest.entity.Employee;
 import ru.botsner.springboot.rest.exception.EntityNotFoundException;
+import ru.botsner.springboot.rest.exception.ServiceUnavailableException;
+import ru.botsner.springboot.rest.service.AsyncEmployeeService;
+import ru.botsner.springboot.rest.service.EmployeeChangeFeed;
 import ru.botsner.springboot.rest.service.EmployeeService;
 
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static ru.botsner.springboot.rest.MockMvcDispatch.performDispatched;
 
-@WebMvcTest
+@WebMvcTest(properties = {"app.employees.batch.chunk-size=2", "app.employees.async.pool-size=1"})
+@Import({SimpleMeterRegistry.class, AsyncEmployeeService.class})
 public class EmployeeRESTControllerUnitTest {
 
     @Autowired
@@ -29,9 +54,15 @@ public class EmployeeRESTControllerUnitTest {
     @MockBean
     private EmployeeService employeeService;
 
+    @MockBean
+    private EmployeeChangeFeed employeeChangeFeed;
+
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     private Employee employee;
 
     @BeforeEach
@@ -47,14 +78,14 @@ public class EmployeeRESTControllerUnitTest {
 
     @Test
     void listAllEmployees_getEmployees_status200() throws Exception {
-        Employee emp1 = new Employee("John", "Miller", "HR", 1000);
-        Employee emp2 = new Employee("Maria", "Brown", "IT", 1200);
+        EmployeeView emp1 = new EmployeeView(1, "John", "Miller", "HR", 1000);
+        EmployeeView emp2 = new EmployeeView(2, "Maria", "Brown", "IT", 1200);
 
         Mockito.doReturn(Arrays.asList(emp1, emp2))
                 .when(employeeService)
                 .getAllEmployees();
 
-        mockMvc.perform(
+        performDispatched(mockMvc,
                 get("/api/employees"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
@@ -63,13 +94,47 @@ public class EmployeeRESTControllerUnitTest {
         Mockito.verify(employeeService, Mockito.only()).getAllEmployees();
     }
 
+    @Test
+    void listAllEmployees_getPage_status200andNextLinkReturned() throws Exception {
+        EmployeeView emp1 = new EmployeeView(6, "John", "Miller", "HR", 1000);
+        EmployeeView emp2 = new EmployeeView(8, "Maria", "Brown", "IT", 1200);
+
+        Mockito.doReturn(Arrays.asList(emp1, emp2))
+                .when(employeeService)
+                .getEmployeesAfter(5, 2);
+
+        performDispatched(mockMvc,
+                get("/api/employees").param("limit", "2").param("after", "5"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.LINK, containsString("after=8")))
+                .andExpect(content().json(objectMapper.writeValueAsString(Arrays.asList(emp1, emp2))));
+
+        Mockito.verify(employeeService, Mockito.only()).getEmployeesAfter(5, 2);
+    }
+
+    @Test
+    void listAllEmployees_getCborPage_readOnDatabasePool() throws Exception {
+        AtomicReference<String> readBy = new AtomicReference<>();
+        Mockito.doAnswer(invocation -> {
+            readBy.set(Thread.currentThread().getName());
+            return List.of(new EmployeeView(6, "John", "Miller", "HR", 1000));
+        }).when(employeeService).getEmployeesAfter(5, 2);
+
+        performDispatched(mockMvc,
+                get("/api/employees").param("limit", "2").param("after", "5").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR));
+
+        assertTrue(readBy.get().startsWith("employees-db-"), readBy.get());
+    }
+
     @Test
     void getEmployee_getExistingEmployee_status200andEmployeeReturned() throws Exception {
         Mockito.doReturn(employee)
                 .when(employeeService)
                 .getEmployee(Mockito.anyInt());
 
-        mockMvc.perform(
+        performDispatched(mockMvc,
                 get("/api/employees/1"))
                 .andExpect(status().isOk())
                 .andExpect(content().json(objectMapper.writeValueAsString(employee)));
@@ -83,16 +148,82 @@ public class EmployeeRESTControllerUnitTest {
                 .when(employeeService)
                 .getEmployee(Mockito.anyInt());
 
-        mockMvc.perform(
+        performDispatched(mockMvc,
                 get("/api/employees/1"))
                 .andExpect(status().isNotFound())
                 .andExpect(mvcResult ->
                         assertTrue(mvcResult.getResolvedException() instanceof EntityNotFoundException));
+
+        assertEquals(1, meterRegistry.get(EmployeeRESTController.NOT_FOUND_METRIC)
+                .tag("operation", "get").counter().count());
+    }
+
+    @Test
+    void getEmployee_databaseTooSlow_requestThreadReleasedAndStatus503() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            release.await();
+            return employee;
+        }).when(employeeService).getEmployee(1);
+
+        try {
+            MvcResult mvcResult = mockMvc.perform(
+                    get("/api/employees/1"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            // The mock container doesn't time out by itself
+            MockAsyncContext asyncContext = (MockAsyncContext) mvcResult.getRequest().getAsyncContext();
+            for (AsyncListener listener : asyncContext.getListeners()) {
+                listener.onTimeout(new AsyncEvent(asyncContext));
+            }
+
+            mockMvc.perform(asyncDispatch(mvcResult))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(result ->
+                            assertTrue(result.getResolvedException() instanceof ServiceUnavailableException));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void getEmployee_timedOutWhileQueued_callDropped() throws Exception {
+        CountDownLatch querying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            querying.countDown();
+            release.await();
+            return employee;
+        }).when(employeeService).getEmployee(1);
+
+        try {
+            // Takes the only pool thread
+            mockMvc.perform(get("/api/employees/1"));
+            assertTrue(querying.await(5, TimeUnit.SECONDS));
+
+            MvcResult mvcResult = mockMvc.perform(
+                    get("/api/employees/2"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            MockAsyncContext asyncContext = (MockAsyncContext) mvcResult.getRequest().getAsyncContext();
+            for (AsyncListener listener : asyncContext.getListeners()) {
+                listener.onTimeout(new AsyncEvent(asyncContext));
+            }
+            mockMvc.perform(asyncDispatch(mvcResult))
+                    .andExpect(status().isServiceUnavailable());
+        } finally {
+            release.countDown();
+        }
+
+        // Runs after the timed-out call would have on the only thread
+        performDispatched(mockMvc, get("/api/employees/1"))
+                .andExpect(status().isOk());
+        Mockito.verify(employeeService, Mockito.never()).getEmployee(2);
     }
 
     @Test
     void createEmployee_addNewEmployee_status201andEmployeeReturned() throws Exception {
-        mockMvc.perform(
+        performDispatched(mockMvc,
                 post("/api/employees")
                         .content(objectMapper.writeValueAsString(employee))
                         .contentType(MediaType.APPLICATION_JSON))
@@ -109,7 +240,7 @@ public class EmployeeRESTControllerUnitTest {
                 .when(employeeService)
                 .updateEmployee(Mockito.any(Employee.class), Mockito.anyInt());
 
-        mockMvc.perform(
+        performDispatched(mockMvc,
                 put("/api/employees/1")
                         .content(objectMapper.writeValueAsString(new Employee()))
                         .contentType(MediaType.APPLICATION_JSON))
@@ -127,7 +258,7 @@ public class EmployeeRESTControllerUnitTest {
                 .when(employeeService)
                 .updateEmployee(Mockito.any(Employee.class), Mockito.anyInt());
 
-        mockMvc.perform(
+        performDispatched(mockMvc,
                 put("/api/employees/1")
                         .content(objectMapper.writeValueAsString(new Employee()))
                         .contentType(MediaType.APPLICATION_JSON))
@@ -142,7 +273,7 @@ public class EmployeeRESTControllerUnitTest {
                 .when(employeeService)
                 .deleteEmployee(Mockito.anyInt());
 
-        mockMvc.perform(
+        performDispatched(mockMvc,
                 delete("/api/employees/1"))
                 .andExpect(status().isOk())
                 .andExpect(content().json(objectMapper.writeValueAsString(employee)));
@@ -156,7 +287,7 @@ public class EmployeeRESTControllerUnitTest {
                 .when(employeeService)
                 .deleteEmployee(Mockito.anyInt());
 
-        mockMvc.perform(
+        performDispatched(mockMvc,
                 delete("/api/employees/1"))
                 .andExpect(status().isNotFound())
                 .andExpect(mvcResult ->
@@ -165,14 +296,14 @@ public class EmployeeRESTControllerUnitTest {
 
     @Test
     void listAllEmployeesByName_getEmployeesByName_status200() throws Exception {
-        Employee emp1 = new Employee("John", "Miller", "HR", 1000);
-        Employee emp2 = new Employee("John", "Brown", "IT", 1200);
+        EmployeeView emp1 = new EmployeeView(1, "John", "Miller", "HR", 1000);
+        EmployeeView emp2 = new EmployeeView(2, "John", "Brown", "IT", 1200);
 
         Mockito.doReturn(Arrays.asList(emp1, emp2))
                 .when(employeeService)
                 .getAllEmployeesByName(Mockito.anyString());
 
-        mockMvc.perform(
+        performDispatched(mockMvc,
                 get("/api/employees/name/John"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
@@ -180,4 +311,81 @@ public class EmployeeRESTControllerUnitTest {
 
         Mockito.verify(employeeService, Mockito.only()).getAllEmployeesByName(Mockito.anyString());
     }
+
+    @Test
+    void suggestEmployees_limitAboveMax_clampedAndSuggestionsReturned() throws Exception {
+        EmployeeView emp = new EmployeeView(1, "John", "Miller", "HR", 1000);
+        Mockito.doReturn(Arrays.asList(emp))
+                .when(employeeService)
+                .suggestEmployees("jo mi", 50);
+
+        performDispatched(mockMvc,
+                get("/api/employees/suggest")
+                        .param("q", "jo mi")
+                        .param("limit", "1000"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(Arrays.asList(emp))));
+
+        Mockito.verify(employeeService, Mockito.only()).suggestEmployees("jo mi", 50);
+    }
+
+    @Test
+    void searchEmployees_getFirstPage_status200andTotalCountReturned() throws Exception {
+        EmployeeView emp1 = new EmployeeView(1, "John", "Miller", "HR", 1000);
+        EmployeeView emp2 = new EmployeeView(2, "John", "Brown", "IT", 1200);
+        PageRequest pageable = PageRequest.of(0, 2, Sort.by("salary"));
+
+        Mockito.doReturn(new PageImpl<>(Arrays.asList(emp1, emp2), pageable, 3))
+                .when(employeeService)
+                .searchEmployees(Mockito.any(EmployeeSearchCriteria.class), Mockito.eq(pageable));
+
+        performDispatched(mockMvc,
+                get("/api/employees/search")
+                        .param("name", "Jo")
+                        .param("size", "2")
+                        .param("sort", "salary"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "3"))
+                .andExpect(header().string(HttpHeaders.LINK, containsString("page=1")))
+                .andExpect(content().json(objectMapper.writeValueAsString(Arrays.asList(emp1, emp2))));
+
+        Mockito.verify(employeeService, Mockito.only()).searchEmployees(
+                Mockito.argThat(criteria -> "Jo".equals(criteria.getName())), Mockito.eq(pageable));
+    }
+
+    @Test
+    void searchEmployees_invalidSalaryRange_status400() throws Exception {
+        performDispatched(mockMvc,
+                get("/api/employees/search")
+                        .param("minSalary", "2000")
+                        .param("maxSalary", "1000"))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(employeeService);
+    }
+
+    @Test
+    void deleteEmployees_firstChunkFails_status200andFailedItemsReportedAndNextChunkProcessed() throws Exception {
+        Mockito.doThrow(new DataAccessResourceFailureException("Connection reset"))
+                .when(employeeService)
+                .deleteEmployees(Arrays.asList(1, 2));
+        Mockito.doReturn(Arrays.asList(employee))
+                .when(employeeService)
+                .deleteEmployees(Arrays.asList(3));
+
+        String[] lines = mockMvc.perform(delete("/api/employees/batch")
+                        .content("[1, 2, 3]")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()
+                .split("\n");
+
+        assertEquals(3, lines.length);
+        for (int i = 0; i < 2; i++) {
+            assertEquals(i, objectMapper.readTree(lines[i]).get("index").asInt());
+            assertEquals(500, objectMapper.readTree(lines[i]).get("status").asInt());
+            assertEquals(i + 1, objectMapper.readTree(lines[i]).get("id").asInt());
+        }
+        assertEquals(200, objectMapper.readTree(lines[2]).get("status").asInt());
+    }
 }
@@ -0,0 +1,129 @@
+package ru.botsner.springboot.rest.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import ru.botsner.springboot.rest.exception.UnprocessableEntityException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyStoreTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final IdempotencyStore store = new IdempotencyStore(100, Duration.ofMinutes(1), meterRegistry);
+
+    private final AtomicInteger writes = new AtomicInteger();
+
+    private CompletableFuture<ResponseEntity<String>> write(CompletableFuture<ResponseEntity<String>> response) {
+        writes.incrementAndGet();
+        return response;
+    }
+
+    private static CompletableFuture<ResponseEntity<String>> created(String body) {
+        return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.CREATED).body(body));
+    }
+
+    private double requests(String outcome) {
+        return meterRegistry.get("idempotency.requests").tag("outcome", outcome).counter().count();
+    }
+
+    @Test
+    void execute_sameKeyAgain_responseReplayedWithoutWrite() throws Exception {
+        ResponseEntity<String> first = store.execute("key", "create", () -> write(created("first"))).get();
+        ResponseEntity<String> retry = store.execute("key", "create", () -> write(created("second"))).get();
+
+        assertEquals(1, writes.get());
+        assertEquals("first", first.getBody());
+        assertFalse(first.getHeaders().containsKey(IdempotencyStore.REPLAYED_HEADER));
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertEquals("first", retry.getBody());
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+        assertEquals(1, requests("executed"));
+        assertEquals(1, requests("replayed"));
+    }
+
+    @Test
+    void execute_retryWhileInFlight_waitsForFirst() throws Exception {
+        CompletableFuture<ResponseEntity<String>> inFlight = new CompletableFuture<>();
+        CompletableFuture<ResponseEntity<String>> first = store.execute("key", "create", () -> write(inFlight));
+        CompletableFuture<ResponseEntity<String>> retry = store.execute("key", "create", () -> write(created("x")));
+
+        assertFalse(retry.isDone());
+        inFlight.complete(ResponseEntity.status(HttpStatus.CREATED).body("first"));
+
+        assertEquals("first", first.get().getBody());
+        assertEquals("first", retry.get().getBody());
+        assertEquals(1, writes.get());
+    }
+
+    @Test
+    void execute_firstCallerGivesUp_retryStillGetsResponse() throws Exception {
+        CompletableFuture<ResponseEntity<String>> inFlight = new CompletableFuture<>();
+        store.execute("key", "create", () -> write(inFlight)).cancel(false);
+        CompletableFuture<ResponseEntity<String>> retry = store.execute("key", "create", () -> write(created("x")));
+
+        assertFalse(inFlight.isCancelled());
+        inFlight.complete(ResponseEntity.status(HttpStatus.CREATED).body("first"));
+        assertEquals("first", retry.get().getBody());
+    }
+
+    @Test
+    void execute_firstFailed_retryWrites() throws Exception {
+        CompletableFuture<ResponseEntity<String>> failed = store.execute("key", "create",
+                () -> write(CompletableFuture.failedFuture(new IllegalStateException("database down"))));
+        ExecutionException e = assertThrows(ExecutionException.class, failed::get);
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+
+        ResponseEntity<String> retry = store.execute("key", "create", () -> write(created("second"))).get();
+
+        assertEquals(2, writes.get());
+        assertEquals("second", retry.getBody());
+        assertFalse(retry.getHeaders().containsKey(IdempotencyStore.REPLAYED_HEADER));
+    }
+
+    @Test
+    void execute_writeThrows_keyFreed() throws Exception {
+        CompletableFuture<ResponseEntity<String>> failed = store.execute("key", "create", () -> {
+            throw new IllegalStateException("invalid");
+        });
+        assertTrue(failed.isCompletedExceptionally());
+
+        assertEquals("second", store.execute("key", "create", () -> write(created("second"))).get().getBody());
+    }
+
+    @Test
+    void execute_inFlightBeyondMaxKeys_notEvicted() throws Exception {
+        IdempotencyStore store = new IdempotencyStore(1, Duration.ofMinutes(1), meterRegistry);
+        CompletableFuture<ResponseEntity<String>> inFlight = new CompletableFuture<>();
+        store.execute("key", "create", () -> write(inFlight));
+        for (int i = 0; i < 100; i++) {
+            store.execute("other" + i, "create", () -> write(created("other"))).get();
+        }
+
+        CompletableFuture<ResponseEntity<String>> retry = store.execute("key", "create", () -> write(created("x")));
+        inFlight.complete(ResponseEntity.status(HttpStatus.CREATED).body("first"));
+
+        assertEquals("first", retry.get().getBody());
+        assertEquals(101, writes.get());
+    }
+
+    @Test
+    void execute_keyReusedForOtherRequest_refused() throws Exception {
+        store.execute("key", "create a", () -> write(created("first"))).get();
+
+        CompletableFuture<ResponseEntity<String>> reused = store.execute("key", "create b",
+                () -> write(created("second")));
+
+        ExecutionException e = assertThrows(ExecutionException.class, reused::get);
+        assertInstanceOf(UnprocessableEntityException.class, e.getCause());
+        assertEquals(1, writes.get());
+        assertEquals(1, requests("mismatched"));
+    }
+}
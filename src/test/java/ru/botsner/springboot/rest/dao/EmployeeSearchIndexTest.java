@@ -0,0 +1,68 @@
+package ru.botsner.springboot.rest.dao;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import ru.botsner.springboot.rest.RecordingStatementInspector;
+import ru.botsner.springboot.rest.dto.EmployeeSearchCriteria;
+import ru.botsner.springboot.rest.service.EmployeeService;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsStringIgnoringCase;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@TestPropertySource(value = "/application-test.properties", properties = RecordingStatementInspector.PROPERTY)
+class EmployeeSearchIndexTest {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void namePrefix_usesNameSurnameIndex() {
+        assertThat(explainSearch(new EmployeeSearchCriteria("Jo", null, null, null, null), "Jo%", "\\"),
+                containsStringIgnoringCase("idx_employees_name_surname"));
+    }
+
+    @Test
+    void surname_usesSurnameIndex() {
+        assertThat(explainSearch(new EmployeeSearchCriteria(null, "Smith", null, null, null), "Smith"),
+                containsStringIgnoringCase("idx_employees_surname"));
+    }
+
+    @Test
+    void departmentAndSalaryRange_usesDepartmentSalaryIndex() {
+        assertThat(explainSearch(new EmployeeSearchCriteria(null, null, "IT", 1000, 2000), "IT"),
+                containsStringIgnoringCase("idx_employees_department_salary"));
+    }
+
+    @Test
+    void salaryRange_usesSalaryIndex() {
+        assertThat(explainSearch(new EmployeeSearchCriteria(null, null, null, 1000, 2000)),
+                containsStringIgnoringCase("idx_employees_salary"));
+    }
+
+    // Explains the page query the search Specification generates; Hibernate inlines numeric literals, so only
+    // the string parameters are bound, followed by the page size
+    private String explainSearch(EmployeeSearchCriteria criteria, Object... stringParameters) {
+        RecordingStatementInspector.clear();
+        employeeService.searchEmployees(criteria, PageRequest.of(0, PAGE_SIZE));
+        List<String> selects = RecordingStatementInspector.statementsStartingWith("select employee0_.id");
+        assertEquals(1, selects.size(), () -> "Expected one page query, got " + selects);
+
+        Object[] parameters = Arrays.copyOf(stringParameters, stringParameters.length + 1);
+        parameters[stringParameters.length] = PAGE_SIZE;
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + selects.get(0), String.class, parameters));
+    }
+}
@@ -0,0 +1,148 @@
+package ru.botsner.springboot.rest.dao;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.botsner.springboot.rest.dto.EmployeeView;
+import ru.botsner.springboot.rest.entity.Employee;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmployeeSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private Path path;
+
+    private EmployeeSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        path = directory.resolve("employees.snapshot");
+
+        EmployeeSnapshotWriter writer = new EmployeeSnapshotWriter();
+        writer.add(employee(1, "John", "Smith", "IT", 1000, 0));
+        writer.add(employee(2, "Maria", "Brown", "HR", 1500, 3));
+        writer.add(employee(5, "John", "Miller", "IT", 2000, 1));
+        writer.add(employee(7, "Jörg", "Müller", null, 1200, 0));
+        writer.add(employee(9, null, "Anonymous", "IT", 900, 0));
+        writer.write(path, 42);
+
+        snapshot = EmployeeSnapshot.open(path);
+    }
+
+    private static Employee employee(int id, String name, String surname, String department, int salary,
+                                     int version) {
+        Employee employee = new Employee(name, surname, department, salary);
+        employee.setId(id);
+        employee.setVersion(version);
+        return employee;
+    }
+
+    private static List<Integer> ids(List<EmployeeView> employees) {
+        return employees.stream().map(EmployeeView::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    void open_writtenSnapshot_headerRead() {
+        assertEquals(42, snapshot.getLastSeq());
+        assertEquals(5, snapshot.size());
+    }
+
+    @Test
+    void getEmployee_existingId_allColumnsDecoded() {
+        Employee employee = snapshot.getEmployee(2);
+
+        assertEquals(2, employee.getId());
+        assertEquals("Maria", employee.getName());
+        assertEquals("Brown", employee.getSurname());
+        assertEquals("HR", employee.getDepartment());
+        assertEquals(1500, employee.getSalary());
+        assertEquals(3, employee.getVersion());
+        assertEquals(3, snapshot.getEmployeeVersion(2));
+    }
+
+    @Test
+    void getEmployee_nullsAndNonAscii_roundTripped() {
+        Employee employee = snapshot.getEmployee(7);
+        assertEquals("Jörg", employee.getName());
+        assertEquals("Müller", employee.getSurname());
+        assertNull(employee.getDepartment());
+
+        assertNull(snapshot.getEmployee(9).getName());
+    }
+
+    @Test
+    void getEmployee_missingId_null() {
+        assertNull(snapshot.getEmployee(3));
+        assertNull(snapshot.getEmployee(10));
+        assertNull(snapshot.getEmployeeVersion(0));
+    }
+
+    @Test
+    void getAllEmployees_idOrder() {
+        assertEquals(List.of(1, 2, 5, 7, 9), ids(snapshot.getAllEmployees()));
+    }
+
+    @Test
+    void getEmployeesAfter_keysetPages() {
+        assertEquals(List.of(1, 2), ids(snapshot.getEmployeesAfter(0, 2)));
+        assertEquals(List.of(5, 7), ids(snapshot.getEmployeesAfter(2, 2)));
+        assertEquals(List.of(7, 9), ids(snapshot.getEmployeesAfter(6, 10)));
+        assertEquals(List.of(), ids(snapshot.getEmployeesAfter(9, 10)));
+    }
+
+    @Test
+    void getAllEmployeesByName_exactMatchesInIdOrder() {
+        assertEquals(List.of(1, 5), ids(snapshot.getAllEmployeesByName("John")));
+        assertEquals(List.of(7), ids(snapshot.getAllEmployeesByName("Jörg")));
+        assertEquals(List.of(), ids(snapshot.getAllEmployeesByName("john")));
+        assertEquals(List.of(), ids(snapshot.getAllEmployeesByName("Jo")));
+        assertEquals(List.of(), ids(snapshot.getAllEmployeesByName("")));
+    }
+
+    @Test
+    void open_emptySnapshot_servesNothing() throws IOException {
+        Path empty = directory.resolve("empty.snapshot");
+        new EmployeeSnapshotWriter().write(empty, 0);
+
+        EmployeeSnapshot emptySnapshot = EmployeeSnapshot.open(empty);
+
+        assertNull(emptySnapshot.getEmployee(1));
+        assertEquals(List.of(), emptySnapshot.getAllEmployees());
+        assertEquals(List.of(), emptySnapshot.getAllEmployeesByName("John"));
+    }
+
+    @Test
+    void open_truncatedFile_rejected() throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        Path truncated = directory.resolve("truncated.snapshot");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 1));
+
+        assertThrows(IOException.class, () -> EmployeeSnapshot.open(truncated));
+    }
+
+    @Test
+    void open_otherFile_rejected() throws IOException {
+        Path other = directory.resolve("other.snapshot");
+        Files.writeString(other, "id,name,surname,department,salary\n1,John,Smith,IT,1000\n");
+
+        assertThrows(IOException.class, () -> EmployeeSnapshot.open(other));
+    }
+
+    @Test
+    void add_idsNotAscending_rejected() {
+        EmployeeSnapshotWriter writer = new EmployeeSnapshotWriter();
+        writer.add(employee(2, "John", "Smith", "IT", 1000, 0));
+
+        assertThrows(IllegalArgumentException.class, () -> writer.add(employee(1, "Maria", "Brown", "HR", 1500, 0)));
+    }
+}
@@ -0,0 +1,34 @@
+package ru.botsner.springboot.rest.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import ru.botsner.springboot.rest.entity.Employee;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EmployeeViewSerializerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void serialize_sameJsonAsEntity() throws Exception {
+        Employee employee = new Employee("Mike", "Smith", "IT", 1000);
+        employee.setId(5);
+        employee.setVersion(3);
+
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(employee)),
+                objectMapper.readTree(objectMapper.writeValueAsString(EmployeeView.of(employee))));
+    }
+
+    @Test
+    void serialize_nullFieldsAndLists() throws Exception {
+        List<EmployeeView> employees = List.of(new EmployeeView(1, null, "Smith", null, 0),
+                new EmployeeView(2, "Mike", "\"Q\"", "IT", -5));
+
+        assertEquals("[{\"id\":1,\"name\":null,\"surname\":\"Smith\",\"department\":null,\"salary\":0},"
+                        + "{\"id\":2,\"name\":\"Mike\",\"surname\":\"\\\"Q\\\"\",\"department\":\"IT\",\"salary\":-5}]",
+                objectMapper.writeValueAsString(employees));
+    }
+}
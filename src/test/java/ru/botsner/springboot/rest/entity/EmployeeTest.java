@@ -69,4 +69,15 @@ class EmployeeTest {
         employee.setSalary(2000);
         assertEquals(2000, employee.getSalary());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getVersion() {
+        assertEquals(0, employee.getVersion());
+    }
+
+    @Test
+    void setVersion() {
+        employee.setVersion(3);
+        assertEquals(3, employee.getVersion());
+    }
+}
@@ -0,0 +1,170 @@
+package ru.botsner.springboot.rest.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.task.TaskDecorator;
+import ru.botsner.springboot.rest.config.DataSourceRoutingConfiguration;
+import ru.botsner.springboot.rest.config.ReplicaRoutingDataSource;
+import ru.botsner.springboot.rest.entity.Employee;
+import ru.botsner.springboot.rest.exception.ServiceUnavailableException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncEmployeeServiceTest {
+
+    private final EmployeeService employeeService = Mockito.mock(EmployeeService.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final CountDownLatch querying = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private Employee employee;
+
+    private AsyncEmployeeService asyncService;
+
+    @BeforeEach
+    void setUp() {
+        employee = new Employee("Mike", "Smith", "IT", 1000);
+        employee.setId(1);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        asyncService.close();
+    }
+
+    private AsyncEmployeeService asyncService(int poolSize, int queueCapacity, TaskDecorator taskDecorator) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(
+                taskDecorator == null ? Map.of() : Map.of("taskDecorator", taskDecorator));
+        asyncService = new AsyncEmployeeService(employeeService, beanFactory.getBeanProvider(TaskDecorator.class),
+                meterRegistry, poolSize, queueCapacity);
+        return asyncService;
+    }
+
+    private void blockFirstLookup() {
+        Mockito.doAnswer(invocation -> {
+            querying.countDown();
+            release.await();
+            return employee;
+        }).when(employeeService).getEmployee(1);
+    }
+
+    @Test
+    void getEmployee_completesOnPoolThread() throws Exception {
+        AsyncEmployeeService service = asyncService(2, 10, null);
+        Mockito.doAnswer(invocation -> {
+            assertTrue(Thread.currentThread().getName().startsWith("employees-db-"));
+            return employee;
+        }).when(employeeService).getEmployee(1);
+
+        assertSame(employee, service.getEmployee(1).get(5, TimeUnit.SECONDS));
+        assertNotNull(meterRegistry.find("executor.completed").tag("name", "employees.db").functionCounter());
+    }
+
+    @Test
+    void callsBeyondPoolAndQueue_failWithServiceUnavailable() throws Exception {
+        AsyncEmployeeService service = asyncService(1, 1, null);
+        blockFirstLookup();
+
+        CompletableFuture<Employee> running = service.getEmployee(1);
+        assertTrue(querying.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Employee> queued = service.getEmployee(2);
+        CompletableFuture<Employee> rejected = service.getEmployee(3);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> rejected.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ServiceUnavailableException.class, e.getCause());
+
+        release.countDown();
+        assertSame(employee, running.get(5, TimeUnit.SECONDS));
+        assertNull(queued.get(5, TimeUnit.SECONDS));
+        Mockito.verify(employeeService, Mockito.never()).getEmployee(3);
+    }
+
+    @Test
+    void cancelledBeforeStart_callDropped() throws Exception {
+        AsyncEmployeeService service = asyncService(1, 10, null);
+        blockFirstLookup();
+
+        CompletableFuture<Employee> running = service.getEmployee(1);
+        assertTrue(querying.await(5, TimeUnit.SECONDS));
+        service.write(() -> employeeService.deleteEmployee(2)).cancel(false);
+
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        // Runs after the cancelled call would have on the single thread
+        service.getEmployee(3).get(5, TimeUnit.SECONDS);
+        Mockito.verify(employeeService, Mockito.never()).deleteEmployee(2);
+    }
+
+    @Test
+    void dependentStageCancelled_callDropped() throws Exception {
+        AsyncEmployeeService service = asyncService(1, 10, null);
+        blockFirstLookup();
+
+        CompletableFuture<Employee> running = service.getEmployee(1);
+        assertTrue(querying.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Employee> queued = service.getEmployee(2);
+        queued.thenApply(Employee::getName).cancel(false);
+
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        service.getEmployee(3).get(5, TimeUnit.SECONDS);
+        assertTrue(queued.isCancelled());
+        Mockito.verify(employeeService, Mockito.never()).getEmployee(2);
+    }
+
+    @Test
+    void composedStageCancelled_composedCallDropped() throws Exception {
+        AsyncEmployeeService service = asyncService(1, 10, null);
+        Mockito.doReturn(1).when(employeeService).getEmployeeVersion(2);
+        blockFirstLookup();
+        CountDownLatch composed = new CountDownLatch(1);
+
+        CompletableFuture<Employee> stage = service.getEmployeeVersion(2).thenCompose(version -> {
+            // The blocked lookup keeps the only thread busy, so the composed call stays queued
+            service.getEmployee(1);
+            CompletableFuture<Employee> next = service.getEmployee(2);
+            composed.countDown();
+            return next;
+        });
+        assertTrue(composed.await(5, TimeUnit.SECONDS));
+        assertTrue(querying.await(5, TimeUnit.SECONDS));
+        stage.cancel(false);
+
+        release.countDown();
+        service.getEmployee(3).get(5, TimeUnit.SECONDS);
+        assertTrue(stage.isCancelled());
+        Mockito.verify(employeeService, Mockito.never()).getEmployee(2);
+    }
+
+    @Test
+    void primaryStickiness_carriedToPoolThread() throws Exception {
+        AsyncEmployeeService service = asyncService(1, 10,
+                new DataSourceRoutingConfiguration().primaryStickinessTaskDecorator());
+        Mockito.doAnswer(invocation -> ReplicaRoutingDataSource.isPrimaryOnly() ? employee : null)
+                .when(employeeService).getEmployee(1);
+
+        assertNull(service.getEmployee(1).get(5, TimeUnit.SECONDS));
+        ReplicaRoutingDataSource.setPrimaryOnly();
+        try {
+            assertSame(employee, service.getEmployee(1).get(5, TimeUnit.SECONDS));
+        } finally {
+            ReplicaRoutingDataSource.clearPrimaryOnly();
+        }
+        // Not left behind on the pool thread
+        assertNull(service.getEmployee(1).get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,155 @@
+package ru.botsner.springboot.rest.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.botsner.springboot.rest.RecordingDataSource;
+import ru.botsner.springboot.rest.dao.EmployeeChangeRepository;
+import ru.botsner.springboot.rest.entity.Employee;
+import ru.botsner.springboot.rest.entity.EmployeeChange;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(value = "/application-test.properties", properties = "app.employees.changes.batch-size=2")
+@Import(RecordingDataSource.Config.class)
+@Sql(value = {"/employee-test-before.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/employee-test-after.sql"}, executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+class EmployeeChangeFeedTest {
+
+    @Autowired
+    private EmployeeService empService;
+
+    @Autowired
+    private EmployeeChangeFeed changeFeed;
+
+    @Autowired
+    private EmployeeChangeRepository changeRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private long since;
+
+    @BeforeEach
+    void setUp() {
+        since = changeRepository.findLastSeq();
+    }
+
+    @Test
+    void getChangesSince_batchWrites_oneChangePerEmployeeInOrder() {
+        Employee moved = new Employee("Maria", "Brown", "QA", 1300);
+        moved.setId(2);
+        empService.updateEmployees(List.of(moved));
+        empService.deleteEmployees(List.of(3, 99));
+
+        List<EmployeeChange> changes = changeFeed.getChangesSince(since, 10);
+
+        assertEquals(List.of("2:UPDATED:1", "3:DELETED:0"), changes.stream()
+                .map(change -> change.getEmployeeId() + ":" + change.getType() + ":" + change.getVersion())
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void getChangesSince_rolledBackWrite_notInLog() {
+        transactionTemplate.executeWithoutResult(status -> {
+            empService.saveEmployee(new Employee("Nick", "Taylor", "HR", 555));
+            status.setRollbackOnly();
+        });
+
+        assertTrue(changeFeed.getChangesSince(since, 10).isEmpty());
+    }
+
+    @Test
+    void getChangesSince_earlierChangeUncommitted_laterChangesHeldBack() throws Exception {
+        CountDownLatch appended = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        CompletableFuture<Void> slowWriter = CompletableFuture.runAsync(() ->
+                transactionTemplate.executeWithoutResult(status -> {
+                    empService.saveEmployee(new Employee("Nick", "Taylor", "HR", 555));
+                    appended.countDown();
+                    await(commit);
+                }));
+        assertTrue(appended.await(5, TimeUnit.SECONDS));
+
+        empService.deleteEmployee(3);
+        assertTrue(changeFeed.getChangesSince(since, 10).isEmpty());
+
+        commit.countDown();
+        slowWriter.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(EmployeeChange.Type.CREATED, EmployeeChange.Type.DELETED),
+                changeFeed.getChangesSince(since, 10).stream()
+                        .map(EmployeeChange::getType)
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    void subscribe_listenerDeclines_unsubscribedAfterFirstDelivery() throws Exception {
+        empService.deleteEmployee(1);
+        CompletableFuture<List<EmployeeChange>> delivered = new CompletableFuture<>();
+
+        changeFeed.subscribe(since, changes -> {
+            delivered.complete(List.copyOf(changes));
+            return false;
+        });
+
+        assertEquals(1, delivered.get(5, TimeUnit.SECONDS).size());
+        // Cancelled on the dispatcher thread right after the listener returns
+        Thread.sleep(100);
+        assertEquals(0, changeFeed.subscriberCount());
+    }
+
+    @Test
+    void subscribe_lastListenerDeclinesFirstBatch_restNotRead() throws Exception {
+        empService.deleteEmployees(List.of(1, 2, 3));
+        // Settled by the writes, so the reads below are the dispatcher's
+        Thread.sleep(100);
+        RecordingDataSource.clear();
+        CountDownLatch delivered = new CountDownLatch(1);
+
+        changeFeed.subscribe(since, changes -> {
+            delivered.countDown();
+            return false;
+        });
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(1, RecordingDataSource.statements().stream()
+                .filter(sql -> sql.contains("employee_changes"))
+                .count(), RecordingDataSource.statements()::toString);
+    }
+
+    @Test
+    void purgeExpired_oldEntries_deletedExceptNewest() {
+        empService.deleteEmployees(List.of(1, 2));
+        long lastSeq = changeFeed.getLastSeq();
+        EmployeeChangeFeed expiring = new EmployeeChangeFeed(changeRepository, 2, 0);
+
+        expiring.purgeExpired();
+
+        assertEquals(List.of(lastSeq), changeRepository.findAll().stream()
+                .map(EmployeeChange::getSeq)
+                .collect(Collectors.toList()));
+        assertEquals(lastSeq, changeRepository.findLastSeq());
+        expiring.close();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
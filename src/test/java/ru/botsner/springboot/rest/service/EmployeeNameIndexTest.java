@@ -0,0 +1,123 @@
+package ru.botsner.springboot.rest.service;
+
+import org.junit.jupiter.api.Test;
+import ru.botsner.springboot.rest.dto.EmployeeView;
+import ru.botsner.springboot.rest.entity.Employee;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmployeeNameIndexTest {
+
+    private final EmployeeNameIndex index = new EmployeeNameIndex();
+
+    private static Employee employee(int id, String name, String surname, int version) {
+        Employee employee = new Employee(name, surname, "IT", 1000);
+        employee.setId(id);
+        employee.setVersion(version);
+        return employee;
+    }
+
+    private void build(Employee... employees) {
+        index.build(action -> List.of(employees).forEach(action));
+    }
+
+    private List<Integer> suggest(String query) {
+        return index.suggest(query, 10).stream().map(EmployeeView::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    void suggest_rankedExactThenPrefixThenInfix() {
+        build(employee(1, "Johnson", "Brown", 0),
+                employee(2, "Mary", "Johns", 0),
+                employee(3, "John", "Smith", 0),
+                employee(4, "Ann", "Littlejohn", 0),
+                employee(5, "Maria", "Miller", 0));
+
+        assertEquals(List.of(3, 2, 1, 4), suggest("john"));
+        assertTrue(index.isReady());
+    }
+
+    @Test
+    void suggest_caseAndAccentInsensitive() {
+        build(employee(1, "Zoë", "Ångström", 0), employee(2, "José", "García", 0));
+
+        assertEquals(List.of(1), suggest("ZOE"));
+        assertEquals(List.of(1), suggest("angs"));
+        assertEquals(List.of(2), suggest("garcía"));
+    }
+
+    @Test
+    void suggest_severalWords_allHaveToMatch() {
+        build(employee(1, "John", "Smith", 0),
+                employee(2, "John", "Miller", 0),
+                employee(3, "Mary-Jane", "Smithson", 0));
+
+        assertEquals(List.of(1), suggest("john sm"));
+        assertEquals(List.of(3), suggest("smith, jane"));
+        assertEquals(List.of(), suggest("john brown"));
+    }
+
+    @Test
+    void suggest_limit_bestFirst() {
+        build(employee(1, "Annabel", "Lee", 0), employee(2, "Anna", "Bell", 0), employee(3, "Ann", "Hall", 0));
+
+        assertEquals(List.of(3, 2), index.suggest("ann", 2).stream().map(EmployeeView::getId)
+                .collect(Collectors.toList()));
+        assertEquals(List.of(), index.suggest(" - ", 2));
+    }
+
+    @Test
+    void suggest_nameAndSurnameMatch_suggestedOnce() {
+        build(employee(1, "Ann", "Anna", 0), employee(2, "Annie", "Smith", 0));
+
+        assertEquals(List.of(1, 2), index.suggest("ann", 2).stream().map(EmployeeView::getId)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void put_newerVersion_reindexedOlderIgnored() {
+        build(employee(1, "John", "Smith", 0));
+
+        index.put(employee(1, "Jack", "Smith", 2));
+        index.put(employee(1, "Jim", "Smith", 1));
+
+        assertEquals(List.of(), suggest("john"));
+        assertEquals(List.of(), suggest("jim"));
+        assertEquals(List.of(1), suggest("jack"));
+        assertEquals("Jack", index.suggest("smith", 1).get(0).getName());
+    }
+
+    @Test
+    void remove_laterPutOrBuild_notBroughtBack() {
+        index.put(employee(1, "John", "Smith", 0));
+        index.remove(1);
+        index.put(employee(1, "John", "Smith", 1));
+        build(employee(1, "John", "Smith", 0), employee(2, "Johnny", "Cash", 0));
+
+        assertEquals(List.of(2), suggest("john"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void remove_afterRetention_forgotten() {
+        EmployeeNameIndex index = new EmployeeNameIndex(0);
+        index.build(action -> List.of(employee(1, "John", "Smith", 0), employee(2, "Jack", "Smith", 0))
+                .forEach(action));
+
+        index.remove(1);
+        index.remove(2);
+        index.put(employee(1, "John", "Smith", 1));
+        index.put(employee(2, "Jack", "Smith", 1));
+
+        assertEquals(List.of(1), index.suggest("smith", 10).stream().map(EmployeeView::getId)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void words_foldedAndDistinct() {
+        assertArrayEquals(new String[]{"anne", "marie", "o", "neil"}, EmployeeNameIndex.words("Anne-Marie O'Néil anne"));
+    }
+}
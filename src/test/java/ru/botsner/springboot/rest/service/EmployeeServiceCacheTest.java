@@ -0,0 +1,138 @@
+package ru.botsner.springboot.rest.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.TestPropertySource;
+import ru.botsner.springboot.rest.dao.EmployeeRepository;
+import ru.botsner.springboot.rest.entity.Employee;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(value = "/application-test.properties", properties = "spring.cache.type=caffeine")
+class EmployeeServiceCacheTest {
+
+    @Autowired
+    private EmployeeService empService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockBean
+    private EmployeeRepository empRepo;
+
+    private Employee employee;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCache(EmployeeServiceImpl.EMPLOYEES_CACHE).clear();
+
+        employee = new Employee("Mike", "Smith", "IT", 1000);
+        employee.setId(1);
+
+        Mockito.doReturn(Optional.of(employee))
+                .when(empRepo)
+                .findById(1);
+    }
+
+    @Test
+    void getEmployee_repeatedReads_repositoryHitOnce() {
+        assertSame(employee, empService.getEmployee(1));
+        assertSame(employee, empService.getEmployee(1));
+
+        Mockito.verify(empRepo, Mockito.times(1)).findById(1);
+    }
+
+    @Test
+    void getEmployee_notExistingEmployee_nullNotCached() {
+        Mockito.doReturn(Optional.empty())
+                .when(empRepo)
+                .findById(5);
+
+        assertNull(empService.getEmployee(5));
+        assertNull(empService.getEmployee(5));
+
+        Mockito.verify(empRepo, Mockito.times(2)).findById(5);
+    }
+
+    @Test
+    void saveEmployee_evictsSavedId() {
+        Mockito.doReturn(employee)
+                .when(empRepo)
+                .save(employee);
+
+        empService.getEmployee(1);
+        empService.saveEmployee(employee);
+        empService.getEmployee(1);
+
+        Mockito.verify(empRepo, Mockito.times(2)).findById(1);
+    }
+
+    @Test
+    void updateEmployee_evictsOnlyUpdatedId() {
+        Employee other = new Employee("John", "Miller", "HR", 1000);
+        other.setId(2);
+        Mockito.doReturn(Optional.of(other))
+                .when(empRepo)
+                .findById(2);
+
+        empService.getEmployee(1);
+        empService.getEmployee(2);
+        empService.updateEmployee(new Employee(), 1);
+        empService.getEmployee(1);
+        empService.getEmployee(2);
+
+        Mockito.verify(empRepo, Mockito.times(2)).findById(1);
+        Mockito.verify(empRepo, Mockito.times(1)).findById(2);
+    }
+
+    @Test
+    void deleteEmployee_evictsDeletedId() {
+        empService.getEmployee(1);
+        empService.deleteEmployee(1);
+        empService.getEmployee(1);
+
+        Mockito.verify(empRepo, Mockito.times(3)).findById(1);
+    }
+
+    @Test
+    void deleteEmployees_evictsCache() {
+        empService.getEmployee(1);
+        empService.deleteEmployees(List.of(1));
+        empService.getEmployee(1);
+
+        Mockito.verify(empRepo, Mockito.times(2)).findById(1);
+    }
+
+    @Test
+    void getEmployee_hitsAndMissesExportedAsMetrics() {
+        double hits = cacheGets("hit");
+        double misses = cacheGets("miss");
+
+        empService.getEmployee(1);
+        empService.getEmployee(1);
+
+        assertEquals(hits + 1, cacheGets("hit"));
+        assertEquals(misses + 1, cacheGets("miss"));
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", EmployeeServiceImpl.EMPLOYEES_CACHE)
+                .tag("result", result)
+                .functionCounter()
+                .count();
+    }
+}
@@ -6,18 +6,30 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import ru.botsner.springboot.rest.dao.EmployeeJdbcRepository;
 import ru.botsner.springboot.rest.dao.EmployeeRepository;
+import ru.botsner.springboot.rest.dto.DepartmentStats;
+import ru.botsner.springboot.rest.dto.EmployeeSearchCriteria;
+import ru.botsner.springboot.rest.dto.EmployeeView;
 import ru.botsner.springboot.rest.entity.Employee;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @ExtendWith(SpringExtension.class)
 @SpringBootTest
+@TestPropertySource("/application-test.properties")
 class EmployeeServiceImplTest {
 
     @Autowired
@@ -26,6 +38,9 @@ class EmployeeServiceImplTest {
     @MockBean
     private EmployeeRepository empRepo;
 
+    @MockBean
+    private EmployeeJdbcRepository empJdbcRepo;
+
     private Employee employee;
 
     @BeforeEach
@@ -36,16 +51,31 @@ class EmployeeServiceImplTest {
 
     @Test
     void getAllEmployees() {
-        Employee emp1 = new Employee("John", "Miller", "HR", 1000);
-        Employee emp2 = new Employee("Maria", "Brown", "IT", 1200);
+        EmployeeView emp1 = new EmployeeView(1, "John", "Miller", "HR", 1000);
+        EmployeeView emp2 = new EmployeeView(2, "Maria", "Brown", "IT", 1200);
 
         Mockito.doReturn(Arrays.asList(emp1, emp2))
                 .when(empRepo)
-                .findAll();
+                .findAllProjectedBy();
 
         assertIterableEquals(Arrays.asList(emp1, emp2), empService.getAllEmployees());
 
-        Mockito.verify(empRepo, Mockito.times(1)).findAll();
+        Mockito.verify(empRepo, Mockito.times(1)).findAllProjectedBy();
+        Mockito.verify(empRepo, Mockito.never()).findAll();
+    }
+
+    @Test
+    void getEmployeesAfter() {
+        EmployeeView emp1 = new EmployeeView(6, "John", "Miller", "HR", 1000);
+        EmployeeView emp2 = new EmployeeView(7, "Maria", "Brown", "IT", 1200);
+
+        Mockito.doReturn(Arrays.asList(emp1, emp2))
+                .when(empRepo)
+                .findProjectedByIdGreaterThanOrderByIdAsc(5, PageRequest.of(0, 2));
+
+        assertIterableEquals(Arrays.asList(emp1, emp2), empService.getEmployeesAfter(5, 2));
+
+        Mockito.verify(empRepo, Mockito.times(1)).findProjectedByIdGreaterThanOrderByIdAsc(5, PageRequest.of(0, 2));
     }
 
     @Test
@@ -72,6 +102,10 @@ class EmployeeServiceImplTest {
 
     @Test
     void saveEmployee() {
+        Mockito.doReturn(employee)
+                .when(empRepo)
+                .save(employee);
+
         empService.saveEmployee(employee);
 
         Mockito.verify(empRepo, Mockito.times(1)).save(employee);
@@ -81,40 +115,96 @@ class EmployeeServiceImplTest {
     void updateEmployee() {
         Employee updatedEmp = new Employee();
 
-        Mockito.doReturn(Optional.of(employee))
+        Mockito.doReturn(1)
+                .when(empJdbcRepo)
+                .updateById(1, updatedEmp);
+        Mockito.doReturn(Optional.of(1))
                 .when(empRepo)
-                .findById(1);
+                .findVersionById(1);
 
-        empService.updateEmployee(updatedEmp, 1);
+        assertSame(updatedEmp, empService.updateEmployee(updatedEmp, 1));
+        assertEquals(1, updatedEmp.getVersion());
 
         assertEquals(1, updatedEmp.getId());
 
-        Mockito.verify(empRepo, Mockito.times(1)).findById(1);
-        Mockito.verify(empRepo, Mockito.times(1)).save(updatedEmp);
+        Mockito.verify(empJdbcRepo, Mockito.times(1)).updateById(1, updatedEmp);
+        Mockito.verify(empRepo, Mockito.never()).findById(Mockito.anyInt());
+        Mockito.verify(empRepo, Mockito.never()).save(Mockito.any(Employee.class));
     }
 
     @Test
     void updateEmployee_updateNotExistingEmployee_null() {
-        Mockito.doReturn(Optional.empty())
-                .when(empRepo)
-                .findById(5);
+        Mockito.doReturn(0)
+                .when(empJdbcRepo)
+                .updateById(5, employee);
 
         assertNull(empService.updateEmployee(employee, 5));
 
-        Mockito.verify(empRepo, Mockito.times(1)).findById(5);
+        Mockito.verify(empJdbcRepo, Mockito.times(1)).updateById(5, employee);
         Mockito.verify(empRepo, Mockito.times(0)).save(Mockito.any(Employee.class));
     }
 
+    @Test
+    void updateEmployee_versionMatches_versionIncremented() {
+        Mockito.doReturn(1)
+                .when(empJdbcRepo)
+                .updateByIdAndVersion(1, 3, employee);
+
+        assertEquals(4, empService.updateEmployee(employee, 1, 3).getVersion());
+
+        Mockito.verify(empRepo, Mockito.never()).findVersionById(Mockito.anyInt());
+    }
+
+    @Test
+    void updateEmployee_versionMismatch_exceptionThrown() {
+        Mockito.doReturn(0)
+                .when(empJdbcRepo)
+                .updateByIdAndVersion(1, 3, employee);
+        Mockito.doReturn(Optional.of(4))
+                .when(empRepo)
+                .findVersionById(1);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> empService.updateEmployee(employee, 1, 3));
+    }
+
+    @Test
+    void updateEmployee_versionedNotExistingEmployee_null() {
+        Mockito.doReturn(0)
+                .when(empJdbcRepo)
+                .updateByIdAndVersion(5, 0, employee);
+        Mockito.doReturn(Optional.empty())
+                .when(empRepo)
+                .findVersionById(5);
+
+        assertNull(empService.updateEmployee(employee, 5, 0));
+    }
+
+    @Test
+    void deleteEmployee_versionMismatch_exceptionThrownAndNotDeleted() {
+        employee.setVersion(2);
+        Mockito.doReturn(Optional.of(employee))
+                .when(empRepo)
+                .findById(1);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> empService.deleteEmployee(1, 1));
+
+        Mockito.verify(empJdbcRepo, Mockito.never()).removeByIdAndVersion(Mockito.anyInt(), Mockito.anyInt());
+    }
+
     @Test
     void deleteEmployee() {
         Mockito.doReturn(Optional.of(employee))
                 .when(empRepo)
                 .findById(1);
+        Mockito.doReturn(1)
+                .when(empJdbcRepo)
+                .removeById(1);
 
         assertSame(employee, empService.deleteEmployee(1));
 
         Mockito.verify(empRepo, Mockito.times(1)).findById(1);
-        Mockito.verify(empRepo, Mockito.times(1)).deleteById(1);
+        Mockito.verify(empJdbcRepo, Mockito.times(1)).removeById(1);
+        Mockito.verify(empRepo, Mockito.never()).deleteById(Mockito.anyInt());
     }
 
     @Test
@@ -126,20 +216,113 @@ class EmployeeServiceImplTest {
         assertNull(empService.deleteEmployee(5));
 
         Mockito.verify(empRepo, Mockito.times(1)).findById(5);
-        Mockito.verify(empRepo, Mockito.times(0)).deleteById(Mockito.anyInt());
+        Mockito.verify(empJdbcRepo, Mockito.times(0)).removeById(Mockito.anyInt());
+    }
+
+    @Test
+    void deleteEmployee_deletedConcurrently_null() {
+        Mockito.doReturn(Optional.of(employee))
+                .when(empRepo)
+                .findById(1);
+        Mockito.doReturn(0)
+                .when(empJdbcRepo)
+                .removeById(1);
+
+        assertNull(empService.deleteEmployee(1));
     }
 
     @Test
     void getAllEmployeesByName() {
-        Employee emp1 = new Employee("John", "Miller", "HR", 1000);
-        Employee emp2 = new Employee("John", "Brown", "IT", 1200);
+        EmployeeView emp1 = new EmployeeView(1, "John", "Miller", "HR", 1000);
+        EmployeeView emp2 = new EmployeeView(2, "John", "Brown", "IT", 1200);
 
         Mockito.doReturn(Arrays.asList(emp1, emp2))
                 .when(empRepo)
-                .findAllByName("John");
+                .findProjectedByName("John");
 
         assertIterableEquals(Arrays.asList(emp1, emp2), empService.getAllEmployeesByName("John"));
 
-        Mockito.verify(empRepo, Mockito.times(1)).findAllByName("John");
+        Mockito.verify(empRepo, Mockito.times(1)).findProjectedByName("John");
+    }
+
+    @Test
+    void saveEmployees() {
+        List<Employee> employees = Arrays.asList(employee, new Employee("John", "Miller", "HR", 1000));
+
+        Mockito.doReturn(employees)
+                .when(empRepo)
+                .saveAll(employees);
+
+        assertIterableEquals(employees, empService.saveEmployees(employees));
+
+        Mockito.verify(empRepo, Mockito.times(1)).saveAll(employees);
+    }
+
+    @Test
+    void updateEmployees_updateExistingAndNotExisting_nullForNotExisting() {
+        Employee missing = new Employee("John", "Miller", "HR", 1000);
+        missing.setId(5);
+
+        Mockito.doReturn(List.of(employee))
+                .when(empRepo)
+                .findAllById(Arrays.asList(1, 5));
+        Mockito.doReturn(employee)
+                .when(empRepo)
+                .save(employee);
+
+        assertIterableEquals(Arrays.asList(employee, null), empService.updateEmployees(Arrays.asList(employee, missing)));
+
+        Mockito.verify(empRepo, Mockito.times(1)).save(employee);
+        Mockito.verify(empRepo, Mockito.times(0)).save(missing);
+    }
+
+    @Test
+    void deleteEmployees_deleteExistingAndNotExisting_nullForNotExisting() {
+        Mockito.doReturn(List.of(employee))
+                .when(empRepo)
+                .findAllById(Arrays.asList(5, 1));
+
+        assertIterableEquals(Arrays.asList(null, employee), empService.deleteEmployees(Arrays.asList(5, 1)));
+
+        Mockito.verify(empRepo, Mockito.times(1)).deleteAll(Mockito.argThat(
+                (Iterable<Employee> deleted) -> deleted.iterator().next() == employee));
+    }
+
+    @Test
+    void getDepartmentStats_withBandWidth_bandsAttachedPerDepartment() {
+        DepartmentStats it = new DepartmentStats("IT", 1, 1000, 1000.0, 1000, 1000);
+        DepartmentStats hr = new DepartmentStats("HR", 1, 1500, 1500.0, 1500, 1500);
+        EmployeeRepository.DepartmentSalaryBand band = Mockito.mock(EmployeeRepository.DepartmentSalaryBand.class);
+        Mockito.doReturn("IT").when(band).getDepartment();
+        Mockito.doReturn(1000).when(band).getLowerBound();
+        Mockito.doReturn(1L).when(band).getHeadcount();
+
+        Mockito.doReturn(Arrays.asList(hr, it))
+                .when(empRepo)
+                .findDepartmentStats();
+        Mockito.doReturn(List.of(band))
+                .when(empRepo)
+                .findDepartmentSalaryBands(500);
+
+        assertIterableEquals(Arrays.asList(hr, it), empService.getDepartmentStats(500));
+        assertTrue(hr.getSalaryBands().isEmpty());
+        assertEquals(1000, it.getSalaryBands().get(0).getLowerBound());
+    }
+
+    @Test
+    void searchEmployees() {
+        PageRequest pageable = PageRequest.of(0, 20);
+        PageImpl<Employee> page = new PageImpl<>(List.of(employee), pageable, 1);
+
+        Mockito.doReturn(page)
+                .when(empRepo)
+                .findAll(Mockito.<Specification<Employee>>any(), Mockito.eq(pageable));
+
+        Page<EmployeeView> result = empService.searchEmployees(
+                new EmployeeSearchCriteria("Mi", null, "IT", null, null), pageable);
+        assertEquals(1, result.getTotalElements());
+        assertEquals("Smith", result.getContent().get(0).getSurname());
+
+        Mockito.verify(empRepo, Mockito.times(1)).findAll(Mockito.<Specification<Employee>>any(), Mockito.eq(pageable));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,237 @@
+package ru.botsner.springboot.rest.service;
+
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PreLoadEventListener;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.botsner.springboot.rest.SpringBootRestApplication;
+import ru.botsner.springboot.rest.config.HibernateQueryMetricsBinder;
+import ru.botsner.springboot.rest.dto.EmployeeView;
+import ru.botsner.springboot.rest.entity.Employee;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.persistence.EntityManagerFactory;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two nodes with their own second-level caches over one database, as two instances of the application would run.
+ * Rows changed directly in the database show that a node reads from its cache.
+ */
+class EmployeeServiceJpaCacheTest {
+
+    private static ConfigurableApplicationContext nodeA;
+
+    private static ConfigurableApplicationContext nodeB;
+
+    private static EmployeeService serviceA;
+
+    private static EmployeeService serviceB;
+
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void startNodes() {
+        nodeA = startNode("node-a", "create");
+        nodeB = startNode("node-b", "none");
+        serviceA = nodeA.getBean(EmployeeService.class);
+        serviceB = nodeB.getBean(EmployeeService.class);
+        jdbcTemplate = nodeA.getBean(JdbcTemplate.class);
+    }
+
+    private static ConfigurableApplicationContext startNode(String name, String ddlAuto) {
+        // Separate JVMs would not share a cache manager
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("jpa-cache-test:" + name), EmployeeServiceJpaCacheTest.class.getClassLoader());
+        HibernatePropertiesCustomizer nodeCacheManager =
+                properties -> properties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+
+        return new SpringApplicationBuilder(SpringBootRestApplication.class)
+                .web(WebApplicationType.NONE)
+                .initializers(context -> context.getBeanFactory().registerSingleton("nodeCacheManager", nodeCacheManager))
+                .run("--spring.config.additional-location=classpath:/application-test.properties",
+                        "--spring.datasource.url=jdbc:h2:mem:jpa-cache-test;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.hibernate.ddl-auto=" + ddlAuto,
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+                        "--spring.jpa.properties.hibernate.cache.use_query_cache=true",
+                        "--app.jpa.cache.invalidation.topic=jpa-cache-test");
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        nodeB.close();
+        nodeA.close();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM employees");
+        for (ConfigurableApplicationContext node : List.of(nodeA, nodeB)) {
+            node.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getCache().evictAllRegions();
+        }
+    }
+
+    private static void updateBehindCaches(int id, String column, Object value) {
+        jdbcTemplate.update("UPDATE employees SET " + column + " = ? WHERE id = ?", value, id);
+    }
+
+    private static List<Integer> idsByName(EmployeeService service, String name) {
+        return service.getAllEmployeesByName(name).stream().map(EmployeeView::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    void updateEmployee_onOtherNode_notReadStale() {
+        int id = serviceA.saveEmployees(List.of(new Employee("Anna", "Cache", "IT", 1000))).get(0).getId();
+        assertEquals(1000, serviceB.getEmployee(id).getSalary());
+        updateBehindCaches(id, "salary", 1);
+        assertEquals(1000, serviceB.getEmployee(id).getSalary());
+
+        serviceA.updateEmployee(new Employee("Anna", "Cache", "IT", 2000), id);
+        Employee read = serviceB.getEmployee(id);
+        assertEquals(2000, read.getSalary());
+        assertEquals(2000, serviceA.getEmployee(id).getSalary());
+
+        serviceB.updateEmployee(new Employee("Anna", "Cache", "HR", 3000), id, read.getVersion());
+        assertEquals("HR", serviceA.getEmployee(id).getDepartment());
+        assertEquals(3000, serviceA.getEmployee(id).getSalary());
+    }
+
+    @Test
+    void updateEmployee_readLoadedBeforeCommit_notPutBackAfterIt() throws Exception {
+        int id = serviceA.saveEmployees(List.of(new Employee("Olga", "Cache", "IT", 1000))).get(0).getId();
+        SessionFactoryImplementor sessionFactory =
+                nodeA.getBean(EntityManagerFactory.class).unwrap(SessionFactoryImplementor.class);
+        sessionFactory.getCache().evictEntityData(Employee.class, id);
+
+        // Holds the read between loading the row and putting it into the second-level cache
+        CountDownLatch loaded = new CountDownLatch(1);
+        CountDownLatch committed = new CountDownLatch(1);
+        AtomicReference<Thread> heldReader = new AtomicReference<>();
+        PreLoadEventListener holdRead = event -> {
+            if (heldReader.get() == Thread.currentThread()) {
+                loaded.countDown();
+                try {
+                    committed.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class)
+                .appendListeners(EventType.PRE_LOAD, holdRead);
+
+        CompletableFuture<Employee> read = CompletableFuture.supplyAsync(() -> {
+            heldReader.set(Thread.currentThread());
+            return serviceA.getEmployee(id);
+        });
+        assertTrue(loaded.await(10, TimeUnit.SECONDS));
+        serviceA.updateEmployee(new Employee("Olga", "Cache", "IT", 2000), id);
+        committed.countDown();
+
+        assertEquals(1000, read.get(10, TimeUnit.SECONDS).getSalary());
+        heldReader.set(null);
+        assertEquals(2000, serviceA.getEmployee(id).getSalary());
+    }
+
+    @Test
+    void deleteEmployee_onOtherNode_notReadStale() {
+        List<Employee> saved = serviceA.saveEmployees(List.of(
+                new Employee("Boris", "Cache", "IT", 1000),
+                new Employee("Clara", "Cache", "IT", 1000)));
+        int first = saved.get(0).getId();
+        int second = saved.get(1).getId();
+        assertNotNull(serviceB.getEmployee(first));
+        Employee secondRead = serviceB.getEmployee(second);
+        assertNotNull(secondRead);
+
+        serviceA.deleteEmployee(first);
+        assertNull(serviceB.getEmployee(first));
+
+        serviceA.deleteEmployee(second, secondRead.getVersion());
+        assertNull(serviceB.getEmployee(second));
+    }
+
+    @Test
+    void writes_otherEmployeesStayCached() {
+        List<Employee> saved = serviceA.saveEmployees(List.of(
+                new Employee("Gina", "Kept", "IT", 1000),
+                new Employee("Hugo", "Written", "IT", 1000),
+                new Employee("Ivan", "Written", "IT", 1000),
+                new Employee("Jane", "Written", "IT", 1000)));
+        int kept = saved.get(0).getId();
+        org.hibernate.Cache cache = nodeA.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getCache();
+        saved.forEach(employee -> serviceA.getEmployee(employee.getId()));
+        updateBehindCaches(kept, "salary", 1);
+
+        serviceA.updateEmployee(new Employee("Hugo", "Written", "HR", 2000), saved.get(1).getId());
+        serviceA.updateEmployee(new Employee("Ivan", "Written", "HR", 2000), saved.get(2).getId(), 0);
+        serviceA.deleteEmployee(saved.get(1).getId());
+        serviceA.deleteEmployee(saved.get(2).getId(), 1);
+        serviceA.deleteEmployees(List.of(saved.get(3).getId()));
+
+        assertTrue(cache.contains(Employee.class, kept));
+        assertEquals(1000, serviceA.getEmployee(kept).getSalary());
+    }
+
+    @Test
+    void getAllEmployeesByName_changedOnOtherNode_notReadStale() {
+        List<Employee> saved = serviceA.saveEmployees(List.of(
+                new Employee("Dora", "First", "IT", 1000),
+                new Employee("Dora", "Second", "IT", 1000)));
+        int first = saved.get(0).getId();
+        int second = saved.get(1).getId();
+        assertEquals(List.of(first, second), idsByName(serviceB, "Dora"));
+        updateBehindCaches(second, "name", "Other");
+        assertEquals(List.of(first, second), idsByName(serviceB, "Dora"));
+
+        serviceA.updateEmployee(new Employee("Edna", "First", "IT", 1000), first);
+        assertEquals(List.of(), idsByName(serviceB, "Dora"));
+        assertEquals(List.of(first), idsByName(serviceB, "Edna"));
+
+        int third = serviceA.saveEmployees(List.of(new Employee("Edna", "Third", "IT", 1000))).get(0).getId();
+        assertEquals(List.of(first, third), idsByName(serviceB, "Edna"));
+
+        serviceA.deleteEmployees(List.of(first));
+        assertEquals(List.of(third), idsByName(serviceB, "Edna"));
+    }
+
+    @Test
+    void cachedReads_regionStatisticsAndInvalidationsInMetrics() {
+        int id = serviceA.saveEmployees(List.of(new Employee("Fred", "Cache", "IT", 1000))).get(0).getId();
+        serviceB.getEmployee(id);
+        serviceB.getEmployee(id);
+        serviceB.getAllEmployeesByName("Fred");
+        serviceB.getAllEmployeesByName("Fred");
+        nodeB.getBean(HibernateQueryMetricsBinder.class).registerNewQueries();
+
+        MeterRegistry meterRegistry = nodeB.getBean(MeterRegistry.class);
+        assertTrue(meterRegistry.get("hibernate.second.level.cache.requests")
+                .tags("region", Employee.CACHE_REGION, "result", "hit").functionCounter().count() >= 1);
+        assertTrue(meterRegistry.get("hibernate.cache.query.requests")
+                .tags("result", "hit").functionCounter().count() >= 1);
+        assertTrue(meterRegistry.get("jpa.cache.invalidations").tags("direction", "received").counter().count() >= 1);
+        assertEquals(0, meterRegistry.get("jpa.cache.invalidations").tags("direction", "failed").counter().count());
+    }
+}
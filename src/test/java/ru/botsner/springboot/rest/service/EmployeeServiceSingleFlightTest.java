@@ -0,0 +1,131 @@
+package ru.botsner.springboot.rest.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.TestPropertySource;
+import ru.botsner.springboot.rest.dao.EmployeeJdbcRepository;
+import ru.botsner.springboot.rest.dao.EmployeeRepository;
+import ru.botsner.springboot.rest.dto.EmployeeView;
+import ru.botsner.springboot.rest.entity.Employee;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource("/application-test.properties")
+class EmployeeServiceSingleFlightTest {
+
+    private static final int CALLERS = 32;
+
+    @Autowired
+    private EmployeeService empService;
+
+    @MockBean
+    private EmployeeRepository empRepo;
+
+    @MockBean
+    private EmployeeJdbcRepository empJdbcRepo;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    private final CountDownLatch querying = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private Employee employee;
+
+    @BeforeEach
+    void setUp() {
+        employee = new Employee("Mike", "Smith", "IT", 1000);
+        employee.setId(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    private <T> T blockingQuery(T result) throws InterruptedException {
+        querying.countDown();
+        assertTrue(release.await(5, TimeUnit.SECONDS));
+        return result;
+    }
+
+    private <T> List<T> thunderingHerd(Callable<T> read) throws Exception {
+        List<Future<T>> futures = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            futures.add(executor.submit(read));
+        }
+        assertTrue(querying.await(5, TimeUnit.SECONDS));
+        // Let the rest of the herd pile up behind the query in flight
+        Thread.sleep(200);
+        release.countDown();
+
+        List<T> results = new ArrayList<>();
+        for (Future<T> future : futures) {
+            results.add(future.get(5, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+
+    @Test
+    void getEmployee_thunderingHerd_singleQuery() throws Exception {
+        Mockito.doAnswer(invocation -> blockingQuery(Optional.of(employee)))
+                .when(empRepo)
+                .findById(1);
+
+        List<Employee> results = thunderingHerd(() -> empService.getEmployee(1));
+
+        results.forEach(result -> assertSame(employee, result));
+        Mockito.verify(empRepo, Mockito.times(1)).findById(1);
+    }
+
+    @Test
+    void getAllEmployeesByName_thunderingHerd_singleQuery() throws Exception {
+        List<EmployeeView> mikes = List.of(new EmployeeView(1, "Mike", "Smith", "IT", 1000));
+        Mockito.doAnswer(invocation -> blockingQuery(mikes))
+                .when(empRepo)
+                .findProjectedByName("Mike");
+
+        List<List<EmployeeView>> results = thunderingHerd(() -> empService.getAllEmployeesByName("Mike"));
+
+        results.forEach(result -> assertEquals(mikes, result));
+        Mockito.verify(empRepo, Mockito.times(1)).findProjectedByName("Mike");
+    }
+
+    @Test
+    void getEmployee_writeWhileQueryInFlight_laterReadQueriesAgain() throws Exception {
+        Employee updated = new Employee("Mike", "Smith", "HR", 1200);
+        updated.setId(1);
+        Mockito.doAnswer(invocation -> blockingQuery(Optional.of(employee)))
+                .doReturn(Optional.of(updated))
+                .when(empRepo)
+                .findById(1);
+        Mockito.doReturn(1).when(empJdbcRepo).updateById(Mockito.eq(1), Mockito.any());
+        Mockito.doReturn(Optional.of(1)).when(empRepo).findVersionById(1);
+
+        Future<Employee> stale = executor.submit(() -> empService.getEmployee(1));
+        assertTrue(querying.await(5, TimeUnit.SECONDS));
+        empService.updateEmployee(new Employee("Mike", "Smith", "HR", 1200), 1);
+
+        assertSame(updated, empService.getEmployee(1));
+        release.countDown();
+        assertSame(employee, stale.get(5, TimeUnit.SECONDS));
+        Mockito.verify(empRepo, Mockito.times(2)).findById(1);
+    }
+}
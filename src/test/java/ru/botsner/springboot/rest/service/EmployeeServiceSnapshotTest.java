@@ -0,0 +1,82 @@
+package ru.botsner.springboot.rest.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import ru.botsner.springboot.rest.dto.EmployeeView;
+import ru.botsner.springboot.rest.entity.Employee;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(value = "/application-test.properties", properties = {
+        "app.employees.snapshot.enabled=true",
+        "app.employees.snapshot.refresh-interval-ms=50"})
+class EmployeeServiceSnapshotTest {
+
+    @Autowired
+    private EmployeeService empService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void snapshotPath(DynamicPropertyRegistry registry) throws IOException {
+        String path = Files.createTempDirectory("employee-snapshot").resolve("employees.snapshot").toString();
+        registry.add("app.employees.snapshot.path", () -> path);
+    }
+
+    private static <T> T await(Supplier<T> read, T expected) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        T actual = read.get();
+        while (!expected.equals(actual) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            actual = read.get();
+        }
+        return actual;
+    }
+
+    private List<Integer> idsByName(String name) {
+        return empService.getAllEmployeesByName(name).stream().map(EmployeeView::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    void writes_appearInSnapshotAfterRefresh_readsServedWithoutDatabase() throws Exception {
+        Employee saved = empService.saveEmployees(List.of(new Employee("Snap", "Shot", "IT", 1000))).get(0);
+        int id = saved.getId();
+
+        assertEquals(List.of(id), await(() -> idsByName("Snap"), List.of(id)));
+        assertEquals(1000, empService.getEmployee(id).getSalary());
+        assertEquals(0, empService.getEmployeeVersion(id));
+
+        empService.updateEmployee(new Employee("Snap", "Shot", "HR", 1200), id);
+        assertEquals(1, await(() -> empService.getEmployeeVersion(id), 1));
+        assertEquals("HR", empService.getEmployee(id).getDepartment());
+
+        // Gone from the table, but not from the snapshot, since no change was logged
+        jdbcTemplate.update("DELETE FROM employees WHERE id = ?", id);
+        assertEquals(1200, empService.getEmployee(id).getSalary());
+        assertTrue(empService.getAllEmployees().stream().anyMatch(employee -> employee.getId() == id));
+    }
+
+    @Test
+    void deleteEmployee_disappearsFromSnapshotAfterRefresh() throws Exception {
+        int id = empService.saveEmployees(List.of(new Employee("Gone", "Soon", "IT", 1000))).get(0).getId();
+        assertEquals(List.of(id), await(() -> idsByName("Gone"), List.of(id)));
+
+        empService.deleteEmployee(id);
+
+        assertEquals(List.of(), await(() -> idsByName("Gone"), List.of()));
+        assertNull(empService.getEmployee(id));
+    }
+}
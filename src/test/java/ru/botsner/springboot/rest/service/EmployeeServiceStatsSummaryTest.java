@@ -0,0 +1,63 @@
+package ru.botsner.springboot.rest.service;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import ru.botsner.springboot.rest.dto.DepartmentStats;
+import ru.botsner.springboot.rest.dto.SalaryBand;
+import ru.botsner.springboot.rest.entity.Employee;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@TestPropertySource(value = "/application-test.properties", properties = "app.employees.stats.summary.enabled=true")
+@Sql(value = {"/employee-test-before.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/employee-test-after.sql"}, executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+class EmployeeServiceStatsSummaryTest {
+
+    @Autowired
+    private EmployeeService empService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void getDepartmentStats_afterWrites_matchesDatabaseWithoutQueries() {
+        // Reload after the SQL script replaced the data behind the summary's back
+        empService.updateEmployee(new Employee("John", "Smith", "IT", 1000), 1);
+        empService.getDepartmentStats(500);
+
+        empService.saveEmployee(new Employee("Nick", "Taylor", "HR", 700));
+        empService.deleteEmployee(3);
+        empService.saveEmployees(Arrays.asList(new Employee("Ann", "Lee", "QA", 900), new Employee("Bob", "Ray", "QA", 1200)));
+        Employee moved = new Employee("Maria", "Brown", "QA", 1300);
+        moved.setId(2);
+        empService.updateEmployees(List.of(moved));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        List<DepartmentStats> fromSummary = empService.getDepartmentStats(500);
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        // A single-statement update invalidates, so the next read comes from the database
+        empService.updateEmployee(new Employee("John", "Smith", "IT", 1000), 1);
+        assertEquals(describe(fromSummary), describe(empService.getDepartmentStats(500)));
+    }
+
+    private static List<String> describe(List<DepartmentStats> stats) {
+        return stats.stream()
+                .map(s -> s.getDepartment() + ":" + s.getHeadcount() + ":" + s.getTotalSalary() + ":"
+                        + s.getMinSalary() + ":" + s.getMaxSalary() + ":" + s.getSalaryBands().stream()
+                        .map(SalaryBand::getLowerBound).map(String::valueOf).collect(Collectors.joining(",")))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,90 @@
+package ru.botsner.springboot.rest.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.botsner.springboot.rest.dto.EmployeeView;
+import ru.botsner.springboot.rest.entity.Employee;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(value = "/application-test.properties", properties = "app.employees.suggest.enabled=true")
+class EmployeeServiceSuggestTest {
+
+    @Autowired
+    private EmployeeService empService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM employees");
+    }
+
+    private static <T> T await(Supplier<T> read, T expected) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        T actual = read.get();
+        while (!expected.equals(actual) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            actual = read.get();
+        }
+        return actual;
+    }
+
+    private List<Integer> suggest(String query) {
+        return empService.suggestEmployees(query, 10).stream().map(EmployeeView::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    void writes_suggestedFromIndexWithoutDatabase() throws Exception {
+        List<Employee> saved = empService.saveEmployees(List.of(
+                new Employee("Zoë", "Index", "IT", 1000),
+                new Employee("Zoe", "Indexer", "HR", 1200)));
+        int first = saved.get(0).getId();
+        int second = saved.get(1).getId();
+
+        // Accents only match once the index is built
+        assertEquals(List.of(first, second), await(() -> suggest("zoe ind"), List.of(first, second)));
+
+        empService.updateEmployee(new Employee("Chloë", "Index", "IT", 1000), first);
+        Employee renamed = new Employee("Zoey", "Indexer", "HR", 1200);
+        renamed.setId(second);
+        empService.updateEmployees(List.of(renamed));
+        assertEquals(List.of(second), suggest("zoe"));
+        assertEquals(List.of(first), suggest("chloe"));
+
+        empService.deleteEmployee(first);
+        assertEquals(List.of(second), suggest("index"));
+
+        // Gone from the table, but not from the index, since the service didn't delete it
+        jdbcTemplate.update("DELETE FROM employees WHERE id = ?", second);
+        assertEquals(List.of(second), suggest("zoey"));
+    }
+
+    @Test
+    void rolledBackWrite_notSuggested() throws Exception {
+        int id = empService.saveEmployees(List.of(new Employee("Roll", "Back", "IT", 1000))).get(0).getId();
+        assertEquals(List.of(id), await(() -> suggest("roll"), List.of(id)));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            empService.updateEmployee(new Employee("Rolled", "Back", "IT", 1000), id);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(List.of(), suggest("rolled"));
+        assertEquals(List.of(id), suggest("roll"));
+    }
+}
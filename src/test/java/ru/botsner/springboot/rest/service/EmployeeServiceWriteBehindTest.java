@@ -0,0 +1,100 @@
+package ru.botsner.springboot.rest.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import ru.botsner.springboot.rest.entity.Employee;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@TestPropertySource(value = "/application-test.properties", properties = {
+        "app.employees.write-behind.enabled=true",
+        "app.employees.write-behind.flush-interval-ms=60000"})
+@Sql(value = {"/employee-test-before.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/employee-test-after.sql"}, executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+class EmployeeServiceWriteBehindTest {
+
+    @Autowired
+    private EmployeeService empService;
+
+    @Autowired
+    private EmployeeWriteBehindQueue writeBehind;
+
+    @Autowired
+    private EmployeeChangeFeed changeFeed;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void updateEmployee_queued_readsSeePendingStateBeforeItIsWritten() {
+        empService.updateEmployee(new Employee("John", "Smith", "IT", 1100), 1);
+        Employee updated = empService.updateEmployee(new Employee("John", "Smith", "HR", 1200), 1);
+
+        assertEquals(1, updated.getVersion());
+        assertEquals("HR", empService.getEmployee(1).getDepartment());
+        assertEquals(1, empService.getEmployeeVersion(1));
+        assertEquals(1000, storedSalary(1));
+    }
+
+    @Test
+    void updateEmployee_versionedAfterQueued_queuedUpdateWrittenFirst() {
+        Employee queued = empService.updateEmployee(new Employee("John", "Smith", "IT", 1100), 1);
+
+        empService.updateEmployee(new Employee("John", "Smith", "IT", 1300), 1, queued.getVersion());
+
+        assertEquals(1300, storedSalary(1));
+        assertEquals(2, empService.getEmployeeVersion(1));
+    }
+
+    @Test
+    void updateEmployee_versionedWithStaleVersionAfterQueued_queuedUpdateStillWritten() {
+        Employee queued = empService.updateEmployee(new Employee("John", "Smith", "IT", 1100), 1);
+
+        assertThrows(OptimisticLockingFailureException.class, () ->
+                empService.updateEmployee(new Employee("John", "Smith", "IT", 1300), 1, queued.getVersion() - 1));
+
+        assertEquals(1100, storedSalary(1));
+        assertEquals(queued.getVersion(), empService.getEmployeeVersion(1));
+        assertEquals(1100, empService.getEmployee(1).getSalary());
+    }
+
+    @Test
+    void deleteEmployee_afterQueuedUpdate_queuedUpdateNotResurrected() {
+        empService.updateEmployee(new Employee("John", "Smith", "IT", 1100), 1);
+
+        assertEquals(1100, empService.deleteEmployee(1).getSalary());
+        assertNull(empService.getEmployee(1));
+    }
+
+    @Test
+    void flush_employeeDeletedElsewhereWhileQueued_updateDropped() {
+        long since = changeFeed.getLastSeq();
+        empService.updateEmployee(new Employee("Zachary", "Smith", "IT", 1100), 1);
+        jdbcTemplate.update("DELETE FROM employees WHERE id = ?", 1);
+
+        writeBehind.flush();
+
+        assertEquals(0, writeBehind.size());
+        assertTrue(changeFeed.getChangesSince(since, 10).isEmpty());
+        assertTrue(empService.suggestEmployees("Zach", 10).isEmpty());
+        assertNull(empService.getEmployee(1));
+    }
+
+    @Test
+    void updateEmployee_missingEmployee_nullReturned() {
+        assertNull(empService.updateEmployee(new Employee("John", "Smith", "IT", 1100), 99));
+    }
+
+    private int storedSalary(int id) {
+        return jdbcTemplate.queryForObject("SELECT salary FROM employees WHERE id = ?", Integer.class, id);
+    }
+}
@@ -0,0 +1,273 @@
+package ru.botsner.springboot.rest.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.botsner.springboot.rest.entity.Employee;
+import ru.botsner.springboot.rest.entity.EmployeeChange;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmployeeSnapshotStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private final FakeSource source = new FakeSource();
+
+    private final List<EmployeeSnapshotStore> stores = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        stores.forEach(EmployeeSnapshotStore::close);
+    }
+
+    /**
+     * Table and change log in memory; every change is committed as soon as it is logged, unless
+     * {@link #uncommitted} holds it back. Synchronized, as the store's first refresh runs in the background.
+     */
+    private static class FakeSource implements EmployeeSnapshotStore.Source {
+        final TreeMap<Integer, Employee> table = new TreeMap<>();
+
+        final List<EmployeeChange> log = new ArrayList<>();
+
+        // Another instance's transactions, which this instance's last sequence number knows nothing about
+        final Set<Long> uncommitted = new HashSet<>();
+
+        Long reportedLastSeq;
+
+        int fullReads;
+
+        int changeReads;
+
+        synchronized void write(EmployeeChange.Type type, int id, String name, int salary) {
+            Employee current = table.get(id);
+            Employee employee = new Employee(name, "Smith", "IT", salary);
+            employee.setId(id);
+            if (current != null) {
+                employee.setVersion(type == EmployeeChange.Type.DELETED ? current.getVersion() : current.getVersion() + 1);
+            }
+            if (type == EmployeeChange.Type.DELETED) {
+                table.remove(id);
+            } else {
+                table.put(id, employee);
+            }
+            EmployeeChange change = new EmployeeChange(type, employee);
+            change.setSeq(log.size() + 1);
+            log.add(change);
+        }
+
+        @Override
+        public synchronized long getLastSeq() {
+            return reportedLastSeq != null ? reportedLastSeq : log.size();
+        }
+
+        @Override
+        public synchronized void forEachEmployee(Consumer<Employee> action) {
+            fullReads++;
+            table.values().forEach(action);
+        }
+
+        @Override
+        public synchronized List<EmployeeChange> getChangesSince(long since, int limit) {
+            changeReads++;
+            return log.stream()
+                    .filter(change -> change.getSeq() > since && !uncommitted.contains(change.getSeq()))
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private EmployeeSnapshotStore newStore() {
+        // Refreshed by hand, the scheduled refresh after the first one never comes within a test
+        EmployeeSnapshotStore store = new EmployeeSnapshotStore(directory.resolve("employees.snapshot"), source,
+                60_000, 2, 10);
+        stores.add(store);
+        return store;
+    }
+
+    private EmployeeSnapshotStore newStoreRefreshed() throws InterruptedException {
+        EmployeeSnapshotStore store = newStore();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (changeReads() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return store;
+    }
+
+    private int changeReads() {
+        synchronized (source) {
+            return source.changeReads;
+        }
+    }
+
+    private static List<Integer> ids(EmployeeSnapshotStore store) {
+        return store.current().getAllEmployees().stream().map(view -> view.getId()).collect(Collectors.toList());
+    }
+
+    @Test
+    void newStore_noSnapshotFile_tableReadInFull() {
+        source.write(EmployeeChange.Type.CREATED, 1, "John", 1000);
+        source.write(EmployeeChange.Type.CREATED, 2, "Maria", 1500);
+
+        EmployeeSnapshotStore store = newStore();
+
+        assertEquals(List.of(1, 2), ids(store));
+        assertEquals(2, store.current().getLastSeq());
+        assertEquals(1, source.fullReads);
+    }
+
+    @Test
+    void newStore_existingSnapshotFile_mappedAndCaughtUpWithoutFullRead() {
+        source.write(EmployeeChange.Type.CREATED, 1, "John", 1000);
+        newStore().close();
+        source.write(EmployeeChange.Type.CREATED, 2, "Maria", 1500);
+
+        EmployeeSnapshotStore restarted = newStore();
+        restarted.refresh();
+
+        assertEquals(List.of(1, 2), ids(restarted));
+        assertEquals(1, source.fullReads);
+    }
+
+    @Test
+    void refresh_createdUpdatedAndDeleted_applied() {
+        source.write(EmployeeChange.Type.CREATED, 1, "John", 1000);
+        source.write(EmployeeChange.Type.CREATED, 2, "Maria", 1500);
+        EmployeeSnapshotStore store = newStore();
+
+        source.write(EmployeeChange.Type.UPDATED, 1, "John", 1100);
+        source.write(EmployeeChange.Type.UPDATED, 1, "John", 1200);
+        source.write(EmployeeChange.Type.DELETED, 2, "Maria", 1500);
+        source.write(EmployeeChange.Type.CREATED, 3, "Nick", 900);
+        store.refresh();
+
+        assertEquals(List.of(1, 3), ids(store));
+        assertEquals(1200, store.current().getEmployee(1).getSalary());
+        assertEquals(2, store.current().getEmployeeVersion(1));
+        assertEquals(List.of(3), store.current().getAllEmployeesByName("Nick").stream()
+                .map(view -> view.getId()).collect(Collectors.toList()));
+        assertEquals(6, store.current().getLastSeq());
+    }
+
+    @Test
+    void refresh_changesOlderThanFullRead_notApplied() {
+        source.write(EmployeeChange.Type.CREATED, 1, "John", 1000);
+        // The full read sees a newer row than the change log position taken before it
+        source.reportedLastSeq = 0L;
+        Employee newer = new Employee("John", "Smith", "IT", 1100);
+        newer.setId(1);
+        newer.setVersion(1);
+        source.table.put(1, newer);
+        EmployeeSnapshotStore store = newStore();
+
+        store.refresh();
+
+        assertEquals(1100, store.current().getEmployee(1).getSalary());
+        assertEquals(1, store.current().getLastSeq());
+    }
+
+    @Test
+    void refresh_writersCommitOutOfOrder_lateChangeApplied() {
+        source.write(EmployeeChange.Type.CREATED, 1, "John", 1000);
+        source.write(EmployeeChange.Type.CREATED, 2, "Maria", 1500);
+        EmployeeSnapshotStore store = newStore();
+
+        // The first writer takes seq 3 but commits after the second one's seq 4 has been applied
+        source.write(EmployeeChange.Type.UPDATED, 1, "John", 1100);
+        source.uncommitted.add(3L);
+        source.write(EmployeeChange.Type.DELETED, 2, "Maria", 1500);
+        store.refresh();
+        assertEquals(List.of(1), ids(store));
+        assertEquals(1000, store.current().getEmployee(1).getSalary());
+        assertEquals(4, store.current().getLastSeq());
+
+        source.uncommitted.clear();
+        store.refresh();
+
+        assertEquals(1100, store.current().getEmployee(1).getSalary());
+        assertEquals(4, store.current().getLastSeq());
+    }
+
+    @Test
+    void refresh_lagWindowAlreadyApplied_snapshotKept() {
+        source.write(EmployeeChange.Type.CREATED, 1, "John", 1000);
+        EmployeeSnapshotStore store = newStore();
+        source.write(EmployeeChange.Type.DELETED, 1, "John", 1000);
+        store.refresh();
+        Object before = store.current();
+
+        store.refresh();
+
+        assertSame(before, store.current());
+    }
+
+    @Test
+    void refresh_nothingChanged_snapshotKept() {
+        source.write(EmployeeChange.Type.CREATED, 1, "John", 1000);
+        EmployeeSnapshotStore store = newStore();
+        Object before = store.current();
+
+        store.refresh();
+
+        assertSame(before, store.current());
+    }
+
+    @Test
+    void refresh_nothingLoggedSinceLastRead_changesNotReadAgain() throws InterruptedException {
+        source.write(EmployeeChange.Type.CREATED, 1, "John", 1000);
+        EmployeeSnapshotStore store = newStoreRefreshed();
+        int reads = changeReads();
+
+        store.refresh();
+        store.refresh();
+
+        assertEquals(reads, changeReads());
+    }
+
+    @Test
+    void refresh_gapStaysOpen_readLessOftenUntilLastSeqMoves() throws InterruptedException {
+        source.write(EmployeeChange.Type.CREATED, 1, "John", 1000);
+        EmployeeSnapshotStore store = newStoreRefreshed();
+        source.write(EmployeeChange.Type.UPDATED, 1, "John", 1100);
+        source.uncommitted.add(2L);
+        source.write(EmployeeChange.Type.CREATED, 2, "Maria", 1500);
+        store.refresh();
+        int reads = changeReads();
+
+        // Read again on the 1st, 3rd and 7th refresh, each time in two calls as the first one fills a batch
+        for (int i = 0; i < 7; i++) {
+            store.refresh();
+        }
+        assertEquals(reads + 3 * 2, changeReads());
+
+        source.uncommitted.clear();
+        source.write(EmployeeChange.Type.CREATED, 3, "Nick", 900);
+        store.refresh();
+
+        assertEquals(1100, store.current().getEmployee(1).getSalary());
+        assertEquals(List.of(1, 2, 3), ids(store));
+    }
+
+    @Test
+    void newStore_corruptSnapshotFile_rebuilt() throws IOException {
+        Files.writeString(directory.resolve("employees.snapshot"), "not a snapshot");
+        source.write(EmployeeChange.Type.CREATED, 1, "John", 1000);
+
+        EmployeeSnapshotStore store = newStore();
+
+        assertEquals(List.of(1), ids(store));
+        assertEquals(1, source.fullReads);
+    }
+}
@@ -0,0 +1,123 @@
+package ru.botsner.springboot.rest.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.botsner.springboot.rest.dao.EmployeeRepository.DepartmentSalaryBand;
+import ru.botsner.springboot.rest.dto.DepartmentStats;
+import ru.botsner.springboot.rest.entity.Employee;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmployeeStatsSummaryTest {
+
+    private final List<DepartmentSalaryBand> salaryCounts = new ArrayList<>();
+
+    private int loads;
+
+    private Runnable duringLoad = () -> {
+    };
+
+    private EmployeeStatsSummary summary;
+
+    @BeforeEach
+    void setUp() {
+        salaryCounts.add(salaryCount("HR", 1500, 1));
+        salaryCounts.add(salaryCount("IT", 1000, 1));
+        salaryCounts.add(salaryCount("IT", 2000, 1));
+
+        summary = new EmployeeStatsSummary(() -> {
+            loads++;
+            duringLoad.run();
+            return salaryCounts;
+        });
+    }
+
+    @Test
+    void getDepartmentStats_loadedOnceThenServedFromMemory() {
+        List<DepartmentStats> stats = summary.getDepartmentStats(null);
+        summary.getDepartmentStats(null);
+
+        assertEquals(1, loads);
+        assertEquals(2, stats.size());
+        assertEquals("IT", stats.get(1).getDepartment());
+        assertEquals(2, stats.get(1).getHeadcount());
+        assertEquals(3000, stats.get(1).getTotalSalary());
+        assertEquals(1500.0, stats.get(1).getAverageSalary());
+        assertEquals(1000, stats.get(1).getMinSalary());
+        assertEquals(2000, stats.get(1).getMaxSalary());
+        assertNull(stats.get(1).getSalaryBands());
+    }
+
+    @Test
+    void insertedUpdatedDeleted_appliedWithoutReload() {
+        summary.getDepartmentStats(null);
+
+        summary.inserted(new Employee("Nick", "Taylor", "IT", 3000));
+        summary.updated("HR", 1500, new Employee("Maria", "Brown", "IT", 500));
+        summary.deleted(new Employee("John", "Miller", "IT", 2000));
+
+        List<DepartmentStats> stats = summary.getDepartmentStats(null);
+        assertEquals(1, loads);
+        assertEquals(1, stats.size());
+        assertEquals(3, stats.get(0).getHeadcount());
+        assertEquals(4500, stats.get(0).getTotalSalary());
+        assertEquals(500, stats.get(0).getMinSalary());
+        assertEquals(3000, stats.get(0).getMaxSalary());
+    }
+
+    @Test
+    void invalidate_reloadedOnNextRead() {
+        summary.getDepartmentStats(null);
+
+        summary.invalidate();
+        summary.getDepartmentStats(null);
+
+        assertEquals(2, loads);
+    }
+
+    @Test
+    void writeDuringLoad_loadedStateNotKept() {
+        duringLoad = () -> summary.inserted(new Employee("Nick", "Taylor", "IT", 3000));
+        summary.getDepartmentStats(null);
+
+        duringLoad = () -> {
+        };
+        summary.getDepartmentStats(null);
+
+        assertEquals(2, loads);
+    }
+
+    @Test
+    void getDepartmentStats_withBandWidth_salariesGroupedIntoBands() {
+        summary.inserted(new Employee("Nick", "Taylor", "IT", 1999));
+
+        List<DepartmentStats> stats = summary.getDepartmentStats(1000);
+
+        assertEquals(2, stats.get(1).getSalaryBands().size());
+        assertEquals(1000, stats.get(1).getSalaryBands().get(0).getLowerBound());
+        assertEquals(1, stats.get(1).getSalaryBands().get(0).getHeadcount());
+        assertEquals(2000, stats.get(1).getSalaryBands().get(1).getLowerBound());
+    }
+
+    private static DepartmentSalaryBand salaryCount(String department, int salary, long headcount) {
+        return new DepartmentSalaryBand() {
+            @Override
+            public String getDepartment() {
+                return department;
+            }
+
+            @Override
+            public int getLowerBound() {
+                return salary;
+            }
+
+            @Override
+            public long getHeadcount() {
+                return headcount;
+            }
+        };
+    }
+}
@@ -0,0 +1,174 @@
+package ru.botsner.springboot.rest.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.botsner.springboot.rest.entity.Employee;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmployeeWriteBehindQueueTest {
+
+    private final List<List<Employee>> writtenBatches = new ArrayList<>();
+
+    private RuntimeException writeFailure;
+
+    private Runnable duringWrite;
+
+    private EmployeeWriteBehindQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        // Flushed by hand, the scheduled flush never comes within a test
+        queue = newQueue(60_000, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writeFailure = null;
+        duringWrite = null;
+        queue.close();
+    }
+
+    private EmployeeWriteBehindQueue newQueue(long maxLagMillis, int maxPending) {
+        EmployeeWriteBehindQueue queue = new EmployeeWriteBehindQueue(60_000, maxLagMillis, maxPending, 2, true);
+        queue.start(batch -> {
+            if (duringWrite != null) {
+                duringWrite.run();
+            }
+            if (writeFailure != null) {
+                throw writeFailure;
+            }
+            writtenBatches.add(new ArrayList<>(batch));
+        });
+        return queue;
+    }
+
+    @Test
+    void offer_repeatedUpdates_coalescedIntoOneWriteWithLastState() {
+        queue.offer(employee(1, 100), id -> Optional.of(4));
+        Employee queued = queue.offer(employee(1, 200), id -> fail("queued employee must not be looked up"));
+
+        assertEquals(200, queued.getSalary());
+        assertEquals(5, queued.getVersion());
+        assertEquals(200, queue.get(1).getSalary());
+
+        queue.flush();
+
+        assertEquals(1, writtenBatches.size());
+        assertEquals(1, writtenBatches.get(0).size());
+        assertEquals(200, writtenBatches.get(0).get(0).getSalary());
+        assertNull(queue.get(1));
+    }
+
+    @Test
+    void offer_missingEmployee_nullReturnedAndNothingQueued() {
+        assertNull(queue.offer(employee(9, 100), id -> Optional.empty()));
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void flush_moreThanBatchSize_writtenInBatches() {
+        queue = newQueue(60_000, 10);
+        for (int id = 1; id <= 5; id++) {
+            queue.offer(employee(id, 100), ignored -> Optional.of(0));
+        }
+
+        queue.flush();
+
+        assertEquals(List.of(2, 2, 1), writtenBatches.stream().map(List::size).collect(Collectors.toList()));
+    }
+
+    @Test
+    void flush_writeFails_updatesRequeued() {
+        queue.offer(employee(1, 100), id -> Optional.of(0));
+        queue.offer(employee(2, 100), id -> Optional.of(0));
+        writeFailure = new IllegalStateException("database down");
+
+        assertThrows(IllegalStateException.class, queue::flush);
+        assertEquals(2, queue.size());
+
+        writeFailure = null;
+        queue.flush(1);
+        assertEquals(1, queue.size());
+        assertEquals(100, writtenBatches.get(0).get(0).getSalary());
+    }
+
+    @Test
+    void flush_updatedWhileWritten_stillReadableAndNewerUpdateGetsNextVersion() {
+        queue.offer(employee(1, 100), id -> Optional.of(0));
+        List<Employee> seen = new ArrayList<>();
+        duringWrite = () -> {
+            seen.add(queue.get(1));
+            seen.add(queue.offer(employee(1, 200), id -> fail("queued employee must not be looked up")));
+        };
+
+        queue.flush(1);
+
+        assertEquals(100, seen.get(0).getSalary());
+        assertEquals(2, seen.get(1).getVersion());
+        assertEquals(200, queue.get(1).getSalary());
+        assertEquals(2, queue.get(1).getVersion());
+    }
+
+    @Test
+    void flush_writeFailsAfterNewerUpdate_newerUpdateKeepsVersionOfFailedOne() {
+        queue.offer(employee(1, 100), id -> Optional.of(0));
+        duringWrite = () -> queue.offer(employee(1, 200), id -> fail("queued employee must not be looked up"));
+        writeFailure = new IllegalStateException("rolled back");
+
+        assertThrows(IllegalStateException.class, () -> queue.flush(1));
+
+        assertEquals(200, queue.get(1).getSalary());
+        assertEquals(1, queue.get(1).getVersion());
+    }
+
+    @Test
+    void isAccepting_full_onlyQueuedEmployeesAccepted() {
+        queue.offer(employee(1, 100), id -> Optional.of(0));
+        queue.offer(employee(2, 100), id -> Optional.of(0));
+
+        assertTrue(queue.isAccepting(1));
+        assertFalse(queue.isAccepting(3));
+
+        queue.flush();
+        assertTrue(queue.isAccepting(3));
+    }
+
+    @Test
+    void isAccepting_nothingWrittenForMaxLag_rejected() throws InterruptedException {
+        queue = newQueue(10, 10);
+        queue.offer(employee(1, 100), id -> Optional.of(0));
+        writeFailure = new IllegalStateException("database down");
+        Thread.sleep(20);
+
+        assertFalse(queue.isAccepting(1));
+        assertThrows(IllegalStateException.class, queue::flush);
+        assertFalse(queue.isAccepting(2));
+
+        writeFailure = null;
+        queue.flush();
+        assertTrue(queue.isAccepting(2));
+    }
+
+    @Test
+    void close_flushOnShutdown_pendingUpdatesWritten() {
+        queue.offer(employee(1, 100), id -> Optional.of(0));
+
+        queue.close();
+
+        assertEquals(1, writtenBatches.size());
+        assertEquals(0, queue.size());
+    }
+
+    private static Employee employee(int id, int salary) {
+        Employee employee = new Employee("John", "Smith", "IT", salary);
+        employee.setId(id);
+        return employee;
+    }
+}
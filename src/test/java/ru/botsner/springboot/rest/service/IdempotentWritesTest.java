@@ -0,0 +1,138 @@
+package ru.botsner.springboot.rest.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.botsner.springboot.rest.dao.IdempotencyKeyRepository;
+import ru.botsner.springboot.rest.entity.Employee;
+import ru.botsner.springboot.rest.exception.UnprocessableEntityException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource("/application-test.properties")
+class IdempotentWritesTest {
+
+    @Autowired
+    private IdempotentWrites idempotentWrites;
+
+    @Autowired
+    private EmployeeService empService;
+
+    @Autowired
+    private IdempotencyKeyRepository keys;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ObjectProvider<EmployeeWriteBehindQueue> writeBehind;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final AtomicInteger writes = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM idempotency_keys");
+        jdbcTemplate.update("DELETE FROM employees");
+    }
+
+    private Employee create(String name) {
+        writes.incrementAndGet();
+        Employee employee = new Employee(name, "Key", "IT", 1000);
+        empService.saveEmployee(employee);
+        return employee;
+    }
+
+    private int employeeCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM employees", Integer.class);
+    }
+
+    @Test
+    void write_sameKeyAgain_recordedEmployeeReplayedWithoutWrite() {
+        IdempotentWrites.Result first = idempotentWrites.write("key", "create", () -> create("Anna"));
+        IdempotentWrites.Result retry = idempotentWrites.write("key", "create", () -> create("Anna"));
+
+        assertFalse(first.isReplayed());
+        assertTrue(retry.isReplayed());
+        assertEquals(first.getEmployee().getId(), retry.getEmployee().getId());
+        assertEquals("Anna", retry.getEmployee().getName());
+        assertEquals(first.getEmployee().getVersion(), retry.getEmployee().getVersion());
+        assertEquals(1, writes.get());
+        assertEquals(1, employeeCount());
+    }
+
+    @Test
+    void write_failsAfterServiceWrite_writeRolledBackAndKeyFree() {
+        assertThrows(IllegalStateException.class, () -> idempotentWrites.write("key", "create", () -> {
+            create("Anna");
+            throw new IllegalStateException("failed after the insert");
+        }));
+        assertEquals(0, employeeCount());
+        assertFalse(keys.existsById("key"));
+
+        assertFalse(idempotentWrites.write("key", "create", () -> create("Anna")).isReplayed());
+        assertEquals(1, employeeCount());
+    }
+
+    @Test
+    void write_nullResult_notRecorded() {
+        assertNull(idempotentWrites.write("key", "delete 5", () -> null).getEmployee());
+
+        assertFalse(keys.existsById("key"));
+    }
+
+    @Test
+    void write_keyReusedForOtherRequest_refused() {
+        idempotentWrites.write("key", "create a", () -> create("Anna"));
+
+        assertThrows(UnprocessableEntityException.class,
+                () -> idempotentWrites.write("key", "create b", () -> create("Boris")));
+        assertEquals(1, writes.get());
+    }
+
+    @Test
+    void write_keyRecordedConcurrently_writeRolledBackAndFirstReplayed() {
+        // Another node records the key after this one found it free
+        IdempotentWrites.Result result = idempotentWrites.write("key", "create", () -> {
+            Employee lost = create("Lost");
+            CompletableFuture.runAsync(() -> idempotentWrites.write("key", "create", () -> create("Won"))).join();
+            return lost;
+        });
+
+        assertTrue(result.isReplayed());
+        assertEquals("Won", result.getEmployee().getName());
+        assertEquals(1, employeeCount());
+        assertEquals(result.getEmployee().getId(),
+                jdbcTemplate.queryForObject("SELECT id FROM employees", Integer.class));
+    }
+
+    @Test
+    void write_keyExpired_writtenAgainAndPurged() {
+        IdempotentWrites expiring = new IdempotentWrites(keys, transactionTemplate, cacheManager, writeBehind, 0);
+        expiring.write("key", "create a", () -> create("Anna"));
+
+        IdempotentWrites.Result again = expiring.write("key", "create b", () -> create("Boris"));
+
+        assertFalse(again.isReplayed());
+        assertEquals(2, employeeCount());
+        assertEquals("Boris", idempotentWrites.write("key", "create b", () -> create("Clara")).getEmployee().getName());
+
+        expiring.purgeExpired();
+        assertFalse(keys.existsById("key"));
+    }
+}
@@ -0,0 +1,89 @@
+package ru.botsner.springboot.rest.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import ru.botsner.springboot.rest.entity.Employee;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@TestPropertySource(value = "/application-test.properties", properties = {
+        "app.employees.write-behind.enabled=true",
+        "app.employees.write-behind.flush-interval-ms=60000",
+        "spring.datasource.hikari.maximum-pool-size=" + IdempotentWritesWriteBehindTest.POOL_SIZE,
+        "spring.datasource.hikari.connection-timeout=1000"})
+@Sql(value = {"/employee-test-before.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/employee-test-after.sql"}, executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+class IdempotentWritesWriteBehindTest {
+
+    // One keyed write per employee in the test data
+    static final int POOL_SIZE = 3;
+
+    @Autowired
+    private IdempotentWrites idempotentWrites;
+
+    @Autowired
+    private EmployeeService empService;
+
+    @Autowired
+    private EmployeeWriteBehindQueue writeBehind;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM idempotency_keys");
+    }
+
+    @Test
+    void write_poolFullOfKeyedWritesOfQueuedEmployees_queuedUpdatesWrittenFirst() throws Exception {
+        // Every keyed write holds a connection before its service call flushes the queued update
+        CyclicBarrier allHoldConnections = new CyclicBarrier(POOL_SIZE);
+        ExecutorService clients = Executors.newFixedThreadPool(POOL_SIZE);
+        try {
+            List<Future<IdempotentWrites.Result>> results = new ArrayList<>();
+            for (int id = 1; id <= POOL_SIZE; id++) {
+                int empId = id;
+                int queuedVersion = empService.updateEmployee(new Employee("Queued", "Smith", "IT", 1100), id)
+                        .getVersion();
+                results.add(clients.submit(() -> idempotentWrites.write("key " + empId, "update " + empId, empId,
+                        () -> {
+                            await(allHoldConnections);
+                            return empService.updateEmployee(
+                                    new Employee("Keyed", "Smith", "IT", 1200), empId, queuedVersion);
+                        })));
+            }
+
+            for (Future<IdempotentWrites.Result> result : results) {
+                assertEquals(2, result.get(30, TimeUnit.SECONDS).getEmployee().getVersion());
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+        assertEquals(0, writeBehind.size());
+        assertEquals(POOL_SIZE, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM employees WHERE salary = 1200 AND version = 2", Integer.class));
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
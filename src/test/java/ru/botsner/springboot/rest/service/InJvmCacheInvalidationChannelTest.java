@@ -0,0 +1,54 @@
+package ru.botsner.springboot.rest.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InJvmCacheInvalidationChannelTest {
+
+    @Test
+    void publish_deliveredToSubscribersOfSameTopicOnly() {
+        CacheInvalidationChannel first = new InJvmCacheInvalidationChannel("same-topic");
+        CacheInvalidationChannel second = new InJvmCacheInvalidationChannel("same-topic");
+        CacheInvalidationChannel other = new InJvmCacheInvalidationChannel("other-topic");
+        List<String> received = new ArrayList<>();
+        first.subscribe(invalidation -> received.add("first " + invalidation.getIds()));
+        second.subscribe(invalidation -> received.add("second " + invalidation.getIds()));
+        other.subscribe(invalidation -> received.add("other " + invalidation.getIds()));
+
+        first.publish(new CacheInvalidation("node", List.of(1, 2)));
+
+        assertEquals(List.of("first [1, 2]", "second [1, 2]"), received);
+    }
+
+    @Test
+    void publish_failingSubscriber_othersStillReceive() {
+        CacheInvalidationChannel channel = new InJvmCacheInvalidationChannel("failing-subscriber");
+        List<Integer> received = new ArrayList<>();
+        channel.subscribe(invalidation -> {
+            throw new IllegalStateException("Unreachable");
+        });
+        channel.subscribe(invalidation -> received.addAll(invalidation.getIds()));
+
+        channel.publish(new CacheInvalidation("node", List.of(3)));
+
+        assertEquals(List.of(3), received);
+    }
+
+    @Test
+    void closedSubscription_notDelivered() {
+        CacheInvalidationChannel channel = new InJvmCacheInvalidationChannel("closed-subscription");
+        List<Integer> received = new ArrayList<>();
+        CacheInvalidationChannel.Subscription subscription =
+                channel.subscribe(invalidation -> received.addAll(invalidation.getIds()));
+        channel.publish(new CacheInvalidation("node", List.of(4)));
+
+        subscription.close();
+        channel.publish(new CacheInvalidation("node", List.of(5)));
+
+        assertEquals(List.of(4), received);
+    }
+}
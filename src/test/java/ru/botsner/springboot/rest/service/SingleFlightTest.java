@@ -0,0 +1,104 @@
+package ru.botsner.springboot.rest.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 16;
+
+    private final SingleFlight<Integer, String> flights = new SingleFlight<>();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final CountDownLatch loading = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    private String blockingLoad(String value) {
+        loads.incrementAndGet();
+        loading.countDown();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+
+    @Test
+    void load_concurrentCallersForSameKey_loadedOnceAndShared() throws Exception {
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> flights.load(1, () -> blockingLoad("Mike"))));
+        }
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        // Followers that have not reached the map yet would still join the load while it is blocked
+        Thread.sleep(100);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("Mike", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void load_differentKeys_loadedIndependently() {
+        assertEquals("Mike", flights.load(1, () -> "Mike"));
+        assertEquals("John", flights.load(2, () -> "John"));
+        assertEquals("Mike", flights.load(1, () -> "Mike"));
+    }
+
+    @Test
+    void load_leaderFails_followersGetSameException() throws Exception {
+        IllegalStateException failure = new IllegalStateException("connection lost");
+        Future<String> leader = executor.submit(() -> flights.load(1, () -> {
+            blockingLoad("unused");
+            throw failure;
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        Future<String> follower = executor.submit(() -> flights.load(1, () -> fail("must join the leader")));
+        Thread.sleep(100);
+        release.countDown();
+
+        Exception leaderFailure = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+        Exception followerFailure = assertThrows(Exception.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertSame(failure, leaderFailure.getCause());
+        assertSame(failure, followerFailure.getCause());
+
+        // Failures are not remembered
+        assertEquals("Mike", flights.load(1, () -> "Mike"));
+    }
+
+    @Test
+    void forget_loadInFlight_laterCallerStartsNewLoad() throws Exception {
+        Future<String> stale = executor.submit(() -> flights.load(1, () -> blockingLoad("before")));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        flights.forget(1);
+
+        assertEquals("after", flights.load(1, () -> "after"));
+        release.countDown();
+        assertEquals("before", stale.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,29 @@
+CREATE TABLE IF NOT EXISTS employees (
+    id         INT NOT NULL PRIMARY KEY,
+    name       VARCHAR(255),
+    surname    VARCHAR(255),
+    department VARCHAR(255),
+    salary     INT NOT NULL,
+    version    INT NOT NULL DEFAULT 0
+);
+
+CREATE SEQUENCE IF NOT EXISTS employees_seq START WITH 1 INCREMENT BY 50;
+
+CREATE INDEX IF NOT EXISTS idx_employees_name_surname ON employees (name, surname);
+CREATE INDEX IF NOT EXISTS idx_employees_surname ON employees (surname);
+CREATE INDEX IF NOT EXISTS idx_employees_department_salary ON employees (department, salary);
+CREATE INDEX IF NOT EXISTS idx_employees_salary ON employees (salary);
+
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    idempotency_key VARCHAR(255) NOT NULL PRIMARY KEY,
+    fingerprint     CHAR(32) NOT NULL,
+    employee_id     INT NOT NULL,
+    version         INT NOT NULL,
+    name            VARCHAR(255),
+    surname         VARCHAR(255),
+    department      VARCHAR(255),
+    salary          INT NOT NULL,
+    created_at      TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_created_at ON idempotency_keys (created_at);
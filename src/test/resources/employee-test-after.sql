@@ -1 +1,2 @@
 DELETE FROM employees;
+DELETE FROM idempotency_keys;
@@ -1,8 +1,8 @@
 DELETE FROM employees;
 
-INSERT INTO employees (id, name, surname, department, salary) VALUES
-(1, 'John', 'Smith', 'IT', 1000),
-(2, 'Maria', 'Brown', 'HR', 1500),
-(3, 'John', 'Miller', 'IT', 2000);
+INSERT INTO employees (id, name, surname, department, salary, version) VALUES
+(1, 'John', 'Smith', 'IT', 1000, 0),
+(2, 'Maria', 'Brown', 'HR', 1500, 0),
+(3, 'John', 'Miller', 'IT', 2000, 0);
 
-ALTER TABLE employees ALTER COLUMN id RESTART WITH 10;
+ALTER SEQUENCE employees_seq RESTART WITH 101;